@@ -19,6 +19,8 @@ import {
     mealCompletion,
     plannedWorkout,
     exerciseResult,
+    workoutSession,
+    workoutSessionSet,
     userStats,
     message,
 } from './tables.ts';
@@ -53,7 +55,7 @@ export const userRelations = relations(user, ({ many }) => ({
 
     // Workout sessions and results
     plannedWorkouts: many(plannedWorkout),
-    // workoutSessions: many(workoutSession),
+    workoutSessions: many(workoutSession),
     exerciseResults: many(exerciseResult),
 
     // Stats and goals
@@ -160,7 +162,7 @@ export const workoutPlanDayRelations = relations(
             references: [workoutPlan.id],
         }),
         exercises: many(workoutPlanDayExercise),
-        // workoutSessions: many(workoutSession),
+        workoutSessions: many(workoutSession),
     })
 );
 
@@ -197,7 +199,7 @@ export const userWorkoutPlanRelations = relations(
             relationName: 'assignedBy',
         }),
         exerciseResults: many(exerciseResult),
-        // workoutSessions: many(workoutSession),
+        workoutSessions: many(workoutSession),
     })
 );
 
@@ -252,30 +254,45 @@ export const mealCompletionRelations = relations(mealCompletion, ({ one }) => ({
     }),
 }));
 
-// export const workoutSessionRelations = relations(
-//     workoutSession,
-//     ({ one, many }) => ({
-//         user: one(user, {
-//             fields: [workoutSession.userId],
-//             references: [user.id],
-//         }),
-//         userWorkoutPlan: one(userWorkoutPlan, {
-//             fields: [workoutSession.userWorkoutPlanId],
-//             references: [userWorkoutPlan.id],
-//         }),
-//         workoutPlanDay: one(workoutPlanDay, {
-//             fields: [workoutSession.workoutPlanDayId],
-//             references: [workoutPlanDay.id],
-//         }),
-//         exerciseResults: many(exerciseResult),
-//     })
-// );
+export const workoutSessionRelations = relations(
+    workoutSession,
+    ({ one, many }) => ({
+        user: one(user, {
+            fields: [workoutSession.userId],
+            references: [user.id],
+        }),
+        userWorkoutPlan: one(userWorkoutPlan, {
+            fields: [workoutSession.userWorkoutPlanId],
+            references: [userWorkoutPlan.id],
+        }),
+        workoutPlanDay: one(workoutPlanDay, {
+            fields: [workoutSession.workoutPlanDayId],
+            references: [workoutPlanDay.id],
+        }),
+        sets: many(workoutSessionSet),
+        exerciseResults: many(exerciseResult),
+    })
+);
+
+export const workoutSessionSetRelations = relations(
+    workoutSessionSet,
+    ({ one }) => ({
+        workoutSession: one(workoutSession, {
+            fields: [workoutSessionSet.workoutSessionId],
+            references: [workoutSession.id],
+        }),
+        workoutPlanExercise: one(workoutPlanDayExercise, {
+            fields: [workoutSessionSet.workoutPlanDayExerciseId],
+            references: [workoutPlanDayExercise.id],
+        }),
+    })
+);
 
 export const exerciseResultRelations = relations(exerciseResult, ({ one }) => ({
-    // workoutSession: one(workoutSession, {
-    //     fields: [exerciseResult.workoutSessionId],
-    //     references: [workoutSession.id],
-    // }),
+    workoutSession: one(workoutSession, {
+        fields: [exerciseResult.workoutSessionId],
+        references: [workoutSession.id],
+    }),
     workoutPlanExercise: one(workoutPlanDayExercise, {
         fields: [exerciseResult.workoutPlanDayExerciseId],
         references: [workoutPlanDayExercise.id],
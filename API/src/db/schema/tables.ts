@@ -412,41 +412,70 @@ export const plannedWorkout = pgTable('planned_workout', {
 
 // Workout Sessions
 // Used only when trainee actually starts/completes a workout
-// export const workoutSession = pgTable('workout_session', {
-//     id: integer('id').primaryKey().generatedAlwaysAsIdentity(),
-//     userId: text('user_id').references(() => user.id, { onDelete: 'cascade' }),
-//     userWorkoutPlanId: integer('user_workout_plan_id').references(
-//         () => userWorkoutPlan.id,
-//         { onDelete: 'cascade' }
-//     ),
-//     workoutPlanDayId: integer('workout_plan_day_id').references(
-//         () => workoutPlanDay.id,
-//         { onDelete: 'cascade' }
-//     ),
-//     startTime: timestamp('start_time'),
-//     endTime: timestamp('end_time'),
-//     totalDuration: integer('total_duration'), // in seconds
-//     totalCalories: integer('total_calories'),
-//     status: text('status', {
-//         enum: ['in_progress', 'done'],
-//     }).default('in_progress'),
-//     // rating: integer('rating'), // 1-5 stars
-//     // notes: text('notes'),
-//     createdAt: timestamp('created_at')
-//         .$defaultFn(() => new Date())
-//         .notNull(),
-//     updatedAt: timestamp('updated_at')
-//         .$defaultFn(() => new Date())
-//         .notNull(),
-// });
+export const workoutSession = pgTable('workout_session', {
+    id: integer('id').primaryKey().generatedAlwaysAsIdentity(),
+    // Generated on the device, so uploading a session twice stores it once
+    clientSessionId: text('client_session_id').notNull().unique(),
+    userId: text('user_id').references(() => user.id, { onDelete: 'cascade' }),
+    userWorkoutPlanId: integer('user_workout_plan_id').references(
+        () => userWorkoutPlan.id,
+        { onDelete: 'cascade' }
+    ),
+    workoutPlanDayId: integer('workout_plan_day_id').references(
+        () => workoutPlanDay.id,
+        { onDelete: 'cascade' }
+    ),
+    startTime: timestamp('start_time'),
+    endTime: timestamp('end_time'),
+    totalDuration: integer('total_duration'), // in seconds
+    totalCalories: integer('total_calories'),
+    status: text('status', {
+        enum: ['in_progress', 'done', 'abandoned'],
+    }).default('in_progress'),
+    // rating: integer('rating'), // 1-5 stars
+    // notes: text('notes'),
+    createdAt: timestamp('created_at')
+        .$defaultFn(() => new Date())
+        .notNull(),
+    updatedAt: timestamp('updated_at')
+        .$defaultFn(() => new Date())
+        .notNull(),
+});
+
+// Every exercise of a session as it was performed, skipped ones included
+export const workoutSessionSet = pgTable('workout_session_set', {
+    id: integer('id').primaryKey().generatedAlwaysAsIdentity(),
+    workoutSessionId: integer('workout_session_id')
+        .references(() => workoutSession.id, { onDelete: 'cascade' })
+        .notNull(),
+    workoutPlanDayExerciseId: integer(
+        'workout_plan_day_exercise_id'
+    ).references(() => workoutPlanDayExercise.id, {
+        onDelete: 'cascade',
+    }),
+    position: integer('position').notNull(), // order within the session
+    status: text('status', {
+        enum: ['completed', 'skipped'],
+    }).notNull(),
+    reps: integer('reps'),
+    duration: integer('duration'), // in seconds
+    calories: integer('calories'),
+    repTimestamps: json('rep_timestamps').$type<number[]>(), // ms since the set started, one per counted rep
+    restDuration: integer('rest_duration'), // rest actually taken before the set, in seconds
+    startTime: timestamp('start_time'),
+    endTime: timestamp('end_time'),
+    createdAt: timestamp('created_at')
+        .$defaultFn(() => new Date())
+        .notNull(),
+});
 
 // Exercise Results/Logs
 export const exerciseResult = pgTable('exercise_result', {
     id: integer('id').primaryKey().generatedAlwaysAsIdentity(),
-    // workoutSessionId: integer('workout_session_id').references(
-    //     () => workoutSession.id,
-    //     { onDelete: 'cascade' }
-    // ),
+    workoutSessionId: integer('workout_session_id').references(
+        () => workoutSession.id,
+        { onDelete: 'cascade' }
+    ),
     workoutPlanDayExerciseId: integer(
         'workout_plan_day_exercise_id'
     ).references(() => workoutPlanDayExercise.id, {
@@ -460,6 +489,8 @@ export const exerciseResult = pgTable('exercise_result', {
     reps: integer('reps'),
     duration: integer('duration'), // in seconds
     calories: integer('calories'),
+    // Client-generated key of the last write, so a retried upload is not applied twice
+    idempotencyKey: text('idempotency_key'),
     // weight: real('weight'), // in kg
     // distance: real('distance'), // in meters/km
     // heartRate: integer('heart_rate'), // average heart rate
@@ -26,6 +26,9 @@ import {
     // Exercise schemas
     exerciseTypeSchema,
     recordExerciseResultSchema,
+    recordExerciseResultBatchSchema,
+    workoutSessionSetSchema,
+    recordWorkoutSessionSchema,
 
     // Nutrition schemas
     assignNutritionPlanSchema,
@@ -109,6 +112,9 @@ registry.register(
 // Exercise schemas
 registry.register('ExerciseType', exerciseTypeSchema);
 registry.register('RecordExerciseResult', recordExerciseResultSchema);
+registry.register('RecordExerciseResultBatch', recordExerciseResultBatchSchema);
+registry.register('WorkoutSessionSet', workoutSessionSetSchema);
+registry.register('RecordWorkoutSession', recordWorkoutSessionSchema);
 
 // Nutrition schemas
 registry.register('AssignNutritionPlan', assignNutritionPlanSchema);
@@ -936,6 +942,103 @@ registry.registerPath({
     },
 });
 
+registry.registerPath({
+    method: 'post',
+    path: '/api/users/workout/exercise-results/batch',
+    tags: ['Users'],
+    summary: 'Record queued exercise results',
+    description:
+        'Record results queued on the device while offline. Each item carries an idempotency key, so retrying a batch never applies a result twice, and an older result never overwrites a newer one.',
+    request: {
+        body: {
+            description: 'Exercise results, oldest first',
+            content: {
+                'application/json': {
+                    schema: recordExerciseResultBatchSchema,
+                },
+            },
+        },
+    },
+    responses: {
+        200: {
+            description: 'Outcome of every item, in request order',
+            content: {
+                'application/json': {
+                    schema: z
+                        .object({
+                            results: z.array(
+                                z
+                                    .object({
+                                        idempotencyKey: z.string(),
+                                        status: z.enum([
+                                            'recorded',
+                                            'duplicate',
+                                            'superseded',
+                                            'rejected',
+                                        ]),
+                                        id: z.int().optional(),
+                                        error: z.string().optional(),
+                                    })
+                                    .openapi('ExerciseResultBatchItemOutcome')
+                            ),
+                        })
+                        .openapi('ExerciseResultBatchOutcome'),
+                },
+            },
+        },
+        400: {
+            description: 'Invalid input data',
+        },
+        401: {
+            description: 'Unauthorized',
+        },
+    },
+});
+
+registry.registerPath({
+    method: 'post',
+    path: '/api/users/workout/sessions',
+    tags: ['Users'],
+    summary: 'Record workout session',
+    description:
+        'Record a whole workout when it ends: every set as performed, per-rep timestamps, rest taken and skipped exercises. Completed sets also update the exercise results. The body may be sent with Content-Encoding: gzip. Uploading the same clientSessionId again is a no-op.',
+    request: {
+        body: {
+            description: 'Workout session data',
+            content: {
+                'application/json': {
+                    schema: recordWorkoutSessionSchema,
+                },
+            },
+        },
+    },
+    responses: {
+        201: {
+            description: 'Workout session recorded',
+            content: {
+                'application/json': {
+                    schema: z
+                        .object({
+                            id: z.int(),
+                            clientSessionId: z.string(),
+                            status: z.enum(['recorded', 'duplicate']),
+                        })
+                        .openapi('WorkoutSessionOutcome'),
+                },
+            },
+        },
+        200: {
+            description: 'Workout session was already recorded',
+        },
+        400: {
+            description: 'Invalid input data',
+        },
+        401: {
+            description: 'Unauthorized',
+        },
+    },
+});
+
 registry.registerPath({
     method: 'delete',
     path: '/api/users/workout/user-plans/{userWorkoutPlanId}/days/{dayId}/results',
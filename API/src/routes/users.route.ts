@@ -26,6 +26,8 @@ import {
     assignNutritionPlanSchema,
     assignWorkoutPlanSchema,
     recordExerciseResultSchema,
+    recordExerciseResultBatchSchema,
+    recordWorkoutSessionSchema,
     mealCompletionSchema,
     mealIdParamSchema,
     userIdParamSchema,
@@ -365,6 +367,38 @@ router.post(
     }
 );
 
+// Record exercise results queued on the device, each one applied at most once
+router.post(
+    '/workout/exercise-results/batch',
+    requireAuthenticated,
+    validateBody(recordExerciseResultBatchSchema),
+    async (req, res) => {
+        const { results } = req.body;
+
+        const outcome = await WorkoutService.recordExerciseResultBatch(
+            req.session!.user.id,
+            results
+        );
+
+        res.json(outcome);
+    }
+);
+
+// Record a whole workout session in one upload, usually sent gzip-compressed
+router.post(
+    '/workout/sessions',
+    requireAuthenticated,
+    validateBody(recordWorkoutSessionSchema),
+    async (req, res) => {
+        const session = await WorkoutService.recordWorkoutSession(
+            req.session!.user.id,
+            req.body
+        );
+
+        res.status(session.status === 'recorded' ? 201 : 200).json(session);
+    }
+);
+
 // Reset exercise results for a workout day
 router.delete(
     '/workout/user-plans/:userWorkoutPlanId/days/:dayId/results',
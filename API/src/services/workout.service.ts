@@ -5,9 +5,21 @@ import {
     workoutPlanDayExercise,
     userWorkoutPlan,
     exerciseResult,
+    workoutSession,
+    workoutSessionSet,
 } from '../db/schema/tables.ts';
 import { eq, and, or } from 'drizzle-orm';
 
+type QueuedExerciseResult = {
+    idempotencyKey: string;
+    workoutPlanDayExerciseId: number;
+    userWorkoutPlanId: number;
+    reps?: number;
+    duration?: number;
+    calories?: number;
+    completedAt: string;
+};
+
 export class WorkoutService {
     static async getAllWorkoutPlans(userId: string, userRole: string) {
         if (userRole === 'coach') {
@@ -280,6 +292,249 @@ export class WorkoutService {
         });
     }
 
+    // Record results uploaded from the device's offline queue. Every item is applied in
+    // its own transaction, so one bad item does not hold back the rest of the batch.
+    static async recordExerciseResultBatch(
+        userId: string,
+        items: QueuedExerciseResult[]
+    ) {
+        const results = [];
+        for (const item of items) {
+            try {
+                results.push(
+                    await this.recordQueuedExerciseResult(userId, item)
+                );
+            } catch (error) {
+                results.push({
+                    idempotencyKey: item.idempotencyKey,
+                    status: 'rejected' as const,
+                    error:
+                        error instanceof Error ? error.message : String(error),
+                });
+            }
+        }
+        return { results };
+    }
+
+    private static async recordQueuedExerciseResult(
+        userId: string,
+        item: QueuedExerciseResult
+    ) {
+        return await db.transaction(async (tx) => {
+            const outcome = await this.upsertQueuedExerciseResult(
+                tx,
+                userId,
+                item
+            );
+            if (outcome.status === 'recorded') {
+                await this.updateWorkoutPlanProgress(
+                    item.userWorkoutPlanId,
+                    userId,
+                    tx
+                );
+            }
+            return outcome;
+        });
+    }
+
+    // Apply one result that may have been sent before: a resend of the stored write is a
+    // duplicate, and an older result never replaces a newer one
+    private static async upsertQueuedExerciseResult(
+        tx: any,
+        userId: string,
+        item: QueuedExerciseResult,
+        workoutSessionId?: number
+    ) {
+        const completedAt = new Date(item.completedAt);
+        const existingResult = await tx
+            .select()
+            .from(exerciseResult)
+            .where(
+                and(
+                    eq(
+                        exerciseResult.workoutPlanDayExerciseId,
+                        item.workoutPlanDayExerciseId
+                    ),
+                    eq(exerciseResult.userWorkoutPlanId, item.userWorkoutPlanId),
+                    eq(exerciseResult.userId, userId)
+                )
+            )
+            .limit(1);
+
+        const existing = existingResult[0];
+        if (existing && existing.idempotencyKey === item.idempotencyKey) {
+            // A retry of a write that already went through
+            return {
+                idempotencyKey: item.idempotencyKey,
+                status: 'duplicate' as const,
+                id: existing.id as number,
+            };
+        }
+        if (existing && existing.completedAt > completedAt) {
+            // A newer result for the same exercise arrived first
+            return {
+                idempotencyKey: item.idempotencyKey,
+                status: 'superseded' as const,
+                id: existing.id as number,
+            };
+        }
+
+        const values = {
+            reps: item.reps,
+            duration: item.duration,
+            calories: item.calories,
+            idempotencyKey: item.idempotencyKey,
+            workoutSessionId,
+            completedAt,
+        };
+        let result;
+        if (existing) {
+            const updated = await tx
+                .update(exerciseResult)
+                .set(values)
+                .where(eq(exerciseResult.id, existing.id))
+                .returning();
+            result = updated[0];
+        } else {
+            const inserted = await tx
+                .insert(exerciseResult)
+                .values({
+                    ...values,
+                    workoutPlanDayExerciseId: item.workoutPlanDayExerciseId,
+                    userWorkoutPlanId: item.userWorkoutPlanId,
+                    userId,
+                })
+                .returning();
+            result = inserted[0];
+        }
+
+        return {
+            idempotencyKey: item.idempotencyKey,
+            status: 'recorded' as const,
+            id: result.id as number,
+        };
+    }
+
+    // Record a whole workout uploaded by the device when it ended: the session, every set
+    // as performed including skipped ones, and the latest result of each completed
+    // exercise. Uploading the same session again changes nothing.
+    static async recordWorkoutSession(
+        userId: string,
+        data: {
+            clientSessionId: string;
+            userWorkoutPlanId: number;
+            workoutPlanDayId?: number;
+            status: 'done' | 'abandoned';
+            startedAt: string;
+            endedAt: string;
+            sets: {
+                idempotencyKey: string;
+                workoutPlanDayExerciseId: number;
+                position: number;
+                status: 'completed' | 'skipped';
+                reps?: number;
+                duration?: number;
+                calories?: number;
+                repTimestamps?: number[];
+                restDuration?: number;
+                startedAt: string;
+                endedAt: string;
+            }[];
+        }
+    ) {
+        return await db.transaction(async (tx) => {
+            const startTime = new Date(data.startedAt);
+            const endTime = new Date(data.endedAt);
+            const completedSets = data.sets.filter(
+                (set) => set.status === 'completed'
+            );
+            const [session] = await tx
+                .insert(workoutSession)
+                .values({
+                    clientSessionId: data.clientSessionId,
+                    userId,
+                    userWorkoutPlanId: data.userWorkoutPlanId,
+                    workoutPlanDayId: data.workoutPlanDayId,
+                    startTime,
+                    endTime,
+                    totalDuration: Math.round(
+                        (endTime.getTime() - startTime.getTime()) / 1000
+                    ),
+                    totalCalories: completedSets.reduce(
+                        (total, set) => total + (set.calories ?? 0),
+                        0
+                    ),
+                    status: data.status,
+                })
+                // The unique client session id settles concurrent uploads of the same session
+                .onConflictDoNothing({ target: workoutSession.clientSessionId })
+                .returning();
+            if (!session) {
+                const [existingSession] = await tx
+                    .select()
+                    .from(workoutSession)
+                    .where(eq(workoutSession.clientSessionId, data.clientSessionId))
+                    .limit(1);
+                if (existingSession.userId !== userId) {
+                    throw new Error('Workout session belongs to another user');
+                }
+                return {
+                    id: existingSession.id,
+                    clientSessionId: data.clientSessionId,
+                    status: 'duplicate' as const,
+                };
+            }
+
+            if (data.sets.length > 0) {
+                await tx.insert(workoutSessionSet).values(
+                    data.sets.map((set) => ({
+                        workoutSessionId: session.id,
+                        workoutPlanDayExerciseId: set.workoutPlanDayExerciseId,
+                        position: set.position,
+                        status: set.status,
+                        reps: set.reps,
+                        duration: set.duration,
+                        calories: set.calories,
+                        repTimestamps: set.repTimestamps,
+                        restDuration: set.restDuration,
+                        startTime: new Date(set.startedAt),
+                        endTime: new Date(set.endedAt),
+                    }))
+                );
+            }
+
+            for (const set of completedSets) {
+                await this.upsertQueuedExerciseResult(
+                    tx,
+                    userId,
+                    {
+                        idempotencyKey: set.idempotencyKey,
+                        workoutPlanDayExerciseId: set.workoutPlanDayExerciseId,
+                        userWorkoutPlanId: data.userWorkoutPlanId,
+                        reps: set.reps,
+                        duration: set.duration,
+                        calories: set.calories,
+                        completedAt: set.endedAt,
+                    },
+                    session.id
+                );
+            }
+            if (completedSets.length > 0) {
+                await this.updateWorkoutPlanProgress(
+                    data.userWorkoutPlanId,
+                    userId,
+                    tx
+                );
+            }
+
+            return {
+                id: session.id,
+                clientSessionId: data.clientSessionId,
+                status: 'recorded' as const,
+            };
+        });
+    }
+
     // Reset exercise results for a workout day
     static async resetWorkoutDayResults(data: {
         userWorkoutPlanId: number;
@@ -550,6 +550,126 @@ export const recordExerciseResultSchema = z
     })
     .openapi('RecordExerciseResult');
 
+export const recordExerciseResultBatchItemSchema = recordExerciseResultSchema
+    .extend({
+        idempotencyKey: z.string().min(8).max(64).openapi({
+            description:
+                'Client-generated key, the same result sent twice is only applied once',
+            example: '3f2b8c1e-9d4a-4f7e-8a61-2c5d9e0b7a14',
+        }),
+        completedAt: z
+            .string()
+            .refine((date) => !isNaN(Date.parse(date)), {
+                message: 'completedAt must be a valid date',
+            })
+            .openapi({
+                description:
+                    'When the exercise was completed on the device, which may be long before the upload',
+                example: '2025-07-20T10:15:00.000Z',
+            }),
+    })
+    .openapi('RecordExerciseResultBatchItem');
+
+export const recordExerciseResultBatchSchema = z
+    .object({
+        results: z.array(recordExerciseResultBatchItemSchema).min(1).max(100),
+    })
+    .openapi('RecordExerciseResultBatch');
+
+const sessionTimestampSchema = z
+    .string()
+    .refine((date) => !isNaN(Date.parse(date)), {
+        message: 'Must be a valid date',
+    });
+
+export const workoutSessionSetSchema = z
+    .object({
+        idempotencyKey: z.string().min(8).max(64).openapi({
+            description:
+                'Client-generated key, also used for the exercise result of a completed set',
+            example: '3f2b8c1e-9d4a-4f7e-8a61-2c5d9e0b7a14',
+        }),
+        workoutPlanDayExerciseId: z.int().positive().openapi({
+            description: 'ID of the workout plan day exercise',
+            example: 789,
+        }),
+        position: z.int().nonnegative().openapi({
+            description: 'Order of the set within the session',
+            example: 0,
+        }),
+        status: z.enum(['completed', 'skipped']).openapi({
+            description: 'Whether the set was done or skipped',
+            example: 'completed',
+        }),
+        reps: z.int().nonnegative().optional().openapi({
+            description: 'Number of repetitions completed',
+            example: 15,
+        }),
+        duration: z.int().nonnegative().optional().openapi({
+            description: 'Duration of exercise in seconds',
+            example: 180,
+        }),
+        calories: z.int().nonnegative().optional().openapi({
+            description: 'Calories burned during exercise',
+            example: 45,
+        }),
+        repTimestamps: z
+            .array(z.int().nonnegative())
+            .max(1000)
+            .optional()
+            .openapi({
+                description:
+                    'Milliseconds since the set started, one per rep counted by the tracker',
+                example: [2100, 4050, 6120],
+            }),
+        restDuration: z.int().nonnegative().optional().openapi({
+            description: 'Rest actually taken before the set, in seconds',
+            example: 45,
+        }),
+        startedAt: sessionTimestampSchema.openapi({
+            description: 'When the set started on the device',
+            example: '2025-07-20T10:12:00.000Z',
+        }),
+        endedAt: sessionTimestampSchema.openapi({
+            description: 'When the set ended or was skipped on the device',
+            example: '2025-07-20T10:15:00.000Z',
+        }),
+    })
+    .openapi('WorkoutSessionSet');
+
+export const recordWorkoutSessionSchema = z
+    .object({
+        clientSessionId: z.string().min(8).max(64).openapi({
+            description:
+                'Client-generated session ID, the same session uploaded twice is only stored once',
+            example: '9b1d4f0a-2c7e-4e55-b3a8-6f0c1d2e3a47',
+        }),
+        userWorkoutPlanId: z.int().positive().openapi({
+            description: 'ID of the user workout plan',
+            example: 123,
+        }),
+        workoutPlanDayId: z.int().positive().optional().openapi({
+            description: 'ID of the workout plan day',
+            example: 456,
+        }),
+        status: z.enum(['done', 'abandoned']).openapi({
+            description: 'Whether every exercise was reached or the session was left early',
+            example: 'done',
+        }),
+        startedAt: sessionTimestampSchema.openapi({
+            description: 'When the session started on the device',
+            example: '2025-07-20T10:00:00.000Z',
+        }),
+        endedAt: sessionTimestampSchema.openapi({
+            description: 'When the session ended on the device',
+            example: '2025-07-20T10:45:00.000Z',
+        }),
+        sets: z.array(workoutSessionSetSchema).max(200).openapi({
+            description: 'Every exercise of the session in the order performed',
+        }),
+    })
+    .openapi('RecordWorkoutSession');
+
 export const availableSlotsQuerySchema = z
     .object({
         date: z
@@ -2,8 +2,22 @@ package com.example.fitness;
 
 import android.app.Application;
 
+import com.example.fitness.data.sync.ExerciseResultQueue;
+
+import javax.inject.Inject;
+
 import dagger.hilt.android.HiltAndroidApp;
 
 @HiltAndroidApp
 public class MyApp extends Application {
+
+    @Inject
+    ExerciseResultQueue exerciseResultQueue;
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        // Results left over from a session that ended offline
+        exerciseResultQueue.sync();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,61 @@
+package com.example.fitness.ble;
+
+/**
+ * Commands written from the phone to the tracker over the data characteristic, next to
+ * the {@link BleTimeSync} pings. For now the only command sets the {@link SensorProfile}:
+ * <pre>
+ *  0  u8   magic 0xA5
+ *  1  u8   protocol version
+ *  2  u8   frame type 4
+ *  3  u8   flags, 0
+ *  4  u8   mode (0 = predictions, 1 = raw CSV samples)
+ *  5  u8   batch size, frames or samples per notification
+ *  6  u16  sample rate in Hz, 0 for the firmware default
+ *  8  u16  inference stride in ms, 0 for the firmware default
+ * </pre>
+ * The tracker answers with the same frame holding what it actually applied, clamped to
+ * what it supports and with the defaults filled in. Firmware without the command ignores
+ * it and never answers.
+ */
+public final class BleCommands {
+
+    static final int SENSOR_PROFILE_SIZE = 10;
+
+    private static final int MODE_PREDICTIONS = 0;
+    private static final int MODE_RAW_SAMPLES = 1;
+
+    private BleCommands() {
+    }
+
+    public static byte[] encodeSensorProfile(SensorProfile profile) {
+        byte[] command = new byte[SENSOR_PROFILE_SIZE];
+        command[0] = PredictionFrameDecoder.MAGIC;
+        command[1] = (byte) PredictionFrameDecoder.PROTOCOL_VERSION;
+        command[2] = (byte) PredictionFrameDecoder.TYPE_SENSOR_PROFILE;
+        command[4] = (byte) (profile.getMode() == SensorProfile.Mode.RAW_SAMPLES ? MODE_RAW_SAMPLES : MODE_PREDICTIONS);
+        command[5] = (byte) profile.getBatchSize();
+        command[6] = (byte) profile.getSampleRateHz();
+        command[7] = (byte) (profile.getSampleRateHz() >> 8);
+        command[8] = (byte) profile.getStrideMs();
+        command[9] = (byte) (profile.getStrideMs() >> 8);
+        return command;
+    }
+
+    public static boolean isSensorProfile(byte[] data, int offset, int length) {
+        return length >= SENSOR_PROFILE_SIZE && data[offset] == PredictionFrameDecoder.MAGIC
+                && (data[offset + 2] & 0xFF) == PredictionFrameDecoder.TYPE_SENSOR_PROFILE;
+    }
+
+    /**
+     * @return the profile the tracker reported, null if the frame is not a profile
+     */
+    public static SensorProfile decodeSensorProfile(byte[] data, int offset, int length) {
+        if (!isSensorProfile(data, offset, length)) {
+            return null;
+        }
+        SensorProfile.Mode mode = (data[offset + 4] & 0xFF) == MODE_RAW_SAMPLES
+                ? SensorProfile.Mode.RAW_SAMPLES : SensorProfile.Mode.PREDICTIONS;
+        return SensorProfile.of(mode, PredictionFrameDecoder.readUInt16(data, offset + 6),
+                PredictionFrameDecoder.readUInt16(data, offset + 8), data[offset + 5] & 0xFF);
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.fitness.ble;
+
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.app.Service;
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.ServiceInfo;
+import android.os.Build;
+import android.os.IBinder;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+import androidx.core.app.NotificationCompat;
+import androidx.core.app.ServiceCompat;
+import androidx.core.content.ContextCompat;
+
+import javax.inject.Inject;
+
+import dagger.hilt.android.AndroidEntryPoint;
+import io.reactivex.rxjava3.android.schedulers.AndroidSchedulers;
+import io.reactivex.rxjava3.disposables.CompositeDisposable;
+
+/**
+ * Keeps the process in the foreground while the app-wide {@link BleServiceManager} holds
+ * a tracker link, so the GATT connection, MTU and notification subscription survive
+ * switching screens and brief backgrounding. The link itself belongs to the manager;
+ * this service only owns the notification and is started and stopped by it.
+ */
+@AndroidEntryPoint
+public class BleConnectionService extends Service {
+
+    private static final String TAG = "BleConnectionService";
+
+    private static final String CHANNEL_ID = "ble_connection";
+    private static final int NOTIFICATION_ID = 1001;
+    private static final String ACTION_DISCONNECT = "com.example.fitness.ble.action.DISCONNECT";
+
+    @Inject
+    BleServiceManager bleServiceManager;
+
+    private final CompositeDisposable disposables = new CompositeDisposable();
+
+    /**
+     * Called by the manager when the user connects, while the app is in the foreground
+     */
+    static void start(Context context) {
+        try {
+            ContextCompat.startForegroundService(context, new Intent(context, BleConnectionService.class));
+        } catch (IllegalStateException | SecurityException e) {
+            // Not allowed from the background; the link still works while a screen is open
+            Log.w(TAG, "⚠️ Could not start the BLE foreground service: " + e.getMessage());
+        }
+    }
+
+    static void stop(Context context) {
+        context.stopService(new Intent(context, BleConnectionService.class));
+    }
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        createNotificationChannel();
+        startInForeground(buildNotification(0));
+        disposables.add(bleServiceManager.observeConnectedDeviceCount()
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(count -> {
+                    NotificationManager manager = getSystemService(NotificationManager.class);
+                    if (manager != null) {
+                        manager.notify(NOTIFICATION_ID, buildNotification(count));
+                    }
+                }));
+    }
+
+    @Override
+    public int onStartCommand(Intent intent, int flags, int startId) {
+        if (intent != null && ACTION_DISCONNECT.equals(intent.getAction())) {
+            Log.d(TAG, "🔌 Disconnect requested from the notification");
+            // Stops this service as well
+            bleServiceManager.disconnect();
+        }
+        // A restarted process has no link to keep
+        return START_NOT_STICKY;
+    }
+
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+        disposables.clear();
+    }
+
+    @Nullable
+    @Override
+    public IBinder onBind(Intent intent) {
+        return null;
+    }
+
+    private void startInForeground(Notification notification) {
+        int type = Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q
+                ? ServiceInfo.FOREGROUND_SERVICE_TYPE_CONNECTED_DEVICE : 0;
+        try {
+            ServiceCompat.startForeground(this, NOTIFICATION_ID, notification, type);
+        } catch (SecurityException e) {
+            Log.e(TAG, "❌ Missing permission for a connected device service", e);
+            stopSelf();
+        }
+    }
+
+    private void createNotificationChannel() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            NotificationChannel channel = new NotificationChannel(CHANNEL_ID, "Exercise tracker",
+                    NotificationManager.IMPORTANCE_LOW);
+            channel.setDescription("Shown while an exercise tracker is connected");
+            NotificationManager manager = getSystemService(NotificationManager.class);
+            if (manager != null) {
+                manager.createNotificationChannel(channel);
+            }
+        }
+    }
+
+    private Notification buildNotification(int connectedDevices) {
+        Intent disconnect = new Intent(this, BleConnectionService.class).setAction(ACTION_DISCONNECT);
+        PendingIntent disconnectIntent = PendingIntent.getService(this, 0, disconnect,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+
+        String text;
+        if (connectedDevices == 0) {
+            text = "Connecting to exercise tracker...";
+        } else if (connectedDevices == 1) {
+            text = "Exercise tracker connected";
+        } else {
+            text = connectedDevices + " exercise trackers connected";
+        }
+        return new NotificationCompat.Builder(this, CHANNEL_ID)
+                .setSmallIcon(android.R.drawable.stat_sys_data_bluetooth)
+                .setContentTitle("Rep counting")
+                .setContentText(text)
+                .setOngoing(true)
+                .setOnlyAlertOnce(true)
+                .setPriority(NotificationCompat.PRIORITY_LOW)
+                .addAction(0, "Disconnect", disconnectIntent)
+                .build();
+    }
+}
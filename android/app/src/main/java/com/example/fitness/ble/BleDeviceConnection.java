@@ -0,0 +1,622 @@
+package com.example.fitness.ble;
+
+import android.bluetooth.BluetoothDevice;
+import android.bluetooth.BluetoothGatt;
+import android.bluetooth.BluetoothGattCallback;
+import android.bluetooth.BluetoothGattCharacteristic;
+import android.bluetooth.BluetoothGattDescriptor;
+import android.bluetooth.BluetoothGattService;
+import android.bluetooth.BluetoothProfile;
+import android.content.Context;
+import android.os.Handler;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.lang.reflect.Method;
+import java.util.UUID;
+
+/**
+ * The link to one exercise tracker. Every tracker has its own GATT queue, reassembly
+ * buffer, link metrics and pipeline source, so several can stream at once without
+ * sharing state. GATT setup runs on a background handler shared by all connections;
+ * only the {@link Callback} is called on the main thread. Once notifications are on,
+ * the tracker is pinged periodically to keep its {@link BleTimeSync} current and is
+ * sent the requested {@link SensorProfile}.
+ */
+public class BleDeviceConnection {
+
+    // ESP32 BLE Configuration (from ESP32 firmware)
+    static final UUID SERVICE_UUID = UUID.fromString("4fafc201-1fb5-459e-8fcc-c5c9c331914b");
+    static final UUID CHARACTERISTIC_UUID = UUID.fromString("beb5483e-36e1-4688-b7f5-ea07361b26a8");
+    private static final UUID CCCD_UUID = UUID.fromString("00002902-0000-1000-8000-00805f9b34fb");
+
+    private static final int MAX_SERVICE_DISCOVERY_RETRIES = 3;
+    private static final int MAX_MTU = 517; // BLE maximum
+    private static final long MTU_TIMEOUT_MS = 2000;
+    private static final long DESCRIPTOR_TIMEOUT_MS = 2000;
+    private static final int GATT_RETRIES = 2;
+
+    public interface Callback {
+        /**
+         * The link is up, GATT setup has started. Called on the main thread.
+         */
+        void onConnected(BleDeviceConnection connection);
+
+        /**
+         * Notifications are enabled. Called on the main thread.
+         */
+        void onReady(BleDeviceConnection connection);
+
+        /**
+         * The link went down or never came up; the GATT client is already closed.
+         * Called on the main thread.
+         *
+         * @param wasConnected Whether {@link #onConnected} was called for this link
+         * @param status       GATT status of the state change
+         */
+        void onLinkLost(BleDeviceConnection connection, boolean wasConnected, int status);
+
+        void onError(BleDeviceConnection connection, String error);
+    }
+
+    private static final String TAG = "BleDeviceConnection";
+
+    private final Context context;
+    private final BluetoothDevice device;
+    private final String address;
+    private final int source;
+    private final Handler gattHandler;
+    private final Handler mainHandler;
+    private final Callback callback;
+    private final BleProcessingPipeline pipeline;
+    private final GattOperationQueue gattQueue;
+    private final BleNotificationRouter notificationRouter;
+    private final BleLinkMetrics linkMetrics = new BleLinkMetrics();
+    private final BleTimeSync timeSync = new BleTimeSync();
+    private final Runnable pingRunnable = this::sendPing;
+    private final Runnable sensorProfileRunnable = this::sendSensorProfile;
+
+    private volatile BluetoothGatt bluetoothGatt;
+    private volatile boolean connected;
+    private volatile boolean closed;
+    private volatile BleSessionRecorder recorder;
+    private volatile SensorProfile sensorProfile;
+    private volatile SensorProfile appliedSensorProfile;
+    private int serviceDiscoveryRetries; // GATT handler thread
+    private BluetoothGattCharacteristic dataCharacteristic; // GATT handler thread
+
+    /**
+     * @param source      Pipeline source the tracker's frames are submitted to
+     * @param gattHandler Runs the GATT queue, shared by all connections
+     */
+    public BleDeviceConnection(Context context, BluetoothDevice device, int source, BleProcessingPipeline pipeline,
+                               Handler gattHandler, Handler mainHandler, Callback callback) {
+        this.context = context;
+        this.device = device;
+        this.address = device.getAddress();
+        this.source = source;
+        this.gattHandler = gattHandler;
+        this.mainHandler = mainHandler;
+        this.callback = callback;
+        this.pipeline = pipeline;
+        this.gattQueue = new GattOperationQueue(gattHandler);
+        this.notificationRouter = new BleNotificationRouter(
+                (data, offset, length, receivedAtMs) -> pipeline.submit(source, data, offset, length, receivedAtMs));
+    }
+
+    public BluetoothDevice getDevice() {
+        return device;
+    }
+
+    public String getAddress() {
+        return address;
+    }
+
+    public int getSource() {
+        return source;
+    }
+
+    public boolean isConnected() {
+        return connected;
+    }
+
+    public BleLinkMetrics getLinkMetrics() {
+        return linkMetrics;
+    }
+
+    public BleTimeSync getTimeSync() {
+        return timeSync;
+    }
+
+    /**
+     * Record this tracker's raw notifications, null to stop
+     */
+    public void setRecorder(BleSessionRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    /**
+     * Profile to send once notifications are on, and right away if they already are.
+     * Null leaves the tracker as it is.
+     */
+    public void setSensorProfile(SensorProfile profile) {
+        sensorProfile = profile;
+        if (profile != null) {
+            gattHandler.post(sensorProfileRunnable);
+        }
+    }
+
+    /**
+     * What the tracker reported after the last profile command, null until it answered
+     * or if its firmware does not know the command
+     */
+    public SensorProfile getAppliedSensorProfile() {
+        return appliedSensorProfile;
+    }
+
+    /**
+     * @param autoConnect Let the controller connect whenever the device shows up again,
+     *                    used after a dropped link; a direct connect is faster otherwise
+     * @return false if the connection could not be started
+     */
+    public boolean connect(boolean autoConnect) {
+        closed = false;
+        try {
+            // Connect to the device using TRANSPORT_LE for BLE. The GATT cache is kept so a
+            // known device skips full discovery, it is only refreshed if the service is missing
+            bluetoothGatt = device.connectGatt(context, autoConnect, gattCallback, BluetoothDevice.TRANSPORT_LE);
+            return bluetoothGatt != null;
+        } catch (SecurityException e) {
+            callback.onError(this, "Permission denied when connecting: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Disconnect and release the GATT client. No callbacks follow.
+     */
+    public void close() {
+        closed = true;
+        connected = false;
+        gattHandler.removeCallbacks(pingRunnable);
+        gattHandler.removeCallbacks(sensorProfileRunnable);
+        gattQueue.clear();
+        BluetoothGatt gatt = bluetoothGatt;
+        bluetoothGatt = null;
+        if (gatt != null) {
+            try {
+                gatt.disconnect();
+                gatt.close();
+            } catch (SecurityException e) {
+                Log.e(TAG, "Permission denied when disconnecting", e);
+            }
+        }
+        // Firmware resends its label table on the next connection
+        notificationRouter.reset();
+    }
+
+    /**
+     * Drop a partially received frame, e.g. before the link comes back
+     */
+    public void resetReassembly() {
+        notificationRouter.reset();
+    }
+
+    public void requestConnectionPriority(int priority) {
+        BluetoothGatt gatt = bluetoothGatt;
+        if (!connected || gatt == null) {
+            return;
+        }
+        try {
+            boolean requested = gatt.requestConnectionPriority(priority);
+            Log.d(TAG, "📶 Connection priority " + priority + " requested for " + address + ": " + requested);
+            if (requested) {
+                linkMetrics.setConnectionPriority(priority);
+            }
+        } catch (SecurityException e) {
+            Log.e(TAG, "Permission denied when requesting connection priority", e);
+        }
+    }
+
+    /**
+     * Sample the RSSI through the queue, so it never collides with setup requests
+     */
+    public void readRssi() {
+        BluetoothGatt gatt = bluetoothGatt;
+        if (connected && gatt != null) {
+            gattQueue.enqueue(GattOperationQueue.Type.READ_RSSI, "RSSI read", GattOperationQueue.DEFAULT_TIMEOUT_MS, 0,
+                    gatt::readRemoteRssi, null);
+        }
+    }
+
+    /**
+     * Drop a partially received frame the tracker stopped sending, called with the link stats
+     */
+    public void expireStaleFrame() {
+        notificationRouter.expireStaleFrame(SystemClock.elapsedRealtime());
+    }
+
+    /**
+     * @param queueDrops Frames the pipeline dropped for this tracker's source
+     */
+    public BleLinkStats snapshotLinkStats(long queueDrops) {
+        return linkMetrics.snapshot(address, SystemClock.elapsedRealtime(),
+                notificationRouter.getFrameAssembler().getTimeoutCount(), queueDrops,
+                timeSync.getRoundTripMs(), timeSync.getDriftPpm());
+    }
+
+    /**
+     * Runs on the GATT handler, then again every {@link BleTimeSync#getPingIntervalMs()}
+     */
+    private void sendPing() {
+        BluetoothGatt gatt = bluetoothGatt;
+        BluetoothGattCharacteristic characteristic = dataCharacteristic;
+        if (!connected || gatt == null || characteristic == null) {
+            return;
+        }
+        gattQueue.enqueue(GattOperationQueue.Type.WRITE_CHARACTERISTIC, "Time sync ping",
+                GattOperationQueue.DEFAULT_TIMEOUT_MS, 0, () -> {
+                    // Stamped when actually issued, not when queued
+                    long sentAtNanos = SystemClock.elapsedRealtimeNanos();
+                    byte[] ping = timeSync.createPing(sentAtNanos / 1_000_000);
+                    BleSessionRecorder r = recorder;
+                    if (r != null) {
+                        // A replay needs the send time to use the echo
+                        r.record(ping, 0, ping.length, sentAtNanos);
+                    }
+                    characteristic.setValue(ping);
+                    characteristic.setWriteType(BluetoothGattCharacteristic.WRITE_TYPE_DEFAULT);
+                    return gatt.writeCharacteristic(characteristic);
+                }, status -> gattHandler.postDelayed(pingRunnable, timeSync.getPingIntervalMs()));
+    }
+
+    /**
+     * Runs on the GATT handler. Before notifications are on this does nothing, the
+     * profile is sent from {@code onNotificationsEnabled} then.
+     */
+    private void sendSensorProfile() {
+        BluetoothGatt gatt = bluetoothGatt;
+        BluetoothGattCharacteristic characteristic = dataCharacteristic;
+        SensorProfile profile = sensorProfile;
+        if (!connected || gatt == null || characteristic == null || profile == null) {
+            return;
+        }
+        Log.d(TAG, "🎛️ Sending sensor profile to " + address + ": " + profile);
+        gattQueue.enqueue(GattOperationQueue.Type.WRITE_CHARACTERISTIC, "Sensor profile",
+                GattOperationQueue.DEFAULT_TIMEOUT_MS, GATT_RETRIES, () -> {
+                    characteristic.setValue(BleCommands.encodeSensorProfile(profile));
+                    characteristic.setWriteType(BluetoothGattCharacteristic.WRITE_TYPE_DEFAULT);
+                    return gatt.writeCharacteristic(characteristic);
+                }, status -> {
+                    if (status != BluetoothGatt.GATT_SUCCESS) {
+                        Log.w(TAG, "⚠️ Sensor profile write to " + address + " failed with status: " + status);
+                    }
+                });
+    }
+
+    /**
+     * The tracker's answer to a profile command, on the binder thread
+     */
+    private void onSensorProfileApplied(SensorProfile applied) {
+        appliedSensorProfile = applied;
+        Log.d(TAG, "🎛️ Tracker " + address + " applied sensor profile: " + applied);
+        if (source == 0) {
+            // Raw samples are only taken from the first tracker
+            pipeline.setRawSampleRate(applied.getMode() == SensorProfile.Mode.RAW_SAMPLES
+                    ? applied.getSampleRateHz() : 0);
+        }
+    }
+
+    private void postToMain(Runnable task) {
+        mainHandler.post(() -> {
+            if (!closed) {
+                task.run();
+            }
+        });
+    }
+
+    private void postError(String error) {
+        postToMain(() -> callback.onError(this, error));
+    }
+
+    /**
+     * Clear the internal cache and force a refresh of services from the remote device.
+     * This uses reflection to call the hidden refresh() method in BluetoothGatt.
+     * Based on solutions from StackOverflow and Android BLE best practices.
+     */
+    private boolean refreshDeviceCache(BluetoothGatt gatt) {
+        try {
+            Method refreshMethod = gatt.getClass().getMethod("refresh");
+            if (refreshMethod != null) {
+                boolean result = (Boolean) refreshMethod.invoke(gatt);
+                Log.d(TAG, "🔄 BLE cache refresh result: " + result);
+                return result;
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "❌ Failed to refresh BLE cache: " + e.getMessage());
+        }
+        return false;
+    }
+
+    private final BluetoothGattCallback gattCallback = new BluetoothGattCallback() {
+        @Override
+        public void onConnectionStateChange(BluetoothGatt gatt, int status, int newState) {
+            Log.d(TAG, "🔗 " + address + " connection state change - Status: " + status + ", New State: " + newState);
+
+            if (status == BluetoothGatt.GATT_SUCCESS && newState == BluetoothProfile.STATE_CONNECTED) {
+                connected = true;
+                Log.d(TAG, "✅ Successfully connected to " + address);
+                linkMetrics.reset();
+                postToMain(() -> callback.onConnected(BleDeviceConnection.this));
+
+                // The MTU goes first so the CCCD write and the first notifications
+                // already use it, then discovery, which a known device answers from cache
+                requestMtu(gatt);
+                discoverServices(gatt);
+
+            } else if (status != BluetoothGatt.GATT_SUCCESS || newState == BluetoothProfile.STATE_DISCONNECTED) {
+                if (status == BluetoothGatt.GATT_SUCCESS) {
+                    Log.d(TAG, "🔌 Disconnected from " + address);
+                } else {
+                    Log.e(TAG, "❌ Connection to " + address + " failed with status: " + status);
+                }
+                boolean wasConnected = connected;
+                connected = false;
+                gattHandler.removeCallbacks(pingRunnable);
+                gattHandler.removeCallbacks(sensorProfileRunnable);
+                gattQueue.clear();
+                // The tracker may restart before it is back, and drops the profile anyway
+                timeSync.reset();
+                appliedSensorProfile = null;
+                if (source == 0) {
+                    pipeline.setRawSampleRate(0);
+                }
+
+                // Clean up resources as recommended by Android BLE best practices
+                if (gatt != null) {
+                    gatt.close();
+                }
+                postToMain(() -> {
+                    bluetoothGatt = null;
+                    callback.onLinkLost(BleDeviceConnection.this, wasConnected, status);
+                });
+            }
+        }
+
+        @Override
+        public void onServicesDiscovered(BluetoothGatt gatt, int status) {
+            gattQueue.complete(GattOperationQueue.Type.DISCOVER_SERVICES, status);
+        }
+
+        private void discoverServices(BluetoothGatt gatt) {
+            Log.d(TAG, "🔍 Starting service discovery...");
+            gattQueue.enqueue(GattOperationQueue.Type.DISCOVER_SERVICES, "Service discovery",
+                    GattOperationQueue.DEFAULT_TIMEOUT_MS, GATT_RETRIES,
+                    gatt::discoverServices, status -> onServicesReady(gatt, status));
+        }
+
+        /**
+         * Runs on the GATT handler once discovery has completed, or failed for good
+         */
+        private void onServicesReady(BluetoothGatt gatt, int status) {
+            if (status != BluetoothGatt.GATT_SUCCESS) {
+                Log.e(TAG, "❌ Service discovery failed with status: " + status);
+                postError("Service discovery failed with status: " + status);
+                return;
+            }
+            Log.d(TAG, "🔍 Services discovered (attempt " + (serviceDiscoveryRetries + 1) + "), " + gatt.getServices().size() + " found");
+
+            BluetoothGattService targetService = findServiceByUuid(gatt, SERVICE_UUID);
+            BluetoothGattCharacteristic targetCharacteristic = null;
+
+            if (targetService != null) {
+                targetCharacteristic = findCharacteristicByUuid(targetService, CHARACTERISTIC_UUID);
+                if (targetCharacteristic == null) {
+                    Log.e(TAG, "❌ Target characteristic not found in service: " + CHARACTERISTIC_UUID);
+                }
+            } else {
+                Log.e(TAG, "❌ Target service not found: " + SERVICE_UUID);
+
+                // Retry service discovery if we haven't reached max retries
+                if (serviceDiscoveryRetries < MAX_SERVICE_DISCOVERY_RETRIES) {
+                    serviceDiscoveryRetries++;
+                    Log.d(TAG, "🔄 Retrying service discovery (attempt " + serviceDiscoveryRetries + "/" + MAX_SERVICE_DISCOVERY_RETRIES + ")");
+
+                    // The cached table is stale, e.g. after a firmware update
+                    refreshDeviceCache(gatt);
+                    discoverServices(gatt);
+                    return;
+                } else {
+                    Log.e(TAG, "❌ Max retries reached, service discovery failed");
+                }
+            }
+
+            // Setup notifications if we found the characteristic
+            if (targetCharacteristic != null) {
+                serviceDiscoveryRetries = 0; // Reset retry counter on success
+                setupNotifications(gatt, targetCharacteristic);
+            } else {
+                Log.e(TAG, "❌ No suitable characteristic found for notifications");
+                postError("Could not find the required BLE characteristic");
+            }
+        }
+
+        /**
+         * Find service by UUID with case-insensitive matching
+         */
+        private BluetoothGattService findServiceByUuid(BluetoothGatt gatt, UUID targetUuid) {
+            for (BluetoothGattService service : gatt.getServices()) {
+                if (service.getUuid().toString().equalsIgnoreCase(targetUuid.toString())) {
+                    return service;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Find characteristic by UUID with case-insensitive matching
+         */
+        private BluetoothGattCharacteristic findCharacteristicByUuid(BluetoothGattService service, UUID targetUuid) {
+            for (BluetoothGattCharacteristic characteristic : service.getCharacteristics()) {
+                if (characteristic.getUuid().toString().equalsIgnoreCase(targetUuid.toString())) {
+                    return characteristic;
+                }
+            }
+            return null;
+        }
+
+        private void setupNotifications(BluetoothGatt gatt, BluetoothGattCharacteristic targetCharacteristic) {
+            try {
+                // Enable local notifications first
+                boolean notificationSet = gatt.setCharacteristicNotification(targetCharacteristic, true);
+                Log.d(TAG, "📡 Notification enabled: " + notificationSet);
+
+                int properties = targetCharacteristic.getProperties();
+                BluetoothGattDescriptor descriptor = targetCharacteristic.getDescriptor(CCCD_UUID);
+                if (descriptor == null) {
+                    Log.w(TAG, "⚠️ CCCD descriptor not found - notifications may not work properly");
+                    postError("CCCD descriptor not found");
+                    return;
+                }
+
+                // Choose the right descriptor value based on what the characteristic supports
+                byte[] value;
+                if ((properties & BluetoothGattCharacteristic.PROPERTY_NOTIFY) != 0) {
+                    value = BluetoothGattDescriptor.ENABLE_NOTIFICATION_VALUE;
+                } else if ((properties & BluetoothGattCharacteristic.PROPERTY_INDICATE) != 0) {
+                    value = BluetoothGattDescriptor.ENABLE_INDICATION_VALUE;
+                } else {
+                    Log.w(TAG, "⚠️ Characteristic doesn't support notify or indicate");
+                    postError("Characteristic doesn't support notifications");
+                    return;
+                }
+
+                descriptor.setValue(value);
+
+                boolean writable = (properties & BluetoothGattCharacteristic.PROPERTY_WRITE) != 0;
+                gattQueue.enqueue(GattOperationQueue.Type.WRITE_DESCRIPTOR, "CCCD write",
+                        DESCRIPTOR_TIMEOUT_MS, GATT_RETRIES,
+                        () -> gatt.writeDescriptor(descriptor),
+                        status -> onNotificationsEnabled(status, writable ? targetCharacteristic : null));
+            } catch (SecurityException e) {
+                Log.e(TAG, "Permission denied when setting notification", e);
+                postError("Permission denied when setting notification");
+            }
+        }
+
+        @Override
+        public void onCharacteristicChanged(BluetoothGatt gatt, BluetoothGattCharacteristic characteristic) {
+            byte[] data = characteristic.getValue();
+            if (data != null) {
+                if (Log.isLoggable(TAG, Log.VERBOSE)) {
+                    Log.v(TAG, "📡 Raw BLE chunk received from " + address + " (" + data.length + " bytes)");
+                }
+
+                long receivedAtNanos = SystemClock.elapsedRealtimeNanos();
+                linkMetrics.onNotification(data.length);
+                BleSessionRecorder r = recorder;
+                if (r != null) {
+                    // Echoes and profile answers too, a replay handles them like this does
+                    r.record(data, 0, data.length, receivedAtNanos);
+                }
+                if (timeSync.onNotification(data, 0, data.length, receivedAtNanos / 1_000_000)) {
+                    return;
+                }
+                if (BleCommands.isSensorProfile(data, 0, data.length)) {
+                    onSensorProfileApplied(BleCommands.decodeSensorProfile(data, 0, data.length));
+                    return;
+                }
+
+                notificationRouter.onNotification(data, 0, data.length, receivedAtNanos / 1_000_000);
+            } else {
+                Log.d(TAG, "⚠️ Received null data from characteristic");
+            }
+        }
+
+        /**
+         * Request a larger MTU size for better data throughput. A refusal is not fatal,
+         * the default MTU still works with fragmented frames.
+         */
+        private void requestMtu(BluetoothGatt gatt) {
+            Log.d(TAG, "📡 Requesting MTU size increase (" + MAX_MTU + " bytes)");
+            gattQueue.enqueue(GattOperationQueue.Type.REQUEST_MTU, "MTU request", MTU_TIMEOUT_MS, 0,
+                    () -> gatt.requestMtu(MAX_MTU), status -> {
+                        if (status != BluetoothGatt.GATT_SUCCESS) {
+                            Log.w(TAG, "⚠️ MTU change failed with status: " + status + ", using default MTU");
+                        }
+                    });
+        }
+
+        @Override
+        public void onMtuChanged(BluetoothGatt gatt, int mtu, int status) {
+            Log.d(TAG, "📡 MTU changed - New size: " + mtu + " bytes, Status: " + status);
+            if (status == BluetoothGatt.GATT_SUCCESS) {
+                linkMetrics.setMtu(mtu);
+            }
+            gattQueue.complete(GattOperationQueue.Type.REQUEST_MTU, status);
+        }
+
+        @Override
+        public void onReadRemoteRssi(BluetoothGatt gatt, int rssi, int status) {
+            if (status == BluetoothGatt.GATT_SUCCESS) {
+                linkMetrics.setRssi(rssi);
+            }
+            gattQueue.complete(GattOperationQueue.Type.READ_RSSI, status);
+        }
+
+        @Override
+        public void onCharacteristicWrite(BluetoothGatt gatt, BluetoothGattCharacteristic characteristic, int status) {
+            gattQueue.complete(GattOperationQueue.Type.WRITE_CHARACTERISTIC, status);
+        }
+
+        /**
+         * Runs on the GATT handler once the CCCD write has completed, or failed for good
+         *
+         * @param writable The data characteristic if pings and commands can be written to it
+         */
+        private void onNotificationsEnabled(int status, BluetoothGattCharacteristic writable) {
+            if (status == BluetoothGatt.GATT_SUCCESS) {
+                Log.d(TAG, "✅ Notifications active on " + address);
+                if (writable != null) {
+                    dataCharacteristic = writable;
+                    gattHandler.removeCallbacks(pingRunnable);
+                    sendPing();
+                    sendSensorProfile();
+                } else {
+                    Log.w(TAG, "⚠️ Characteristic is not writable, no time sync or sensor profile, "
+                            + "frames keep their arrival time");
+                }
+                postToMain(() -> callback.onReady(BleDeviceConnection.this));
+            } else {
+                postError("Failed to enable notifications (status " + status + ")");
+            }
+        }
+
+        @Override
+        public void onDescriptorWrite(BluetoothGatt gatt, BluetoothGattDescriptor descriptor, int status) {
+            Log.d(TAG, "📝 Descriptor write callback - UUID: " + descriptor.getUuid() + ", Status: " + status);
+            gattQueue.complete(GattOperationQueue.Type.WRITE_DESCRIPTOR, status);
+            if (status != BluetoothGatt.GATT_SUCCESS) {
+                Log.e(TAG, "❌ CCCD descriptor write failed with status: " + status);
+                // Common status codes:
+                // 1 = GATT_INVALID_HANDLE
+                // 3 = GATT_WRITE_NOT_PERMIT
+                // 8 = GATT_INVALID_OFFSET
+                switch (status) {
+                    case 1:
+                        Log.e(TAG, "   Status 1: Invalid handle - descriptor might not exist");
+                        break;
+                    case 3:
+                        Log.e(TAG, "   Status 3: Write not permitted - insufficient authentication/encryption");
+                        break;
+                    case 8:
+                        Log.e(TAG, "   Status 8: Invalid offset");
+                        break;
+                    default:
+                        Log.e(TAG, "   Unknown status code: " + status);
+                        break;
+                }
+            }
+        }
+    };
+}
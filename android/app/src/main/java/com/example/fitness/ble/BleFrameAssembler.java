@@ -0,0 +1,181 @@
+package com.example.fitness.ble;
+
+/**
+ * Reassembles JSON frames that the ESP32 splits across several BLE notifications.
+ * Incoming bytes are copied into a fixed ring buffer while brace depth is tracked
+ * byte by byte, so a frame boundary is found as soon as its closing brace arrives
+ * without re-scanning the buffer, and nothing is allocated per chunk.
+ */
+public class BleFrameAssembler {
+
+    public interface FrameListener {
+        /**
+         * Called with one complete frame. The slice is only valid for the duration
+         * of the call, copy it if it has to outlive the callback.
+         */
+        void onFrame(byte[] buffer, int offset, int length);
+    }
+
+    public static final int DEFAULT_CAPACITY = 2048;
+    public static final long DEFAULT_TIMEOUT_MS = 1000; // Drop incomplete frames after 1 second of silence
+
+    private final byte[] ring;
+    private final int mask;
+    private final byte[] wrapBuffer; // Contiguous copy for frames that wrap around the ring end
+    private final long timeoutMs;
+    private FrameListener listener;
+
+    private long writePosition;
+    private long frameStart;
+    private int depth;
+    private boolean inString;
+    private boolean escaped;
+    private long lastChunkTimeMs;
+
+    private long frameCount;
+    private volatile long timeoutCount; // Read by the link metrics on the main thread
+    private long overflowCount;
+
+    public BleFrameAssembler() {
+        this(DEFAULT_CAPACITY, DEFAULT_TIMEOUT_MS);
+    }
+
+    /**
+     * @param capacity  Maximum frame size in bytes, rounded up to a power of two
+     * @param timeoutMs Silence after which a partially received frame is discarded
+     */
+    public BleFrameAssembler(int capacity, long timeoutMs) {
+        int size = Integer.highestOneBit(Math.max(capacity, 64) - 1) << 1;
+        this.ring = new byte[size];
+        this.mask = size - 1;
+        this.wrapBuffer = new byte[size];
+        this.timeoutMs = timeoutMs;
+    }
+
+    public void setFrameListener(FrameListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Feed one notification payload.
+     *
+     * @param nowMs Arrival time of the chunk, used to expire stale partial frames
+     */
+    public void accept(byte[] data, int offset, int length, long nowMs) {
+        if (depth > 0 && nowMs - lastChunkTimeMs > timeoutMs) {
+            timeoutCount++;
+            discardFrame();
+        }
+        lastChunkTimeMs = nowMs;
+
+        final int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            byte b = data[i];
+
+            if (depth == 0) {
+                // Between frames: skip whitespace and anything else until an opening brace
+                if (b == '{') {
+                    frameStart = writePosition;
+                    ring[(int) (writePosition++ & mask)] = b;
+                    depth = 1;
+                }
+                continue;
+            }
+
+            if (writePosition - frameStart >= ring.length) {
+                // Frame larger than the buffer, drop it and resync on the next opening brace
+                overflowCount++;
+                discardFrame();
+                continue;
+            }
+            ring[(int) (writePosition++ & mask)] = b;
+
+            if (inString) {
+                if (escaped) {
+                    escaped = false;
+                } else if (b == '\\') {
+                    escaped = true;
+                } else if (b == '"') {
+                    inString = false;
+                }
+            } else if (b == '"') {
+                inString = true;
+            } else if (b == '{') {
+                depth++;
+            } else if (b == '}') {
+                depth--;
+                if (depth == 0) {
+                    emitFrame();
+                }
+            }
+        }
+    }
+
+    public void accept(byte[] data, long nowMs) {
+        accept(data, 0, data.length, nowMs);
+    }
+
+    /**
+     * Discard a partial frame if no chunk arrived within the timeout.
+     *
+     * @return true if a partial frame was dropped
+     */
+    public boolean expireIfStale(long nowMs) {
+        if (depth > 0 && nowMs - lastChunkTimeMs > timeoutMs) {
+            timeoutCount++;
+            discardFrame();
+            return true;
+        }
+        return false;
+    }
+
+    private void emitFrame() {
+        frameCount++;
+        if (listener == null) {
+            return;
+        }
+        int start = (int) (frameStart & mask);
+        int length = (int) (writePosition - frameStart);
+        if (start + length <= ring.length) {
+            listener.onFrame(ring, start, length);
+        } else {
+            int head = ring.length - start;
+            System.arraycopy(ring, start, wrapBuffer, 0, head);
+            System.arraycopy(ring, 0, wrapBuffer, head, length - head);
+            listener.onFrame(wrapBuffer, 0, length);
+        }
+    }
+
+    private void discardFrame() {
+        depth = 0;
+        inString = false;
+        escaped = false;
+        writePosition = frameStart;
+    }
+
+    public void reset() {
+        discardFrame();
+        writePosition = 0;
+        frameStart = 0;
+    }
+
+    public boolean isInFrame() {
+        return depth > 0;
+    }
+
+    public int getBufferedBytes() {
+        return depth > 0 ? (int) (writePosition - frameStart) : 0;
+    }
+
+    public long getFrameCount() {
+        return frameCount;
+    }
+
+    public long getTimeoutCount() {
+        return timeoutCount;
+    }
+
+    public long getOverflowCount() {
+        return overflowCount;
+    }
+}
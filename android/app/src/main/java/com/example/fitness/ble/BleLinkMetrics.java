@@ -0,0 +1,114 @@
+package com.example.fitness.ble;
+
+/**
+ * Accumulates link counters for {@link BleLinkStats}. Notifications are counted on the
+ * binder thread and sequence numbers on the pipeline thread, each by a single writer;
+ * everything else is set and snapshotted on the main thread.
+ */
+public class BleLinkMetrics {
+
+    public static final int DEFAULT_MTU = 23;
+
+    // Firmware numbers frames with a wrapping u16
+    private static final int SEQUENCE_MASK = 0xFFFF;
+    private static final int MAX_FORWARD_GAP = 0x8000; // Larger jumps mean the firmware restarted
+
+    // Binder thread
+    private volatile long notificationCount;
+    private volatile long byteCount;
+
+    // Pipeline thread
+    private long lastSequence = -1;
+    private volatile long sequenceGaps;
+    private volatile long lostFrames;
+
+    // Main thread
+    private volatile int mtu = DEFAULT_MTU;
+    private volatile int connectionPriority;
+    private volatile int rssi = BleLinkStats.RSSI_UNKNOWN;
+    private long lastSnapshotMs = -1;
+    private long lastNotificationCount;
+    private long lastByteCount;
+
+    public void onNotification(int length) {
+        notificationCount++;
+        byteCount += length;
+    }
+
+    /**
+     * Check a frame's sequence number for gaps.
+     *
+     * @param sequence The firmware sequence number, negative if the frame has none
+     */
+    public void onSequence(long sequence) {
+        if (sequence < 0) {
+            return;
+        }
+        long last = lastSequence;
+        lastSequence = sequence;
+        if (last < 0) {
+            return;
+        }
+        int delta = (int) ((sequence - last) & SEQUENCE_MASK);
+        if (delta > 1 && delta < MAX_FORWARD_GAP) {
+            sequenceGaps++;
+            lostFrames += delta - 1;
+        }
+    }
+
+    public void setMtu(int mtu) {
+        this.mtu = mtu;
+    }
+
+    public void setConnectionPriority(int connectionPriority) {
+        this.connectionPriority = connectionPriority;
+    }
+
+    public void setRssi(int rssi) {
+        this.rssi = rssi;
+    }
+
+    /**
+     * Take a snapshot, rates are measured since the previous one.
+     *
+     * @param deviceAddress      The tracker these counters belong to
+     * @param reassemblyTimeouts Total from the {@link BleFrameAssembler}
+     * @param queueDrops         Total from the {@link BleProcessingPipeline}
+     * @param clockRoundTripMs   From the {@link BleTimeSync}, -1 while not synced
+     * @param clockDriftPpm      From the {@link BleTimeSync}
+     */
+    public BleLinkStats snapshot(String deviceAddress, long nowMs, long reassemblyTimeouts, long queueDrops,
+                                 long clockRoundTripMs, double clockDriftPpm) {
+        long notifications = notificationCount;
+        long bytes = byteCount;
+        float notificationRate = 0;
+        float byteRate = 0;
+        if (lastSnapshotMs >= 0 && nowMs > lastSnapshotMs) {
+            float seconds = (nowMs - lastSnapshotMs) / 1000f;
+            notificationRate = (notifications - lastNotificationCount) / seconds;
+            byteRate = (bytes - lastByteCount) / seconds;
+        }
+        lastSnapshotMs = nowMs;
+        lastNotificationCount = notifications;
+        lastByteCount = bytes;
+        return new BleLinkStats(deviceAddress, nowMs, mtu, connectionPriority, rssi, notificationRate, byteRate,
+                notifications, bytes, reassemblyTimeouts, sequenceGaps, lostFrames, queueDrops,
+                clockRoundTripMs, (float) clockDriftPpm);
+    }
+
+    /**
+     * Start over for a new connection. Call while no notifications or frames are flowing.
+     */
+    public void reset() {
+        notificationCount = 0;
+        byteCount = 0;
+        lastSequence = -1;
+        sequenceGaps = 0;
+        lostFrames = 0;
+        mtu = DEFAULT_MTU;
+        rssi = BleLinkStats.RSSI_UNKNOWN;
+        lastSnapshotMs = -1;
+        lastNotificationCount = 0;
+        lastByteCount = 0;
+    }
+}
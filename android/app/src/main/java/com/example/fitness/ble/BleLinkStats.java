@@ -0,0 +1,188 @@
+package com.example.fitness.ble;
+
+import java.util.Locale;
+
+/**
+ * One snapshot of the BLE link, published about once a second by
+ * {@link BleServiceManager#observeLinkStats()} for each connected tracker. Counters are
+ * totals since the link came up, rates cover the time since the previous snapshot.
+ */
+public final class BleLinkStats {
+
+    /** RSSI value used before the first reading, as reported by Android for "unavailable" */
+    public static final int RSSI_UNKNOWN = 127;
+
+    // BluetoothGatt.CONNECTION_PRIORITY_*
+    private static final String[] PRIORITY_NAMES = {"balanced", "high", "low power"};
+
+    private final String deviceAddress;
+    private final long timestampMs;
+    private final int mtu;
+    private final int connectionPriority;
+    private final int rssi;
+    private final float notificationsPerSecond;
+    private final float bytesPerSecond;
+    private final long notificationCount;
+    private final long byteCount;
+    private final long reassemblyTimeouts;
+    private final long sequenceGaps;
+    private final long lostFrames;
+    private final long queueDrops;
+    private final long clockRoundTripMs;
+    private final float clockDriftPpm;
+
+    BleLinkStats(String deviceAddress, long timestampMs, int mtu, int connectionPriority, int rssi,
+                 float notificationsPerSecond, float bytesPerSecond,
+                 long notificationCount, long byteCount, long reassemblyTimeouts,
+                 long sequenceGaps, long lostFrames, long queueDrops,
+                 long clockRoundTripMs, float clockDriftPpm) {
+        this.deviceAddress = deviceAddress;
+        this.timestampMs = timestampMs;
+        this.mtu = mtu;
+        this.connectionPriority = connectionPriority;
+        this.rssi = rssi;
+        this.notificationsPerSecond = notificationsPerSecond;
+        this.bytesPerSecond = bytesPerSecond;
+        this.notificationCount = notificationCount;
+        this.byteCount = byteCount;
+        this.reassemblyTimeouts = reassemblyTimeouts;
+        this.sequenceGaps = sequenceGaps;
+        this.lostFrames = lostFrames;
+        this.queueDrops = queueDrops;
+        this.clockRoundTripMs = clockRoundTripMs;
+        this.clockDriftPpm = clockDriftPpm;
+    }
+
+    /**
+     * The tracker this snapshot describes
+     */
+    public String getDeviceAddress() {
+        return deviceAddress;
+    }
+
+    /**
+     * {@link android.os.SystemClock#elapsedRealtime()} when the snapshot was taken
+     */
+    public long getTimestampMs() {
+        return timestampMs;
+    }
+
+    /**
+     * Negotiated ATT MTU, 23 until the MTU exchange completes
+     */
+    public int getMtu() {
+        return mtu;
+    }
+
+    /**
+     * Requested {@code BluetoothGatt.CONNECTION_PRIORITY_*}
+     */
+    public int getConnectionPriority() {
+        return connectionPriority;
+    }
+
+    /**
+     * Last sampled RSSI in dBm, {@link #RSSI_UNKNOWN} before the first reading
+     */
+    public int getRssi() {
+        return rssi;
+    }
+
+    public float getNotificationsPerSecond() {
+        return notificationsPerSecond;
+    }
+
+    public float getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+
+    public long getNotificationCount() {
+        return notificationCount;
+    }
+
+    public long getByteCount() {
+        return byteCount;
+    }
+
+    /**
+     * Fragmented JSON frames discarded because the rest never arrived
+     */
+    public long getReassemblyTimeouts() {
+        return reassemblyTimeouts;
+    }
+
+    /**
+     * Times the firmware sequence number skipped ahead
+     */
+    public long getSequenceGaps() {
+        return sequenceGaps;
+    }
+
+    /**
+     * Predictions the firmware sent that never arrived, from the sequence gaps
+     */
+    public long getLostFrames() {
+        return lostFrames;
+    }
+
+    /**
+     * Frames dropped by the processing queue because decoding fell behind
+     */
+    public long getQueueDrops() {
+        return queueDrops;
+    }
+
+    /**
+     * Fastest ping round trip behind the clock estimate, -1 while the tracker's clock is
+     * not synchronized
+     */
+    public long getClockRoundTripMs() {
+        return clockRoundTripMs;
+    }
+
+    /**
+     * Drift of the tracker's clock against the phone's, in parts per million
+     */
+    public float getClockDriftPpm() {
+        return clockDriftPpm;
+    }
+
+    /**
+     * Multi-line summary for the debug panel
+     */
+    public String format() {
+        String priority = connectionPriority >= 0 && connectionPriority < PRIORITY_NAMES.length
+                ? PRIORITY_NAMES[connectionPriority] : String.valueOf(connectionPriority);
+        String signal = rssi == RSSI_UNKNOWN ? "-" : rssi + " dBm";
+        String clock = clockRoundTripMs < 0 ? "not synced"
+                : String.format(Locale.US, "RTT %d ms, drift %.0f ppm", clockRoundTripMs, clockDriftPpm);
+        return String.format(Locale.US,
+                "MTU %d, priority %s, RSSI %s%n"
+                        + "%.1f notifications/s, %.0f B/s%n"
+                        + "Lost frames %d (%d gaps), timeouts %d, queue drops %d%n"
+                        + "Clock %s",
+                mtu, priority, signal,
+                notificationsPerSecond, bytesPerSecond,
+                lostFrames, sequenceGaps, reassemblyTimeouts, queueDrops,
+                clock);
+    }
+
+    @Override
+    public String toString() {
+        return "BleLinkStats{device=" + deviceAddress
+                + ", mtu=" + mtu
+                + ", priority=" + connectionPriority
+                + ", rssi=" + rssi
+                + ", notificationsPerSecond=" + notificationsPerSecond
+                + ", bytesPerSecond=" + bytesPerSecond
+                + ", notifications=" + notificationCount
+                + ", bytes=" + byteCount
+                + ", reassemblyTimeouts=" + reassemblyTimeouts
+                + ", sequenceGaps=" + sequenceGaps
+                + ", lostFrames=" + lostFrames
+                + ", queueDrops=" + queueDrops
+                + ", clockRoundTripMs=" + clockRoundTripMs
+                + ", clockDriftPpm=" + clockDriftPpm
+                + '}';
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.fitness.ble;
+
+import android.util.Log;
+
+/**
+ * First stage for every raw notification. Binary frames and CSV samples arriving
+ * between JSON frames are passed straight on, everything else goes through the
+ * {@link BleFrameAssembler}. Shared by {@link BleServiceManager} and
+ * {@link BleSessionReplayer} so a replayed session takes exactly the live path.
+ * Notifications arrive on the binder thread while expiry runs on a timer, so the
+ * assembler is only touched with this router's lock held.
+ */
+public class BleNotificationRouter {
+
+    public interface FrameSink {
+        /**
+         * One complete frame, only valid for the duration of the call.
+         */
+        boolean submit(byte[] data, int offset, int length, long receivedAtMs);
+    }
+
+    private static final String TAG = "BleNotificationRouter";
+
+    private final BleFrameAssembler frameAssembler = new BleFrameAssembler();
+    private final FrameSink sink;
+    private long chunkReceivedAtMs;
+
+    public BleNotificationRouter(FrameSink sink) {
+        this.sink = sink;
+        frameAssembler.setFrameListener(this::onFrameAssembled);
+    }
+
+    /**
+     * Feed one notification payload, in arrival order.
+     */
+    public synchronized void onNotification(byte[] data, int offset, int length, long receivedAtMs) {
+        chunkReceivedAtMs = receivedAtMs;
+        // A frame whose tail was lost must not keep binary frames and CSV off the direct path
+        expireStaleFrame(receivedAtMs);
+
+        if (!frameAssembler.isInFrame() && PredictionFrameDecoder.isBinaryFrame(data, offset, length)) {
+            // Binary frames always fit in a single notification, batched ones back to back
+            int end = offset + length;
+            while (offset < end) {
+                int frameLength = PredictionFrameDecoder.frameLength(data, offset, end - offset);
+                sink.submit(data, offset, frameLength, receivedAtMs);
+                offset += frameLength;
+            }
+            return;
+        }
+        if (!frameAssembler.isInFrame() && ImuCsvParser.isCsvPayload(data, offset, length)) {
+            // Raw CSV samples, one or a batch of whole lines per notification
+            sink.submit(data, offset, length, receivedAtMs);
+            return;
+        }
+
+        // Handle data reassembly for fragmented JSON messages
+        frameAssembler.accept(data, offset, length, receivedAtMs);
+    }
+
+    /**
+     * Drop a partially received frame if nothing arrived for it within the timeout.
+     * Called periodically as well, so a frame the tracker stopped sending is dropped
+     * without waiting for the next notification.
+     *
+     * @param nowMs On the same clock as the notifications' arrival times
+     */
+    public synchronized void expireStaleFrame(long nowMs) {
+        if (frameAssembler.expireIfStale(nowMs)) {
+            Log.w(TAG, "⏰ Data timeout - discarded incomplete message");
+        }
+    }
+
+    private void onFrameAssembled(byte[] buffer, int offset, int length) {
+        sink.submit(buffer, offset, length, chunkReceivedAtMs);
+    }
+
+    /**
+     * Drop a partially received frame, e.g. after a disconnect
+     */
+    public synchronized void reset() {
+        frameAssembler.reset();
+    }
+
+    public BleFrameAssembler getFrameAssembler() {
+        return frameAssembler;
+    }
+}
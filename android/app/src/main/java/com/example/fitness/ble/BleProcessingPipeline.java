@@ -0,0 +1,467 @@
+package com.example.fitness.ble;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.util.Log;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Moves frame decoding and everything downstream of it (rep counting) off the main
+ * thread. Complete frames are copied into a bounded {@link FrameQueue} on the binder
+ * thread and drained on a dedicated {@link HandlerThread}, so a busy UI can no longer
+ * delay rep detection. Listeners are called on the pipeline thread and should only
+ * post rep and state changes to the UI.
+ * Raw IMU CSV samples are parsed on this thread as well, handed to the
+ * {@link ImuSampleListener} and classified by an {@link ImuInferenceEngine} built
+ * from the {@link ModelSource} on first use.
+ * <p>
+ * Several trackers can stream at once, each as its own source with its own queue and
+ * decoder, so one producer never shares a queue with another. With more than one source
+ * the decoded frames go through a {@link SensorFusion} that aligns them in time before
+ * the prediction listener sees them. Raw IMU CSV is only taken from source 0.
+ */
+public class BleProcessingPipeline {
+
+    public interface PredictionListener {
+        /**
+         * Called on the pipeline thread. The frame is reused for the next prediction.
+         */
+        void onPrediction(PredictionFrame frame);
+    }
+
+    public interface SourceFrameListener {
+        /**
+         * Called on the pipeline thread for every decoded frame of one source, before
+         * fusion. The frame is reused for the next one from that source.
+         */
+        void onSourceFrame(int source, PredictionFrame frame);
+    }
+
+    public interface ImuSampleListener {
+        /**
+         * Called on the pipeline thread for every raw IMU sample, accelerations in g
+         * and rotation rates in deg/s.
+         */
+        void onImuSample(float ax, float ay, float az, float gx, float gy, float gz, long receivedAtMs);
+
+        /**
+         * Called on the pipeline thread before the first sample, and again before the
+         * first sample after the tracker changed its rate.
+         *
+         * @param sampleRateHz See {@link #setRawSampleRate}, 0 if unknown
+         */
+        default void onSampleRateChanged(int sampleRateHz) {
+        }
+    }
+
+    public interface ModelSource {
+        /**
+         * Called once on the pipeline thread when the first raw IMU sample arrives.
+         */
+        DenseClassifier load() throws IOException;
+    }
+
+    public static final int DEFAULT_QUEUE_CAPACITY = 32;
+    public static final int DEFAULT_SLOT_SIZE = 1024;
+
+    private static final String TAG = "BleProcessingPipeline";
+    private static final String THREAD_NAME = "BleProcessing";
+
+    private final FrameQueue.OverflowPolicy policy;
+    private final int capacity;
+    private final PredictionLabels labels; // Shared, so a label has the same id on every source
+    private final Source[] sources = new Source[SensorFusion.MAX_SOURCES];
+    private volatile int sourceCount = 1;
+    private final SensorFusion fusion;
+    private final PredictionFrame frame; // Source 0, also the output of the local classifier
+    private final byte[] scratch;
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+    private final Runnable drainRunnable = this::drain;
+    private final Runnable resetRunnable = this::resetOnPipelineThread;
+
+    private volatile PredictionListener listener;
+    private volatile SourceFrameListener sourceListener;
+    private volatile ImuSampleListener sampleListener;
+    private volatile ModelSource modelSource;
+    private final ImuCsvParser csvParser = new ImuCsvParser();
+    private final ImuCsvParser.SampleListener csvSampleListener = this::onCsvSample;
+    private volatile int rawSampleRateHz;
+    private volatile int rawSampleIntervalMs;
+    private ImuSampleListener rateListener; // Last told about the rate, pipeline thread only
+    private int rateListenerSampleRateHz;
+    private long csvReceivedAtMs;
+    private int csvSampleIntervalMs;
+    private ImuInferenceEngine inferenceEngine; // Pipeline thread only
+    private boolean modelUnavailable;
+    private HandlerThread thread;
+    private volatile Handler handler;
+    private volatile long processedCount;
+
+    public BleProcessingPipeline() {
+        this(FrameQueue.OverflowPolicy.DROP_OLDEST, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    public BleProcessingPipeline(FrameQueue.OverflowPolicy policy, int capacity) {
+        this.policy = policy;
+        this.capacity = capacity;
+        this.labels = new PredictionLabels();
+        this.sources[0] = new Source(policy, capacity, labels);
+        this.frame = sources[0].frame;
+        this.fusion = new SensorFusion(labels);
+        fusion.setListener(this::dispatch);
+        this.scratch = new byte[DEFAULT_SLOT_SIZE];
+    }
+
+    /**
+     * Number of trackers streaming at once, at most {@link SensorFusion#MAX_SOURCES}.
+     * Call from one thread while none of the new sources is submitting.
+     */
+    public synchronized void setSourceCount(int count) {
+        if (count < 1 || count > SensorFusion.MAX_SOURCES) {
+            throw new IllegalArgumentException("Source count out of range: " + count);
+        }
+        for (int i = 1; i < count; i++) {
+            if (sources[i] == null) {
+                sources[i] = new Source(policy, capacity, labels);
+            }
+        }
+        if (count != sourceCount) {
+            sourceCount = count;
+            post(fusion::reset);
+        }
+    }
+
+    public int getSourceCount() {
+        return sourceCount;
+    }
+
+    /**
+     * Weight of one source in the fused scores, see {@link SensorFusion#setWeight}
+     */
+    public void setSourceWeight(int source, float weight) {
+        post(() -> fusion.setWeight(source, weight));
+    }
+
+    public void setPredictionListener(PredictionListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Clock estimate used to stamp the frames of a source with their sample time,
+     * see {@link PredictionFrame#getSampledAtMs()}. Null to use arrival times. The source
+     * must exist, see {@link #setSourceCount}.
+     */
+    public void setTimeSync(int source, BleTimeSync timeSync) {
+        sources[source].timeSync = timeSync;
+    }
+
+    public void setSourceFrameListener(SourceFrameListener sourceListener) {
+        this.sourceListener = sourceListener;
+    }
+
+    public void setImuSampleListener(ImuSampleListener sampleListener) {
+        this.sampleListener = sampleListener;
+    }
+
+    /**
+     * Clear the sample listener if it is still {@code sampleListener}
+     */
+    public void removeImuSampleListener(ImuSampleListener sampleListener) {
+        if (this.sampleListener == sampleListener) {
+            this.sampleListener = null;
+        }
+    }
+
+    /**
+     * Rate of the raw CSV samples, see {@link SensorProfile#getSampleRateHz()}. With a
+     * rate, the samples of a batched notification are spread back from its arrival time
+     * instead of all sharing it; 0 for one sample per notification.
+     */
+    public void setRawSampleRate(int sampleRateHz) {
+        rawSampleRateHz = Math.max(sampleRateHz, 0);
+        rawSampleIntervalMs = sampleRateHz > 0 ? 1000 / sampleRateHz : 0;
+    }
+
+    /**
+     * Model used for raw IMU CSV streams. Without one, CSV frames are ignored.
+     */
+    public void setModelSource(ModelSource modelSource) {
+        this.modelSource = modelSource;
+    }
+
+    public synchronized void start() {
+        if (thread != null && thread.isAlive()) {
+            return;
+        }
+        // Rep timing matters more than background work, but it should never starve the UI
+        thread = new HandlerThread(THREAD_NAME, Process.THREAD_PRIORITY_DISPLAY);
+        thread.start();
+        handler = new Handler(thread.getLooper());
+    }
+
+    public synchronized void quit() {
+        if (thread != null) {
+            thread.quitSafely();
+            thread = null;
+        }
+        handler = null;
+        drainScheduled.set(false);
+    }
+
+    /**
+     * Queue one complete frame. Called on the binder thread.
+     *
+     * @return false if the frame was rejected (pipeline stopped or frame too large)
+     */
+    public boolean submit(byte[] data, int offset, int length, long receivedAtMs) {
+        return submit(0, data, offset, length, receivedAtMs);
+    }
+
+    /**
+     * Queue one complete frame from a source. Each source must be fed by a single thread.
+     *
+     * @return false if the frame was rejected (pipeline stopped, unknown source or frame too large)
+     */
+    public boolean submit(int source, byte[] data, int offset, int length, long receivedAtMs) {
+        Handler h = handler;
+        if (h == null || source >= sourceCount
+                || !sources[source].queue.offer(data, offset, length, receivedAtMs)) {
+            return false;
+        }
+        if (drainScheduled.compareAndSet(false, true)) {
+            h.post(drainRunnable);
+        }
+        return true;
+    }
+
+    /**
+     * Run a task on the pipeline thread, after the frames queued so far. Used to change
+     * counter state without racing the listeners. Runs inline when the pipeline is stopped.
+     */
+    public void post(Runnable task) {
+        Handler h = handler;
+        if (h == null || !h.post(task)) {
+            task.run();
+        }
+    }
+
+    /**
+     * Drop queued frames and forget the label table, e.g. after a disconnect.
+     */
+    public void reset() {
+        Handler h = handler;
+        if (h != null) {
+            h.post(resetRunnable);
+        }
+    }
+
+    /**
+     * Drop the queued frames and label table of one source, e.g. after that tracker's
+     * link dropped. The others keep streaming.
+     */
+    public void reset(int source) {
+        Handler h = handler;
+        if (h != null) {
+            h.post(() -> {
+                Source s = sources[source];
+                if (s != null) {
+                    s.queue.clear();
+                    s.decoder.reset();
+                }
+                fusion.reset(source);
+            });
+        }
+    }
+
+    private void drain() {
+        drainScheduled.set(false);
+        int count = sourceCount;
+        for (int i = 0; i < count; i++) {
+            FrameQueue queue = sources[i].queue;
+            int length;
+            while ((length = queue.poll(scratch)) >= 0) {
+                process(i, scratch, 0, length, queue.getLastTimestamp());
+            }
+        }
+    }
+
+    /**
+     * Decode and dispatch one complete frame on the calling thread, bypassing the queue.
+     * Used to replay recorded sessions on the JVM, never mixed with {@link #start()}.
+     */
+    public void processNow(byte[] data, int offset, int length, long receivedAtMs) {
+        process(0, data, offset, length, receivedAtMs);
+    }
+
+    private void process(int source, byte[] data, int offset, int length, long receivedAtMs) {
+        if (ImuCsvParser.isCsvPayload(data, offset, length)) {
+            if (source == 0) {
+                processSamples(data, offset, length, receivedAtMs);
+            }
+            return;
+        }
+        Source s = sources[source];
+        if (!s.decoder.decode(data, offset, length, s.frame)) {
+            return;
+        }
+        PredictionFrame f = s.frame;
+        f.receivedAtMs = receivedAtMs;
+        f.sampledAtMs = receivedAtMs;
+        BleTimeSync sync = s.timeSync;
+        if (sync != null && f.deviceTimeMs >= 0) {
+            long sampledAtMs = sync.toLocal(f.deviceTimeMs);
+            if (sampledAtMs >= 0) {
+                // A sample cannot be taken after its frame arrived
+                f.sampledAtMs = Math.min(sampledAtMs, receivedAtMs);
+                f.timeSynced = true;
+            }
+        }
+        SourceFrameListener sl = sourceListener;
+        if (sl != null) {
+            sl.onSourceFrame(source, f);
+        }
+        if (sourceCount > 1) {
+            fusion.accept(source, f);
+        } else {
+            dispatch(f);
+        }
+    }
+
+    private void dispatch(PredictionFrame output) {
+        processedCount++;
+        PredictionListener l = listener;
+        if (l != null) {
+            l.onPrediction(output);
+        }
+    }
+
+    private void processSamples(byte[] data, int offset, int length, long receivedAtMs) {
+        if (inferenceEngine == null) {
+            loadInferenceEngine();
+        }
+        ImuSampleListener s = sampleListener;
+        int sampleRateHz = rawSampleRateHz;
+        if (s != null && (s != rateListener || sampleRateHz != rateListenerSampleRateHz)) {
+            rateListener = s;
+            rateListenerSampleRateHz = sampleRateHz;
+            s.onSampleRateChanged(sampleRateHz);
+        }
+        csvReceivedAtMs = receivedAtMs;
+        csvSampleIntervalMs = rawSampleIntervalMs;
+        if (csvSampleIntervalMs > 0) {
+            // The last line of a batch is the newest sample
+            int lines = ImuCsvParser.countLines(data, offset, length);
+            csvReceivedAtMs -= (long) Math.max(0, lines - 1) * csvSampleIntervalMs;
+        }
+        csvParser.parse(data, offset, length, csvSampleListener);
+    }
+
+    private void onCsvSample(float ax, float ay, float az, float gx, float gy, float gz) {
+        ImuSampleListener s = sampleListener;
+        if (s != null) {
+            s.onImuSample(ax, ay, az, gx, gy, gz, csvReceivedAtMs);
+        }
+        ImuInferenceEngine engine = inferenceEngine;
+        if (engine != null && engine.addSample(ax, ay, az, gx, gy, gz, csvReceivedAtMs, frame)) {
+            dispatch(frame);
+        }
+        csvReceivedAtMs += csvSampleIntervalMs;
+    }
+
+    private void loadInferenceEngine() {
+        ModelSource source = modelSource;
+        if (modelUnavailable || source == null) {
+            return;
+        }
+        try {
+            DenseClassifier classifier = source.load();
+            inferenceEngine = new ImuInferenceEngine(classifier, labels);
+            Log.d(TAG, "🧠 Loaded IMU classifier: " + classifier.getLabelCount() + " labels, window "
+                    + classifier.getWindowSize());
+        } catch (IOException | IllegalArgumentException e) {
+            modelUnavailable = true;
+            Log.w(TAG, "⚠️ IMU classifier unavailable, raw sensor data is only used for signal counting", e);
+        }
+    }
+
+    private void resetOnPipelineThread() {
+        for (Source s : sources) {
+            if (s != null) {
+                s.queue.clear();
+                s.decoder.reset();
+            }
+        }
+        fusion.reset();
+        if (inferenceEngine != null) {
+            inferenceEngine.reset();
+        }
+    }
+
+    public long getFramesProcessed() {
+        return processedCount;
+    }
+
+    public long getFramesDropped() {
+        long dropped = 0;
+        for (int i = 0; i < sourceCount; i++) {
+            dropped += getFramesDropped(i);
+        }
+        return dropped;
+    }
+
+    public long getFramesDropped(int source) {
+        FrameQueue queue = sources[source].queue;
+        return queue.getDroppedCount() + queue.getOversizedCount();
+    }
+
+    public long getFramesCoalesced() {
+        long coalesced = 0;
+        for (int i = 0; i < sourceCount; i++) {
+            coalesced += sources[i].queue.getCoalescedCount();
+        }
+        return coalesced;
+    }
+
+    public int getQueueDepth() {
+        int depth = 0;
+        for (int i = 0; i < sourceCount; i++) {
+            depth += sources[i].queue.getDepth();
+        }
+        return depth;
+    }
+
+    public int getMaxQueueDepth() {
+        int max = 0;
+        for (int i = 0; i < sourceCount; i++) {
+            max = Math.max(max, sources[i].queue.getMaxDepth());
+        }
+        return max;
+    }
+
+    public long getMalformedFrames() {
+        long malformed = csvParser.getMalformedCount();
+        for (int i = 0; i < sourceCount; i++) {
+            malformed += sources[i].decoder.getMalformedCount();
+        }
+        return malformed;
+    }
+
+    /**
+     * Queue, decoder and frame of one tracker
+     */
+    private static final class Source {
+        final FrameQueue queue;
+        final PredictionFrameDecoder decoder;
+        final PredictionFrame frame;
+        volatile BleTimeSync timeSync;
+
+        Source(FrameQueue.OverflowPolicy policy, int capacity, PredictionLabels labels) {
+            this.queue = new FrameQueue(capacity, DEFAULT_SLOT_SIZE, policy);
+            this.decoder = new PredictionFrameDecoder(labels);
+            this.frame = new PredictionFrame(labels);
+        }
+    }
+}
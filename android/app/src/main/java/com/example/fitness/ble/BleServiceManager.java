@@ -4,44 +4,68 @@ import android.Manifest;
 import android.bluetooth.BluetoothAdapter;
 import android.bluetooth.BluetoothDevice;
 import android.bluetooth.BluetoothGatt;
-import android.bluetooth.BluetoothGattCallback;
-import android.bluetooth.BluetoothGattCharacteristic;
-import android.bluetooth.BluetoothGattDescriptor;
-import android.bluetooth.BluetoothGattService;
 import android.bluetooth.BluetoothManager;
-import android.bluetooth.BluetoothProfile;
 import android.bluetooth.le.BluetoothLeScanner;
 import android.bluetooth.le.ScanCallback;
+import android.bluetooth.le.ScanFilter;
 import android.bluetooth.le.ScanResult;
+import android.bluetooth.le.ScanSettings;
 import android.content.Context;
+import android.content.SharedPreferences;
 import android.content.pm.PackageManager;
 import android.os.Handler;
+import android.os.HandlerThread;
 import android.os.Looper;
+import android.os.ParcelUuid;
+import android.os.SystemClock;
+import android.text.TextUtils;
 import android.util.Log;
 
 import androidx.core.app.ActivityCompat;
 
-import org.json.JSONObject;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
-import java.lang.reflect.Method;
-import java.util.UUID;
+import io.reactivex.rxjava3.core.Observable;
+import io.reactivex.rxjava3.subjects.BehaviorSubject;
 
+/**
+ * Owns the tracker links for the whole app. One instance is provided by Hilt and shared
+ * by every screen, so a workout reuses the link made on the previous screen; a
+ * {@link BleConnectionService} keeps the process in the foreground while it is up.
+ */
 public class BleServiceManager {
     
     private static final String TAG = "BleServiceManager";
     
     // ESP32 BLE Configuration (from ESP32 firmware)
     private static final String ESP32_NAME = "MyESP32";
-    private static final String ESP32_MAC = "8C:D0:B2:A8:74:F4";
-    private static final UUID SERVICE_UUID = UUID.fromString("4fafc201-1fb5-459e-8fcc-c5c9c331914b");
-    private static final UUID CHARACTERISTIC_UUID = UUID.fromString("beb5483e-36e1-4688-b7f5-ea07361b26a8");
     
     private static final long SCAN_TIMEOUT = 10000; // 10 seconds
+    private static final long CACHED_CONNECT_TIMEOUT = 3000; // Scan instead if the last device does not answer
+    private static final long IDLE_DISCONNECT_MS = 120000; // Link kept this long once no screen listens
+    
+    /** How the current connection was established, for the time-to-first-prediction metric */
+    public enum ConnectPath {
+        /** Straight to the last connected device, no scan */
+        CACHED_DEVICE,
+        /** Filtered scan */
+        SCAN,
+        /** Background reconnect after the link dropped mid-session */
+        AUTO_RECONNECT
+    }
     
     public interface BleConnectionListener {
         void onConnectionStatusChanged(boolean isConnected);
         void onDeviceFound(String deviceName, String deviceAddress);
-        void onDataReceived(String data);
         void onError(String error);
         void onScanStarted();
         void onScanStopped();
@@ -50,26 +74,81 @@ public class BleServiceManager {
     private final Context context;
     private BluetoothAdapter bluetoothAdapter;
     private BluetoothLeScanner bluetoothLeScanner;
-    private BluetoothGatt bluetoothGatt;
-    private BluetoothDevice targetDevice;
-    private BleConnectionListener listener;
+    // Support multiple listeners (e.g., connection dialog + workout screen simultaneously)
+    private final Set<BleConnectionListener> listeners = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    private final Runnable idleDisconnect = this::onIdle;
     private boolean isScanning = false;
-    private boolean isConnected = false;
     private final Handler handler = new Handler(Looper.getMainLooper());
-    private int serviceDiscoveryRetries = 0;
-    private static final int MAX_SERVICE_DISCOVERY_RETRIES = 3;
     
-    // Data buffering for handling fragmented BLE messages
-    private StringBuilder dataBuffer = new StringBuilder();
-    private static final String JSON_END_MARKER = "}";
-    private static final long DATA_TIMEOUT_MS = 1000; // 1 second timeout for incomplete messages
-    private Runnable dataTimeoutRunnable;
+    // One connection per tracker, indexed by its pipeline source. Changed on the main
+    // thread, read on the pipeline thread for per-device metrics
+    private final AtomicReferenceArray<BleDeviceConnection> connections =
+            new AtomicReferenceArray<>(SensorFusion.MAX_SOURCES);
+    private volatile int connectedCount = 0;
+    private final BehaviorSubject<Integer> connectedDevices = BehaviorSubject.createDefault(0);
+    private int deviceCount;
+    
+    // GATT setup of every tracker runs here, away from the main thread
+    private static final String GATT_THREAD_NAME = "BleGatt";
+    private HandlerThread gattThread;
+    private Handler gattHandler;
+    private final BleDeviceConnection.Callback connectionCallback = new ConnectionCallback();
+    
+    // Link metrics, sampled and published on the main thread while connected
+    private static final long LINK_STATS_INTERVAL_MS = 1000;
+    private final BehaviorSubject<BleLinkStats> linkStats = BehaviorSubject.create();
+    private final Runnable linkStatsTick = this::publishLinkStats;
+    private int connectionPriority = BluetoothGatt.CONNECTION_PRIORITY_HIGH;
+    private volatile SensorProfile sensorProfile;
+    private volatile boolean lowPower;
+    
+    // Classifier for boards that stream raw IMU samples instead of predictions
+    private static final String IMU_MODEL_ASSET = "models/imu_classifier.bin";
+    
+    // Opt-in capture of raw notifications, kept in app storage
+    private static final String PREFS_NAME = "ble_settings";
+    private static final String PREF_RECORD_SESSIONS = "record_sessions";
+    private static final String RECORDINGS_DIR = "ble_sessions";
+    private static final String PREF_LAST_DEVICE = "last_device_address";
+    private static final String PREF_LAST_DEVICES = "last_device_addresses"; // Comma separated, in source order
+    private static final String PREF_DEVICE_COUNT = "device_count";
+    private final BleSessionRecorder sessionRecorder;
+    private volatile boolean recordSessions;
+    
+    // Decoding, fusion and counting run on a dedicated thread, fed with complete frames
+    private final BleProcessingPipeline processingPipeline;
+    private volatile BleProcessingPipeline.PredictionListener predictionListener;
+    
+    // Reconnect state and time from "connect" to the first prediction
+    private boolean connectingToCachedDevice = false;
+    private boolean userDisconnected = false;
+    private volatile ConnectPath connectPath;
+    private volatile long connectStartedAtMs;
+    private volatile long timeToFirstPredictionMs = -1;
+    private volatile boolean awaitingFirstPrediction = false;
+    private final Runnable cachedConnectTimeout = this::onCachedConnectTimeout;
     
     public BleServiceManager(Context context) {
+        this(context, FrameQueue.OverflowPolicy.DROP_OLDEST, BleProcessingPipeline.DEFAULT_QUEUE_CAPACITY);
+    }
+    
+    public BleServiceManager(Context context, FrameQueue.OverflowPolicy overflowPolicy, int queueCapacity) {
         this.context = context;
+        this.processingPipeline = new BleProcessingPipeline(overflowPolicy, queueCapacity);
+        processingPipeline.setModelSource(this::loadImuModel);
+        processingPipeline.setPredictionListener(this::onPrediction);
+        processingPipeline.setSourceFrameListener(this::onSourceFrame);
+        this.sessionRecorder = new BleSessionRecorder(new File(context.getFilesDir(), RECORDINGS_DIR));
+        this.deviceCount = getPreferences().getInt(PREF_DEVICE_COUNT, 1);
         initializeBluetooth();
     }
     
+    private DenseClassifier loadImuModel() throws IOException {
+        try (InputStream input = context.getAssets().open(IMU_MODEL_ASSET)) {
+            return DenseClassifier.read(input);
+        }
+    }
+    
     private void initializeBluetooth() {
         BluetoothManager bluetoothManager = (BluetoothManager) context.getSystemService(Context.BLUETOOTH_SERVICE);
         if (bluetoothManager != null) {
@@ -80,8 +159,278 @@ public class BleServiceManager {
         }
     }
     
+    // Backwards compatible: replaces all listeners with the provided one
     public void setBleConnectionListener(BleConnectionListener listener) {
-        this.listener = listener;
+        listeners.clear();
+        addBleConnectionListener(listener);
+    }
+    
+    /**
+     * Listeners are called on the main thread. Remove them when the screen goes away;
+     * once none are left the link is closed after {@link #IDLE_DISCONNECT_MS}.
+     */
+    public void addBleConnectionListener(BleConnectionListener listener) {
+        if (listener != null) {
+            listeners.add(listener);
+            handler.removeCallbacks(idleDisconnect);
+        }
+    }
+    
+    public void removeBleConnectionListener(BleConnectionListener listener) {
+        if (listener != null && listeners.remove(listener) && listeners.isEmpty()) {
+            handler.removeCallbacks(idleDisconnect);
+            handler.postDelayed(idleDisconnect, IDLE_DISCONNECT_MS);
+        }
+    }
+    
+    private void onIdle() {
+        if (listeners.isEmpty() && (connectedCount > 0 || getConnectionCount() > 0 || isScanning)) {
+            Log.d(TAG, "💤 No screen has used the tracker for " + IDLE_DISCONNECT_MS + " ms, disconnecting");
+            stopScanning();
+            disconnect();
+        }
+    }
+    
+    /**
+     * Receive decoded predictions. The listener runs on the BLE processing thread, not the main thread.
+     * With several trackers it receives their fused predictions.
+     */
+    public void setPredictionListener(BleProcessingPipeline.PredictionListener predictionListener) {
+        this.predictionListener = predictionListener;
+    }
+    
+    /**
+     * Clear the prediction listener if it is still {@code predictionListener}, so a screen
+     * that goes away does not clear the one of the screen that replaced it
+     */
+    public void removePredictionListener(BleProcessingPipeline.PredictionListener predictionListener) {
+        if (this.predictionListener == predictionListener) {
+            this.predictionListener = null;
+        }
+    }
+    
+    /**
+     * Called on the pipeline thread for every frame of every tracker, before fusion
+     */
+    private void onSourceFrame(int source, PredictionFrame frame) {
+        BleDeviceConnection connection = connections.get(source);
+        if (connection != null) {
+            connection.getLinkMetrics().onSequence(frame.getSequence());
+        }
+    }
+    
+    /**
+     * Called on the pipeline thread for every prediction
+     */
+    private void onPrediction(PredictionFrame frame) {
+        if (awaitingFirstPrediction) {
+            awaitingFirstPrediction = false;
+            timeToFirstPredictionMs = frame.getReceivedAtMs() - connectStartedAtMs;
+            Log.i(TAG, "⏱️ Time to first prediction: " + timeToFirstPredictionMs + " ms (" + connectPath + ")");
+        }
+        BleProcessingPipeline.PredictionListener l = predictionListener;
+        if (l != null) {
+            l.onPrediction(frame);
+        }
+    }
+    
+    /**
+     * Milliseconds from {@link #connect()} (or from the link dropping) to the first decoded
+     * prediction, -1 until one has arrived
+     */
+    public long getTimeToFirstPredictionMs() {
+        return timeToFirstPredictionMs;
+    }
+    
+    public ConnectPath getConnectPath() {
+        return connectPath;
+    }
+    
+    /**
+     * How many trackers to stream from at once, e.g. 2 for wrist and ankle. Their
+     * predictions are aligned and fused before counting. Takes effect from the next
+     * {@link #connect()}.
+     */
+    public void setDeviceCount(int count) {
+        deviceCount = Math.max(1, Math.min(SensorFusion.MAX_SOURCES, count));
+        getPreferences().edit().putInt(PREF_DEVICE_COUNT, deviceCount).apply();
+    }
+    
+    public int getDeviceCount() {
+        return deviceCount;
+    }
+    
+    /**
+     * Number of trackers currently connected
+     */
+    public int getConnectedDeviceCount() {
+        return connectedCount;
+    }
+    
+    /**
+     * Number of connected trackers, emitted on the main thread whenever it changes. New
+     * subscribers get the current count straight away.
+     */
+    public Observable<Integer> observeConnectedDeviceCount() {
+        return connectedDevices.distinctUntilChanged();
+    }
+    
+    /**
+     * Link throughput and loss, emitted on the main thread about once a second for each
+     * connected tracker, see {@link BleLinkStats#getDeviceAddress()}. New subscribers get
+     * the latest snapshot straight away.
+     */
+    public Observable<BleLinkStats> observeLinkStats() {
+        return linkStats.hide();
+    }
+    
+    /**
+     * Connection interval trade-off, one of {@code BluetoothGatt.CONNECTION_PRIORITY_*}.
+     * Applied to the current connections and every later one.
+     */
+    public void setConnectionPriority(int priority) {
+        connectionPriority = priority;
+        if (!lowPower) {
+            requestConnectionPriority(priority);
+        }
+    }
+    
+    private void requestConnectionPriority(int priority) {
+        for (int i = 0; i < connections.length(); i++) {
+            BleDeviceConnection connection = connections.get(i);
+            if (connection != null) {
+                connection.requestConnectionPriority(priority);
+            }
+        }
+    }
+    
+    private int getEffectiveConnectionPriority() {
+        return lowPower ? BluetoothGatt.CONNECTION_PRIORITY_LOW_POWER : connectionPriority;
+    }
+    
+    /**
+     * For rest periods, when nothing is counted: a low-power connection interval and
+     * {@link SensorProfile#REST} on every tracker, slow but still enough to notice the
+     * next exercise starting. Turning it off restores the chosen priority and profile,
+     * so do it a few seconds before the next set to have the link and the tracker's
+     * window back up for the first rep.
+     */
+    public void setLowPowerMode(boolean lowPower) {
+        if (this.lowPower == lowPower) {
+            return;
+        }
+        Log.d(TAG, lowPower ? "🌙 Low-power mode on" : "☀️ Low-power mode off");
+        this.lowPower = lowPower;
+        requestConnectionPriority(getEffectiveConnectionPriority());
+        SensorProfile profile = getEffectiveSensorProfile();
+        sendSensorProfile(profile != null ? profile : SensorProfile.DEFAULT);
+    }
+    
+    public boolean isLowPowerMode() {
+        return lowPower;
+    }
+    
+    /**
+     * What the trackers should sample and send, e.g. {@link SensorProfile#forRepTempo} for
+     * the current exercise. Sent to the current connections and every later one; trackers
+     * fall back to their defaults when the link drops.
+     */
+    public void setSensorProfile(SensorProfile profile) {
+        if (profile.equals(sensorProfile)) {
+            return;
+        }
+        Log.d(TAG, "🎛️ Sensor profile: " + profile);
+        sensorProfile = profile;
+        if (!lowPower) {
+            sendSensorProfile(profile);
+        }
+    }
+    
+    private void sendSensorProfile(SensorProfile profile) {
+        for (int i = 0; i < connections.length(); i++) {
+            BleDeviceConnection connection = connections.get(i);
+            if (connection != null) {
+                connection.setSensorProfile(profile);
+            }
+        }
+    }
+    
+    public SensorProfile getSensorProfile() {
+        return sensorProfile;
+    }
+    
+    private SensorProfile getEffectiveSensorProfile() {
+        return lowPower ? SensorProfile.REST : sensorProfile;
+    }
+    
+    private void startLinkStats() {
+        handler.removeCallbacks(linkStatsTick);
+        handler.postDelayed(linkStatsTick, LINK_STATS_INTERVAL_MS);
+    }
+    
+    private void stopLinkStats() {
+        handler.removeCallbacks(linkStatsTick);
+    }
+    
+    private void publishLinkStats() {
+        if (connectedCount == 0) {
+            return;
+        }
+        for (int i = 0; i < connections.length(); i++) {
+            BleDeviceConnection connection = connections.get(i);
+            if (connection != null && connection.isConnected()) {
+                connection.readRssi();
+                connection.expireStaleFrame();
+                linkStats.onNext(connection.snapshotLinkStats(processingPipeline.getFramesDropped(i)));
+            }
+        }
+        handler.postDelayed(linkStatsTick, LINK_STATS_INTERVAL_MS);
+    }
+    
+    public void setImuSampleListener(BleProcessingPipeline.ImuSampleListener sampleListener) {
+        processingPipeline.setImuSampleListener(sampleListener);
+    }
+    
+    /**
+     * Clear the IMU sample listener if it is still {@code sampleListener}
+     */
+    public void removeImuSampleListener(BleProcessingPipeline.ImuSampleListener sampleListener) {
+        processingPipeline.removeImuSampleListener(sampleListener);
+    }
+    
+    /**
+     * Run a task on the thread that calls the prediction and IMU sample listeners.
+     */
+    public void runOnProcessingThread(Runnable task) {
+        processingPipeline.post(task);
+    }
+    
+    public BleProcessingPipeline getProcessingPipeline() {
+        return processingPipeline;
+    }
+    
+    private SharedPreferences getPreferences() {
+        return context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+    
+    /**
+     * Whether raw notifications are recorded for later diagnosis, see {@link BleSessionRecorder}.
+     * Only the first tracker is recorded.
+     */
+    public boolean isSessionRecordingEnabled() {
+        return getPreferences().getBoolean(PREF_RECORD_SESSIONS, false);
+    }
+    
+    /**
+     * Takes effect from the next connection
+     */
+    public void setSessionRecordingEnabled(boolean enabled) {
+        getPreferences().edit().putBoolean(PREF_RECORD_SESSIONS, enabled).apply();
+        recordSessions = enabled;
+    }
+    
+    public BleSessionRecorder getSessionRecorder() {
+        return sessionRecorder;
     }
     
     public boolean isBluetoothEnabled() {
@@ -94,14 +443,137 @@ public class BleServiceManager {
                ActivityCompat.checkSelfPermission(context, Manifest.permission.ACCESS_FINE_LOCATION) == PackageManager.PERMISSION_GRANTED;
     }
     
+    /**
+     * Connect to the exercise trackers. The last connected devices are tried directly with
+     * their cached GATT tables; without them, or if they do not answer in time, a filtered
+     * scan finds the missing ones instead.
+     */
+    public void connect() {
+        if (!isBluetoothEnabled()) {
+            for (BleConnectionListener l : listeners) { l.onError("Bluetooth is not enabled"); }
+            return;
+        }
+        
+        if (!hasRequiredPermissions()) {
+            for (BleConnectionListener l : listeners) { l.onError("Missing required permissions"); }
+            return;
+        }
+        
+        if (isScanning || connectingToCachedDevice || connectedCount > 0) {
+            return;
+        }
+        
+        userDisconnected = false;
+        // Replaces background reconnects that are still waiting for their devices
+        closeConnections();
+        BleConnectionService.start(context);
+        recordSessions = isSessionRecordingEnabled();
+        processingPipeline.setSourceCount(deviceCount);
+        processingPipeline.start();
+        startFirstPredictionClock();
+        
+        int cached = 0;
+        for (String address : getRememberedDevices()) {
+            if (cached == deviceCount) {
+                break;
+            }
+            if (BluetoothAdapter.checkBluetoothAddress(address)) {
+                Log.d(TAG, "⚡ Connecting straight to last device " + address);
+                openConnection(bluetoothAdapter.getRemoteDevice(address));
+                cached++;
+            }
+        }
+        
+        if (cached > 0) {
+            connectPath = ConnectPath.CACHED_DEVICE;
+            connectingToCachedDevice = true;
+            handler.postDelayed(cachedConnectTimeout, CACHED_CONNECT_TIMEOUT);
+        }
+        if (cached < deviceCount) {
+            startScanning();
+        }
+    }
+    
+    private void startFirstPredictionClock() {
+        connectStartedAtMs = SystemClock.elapsedRealtime();
+        timeToFirstPredictionMs = -1;
+        awaitingFirstPrediction = true;
+    }
+    
+    private void onCachedConnectTimeout() {
+        if (!connectingToCachedDevice) {
+            return;
+        }
+        connectingToCachedDevice = false;
+        // Give up on remembered devices that did not answer, they may be off or replaced
+        for (int i = 0; i < connections.length(); i++) {
+            BleDeviceConnection connection = connections.get(i);
+            if (connection != null && !connection.isConnected()) {
+                Log.w(TAG, "⏰ Last device " + connection.getAddress() + " did not answer, scanning instead");
+                connection.close();
+                connections.set(i, null);
+            }
+        }
+        if (getConnectionCount() < deviceCount) {
+            startScanning();
+        }
+    }
+    
+    /**
+     * Start connecting to a tracker in the lowest free pipeline source
+     */
+    private void openConnection(BluetoothDevice device) {
+        for (int i = 0; i < deviceCount; i++) {
+            if (connections.get(i) == null) {
+                if (gattThread == null) {
+                    gattThread = new HandlerThread(GATT_THREAD_NAME);
+                    gattThread.start();
+                    gattHandler = new Handler(gattThread.getLooper());
+                }
+                BleDeviceConnection connection = new BleDeviceConnection(context, device, i, processingPipeline,
+                        gattHandler, handler, connectionCallback);
+                connections.set(i, connection);
+                processingPipeline.setTimeSync(i, connection.getTimeSync());
+                connection.setSensorProfile(getEffectiveSensorProfile());
+                if (!connection.connect(false)) {
+                    connections.set(i, null);
+                }
+                return;
+            }
+        }
+    }
+    
+    /**
+     * Connections that are up or being set up
+     */
+    private int getConnectionCount() {
+        int count = 0;
+        for (int i = 0; i < connections.length(); i++) {
+            if (connections.get(i) != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+    
+    private boolean hasConnectionTo(String address) {
+        for (int i = 0; i < connections.length(); i++) {
+            BleDeviceConnection connection = connections.get(i);
+            if (connection != null && connection.getAddress().equals(address)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
     public void startScanning() {
         if (!isBluetoothEnabled()) {
-            if (listener != null) listener.onError("Bluetooth is not enabled");
+            for (BleConnectionListener l : listeners) { l.onError("Bluetooth is not enabled"); }
             return;
         }
         
         if (!hasRequiredPermissions()) {
-            if (listener != null) listener.onError("Missing required permissions");
+            for (BleConnectionListener l : listeners) { l.onError("Missing required permissions"); }
             return;
         }
         
@@ -110,24 +582,50 @@ public class BleServiceManager {
         }
         
         isScanning = true;
-        if (listener != null) listener.onScanStarted();
+        if (!connectingToCachedDevice) {
+            connectPath = ConnectPath.SCAN;
+        }
+        recordSessions = isSessionRecordingEnabled();
+        processingPipeline.setSourceCount(deviceCount);
+        processingPipeline.start();
+        if (!awaitingFirstPrediction && connectedCount == 0) {
+            startFirstPredictionClock();
+        }
+        for (BleConnectionListener l : listeners) { l.onScanStarted(); }
         
         try {
-            bluetoothLeScanner.startScan(scanCallback);
+            // Only the tracker's service is reported, and controllers that support it
+            // filter in hardware so the app is not woken for every advertiser in the gym.
+            // The name filter covers firmware that does not advertise the service UUID.
+            List<ScanFilter> filters = Arrays.asList(
+                new ScanFilter.Builder().setServiceUuid(new ParcelUuid(BleDeviceConnection.SERVICE_UUID)).build(),
+                new ScanFilter.Builder().setDeviceName(ESP32_NAME).build());
+            ScanSettings settings = new ScanSettings.Builder()
+                .setScanMode(ScanSettings.SCAN_MODE_LOW_LATENCY)
+                .setCallbackType(ScanSettings.CALLBACK_TYPE_ALL_MATCHES)
+                .setMatchMode(ScanSettings.MATCH_MODE_AGGRESSIVE)
+                .setNumOfMatches(ScanSettings.MATCH_NUM_ONE_ADVERTISEMENT)
+                .setReportDelay(0)
+                .build();
+            Log.d(TAG, "🔍 Filtered scan, offloaded filtering supported: " + bluetoothAdapter.isOffloadedFilteringSupported());
+            bluetoothLeScanner.startScan(filters, settings, scanCallback);
             
             // Stop scanning after timeout
             handler.postDelayed(() -> {
                 if (isScanning) {
                     stopScanning();
-                    if (targetDevice == null && listener != null) {
-                        listener.onError("ESP32 device not found within timeout");
+                    int found = getConnectionCount();
+                    if (found == 0) {
+                        for (BleConnectionListener l : listeners) { l.onError("ESP32 device not found within timeout"); }
+                    } else if (found < deviceCount) {
+                        Log.w(TAG, "⚠️ Only " + found + " of " + deviceCount + " trackers found");
                     }
                 }
             }, SCAN_TIMEOUT);
             
         } catch (SecurityException e) {
             isScanning = false;
-            if (listener != null) listener.onError("Permission denied: " + e.getMessage());
+            for (BleConnectionListener l : listeners) { l.onError("Permission denied: " + e.getMessage()); }
         }
     }
     
@@ -135,7 +633,7 @@ public class BleServiceManager {
         if (!isScanning) return;
         
         isScanning = false;
-        if (listener != null) listener.onScanStopped();
+        for (BleConnectionListener l : listeners) { l.onScanStopped(); }
         
         try {
             if (bluetoothLeScanner != null) {
@@ -155,15 +653,18 @@ public class BleServiceManager {
                 String deviceName = device.getName();
                 String deviceAddress = device.getAddress();
                 
-                if (listener != null) {
-                    listener.onDeviceFound(deviceName != null ? deviceName : "Unknown", deviceAddress);
+                // The scan filters only let exercise trackers through
+                if (!isScanning || hasConnectionTo(deviceAddress)) {
+                    return;
                 }
                 
-                // Check if this is our target device
-                if ((ESP32_NAME.equals(deviceName) || ESP32_MAC.equals(deviceAddress)) && targetDevice == null) {
-                    targetDevice = device;
+                String name = deviceName != null ? deviceName : "Unknown";
+                for (BleConnectionListener l : listeners) { l.onDeviceFound(name, deviceAddress); }
+                
+                openConnection(device);
+                // Keep scanning until every tracker has been found
+                if (getConnectionCount() >= deviceCount) {
                     stopScanning();
-                    connectToDevice();
                 }
             } catch (SecurityException e) {
                 Log.e(TAG, "Permission denied when accessing device info", e);
@@ -173,442 +674,207 @@ public class BleServiceManager {
         @Override
         public void onScanFailed(int errorCode) {
             isScanning = false;
-            if (listener != null) {
-                listener.onScanStopped();
-                listener.onError("Scan failed with error code: " + errorCode);
+            for (BleConnectionListener l : listeners) {
+                l.onScanStopped();
+                l.onError("Scan failed with error code: " + errorCode);
             }
         }
     };
     
-    private void connectToDevice() {
-        if (targetDevice == null) {
-            if (listener != null) listener.onError("No target device found");
-            return;
+    /**
+     * Remembered trackers in source order
+     */
+    private List<String> getRememberedDevices() {
+        SharedPreferences preferences = getPreferences();
+        String joined = preferences.getString(PREF_LAST_DEVICES, null);
+        if (joined == null) {
+            joined = preferences.getString(PREF_LAST_DEVICE, null);
         }
-        
-        try {
-            // Connect to the device using TRANSPORT_LE for BLE
-            bluetoothGatt = targetDevice.connectGatt(context, false, gattCallback, BluetoothDevice.TRANSPORT_LE);
-            
-            // Clear BLE cache to ensure fresh service discovery
-            refreshDeviceCache(bluetoothGatt);
-        } catch (SecurityException e) {
-            if (listener != null) listener.onError("Permission denied when connecting: " + e.getMessage());
+        List<String> addresses = new ArrayList<>();
+        if (!TextUtils.isEmpty(joined)) {
+            addresses.addAll(Arrays.asList(joined.split(",")));
         }
+        return addresses;
     }
     
     /**
-     * Clear the internal cache and force a refresh of services from the remote device.
-     * This uses reflection to call the hidden refresh() method in BluetoothGatt.
-     * Based on solutions from StackOverflow and Android BLE best practices.
+     * Remember a tracker in its source's place, so it gets the same role next time
      */
-    private boolean refreshDeviceCache(BluetoothGatt gatt) {
-        try {
-            Method refreshMethod = gatt.getClass().getMethod("refresh");
-            if (refreshMethod != null) {
-                boolean result = (Boolean) refreshMethod.invoke(gatt);
-                Log.d(TAG, "🔄 BLE cache refresh result: " + result);
-                return result;
-            }
-        } catch (Exception e) {
-            Log.e(TAG, "❌ Failed to refresh BLE cache: " + e.getMessage());
+    private void rememberDevice(BleDeviceConnection connection) {
+        List<String> addresses = getRememberedDevices();
+        addresses.remove(connection.getAddress());
+        addresses.add(Math.min(connection.getSource(), addresses.size()), connection.getAddress());
+        while (addresses.size() > SensorFusion.MAX_SOURCES) {
+            addresses.remove(addresses.size() - 1);
         }
-        return false;
+        getPreferences().edit()
+                .putString(PREF_LAST_DEVICES, TextUtils.join(",", addresses))
+                .putString(PREF_LAST_DEVICE, addresses.get(0))
+                .apply();
     }
     
-    private final BluetoothGattCallback gattCallback = new BluetoothGattCallback() {
+    /**
+     * Events of every tracker connection, on the main thread
+     */
+    private class ConnectionCallback implements BleDeviceConnection.Callback {
         @Override
-        public void onConnectionStateChange(BluetoothGatt gatt, int status, int newState) {
-            Log.d(TAG, "🔗 Connection state change - Status: " + status + ", New State: " + newState);
-            
-            if (status == BluetoothGatt.GATT_SUCCESS) {
-                if (newState == BluetoothProfile.STATE_CONNECTED) {
-                    isConnected = true;
-                    if (listener != null) {
-                        handler.post(() -> listener.onConnectionStatusChanged(true));
-                    }
-                    
-                    Log.d(TAG, "✅ Successfully connected to device");
-                    
-                    // Add a delay before discovering services to ensure connection is stable
-                    // Based on Android BLE best practices from research
-                    handler.postDelayed(() -> {
-                        try {
-                            Log.d(TAG, "🔍 Starting service discovery...");
-                            boolean discoveryStarted = gatt.discoverServices();
-                            Log.d(TAG, "📋 Service discovery started: " + discoveryStarted);
-                        } catch (SecurityException e) {
-                            Log.e(TAG, "Permission denied when discovering services", e);
-                        }
-                    }, 1000); // Increased delay to 1000ms based on research findings
-                    
-                } else if (newState == BluetoothProfile.STATE_DISCONNECTED) {
-                    isConnected = false;
-                    if (listener != null) {
-                        handler.post(() -> listener.onConnectionStatusChanged(false));
-                    }
-                    Log.d(TAG, "🔌 Disconnected from device");
-                    
-                    // Clean up resources as recommended by Android BLE best practices
-                    if (gatt != null) {
-                        gatt.close();
-                    }
-                }
-            } else {
-                // Handle connection errors
-                Log.e(TAG, "❌ Connection failed with status: " + status);
-                isConnected = false;
-                
-                if (status == 133) { // GATT_ERROR - very common in Android BLE
-                    Log.e(TAG, "   Status 133 (GATT_ERROR) - Common Android BLE issue, may need retry");
-                    if (listener != null) {
-                        handler.post(() -> listener.onError("Connection failed (Status 133). Try again."));
-                    }
-                } else {
-                    if (listener != null) {
-                        handler.post(() -> listener.onError("Connection failed with status: " + status));
-                    }
-                }
-                
-                // Clean up on error
-                if (gatt != null) {
-                    gatt.close();
-                }
+        public void onConnected(BleDeviceConnection connection) {
+            Log.d(TAG, "✅ Tracker " + connection.getAddress() + " connected as source " + connection.getSource()
+                    + " (" + connectPath + ")");
+            connectedCount++;
+            connectedDevices.onNext(connectedCount);
+            if (connection.getSource() == 0 && recordSessions) {
+                sessionRecorder.start();
+                connection.setRecorder(sessionRecorder);
             }
-        }
-        
-        @Override
-        public void onServicesDiscovered(BluetoothGatt gatt, int status) {
-            if (status == BluetoothGatt.GATT_SUCCESS) {
-                Log.d(TAG, "🔍 Services discovered (attempt " + (serviceDiscoveryRetries + 1) + "), looking for service: " + SERVICE_UUID);
-                Log.d(TAG, "� Total services found: " + gatt.getServices().size());
-                
-                // List all services found
-                for (BluetoothGattService service : gatt.getServices()) {
-                    Log.d(TAG, "� Found service: " + service.getUuid());
-                    for (BluetoothGattCharacteristic characteristic : service.getCharacteristics()) {
-                        Log.d(TAG, "  📄 Found characteristic: " + characteristic.getUuid());
-                    }
-                }
-                
-                // Try to find the specific service (case-insensitive UUID matching)
-                BluetoothGattService targetService = findServiceByUuid(gatt, SERVICE_UUID);
-                BluetoothGattCharacteristic targetCharacteristic = null;
-                
-                if (targetService != null) {
-                    Log.d(TAG, "✅ Found target service: " + SERVICE_UUID);
-                    targetCharacteristic = findCharacteristicByUuid(targetService, CHARACTERISTIC_UUID);
-                    if (targetCharacteristic != null) {
-                        Log.d(TAG, "✅ Found target characteristic: " + CHARACTERISTIC_UUID);
-                    } else {
-                        Log.e(TAG, "❌ Target characteristic not found in service: " + CHARACTERISTIC_UUID);
-                    }
-                } else {
-                    Log.e(TAG, "❌ Target service not found: " + SERVICE_UUID);
-                    
-                    // Retry service discovery if we haven't reached max retries
-                    if (serviceDiscoveryRetries < MAX_SERVICE_DISCOVERY_RETRIES) {
-                        serviceDiscoveryRetries++;
-                        Log.d(TAG, "🔄 Retrying service discovery in 2 seconds... (attempt " + serviceDiscoveryRetries + "/" + MAX_SERVICE_DISCOVERY_RETRIES + ")");
-                        
-                        // Clear cache again before retry
-                        refreshDeviceCache(gatt);
-                        
-                        handler.postDelayed(() -> {
-                            try {
-                                gatt.discoverServices();
-                            } catch (SecurityException e) {
-                                Log.e(TAG, "Permission denied when retrying service discovery", e);
-                            }
-                        }, 2000); // Longer delay for retries
-                        return;
-                    } else {
-                        Log.e(TAG, "❌ Max retries reached, service discovery failed");
-                    }
-                }
-                
-                // Setup notifications if we found the characteristic
-                if (targetCharacteristic != null) {
-                    serviceDiscoveryRetries = 0; // Reset retry counter on success
-                    setupNotifications(gatt, targetCharacteristic);
-                } else {
-                    Log.e(TAG, "❌ No suitable characteristic found for notifications");
-                    if (listener != null) {
-                        handler.post(() -> listener.onError("Could not find the required BLE characteristic"));
-                    }
-                }
-            } else {
-                Log.e(TAG, "❌ Service discovery failed with status: " + status);
-                if (listener != null) {
-                    handler.post(() -> listener.onError("Service discovery failed with status: " + status));
-                }
+            connection.requestConnectionPriority(getEffectiveConnectionPriority());
+            if (connectedCount == 1) {
+                startLinkStats();
+                for (BleConnectionListener l : listeners) { l.onConnectionStatusChanged(true); }
             }
-        }
-        
-        /**
-         * Find service by UUID with case-insensitive matching
-         */
-        private BluetoothGattService findServiceByUuid(BluetoothGatt gatt, UUID targetUuid) {
-            for (BluetoothGattService service : gatt.getServices()) {
-                if (service.getUuid().toString().equalsIgnoreCase(targetUuid.toString())) {
-                    return service;
-                }
+            if (connectingToCachedDevice && connectedCount >= deviceCount) {
+                connectingToCachedDevice = false;
+                handler.removeCallbacks(cachedConnectTimeout);
             }
-            return null;
         }
         
-        /**
-         * Find characteristic by UUID with case-insensitive matching
-         */
-        private BluetoothGattCharacteristic findCharacteristicByUuid(BluetoothGattService service, UUID targetUuid) {
-            for (BluetoothGattCharacteristic characteristic : service.getCharacteristics()) {
-                if (characteristic.getUuid().toString().equalsIgnoreCase(targetUuid.toString())) {
-                    return characteristic;
-                }
-            }
-            return null;
+        @Override
+        public void onReady(BleDeviceConnection connection) {
+            // Connect straight to this device next time
+            rememberDevice(connection);
         }
         
-        private void setupNotifications(BluetoothGatt gatt, BluetoothGattCharacteristic targetCharacteristic) {
-            try {
-                // Enable local notifications first
-                boolean notificationSet = gatt.setCharacteristicNotification(targetCharacteristic, true);
-                Log.d(TAG, "📡 Notification enabled: " + notificationSet);
-                
-                // Check characteristic properties
-                int properties = targetCharacteristic.getProperties();
-                Log.d(TAG, "📋 Characteristic properties: " + properties);
-                Log.d(TAG, "📋 Supports notify: " + ((properties & BluetoothGattCharacteristic.PROPERTY_NOTIFY) != 0));
-                Log.d(TAG, "📋 Supports indicate: " + ((properties & BluetoothGattCharacteristic.PROPERTY_INDICATE) != 0));
-                
-                // Try to find and write to CCCD
-                UUID CCCD_UUID = UUID.fromString("00002902-0000-1000-8000-00805f9b34fb");
-                BluetoothGattDescriptor descriptor = targetCharacteristic.getDescriptor(CCCD_UUID);
-                if (descriptor != null) {
-                    // Choose the right descriptor value based on what the characteristic supports
-                    byte[] value;
-                    if ((properties & BluetoothGattCharacteristic.PROPERTY_NOTIFY) != 0) {
-                        value = BluetoothGattDescriptor.ENABLE_NOTIFICATION_VALUE;
-                        Log.d(TAG, "📝 Using NOTIFICATION value for CCCD");
-                    } else if ((properties & BluetoothGattCharacteristic.PROPERTY_INDICATE) != 0) {
-                        value = BluetoothGattDescriptor.ENABLE_INDICATION_VALUE;
-                        Log.d(TAG, "📝 Using INDICATION value for CCCD");
-                    } else {
-                        Log.w(TAG, "⚠️ Characteristic doesn't support notify or indicate");
-                        if (listener != null) {
-                            handler.post(() -> listener.onError("Characteristic doesn't support notifications"));
-                        }
-                        return;
-                    }
-                    
-                    descriptor.setValue(value);
-                    
-                    // Add a small delay before writing descriptor (some devices need this)
-                    handler.postDelayed(() -> {
-                        try {
-                            boolean descriptorWritten = gatt.writeDescriptor(descriptor);
-                            Log.d(TAG, "📝 CCCD descriptor write requested: " + descriptorWritten);
-                            if (!descriptorWritten && listener != null) {
-                                handler.post(() -> listener.onError("Failed to write CCCD descriptor"));
-                            }
-                        } catch (SecurityException e) {
-                            Log.e(TAG, "Permission denied when writing descriptor", e);
-                            if (listener != null) {
-                                handler.post(() -> listener.onError("Permission denied when writing descriptor"));
-                            }
-                        }
-                    }, 100);
-                } else {
-                    Log.w(TAG, "⚠️ CCCD descriptor not found - notifications may not work properly");
-                    if (listener != null) {
-                        handler.post(() -> listener.onError("CCCD descriptor not found"));
-                    }
+        @Override
+        public void onLinkLost(BleDeviceConnection connection, boolean wasConnected, int status) {
+            if (wasConnected) {
+                connectedCount--;
+                connectedDevices.onNext(connectedCount);
+                if (connection.getSource() == 0) {
+                    connection.setRecorder(null);
+                    sessionRecorder.stop();
                 }
-            } catch (SecurityException e) {
-                Log.e(TAG, "Permission denied when setting notification", e);
-                if (listener != null) {
-                    handler.post(() -> listener.onError("Permission denied when setting notification"));
+                if (connectedCount == 0) {
+                    stopLinkStats();
+                    for (BleConnectionListener l : listeners) { l.onConnectionStatusChanged(false); }
                 }
             }
-        }
-        
-        @Override
-        public void onCharacteristicChanged(BluetoothGatt gatt, BluetoothGattCharacteristic characteristic) {
-            byte[] data = characteristic.getValue();
-            if (data != null) {
-                String receivedChunk = new String(data).trim();
-                Log.d(TAG, "📡 Raw BLE chunk received (" + data.length + " bytes): " + receivedChunk);
-                
-                // Handle data reassembly for fragmented messages
-                handleDataChunk(receivedChunk);
-                
-            } else {
-                Log.d(TAG, "⚠️ Received null data from characteristic");
-            }
-        }
-        
-        /**
-         * Handle fragmented BLE data by buffering chunks until we have a complete JSON message
-         */
-        private void handleDataChunk(String chunk) {
-            // Cancel any existing timeout
-            if (dataTimeoutRunnable != null) {
-                handler.removeCallbacks(dataTimeoutRunnable);
-            }
-            
-            // Add chunk to buffer
-            dataBuffer.append(chunk);
-            String currentData = dataBuffer.toString();
-            
-            Log.d(TAG, "📊 Current buffer (" + currentData.length() + " chars): " + currentData);
-            
-            // Check if we have a complete JSON message
-            if (isCompleteJsonMessage(currentData)) {
-                Log.d(TAG, "✅ Complete JSON message received: " + currentData);
-                
-                // Send complete message to listener
-                if (listener != null) {
-                    handler.post(() -> listener.onDataReceived(currentData));
-                }
-                
-                // Clear buffer for next message
-                dataBuffer.setLength(0);
-            } else {
-                // Set timeout to prevent buffer from growing indefinitely
-                dataTimeoutRunnable = () -> {
-                    Log.w(TAG, "⏰ Data timeout - clearing incomplete buffer: " + dataBuffer.toString());
-                    dataBuffer.setLength(0);
-                };
-                handler.postDelayed(dataTimeoutRunnable, DATA_TIMEOUT_MS);
+            if (userDisconnected) {
+                return;
             }
-        }
-        
-        /**
-         * Check if the buffered data contains a complete JSON message
-         */
-        private boolean isCompleteJsonMessage(String data) {
-            if (data == null || data.isEmpty()) {
-                return false;
+            if (wasConnected) {
+                // Out of range mid-workout
+                reconnect(connection);
+                return;
             }
             
-            // Basic JSON validation - count braces
-            int openBraces = 0;
-            int closeBraces = 0;
-            
-            for (char c : data.toCharArray()) {
-                if (c == '{') {
-                    openBraces++;
-                } else if (c == '}') {
-                    closeBraces++;
+            // Never came up, free the source for another tracker
+            connections.compareAndSet(connection.getSource(), connection, null);
+            if (connectingToCachedDevice) {
+                Log.w(TAG, "⚠️ Last device " + connection.getAddress() + " not reachable, scanning instead");
+                if (getConnectionCount() == connectedCount) {
+                    connectingToCachedDevice = false;
+                    handler.removeCallbacks(cachedConnectTimeout);
                 }
+                startScanning();
+                return;
             }
             
-            // We have a complete JSON object when braces are balanced and we have at least one pair
-            boolean isComplete = openBraces > 0 && openBraces == closeBraces;
-            
-            if (isComplete) {
-                Log.d(TAG, "🎯 JSON validation: " + openBraces + " open braces, " + closeBraces + " close braces - COMPLETE");
+            if (status == 133) { // GATT_ERROR - very common in Android BLE
+                Log.e(TAG, "   Status 133 (GATT_ERROR) - Common Android BLE issue, may need retry");
+                for (BleConnectionListener l : listeners) { l.onError("Connection failed (Status 133). Try again."); }
             } else {
-                Log.d(TAG, "🔄 JSON validation: " + openBraces + " open braces, " + closeBraces + " close braces - INCOMPLETE");
-            }
-            
-            return isComplete;
-        }
-        
-        /**
-         * Request a larger MTU size for better data throughput
-         */
-        private void requestMtu(BluetoothGatt gatt) {
-            try {
-                // Request maximum MTU size (517 bytes is the BLE maximum)
-                boolean mtuRequested = gatt.requestMtu(517);
-                Log.d(TAG, "📡 MTU size increase requested (517 bytes): " + mtuRequested);
-            } catch (SecurityException e) {
-                Log.e(TAG, "Permission denied when requesting MTU", e);
+                for (BleConnectionListener l : listeners) { l.onError("Connection failed with status: " + status); }
             }
         }
         
         @Override
-        public void onMtuChanged(BluetoothGatt gatt, int mtu, int status) {
-            Log.d(TAG, "📡 MTU changed - New size: " + mtu + " bytes, Status: " + status);
-            if (status == BluetoothGatt.GATT_SUCCESS) {
-                Log.d(TAG, "✅ MTU successfully changed to " + mtu + " bytes (data payload: " + (mtu - 3) + " bytes)");
-            } else {
-                Log.w(TAG, "⚠️ MTU change failed with status: " + status + ", using default MTU");
-            }
+        public void onError(BleDeviceConnection connection, String error) {
+            for (BleConnectionListener l : listeners) { l.onError(error); }
         }
-        
-        @Override
-        public void onDescriptorWrite(BluetoothGatt gatt, BluetoothGattDescriptor descriptor, int status) {
-            Log.d(TAG, "📝 Descriptor write callback - UUID: " + descriptor.getUuid() + ", Status: " + status);
-            if (status == BluetoothGatt.GATT_SUCCESS) {
-                                    Log.d(TAG, "✅ CCCD descriptor write successful - notifications should be active now");
-                    
-                    // Request larger MTU for better data throughput
-                    requestMtu(gatt);
-                } else {
-                Log.e(TAG, "❌ CCCD descriptor write failed with status: " + status);
-                // Common status codes:
-                // 1 = GATT_INVALID_HANDLE
-                // 3 = GATT_WRITE_NOT_PERMIT
-                // 8 = GATT_INVALID_OFFSET
-                switch (status) {
-                    case 1:
-                        Log.e(TAG, "   Status 1: Invalid handle - descriptor might not exist");
-                        break;
-                    case 3:
-                        Log.e(TAG, "   Status 3: Write not permitted - insufficient authentication/encryption");
-                        break;
-                    case 8:
-                        Log.e(TAG, "   Status 8: Invalid offset");
-                        break;
-                    default:
-                        Log.e(TAG, "   Unknown status code: " + status);
-                        break;
-                }
-            }
+    }
+    
+    /**
+     * A tracker that was streaming went away without {@link #disconnect()}. It is
+     * reconnected with autoConnect, so the controller picks it up as soon as it is back
+     * in range, while the other trackers keep streaming.
+     */
+    private void reconnect(BleDeviceConnection connection) {
+        Log.d(TAG, "🔁 Link lost, waiting for " + connection.getAddress() + " to come back");
+        // Reassembly and decoder state belong to the old link
+        connection.resetReassembly();
+        processingPipeline.reset(connection.getSource());
+        if (connectedCount == 0) {
+            connectPath = ConnectPath.AUTO_RECONNECT;
+            startFirstPredictionClock();
         }
-    };
+        connection.connect(true);
+    }
     
-    public void disconnect() {
-        if (bluetoothGatt != null) {
-            try {
-                bluetoothGatt.disconnect();
-                bluetoothGatt.close();
-            } catch (SecurityException e) {
-                Log.e(TAG, "Permission denied when disconnecting", e);
+    /**
+     * Forget the remembered devices, the next {@link #connect()} scans
+     */
+    public void forgetDevice() {
+        getPreferences().edit().remove(PREF_LAST_DEVICE).remove(PREF_LAST_DEVICES).apply();
+    }
+    
+    private void closeConnections() {
+        for (int i = 0; i < connections.length(); i++) {
+            BleDeviceConnection connection = connections.getAndSet(i, null);
+            if (connection != null) {
+                connection.setRecorder(null);
+                connection.close();
             }
-            bluetoothGatt = null;
         }
-        targetDevice = null;
-        isConnected = false;
-        serviceDiscoveryRetries = 0; // Reset retry counter
+        connectedCount = 0;
+        connectedDevices.onNext(0);
+    }
+    
+    public void disconnect() {
+        boolean wasConnected = connectedCount > 0;
+        userDisconnected = true;
+        connectingToCachedDevice = false;
+        awaitingFirstPrediction = false;
+        handler.removeCallbacks(cachedConnectTimeout);
+        handler.removeCallbacks(idleDisconnect);
+        closeConnections();
+        stopLinkStats();
+        sessionRecorder.stop();
+        BleConnectionService.stop(context);
+        
+        // Clear queued frames on disconnect, firmware resends its label table on the next connection
+        processingPipeline.reset();
         
-        // Clear data buffer on disconnect
-        dataBuffer.setLength(0);
-        if (dataTimeoutRunnable != null) {
-            handler.removeCallbacks(dataTimeoutRunnable);
-            dataTimeoutRunnable = null;
+        // Closed connections report nothing, other screens may still show the link
+        if (wasConnected) {
+            for (BleConnectionListener l : listeners) { l.onConnectionStatusChanged(false); }
         }
     }
     
+    /**
+     * @return true while at least one tracker is connected
+     */
     public boolean isConnected() {
-        return isConnected;
+        return connectedCount > 0;
     }
     
     public boolean isScanning() {
         return isScanning;
     }
     
+    /**
+     * Release the threads. Only for the owner of the manager, screens share the app-wide
+     * instance and remove their listeners instead.
+     */
     public void cleanup() {
+        handler.removeCallbacks(idleDisconnect);
         stopScanning();
         disconnect();
         
-        // Additional cleanup for data buffer
-        dataBuffer.setLength(0);
-        if (dataTimeoutRunnable != null) {
-            handler.removeCallbacks(dataTimeoutRunnable);
-            dataTimeoutRunnable = null;
+        processingPipeline.quit();
+        if (gattThread != null) {
+            gattThread.quitSafely();
+            gattThread = null;
+            gattHandler = null;
         }
     }
 }
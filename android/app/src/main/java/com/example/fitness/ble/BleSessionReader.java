@@ -0,0 +1,118 @@
+package com.example.fitness.ble;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Reads back a session written by {@link BleSessionRecorder}, one record at a time and
+ * one segment mapped at a time. The current record stays valid until {@link #next()}
+ * is called again.
+ */
+public class BleSessionReader implements BleSessionReplayer.Source, Closeable {
+
+    private final File[] segments;
+    private int segmentIndex = -1;
+    private RandomAccessFile raf;
+    private MappedByteBuffer buffer;
+
+    private int sequence;
+    private long timestampNanos;
+    private int payloadOffset;
+    private int payloadLength;
+
+    public BleSessionReader(File sessionDir) {
+        this.segments = BleSessionRecorder.listSegments(sessionDir);
+    }
+
+    /**
+     * Move to the next record.
+     *
+     * @return false once every segment has been read
+     * @throws IOException if a segment is not a recording or cannot be read
+     */
+    @Override
+    public boolean next() throws IOException {
+        while (true) {
+            if (buffer != null && buffer.remaining() >= BleSessionRecorder.RECORD_HEADER_SIZE) {
+                int start = buffer.position();
+                int length = buffer.getInt(start);
+                // A zero length marks unused space or a record cut short
+                if (length > 0 && length <= buffer.remaining() - BleSessionRecorder.RECORD_HEADER_SIZE) {
+                    sequence = buffer.getInt(start + 4);
+                    timestampNanos = buffer.getLong(start + 8);
+                    payloadOffset = start + BleSessionRecorder.RECORD_HEADER_SIZE;
+                    payloadLength = length;
+                    buffer.position(payloadOffset + length);
+                    return true;
+                }
+            }
+            if (!openNextSegment()) {
+                return false;
+            }
+        }
+    }
+
+    private boolean openNextSegment() throws IOException {
+        closeSegment();
+        while (++segmentIndex < segments.length) {
+            File file = segments[segmentIndex];
+            if (file.length() < BleSessionRecorder.SEGMENT_HEADER_SIZE) {
+                continue; // Created but never written
+            }
+            raf = new RandomAccessFile(file, "r");
+            buffer = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            int magic = buffer.getInt();
+            int version = buffer.getInt();
+            if (magic != BleSessionRecorder.MAGIC || version != BleSessionRecorder.VERSION) {
+                throw new IOException("Not a BLE session segment: " + file.getName());
+            }
+            buffer.position(BleSessionRecorder.SEGMENT_HEADER_SIZE);
+            return true;
+        }
+        return false;
+    }
+
+    private void closeSegment() throws IOException {
+        buffer = null;
+        if (raf != null) {
+            raf.close();
+            raf = null;
+        }
+    }
+
+    public int getSequence() {
+        return sequence;
+    }
+
+    @Override
+    public long getTimestampNanos() {
+        return timestampNanos;
+    }
+
+    @Override
+    public int getPayloadLength() {
+        return payloadLength;
+    }
+
+    /**
+     * Copy the current payload into {@code dst}, which must hold {@link #getPayloadLength()} bytes.
+     */
+    @Override
+    public void readPayload(byte[] dst, int offset) {
+        for (int i = 0; i < payloadLength; i++) {
+            dst[offset + i] = buffer.get(payloadOffset + i);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        closeSegment();
+        segmentIndex = segments.length;
+    }
+}
@@ -0,0 +1,405 @@
+package com.example.fitness.ble;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Opt-in recorder that appends every raw BLE notification, and the {@link BleTimeSync}
+ * pings written in between, to memory-mapped segment files, so a real workout can be
+ * replayed later to diagnose miscounted reps.
+ * <p>
+ * Each session is a directory of fixed size segments. A segment starts with a
+ * {@link #SEGMENT_HEADER_SIZE} byte header (magic, version, segment index) followed by
+ * little-endian records:
+ * <pre>
+ *   u32 payload length | u32 sequence | i64 elapsedRealtimeNanos | payload
+ * </pre>
+ * The length is written last, so a record cut short by a crash reads as the end of the
+ * segment. Sequence numbers also advance for dropped records, gaps show what was lost.
+ * <p>
+ * {@link #record} only copies into the mapped segment and never blocks on I/O. Opening
+ * the next segment, trimming full ones to their used size and deleting the oldest
+ * segments once {@link #getMaxTotalBytes()} is exceeded all run on a background thread,
+ * so a long session keeps at most two segments mapped.
+ */
+public class BleSessionRecorder {
+
+    public static final int MAGIC = 0x454C4246; // "FBLE"
+    public static final int VERSION = 1;
+    public static final int SEGMENT_HEADER_SIZE = 16;
+    public static final int RECORD_HEADER_SIZE = 16;
+    public static final String SEGMENT_PREFIX = "segment-";
+    public static final String SEGMENT_SUFFIX = ".bin";
+
+    public static final int DEFAULT_SEGMENT_SIZE = 1 << 20;          // About 6 minutes of CSV samples
+    public static final long DEFAULT_MAX_TOTAL_BYTES = 32L << 20;    // Across all recorded sessions
+
+    private static final String TAG = "BleSessionRecorder";
+    private static final String THREAD_NAME = "BleRecorder";
+    private static final String SESSION_PREFIX = "session-";
+
+    private final File rootDir;
+    private final int segmentSize;
+    private final long maxTotalBytes;
+    private final AtomicBoolean preparing = new AtomicBoolean();
+    private final Runnable prepareRunnable = this::prepareNextSegment;
+    private final Handler backgroundHandler; // Instead of a thread of its own, tests only
+
+    private HandlerThread thread;
+    private Handler handler; // Set while recording
+
+    // Guarded by this, touched by the binder thread for every notification
+    private Segment current;
+    private int sequence;
+    private long recordedCount;
+    private long droppedCount;
+
+    // Handed from the background thread to the writer
+    private volatile Segment next;
+    private volatile File sessionDir;
+    private int nextSegmentIndex; // Background thread only
+
+    public BleSessionRecorder(File rootDir) {
+        this(rootDir, DEFAULT_SEGMENT_SIZE, DEFAULT_MAX_TOTAL_BYTES);
+    }
+
+    public BleSessionRecorder(File rootDir, int segmentSize, long maxTotalBytes) {
+        this(rootDir, segmentSize, maxTotalBytes, null);
+    }
+
+    /**
+     * @param backgroundHandler Runs the background work, null for a thread of its own
+     */
+    BleSessionRecorder(File rootDir, int segmentSize, long maxTotalBytes, Handler backgroundHandler) {
+        if (segmentSize <= SEGMENT_HEADER_SIZE + RECORD_HEADER_SIZE) {
+            throw new IllegalArgumentException("Segment too small: " + segmentSize);
+        }
+        this.rootDir = rootDir;
+        this.segmentSize = segmentSize;
+        this.maxTotalBytes = maxTotalBytes;
+        this.backgroundHandler = backgroundHandler;
+    }
+
+    /**
+     * Begin a new session. The first segment is opened in the background, notifications
+     * arriving before it is ready are counted as dropped.
+     */
+    public synchronized void start() {
+        if (handler != null) {
+            return;
+        }
+        if (backgroundHandler != null) {
+            handler = backgroundHandler;
+        } else {
+            thread = new HandlerThread(THREAD_NAME, Process.THREAD_PRIORITY_BACKGROUND);
+            thread.start();
+            handler = new Handler(thread.getLooper());
+        }
+
+        String name = SESSION_PREFIX + new SimpleDateFormat("yyyyMMdd-HHmmss", Locale.US).format(new Date());
+        File dir = new File(rootDir, name);
+        sessionDir = dir;
+        sequence = 0;
+        recordedCount = 0;
+        droppedCount = 0;
+        handler.post(() -> {
+            if (!dir.isDirectory() && !dir.mkdirs()) {
+                Log.e(TAG, "❌ Could not create session directory " + dir);
+                return;
+            }
+            nextSegmentIndex = 0;
+            compact();
+            prepareNextSegment();
+        });
+        Log.d(TAG, "⏺️ Recording BLE session to " + dir.getName());
+    }
+
+    /**
+     * Append one notification. Called on the binder thread, never touches the disk.
+     *
+     * @param timestampNanos {@link android.os.SystemClock#elapsedRealtimeNanos()} on arrival
+     */
+    public void record(byte[] data, int offset, int length, long timestampNanos) {
+        synchronized (this) {
+            if (handler == null) {
+                return;
+            }
+            int seq = sequence++;
+            int size = RECORD_HEADER_SIZE + length;
+            Segment segment = current;
+            if (segment == null || segment.remaining() < size) {
+                Segment ready = next;
+                if (ready == null || ready.remaining() < size) {
+                    // Background thread has not caught up, or the payload never fits
+                    droppedCount++;
+                    requestNextSegment();
+                    return;
+                }
+                next = null;
+                Segment finished = segment;
+                // Under the lock, so it is queued ahead of anything stop() posts
+                if (finished != null) {
+                    handler.post(() -> closeSegment(finished));
+                }
+                current = segment = ready;
+                requestNextSegment();
+            }
+            segment.append(seq, timestampNanos, data, offset, length);
+            recordedCount++;
+            if (segment.remaining() < segmentSize / 2) {
+                requestNextSegment();
+            }
+        }
+    }
+
+    /**
+     * End the session, flushing and trimming the last segment in the background.
+     */
+    public void stop() {
+        Segment last;
+        Segment unused;
+        HandlerThread stopped;
+        Handler h;
+        synchronized (this) {
+            if (handler == null) {
+                return;
+            }
+            last = current;
+            unused = next;
+            current = null;
+            next = null;
+            stopped = thread;
+            h = handler;
+            thread = null;
+            handler = null;
+            Log.d(TAG, "⏹️ Session stopped: " + recordedCount + " records, " + droppedCount + " dropped");
+        }
+        h.post(() -> {
+            if (last != null) {
+                closeSegment(last);
+            }
+            if (unused != null) {
+                // Never written to, only holds the header
+                unused.close();
+                if (!unused.file.delete()) {
+                    Log.w(TAG, "⚠️ Could not delete unused segment " + unused.file);
+                }
+            }
+            Segment late = next;
+            if (late != null) {
+                // Prepared while stopping
+                next = null;
+                late.close();
+                late.file.delete();
+            }
+            compact();
+        });
+        if (stopped != null) {
+            stopped.quitSafely();
+        }
+    }
+
+    public synchronized boolean isRecording() {
+        return handler != null;
+    }
+
+    public synchronized long getRecordedCount() {
+        return recordedCount;
+    }
+
+    public synchronized long getDroppedCount() {
+        return droppedCount;
+    }
+
+    public File getRootDir() {
+        return rootDir;
+    }
+
+    public long getMaxTotalBytes() {
+        return maxTotalBytes;
+    }
+
+    /**
+     * Directory of the session being recorded, or of the last one recorded
+     */
+    public File getSessionDir() {
+        return sessionDir;
+    }
+
+    /**
+     * Recorded sessions, oldest first
+     */
+    public static List<File> listSessions(File rootDir) {
+        File[] dirs = rootDir.listFiles(file -> file.isDirectory() && file.getName().startsWith(SESSION_PREFIX));
+        if (dirs == null) {
+            return new ArrayList<>();
+        }
+        Arrays.sort(dirs);
+        return new ArrayList<>(Arrays.asList(dirs));
+    }
+
+    /**
+     * Segments of one session in recording order
+     */
+    public static File[] listSegments(File sessionDir) {
+        File[] files = sessionDir.listFiles(file -> file.getName().startsWith(SEGMENT_PREFIX)
+                && file.getName().endsWith(SEGMENT_SUFFIX));
+        if (files == null) {
+            return new File[0];
+        }
+        Arrays.sort(files);
+        return files;
+    }
+
+    private void requestNextSegment() {
+        if (next == null && handler != null && preparing.compareAndSet(false, true)) {
+            handler.post(prepareRunnable);
+        }
+    }
+
+    private void prepareNextSegment() {
+        try {
+            File dir = sessionDir;
+            if (next != null || dir == null || !dir.isDirectory()) {
+                return;
+            }
+            String name = String.format(Locale.US, "%s%05d%s", SEGMENT_PREFIX, nextSegmentIndex, SEGMENT_SUFFIX);
+            next = Segment.create(new File(dir, name), nextSegmentIndex, segmentSize);
+            nextSegmentIndex++;
+        } catch (IOException e) {
+            Log.e(TAG, "❌ Failed to open recording segment: " + e.getMessage());
+        } finally {
+            preparing.set(false);
+        }
+    }
+
+    private void closeSegment(Segment segment) {
+        try {
+            segment.finish();
+        } catch (IOException e) {
+            Log.e(TAG, "❌ Failed to finish recording segment " + segment.file.getName() + ": " + e.getMessage());
+        }
+        compact();
+    }
+
+    /**
+     * Deletes the oldest segments, whole sessions first, until everything recorded fits
+     * in {@link #maxTotalBytes}. Segments still mapped by this session are kept.
+     */
+    private void compact() {
+        List<File> segments = new ArrayList<>();
+        long total = 0;
+        for (File dir : listSessions(rootDir)) {
+            for (File segment : listSegments(dir)) {
+                segments.add(segment);
+                total += segment.length();
+            }
+        }
+        for (File segment : segments) {
+            if (total <= maxTotalBytes) {
+                break;
+            }
+            if (isInUse(segment)) {
+                continue;
+            }
+            long length = segment.length();
+            if (segment.delete()) {
+                total -= length;
+                Log.d(TAG, "🧹 Deleted old recording " + segment.getParentFile().getName() + "/" + segment.getName());
+            }
+            File dir = segment.getParentFile();
+            String[] left = dir.list();
+            if (left != null && left.length == 0 && !dir.equals(sessionDir)) {
+                dir.delete();
+            }
+        }
+    }
+
+    private boolean isInUse(File file) {
+        Segment ready = next;
+        if (ready != null && ready.file.equals(file)) {
+            return true;
+        }
+        synchronized (this) {
+            return current != null && current.file.equals(file);
+        }
+    }
+
+    /**
+     * One mapped segment file. Appends happen on the writer thread, open and finish
+     * on the background thread, never both at once.
+     */
+    private static final class Segment {
+        final File file;
+        private final RandomAccessFile raf;
+        private final MappedByteBuffer buffer;
+
+        private Segment(File file, RandomAccessFile raf, MappedByteBuffer buffer) {
+            this.file = file;
+            this.raf = raf;
+            this.buffer = buffer;
+        }
+
+        static Segment create(File file, int index, int size) throws IOException {
+            RandomAccessFile raf = new RandomAccessFile(file, "rw");
+            try {
+                raf.setLength(size);
+                MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+                buffer.order(ByteOrder.LITTLE_ENDIAN);
+                buffer.putInt(MAGIC).putInt(VERSION).putInt(index).putInt(0);
+                return new Segment(file, raf, buffer);
+            } catch (IOException e) {
+                raf.close();
+                throw e;
+            }
+        }
+
+        int remaining() {
+            return buffer.remaining();
+        }
+
+        void append(int sequence, long timestampNanos, byte[] data, int offset, int length) {
+            int start = buffer.position();
+            buffer.position(start + 4);
+            buffer.putInt(sequence).putLong(timestampNanos).put(data, offset, length);
+            buffer.putInt(start, length);
+        }
+
+        /**
+         * Flushes the mapping and trims the file to what was written
+         */
+        void finish() throws IOException {
+            int used = buffer.position();
+            buffer.force();
+            try {
+                raf.getChannel().truncate(used);
+            } finally {
+                raf.close();
+            }
+        }
+
+        void close() {
+            try {
+                raf.close();
+            } catch (IOException e) {
+                Log.w(TAG, "⚠️ Failed to close segment " + file.getName() + ": " + e.getMessage());
+            }
+        }
+    }
+}
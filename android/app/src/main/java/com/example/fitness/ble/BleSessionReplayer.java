@@ -0,0 +1,319 @@
+package com.example.fitness.ble;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Feeds recorded notifications through the same {@link BleNotificationRouter},
+ * {@link BleProcessingPipeline} decode path and {@link RepCounter} as a live connection,
+ * on the calling thread and without the Android Bluetooth stack. Recorded pings and
+ * echoes drive a {@link BleTimeSync} and sensor profile answers set the raw sample rate,
+ * as on the connection, so frames get their sample time from the pipeline's own time
+ * sync and fusion stage. All times come from the recording, so the outcome
+ * does not depend on the replay speed or the machine and a session can be used as a
+ * regression test or benchmark.
+ */
+public class BleSessionReplayer {
+
+    public enum Speed {
+        /** Wait between notifications as long as the sensor did */
+        REAL_TIME,
+        /** Feed notifications back to back */
+        AS_FAST_AS_POSSIBLE
+    }
+
+    /**
+     * Recorded notifications in arrival order, see {@link BleSessionReader}
+     */
+    public interface Source {
+        boolean next() throws IOException;
+        long getTimestampNanos();
+        int getPayloadLength();
+        void readPayload(byte[] dst, int offset);
+    }
+
+    private static final int MAX_PAYLOAD = 1024;
+
+    private final Speed speed;
+    private final BleProcessingPipeline.ModelSource modelSource;
+    private final byte[] payload = new byte[MAX_PAYLOAD];
+
+    public BleSessionReplayer(Speed speed) {
+        this(speed, null);
+    }
+
+    /**
+     * @param modelSource Classifier for raw CSV sessions, null to only use them for signal counting
+     */
+    public BleSessionReplayer(Speed speed, BleProcessingPipeline.ModelSource modelSource) {
+        this.speed = speed;
+        this.modelSource = modelSource;
+    }
+
+    /**
+     * Replay a whole session into {@code counter}, replacing its rep count listener.
+     */
+    public Result replay(Source source, RepCounter counter) throws IOException {
+        Result result = new Result();
+        BleTimeSync timeSync = new BleTimeSync();
+        BleProcessingPipeline pipeline = new BleProcessingPipeline();
+        pipeline.setModelSource(modelSource);
+        pipeline.setTimeSync(0, timeSync);
+        pipeline.setPredictionListener(counter::processPrediction);
+        pipeline.setImuSampleListener(new BleProcessingPipeline.ImuSampleListener() {
+            @Override
+            public void onImuSample(float ax, float ay, float az, float gx, float gy, float gz, long receivedAtMs) {
+                counter.processSample(ax, ay, az, gx, gy, gz, receivedAtMs);
+            }
+
+            @Override
+            public void onSampleRateChanged(int sampleRateHz) {
+                counter.setSampleRate(sampleRateHz);
+            }
+        });
+        BleNotificationRouter router = new BleNotificationRouter((data, offset, length, receivedAtMs) -> {
+            pipeline.processNow(data, offset, length, receivedAtMs);
+            return true;
+        });
+        counter.setRepCountListener(new RepCounter.RepCountListener() {
+            @Override
+            public void onRepCompleted(int repCount) {
+                onRepCompleted(repCount, result.currentTimestampNanos / 1_000_000);
+            }
+
+            @Override
+            public void onRepCompleted(int repCount, long sampledAtMs) {
+                result.addRep(result.currentTimestampNanos, sampledAtMs);
+            }
+
+            @Override
+            public void onExerciseStateChanged(boolean isDoingExercise, String exerciseName, double confidence) {
+            }
+        });
+
+        boolean first = true;
+        long startNanos = System.nanoTime();
+        while (source.next()) {
+            long timestamp = source.getTimestampNanos();
+            int length = source.getPayloadLength();
+            if (first) {
+                result.firstTimestampNanos = timestamp;
+                first = false;
+            }
+            if (length > payload.length) {
+                result.oversizedCount++;
+                continue;
+            }
+            source.readPayload(payload, 0);
+
+            if (speed == Speed.REAL_TIME) {
+                long due = startNanos + (timestamp - result.firstTimestampNanos);
+                long wait;
+                while ((wait = due - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(wait);
+                    if (Thread.interrupted()) {
+                        throw new IOException("Replay interrupted");
+                    }
+                }
+            }
+
+            result.currentTimestampNanos = timestamp;
+            long before = System.nanoTime();
+            dispatch(length, timestamp / 1_000_000, timeSync, pipeline, router);
+            result.addLatency(System.nanoTime() - before);
+        }
+
+        result.finalRepCount = counter.getRepCount();
+        result.predictionCount = pipeline.getFramesProcessed();
+        result.malformedCount = pipeline.getMalformedFrames();
+        return result;
+    }
+
+    /**
+     * What {@code BleDeviceConnection} does with a notification, and with the pings it
+     * writes in between
+     */
+    private void dispatch(int length, long timestampMs, BleTimeSync timeSync, BleProcessingPipeline pipeline,
+                          BleNotificationRouter router) {
+        if (BleTimeSync.isPing(payload, 0, length)) {
+            timeSync.onPingSent(payload, 0, length, timestampMs);
+            return;
+        }
+        if (timeSync.onNotification(payload, 0, length, timestampMs)) {
+            return;
+        }
+        if (BleCommands.isSensorProfile(payload, 0, length)) {
+            SensorProfile applied = BleCommands.decodeSensorProfile(payload, 0, length);
+            pipeline.setRawSampleRate(applied.getMode() == SensorProfile.Mode.RAW_SAMPLES
+                    ? applied.getSampleRateHz() : 0);
+            return;
+        }
+        router.onNotification(payload, 0, length, timestampMs);
+    }
+
+    /**
+     * Everything a replay produced. Timestamps are the recorded arrival times unless
+     * stated otherwise.
+     */
+    public static final class Result {
+        private long[] repTimestamps = new long[16];
+        private long[] repSampledAt = new long[16];
+        private int repCount;
+        private long[] latencies = new long[256];
+        private int notificationCount;
+        private long firstTimestampNanos;
+        private long currentTimestampNanos;
+        private int finalRepCount;
+        private long predictionCount;
+        private long malformedCount;
+        private long oversizedCount;
+
+        private void addRep(long timestampNanos, long sampledAtMs) {
+            if (repCount == repTimestamps.length) {
+                repTimestamps = Arrays.copyOf(repTimestamps, repCount * 2);
+                repSampledAt = Arrays.copyOf(repSampledAt, repCount * 2);
+            }
+            repTimestamps[repCount] = timestampNanos;
+            repSampledAt[repCount++] = sampledAtMs;
+        }
+
+        private void addLatency(long nanos) {
+            if (notificationCount == latencies.length) {
+                latencies = Arrays.copyOf(latencies, notificationCount * 2);
+            }
+            latencies[notificationCount++] = nanos;
+        }
+
+        /**
+         * Reps reported through the listener, including ones from an earlier exercise
+         */
+        public int getRepCount() {
+            return repCount;
+        }
+
+        /**
+         * Counter's own rep count once the session ended
+         */
+        public int getFinalRepCount() {
+            return finalRepCount;
+        }
+
+        /**
+         * Recorded arrival time of the notification that completed the rep
+         */
+        public long getRepTimestampNanos(int rep) {
+            return repTimestamps[rep];
+        }
+
+        /**
+         * When the counter says the rep happened, on the tracker's clock once time sync
+         * has an estimate
+         */
+        public long getRepSampledAtMs(int rep) {
+            return repSampledAt[rep];
+        }
+
+        /**
+         * Rep times in milliseconds since the first notification of the session
+         */
+        public List<Long> getRepOffsetsMs() {
+            List<Long> offsets = new ArrayList<>(repCount);
+            for (int i = 0; i < repCount; i++) {
+                offsets.add((repTimestamps[i] - firstTimestampNanos) / 1_000_000);
+            }
+            return offsets;
+        }
+
+        public int getNotificationCount() {
+            return notificationCount;
+        }
+
+        /**
+         * Time spent routing, decoding and counting one notification on this machine
+         */
+        public long getLatencyNanos(int notification) {
+            return latencies[notification];
+        }
+
+        /**
+         * @param percentile 0 to 100
+         */
+        public long getLatencyPercentileNanos(double percentile) {
+            if (notificationCount == 0) {
+                return 0;
+            }
+            long[] sorted = Arrays.copyOf(latencies, notificationCount);
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(percentile / 100.0 * notificationCount) - 1;
+            return sorted[Math.max(0, Math.min(notificationCount - 1, index))];
+        }
+
+        public long getPredictionCount() {
+            return predictionCount;
+        }
+
+        public long getMalformedCount() {
+            return malformedCount;
+        }
+
+        /**
+         * Recorded notifications too large for the replay buffer, never larger than an MTU live
+         */
+        public long getOversizedCount() {
+            return oversizedCount;
+        }
+    }
+
+    /**
+     * Notifications held in memory, for tests and synthetic sessions
+     */
+    public static final class MemorySource implements Source {
+        private final List<byte[]> payloads = new ArrayList<>();
+        private long[] timestamps = new long[64];
+        private int index = -1;
+
+        public MemorySource add(long timestampNanos, byte[] payload) {
+            if (payloads.size() == timestamps.length) {
+                timestamps = Arrays.copyOf(timestamps, timestamps.length * 2);
+            }
+            timestamps[payloads.size()] = timestampNanos;
+            payloads.add(payload);
+            return this;
+        }
+
+        /**
+         * Start again from the first notification
+         */
+        public void rewind() {
+            index = -1;
+        }
+
+        @Override
+        public boolean next() {
+            if (index + 1 >= payloads.size()) {
+                return false;
+            }
+            index++;
+            return true;
+        }
+
+        @Override
+        public long getTimestampNanos() {
+            return timestamps[index];
+        }
+
+        @Override
+        public int getPayloadLength() {
+            return payloads.get(index).length;
+        }
+
+        @Override
+        public void readPayload(byte[] dst, int offset) {
+            byte[] data = payloads.get(index);
+            System.arraycopy(data, 0, dst, offset, data.length);
+        }
+    }
+}
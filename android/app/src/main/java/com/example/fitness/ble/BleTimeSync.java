@@ -0,0 +1,270 @@
+package com.example.fitness.ble;
+
+/**
+ * Estimates a tracker's clock against the phone's elapsedRealtime with ping/echo
+ * exchanges over the data characteristic, so frames can be placed at the time their
+ * IMU sample was taken rather than when they arrived.
+ * <p>
+ * The phone writes a ping; the firmware answers with a {@link PredictionFrameDecoder#TYPE_TIME_SYNC}
+ * frame holding its {@code millis()} when the ping arrived and when the echo left:
+ * <pre>
+ *  ping, written by the phone:
+ *  0  u8   magic 0xA5
+ *  1  u8   protocol version
+ *  2  u8   frame type 3
+ *  3  u8   flags, 0
+ *  4  u16  ping id
+ *
+ *  echo, notified by the tracker:
+ *  0..3    same header
+ *  4  u16  ping id
+ *  6  u32  millis() when the ping arrived
+ * 10  u32  millis() when the echo was sent
+ * </pre>
+ * As in NTP, each exchange gives the offset at its midpoint, good to half the radio
+ * round trip. Only exchanges close to the fastest round trip seen are used, and a
+ * least-squares line through them also gives the drift between the two crystals.
+ * <p>
+ * Pings are created on the GATT thread, echoes arrive on the binder thread and
+ * {@link #toLocal} is called on the pipeline thread; the estimate is published as one
+ * immutable object so readers never see half an update.
+ */
+public class BleTimeSync {
+
+    /** Ping interval until the first estimate, then {@link #SYNCED_PING_INTERVAL_MS} */
+    public static final long PING_INTERVAL_MS = 500;
+    public static final long SYNCED_PING_INTERVAL_MS = 10000;
+
+    static final int PING_SIZE = 6;
+    static final int ECHO_SIZE = 14;
+    private static final int SAMPLES = 16;
+    private static final int MIN_SAMPLES = 3;
+    private static final long MIN_DRIFT_SPAN_MS = 30000; // Shorter spans cannot tell drift from jitter
+    private static final double MAX_DRIFT = 500e-6;      // Far beyond any crystal, a bad fit
+    private static final long RTT_SLACK_MS = 4;
+    private static final long RESTART_JUMP_MS = 1000;
+    private static final int PENDING = 8; // Power of two
+
+    /**
+     * Offset and drift at one point in time
+     */
+    private static final class Estimate {
+        final long baseDevice;
+        final double offset; // local - device at baseDevice
+        final double drift;
+        final long roundTripMs;
+
+        Estimate(long baseDevice, double offset, double drift, long roundTripMs) {
+            this.baseDevice = baseDevice;
+            this.offset = offset;
+            this.drift = drift;
+            this.roundTripMs = roundTripMs;
+        }
+    }
+
+    private volatile Estimate estimate;
+
+    // Guarded by this
+    private int nextPingId;
+    private final int[] pendingIds = new int[PENDING];
+    private final long[] pendingSentAt = new long[PENDING];
+    private final long[] sampleDevice = new long[SAMPLES];
+    private final long[] sampleLocal = new long[SAMPLES];
+    private final long[] sampleRtt = new long[SAMPLES];
+    private int sampleCount;
+    private int sampleIndex;
+    private long lastDevice = -1;
+
+    public BleTimeSync() {
+        reset();
+    }
+
+    /**
+     * Build the next ping. Call right before writing it, the send time is taken from here.
+     */
+    public synchronized byte[] createPing(long nowMs) {
+        int id = nextPingId;
+        nextPingId = (nextPingId + 1) & 0xFFFF;
+        addPending(id, nowMs);
+
+        byte[] ping = new byte[PING_SIZE];
+        ping[0] = PredictionFrameDecoder.MAGIC;
+        ping[1] = (byte) PredictionFrameDecoder.PROTOCOL_VERSION;
+        ping[2] = (byte) PredictionFrameDecoder.TYPE_TIME_SYNC;
+        ping[4] = (byte) id;
+        ping[5] = (byte) (id >> 8);
+        return ping;
+    }
+
+    /**
+     * A ping written earlier, e.g. read back from a recorded session, so its echo is matched
+     */
+    public synchronized void onPingSent(byte[] ping, int offset, int length, long sentAtMs) {
+        if (isPing(ping, offset, length)) {
+            addPending(PredictionFrameDecoder.readUInt16(ping, offset + 4), sentAtMs);
+        }
+    }
+
+    private void addPending(int id, long sentAtMs) {
+        pendingIds[id & (PENDING - 1)] = id;
+        pendingSentAt[id & (PENDING - 1)] = sentAtMs;
+    }
+
+    public static boolean isPing(byte[] data, int offset, int length) {
+        return length == PING_SIZE && data[offset] == PredictionFrameDecoder.MAGIC
+                && (data[offset + 2] & 0xFF) == PredictionFrameDecoder.TYPE_TIME_SYNC;
+    }
+
+    public static boolean isEcho(byte[] data, int offset, int length) {
+        return length >= ECHO_SIZE && data[offset] == PredictionFrameDecoder.MAGIC
+                && (data[offset + 2] & 0xFF) == PredictionFrameDecoder.TYPE_TIME_SYNC;
+    }
+
+    /**
+     * Take an echo from the notification stream.
+     *
+     * @return true if the notification was an echo and must not be decoded as a frame
+     */
+    public boolean onNotification(byte[] data, int offset, int length, long receivedAtMs) {
+        if (!isEcho(data, offset, length)) {
+            return false;
+        }
+        int id = PredictionFrameDecoder.readUInt16(data, offset + 4);
+        long deviceReceived = PredictionFrameDecoder.readUInt32(data, offset + 6);
+        long deviceSent = PredictionFrameDecoder.readUInt32(data, offset + 10);
+        onEcho(id, deviceReceived, deviceSent, receivedAtMs);
+        return true;
+    }
+
+    private synchronized void onEcho(int id, long deviceReceived, long deviceSent, long receivedAtMs) {
+        int slot = id & (PENDING - 1);
+        if (pendingIds[slot] != id || pendingSentAt[slot] < 0) {
+            return; // Unknown or already answered
+        }
+        long sentAt = pendingSentAt[slot];
+        pendingSentAt[slot] = -1;
+        long turnaround = deviceSent - deviceReceived;
+        if (turnaround < 0) {
+            return;
+        }
+        if (lastDevice >= 0 && deviceReceived < lastDevice - RESTART_JUMP_MS) {
+            // The tracker restarted, its clock starts over
+            clearSamples();
+        }
+        lastDevice = deviceReceived;
+
+        long rtt = Math.max(0, receivedAtMs - sentAt - turnaround);
+        // Midpoints of the exchange on both clocks, doubled to stay in integers
+        sampleDevice[sampleIndex] = deviceReceived + deviceSent;
+        sampleLocal[sampleIndex] = sentAt + receivedAtMs;
+        sampleRtt[sampleIndex] = rtt;
+        sampleIndex = (sampleIndex + 1) % SAMPLES;
+        if (sampleCount < SAMPLES) {
+            sampleCount++;
+        }
+        if (sampleCount >= MIN_SAMPLES) {
+            fit();
+        }
+    }
+
+    private void fit() {
+        long minRtt = Long.MAX_VALUE;
+        for (int i = 0; i < sampleCount; i++) {
+            minRtt = Math.min(minRtt, sampleRtt[i]);
+        }
+        long maxRtt = minRtt + Math.max(RTT_SLACK_MS, minRtt / 2);
+
+        // Least squares of (local - device) over device time, on the fast exchanges
+        long base = Long.MAX_VALUE;
+        long last = Long.MIN_VALUE;
+        int n = 0;
+        for (int i = 0; i < sampleCount; i++) {
+            if (sampleRtt[i] <= maxRtt) {
+                base = Math.min(base, sampleDevice[i]);
+                last = Math.max(last, sampleDevice[i]);
+                n++;
+            }
+        }
+        double meanX = 0;
+        double meanY = 0;
+        for (int i = 0; i < sampleCount; i++) {
+            if (sampleRtt[i] <= maxRtt) {
+                meanX += (sampleDevice[i] - base) / 2.0;
+                meanY += (sampleLocal[i] - sampleDevice[i]) / 2.0;
+            }
+        }
+        meanX /= n;
+        meanY /= n;
+        double drift = 0;
+        if ((last - base) / 2 >= MIN_DRIFT_SPAN_MS) {
+            double sxx = 0;
+            double sxy = 0;
+            for (int i = 0; i < sampleCount; i++) {
+                if (sampleRtt[i] <= maxRtt) {
+                    double dx = (sampleDevice[i] - base) / 2.0 - meanX;
+                    sxx += dx * dx;
+                    sxy += dx * ((sampleLocal[i] - sampleDevice[i]) / 2.0 - meanY);
+                }
+            }
+            drift = sxx > 0 ? Math.max(-MAX_DRIFT, Math.min(MAX_DRIFT, sxy / sxx)) : 0;
+        }
+        long baseDevice = base / 2;
+        estimate = new Estimate(baseDevice, meanY - drift * meanX, drift, minRtt);
+    }
+
+    /**
+     * Phone time of a device timestamp
+     *
+     * @return elapsedRealtime in ms, or -1 before the first estimate
+     */
+    public long toLocal(long deviceMs) {
+        Estimate e = estimate;
+        if (e == null) {
+            return -1;
+        }
+        long elapsed = deviceMs - e.baseDevice;
+        return deviceMs + Math.round(e.offset + e.drift * elapsed);
+    }
+
+    public boolean isSynced() {
+        return estimate != null;
+    }
+
+    /**
+     * Fastest round trip the estimate is based on, -1 before the first estimate
+     */
+    public long getRoundTripMs() {
+        Estimate e = estimate;
+        return e != null ? e.roundTripMs : -1;
+    }
+
+    public double getDriftPpm() {
+        Estimate e = estimate;
+        return e != null ? e.drift * 1_000_000 : 0;
+    }
+
+    /**
+     * How long to wait before the next ping
+     */
+    public long getPingIntervalMs() {
+        return estimate != null ? SYNCED_PING_INTERVAL_MS : PING_INTERVAL_MS;
+    }
+
+    /**
+     * Forget everything, e.g. when the link drops and the tracker may restart
+     */
+    public synchronized void reset() {
+        clearSamples();
+        for (int i = 0; i < PENDING; i++) {
+            pendingIds[i] = -1;
+            pendingSentAt[i] = -1;
+        }
+    }
+
+    private void clearSamples() {
+        sampleCount = 0;
+        sampleIndex = 0;
+        lastDevice = -1;
+        estimate = null;
+    }
+}
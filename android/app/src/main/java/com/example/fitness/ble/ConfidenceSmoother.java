@@ -0,0 +1,99 @@
+package com.example.fitness.ble;
+
+/**
+ * Smoothing stage between classifier confidences and the rep state machine. The vote
+ * window is a bit mask and the average a single float, so an update never allocates.
+ * Not thread safe, used on the BLE processing thread only.
+ */
+public final class ConfidenceSmoother {
+
+    private SmoothingConfig config;
+    private long windowMask;
+
+    private long bits;      // Newest decision in bit 0
+    private int readings;
+    private float value;
+    private boolean active;
+
+    public ConfidenceSmoother(SmoothingConfig config) {
+        configure(config);
+    }
+
+    /**
+     * Switch to other parameters, forgetting every earlier confidence
+     */
+    public void configure(SmoothingConfig config) {
+        this.config = config;
+        this.windowMask = config.getWindow() == SmoothingConfig.MAX_WINDOW
+                ? -1L : (1L << config.getWindow()) - 1;
+        reset();
+    }
+
+    /**
+     * @return Whether the exercise is being done after taking this confidence into account
+     */
+    public boolean update(float confidence) {
+        boolean first = readings == 0;
+        if (readings < config.getWindow()) {
+            readings++;
+        }
+
+        if (config.getMode() == SmoothingConfig.Mode.VOTE) {
+            bits = ((bits << 1) | (confidence >= config.getEnterThreshold() ? 1 : 0)) & windowMask;
+            value = confidence;
+            active = Long.bitCount(bits) >= config.getVotes();
+            return active;
+        }
+
+        // EMA and hysteresis only differ in their exit threshold
+        value = first ? confidence : value + config.getAlpha() * (confidence - value);
+        active = value >= (active ? config.getExitThreshold() : config.getEnterThreshold());
+        return active;
+    }
+
+    /**
+     * A vote needs enough readings to be able to reach its majority before its
+     * decisions are trusted, the other modes decide from the first confidence.
+     */
+    public boolean isReady() {
+        return config.getMode() != SmoothingConfig.Mode.VOTE || readings >= config.getVotes();
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    /**
+     * Smoothed confidence, the last raw confidence when voting
+     */
+    public float getValue() {
+        return value;
+    }
+
+    public SmoothingConfig getConfig() {
+        return config;
+    }
+
+    public void reset() {
+        bits = 0;
+        readings = 0;
+        value = 0f;
+        active = false;
+    }
+
+    /**
+     * Appends the vote window oldest first, or the smoothed value, for debug output
+     */
+    public void appendState(StringBuilder out) {
+        if (config.getMode() != SmoothingConfig.Mode.VOTE) {
+            out.append(Math.round(value * 100) / 100f);
+            return;
+        }
+        out.append('[');
+        for (int i = readings - 1; i >= 0; i--) {
+            out.append((bits >>> i & 1) != 0);
+            if (i > 0) out.append(", ");
+        }
+        out.append(']');
+    }
+}
@@ -0,0 +1,200 @@
+package com.example.fitness.ble;
+
+import java.util.Locale;
+
+/**
+ * Diagnostic event from a {@link RepCounter}, see {@link RepCounter.RepCountListener#onCounterEvent}.
+ * <p>
+ * Counters fill in typed fields only; nothing is turned into text unless a listener asks
+ * for it with {@link #format()}. The same instance is reused for every event of a counter,
+ * so read or format it inside the callback and do not keep it.
+ */
+public final class CounterEvent {
+
+    /**
+     * How much a counter reports, set with {@link RepCounter#setVerbosity}
+     */
+    public enum Verbosity {
+        /** No events at all */
+        OFF,
+        /** Configuration, resets, state changes and reps, a few per rep */
+        EVENTS,
+        /** Also one {@link Type#CONFIDENCE} sample per prediction, for the debug console */
+        SAMPLES
+    }
+
+    public enum Type {
+        /** Counter set up for an exercise, {@link #getDetail()} holds its settings */
+        CONFIG(Verbosity.EVENTS),
+        RESET(Verbosity.EVENTS),
+        /** Movement started or stopped, see {@link #isDoing()} */
+        STATE_CHANGE(Verbosity.EVENTS),
+        REP(Verbosity.EVENTS),
+        /** A candidate rep that was not counted */
+        REJECTED(Verbosity.EVENTS),
+        /** Confidence of the target exercise in one prediction */
+        CONFIDENCE(Verbosity.SAMPLES);
+
+        final Verbosity verbosity;
+
+        Type(Verbosity verbosity) {
+            this.verbosity = verbosity;
+        }
+    }
+
+    Type type;
+    String exercise;
+    String source;
+    Object detail;
+    int repCount;
+    boolean doing;
+    float confidence;
+    float peakG;
+    float tempoMs;
+    long timeMs;
+    ConfidenceSmoother smoother; // Only valid during the callback
+
+    CounterEvent clear(Type type) {
+        this.type = type;
+        exercise = null;
+        source = null;
+        detail = null;
+        repCount = 0;
+        doing = false;
+        confidence = Float.NaN;
+        peakG = Float.NaN;
+        tempoMs = Float.NaN;
+        timeMs = -1;
+        smoother = null;
+        return this;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Target exercise label, null for events about every label
+     */
+    public String getExercise() {
+        return exercise;
+    }
+
+    /**
+     * Engine behind the event, e.g. "signal" or "classifier", or null
+     */
+    public String getSource() {
+        return source;
+    }
+
+    public Object getDetail() {
+        return detail;
+    }
+
+    public int getRepCount() {
+        return repCount;
+    }
+
+    public boolean isDoing() {
+        return doing;
+    }
+
+    /**
+     * Classifier confidence, or signal strength relative to the recent peaks; NaN if unknown
+     */
+    public float getConfidence() {
+        return confidence;
+    }
+
+    /**
+     * Peak of the filtered acceleration magnitude for signal reps in g, NaN otherwise
+     */
+    public float getPeakG() {
+        return peakG;
+    }
+
+    /**
+     * Learned time per rep for signal reps, NaN otherwise
+     */
+    public float getTempoMs() {
+        return tempoMs;
+    }
+
+    /**
+     * Sample time the event belongs to, -1 for events not tied to a sample
+     */
+    public long getTimeMs() {
+        return timeMs;
+    }
+
+    /**
+     * One line for logs and the debug console. Allocates, so only call it when the line
+     * is going to be shown.
+     */
+    public String format() {
+        StringBuilder out = new StringBuilder(96);
+        appendTo(out);
+        return out.toString();
+    }
+
+    public void appendTo(StringBuilder out) {
+        switch (type) {
+            case CONFIG:
+                out.append("🎯 Counting ").append(upper(exercise));
+                if (source != null) out.append(" (").append(source).append(')');
+                if (detail != null) out.append(" | ").append(detail);
+                break;
+            case RESET:
+                if (exercise != null) {
+                    out.append("🔄 ").append(upper(exercise)).append(" counter reset to 0!");
+                } else {
+                    out.append("🔄 All counters reset to 0!");
+                }
+                break;
+            case STATE_CHANGE:
+                out.append(doing ? "🟢 Started " : "⚪ Stopped ").append(exercise);
+                if (!Float.isNaN(confidence)) {
+                    out.append(" (confidence: ").append(twoDecimals(confidence)).append(')');
+                }
+                break;
+            case REP:
+                out.append("✅ REP #").append(repCount).append(" COMPLETED!");
+                if (source != null || !Float.isNaN(peakG)) {
+                    out.append(" (");
+                    if (source != null) out.append(source);
+                    if (!Float.isNaN(peakG)) {
+                        if (source != null) out.append(", ");
+                        out.append(String.format(Locale.US, "peak %.2fg, tempo %.0f ms", peakG, tempoMs));
+                    }
+                    out.append(')');
+                }
+                break;
+            case REJECTED:
+                out.append("🚫 ");
+                if (source != null) out.append(source).append(' ');
+                out.append("rep rejected, classifier does not see ").append(exercise);
+                break;
+            case CONFIDENCE:
+                out.append(doing ? "🟢 DOING" : "⚪ READY").append(" | ").append(exercise).append(": ")
+                        .append(twoDecimals(confidence));
+                if (smoother != null) {
+                    out.append(" | Buffer: ");
+                    smoother.appendState(out);
+                }
+                break;
+        }
+    }
+
+    private static String upper(String exercise) {
+        return exercise != null ? exercise.toUpperCase() : "ALL";
+    }
+
+    private static String twoDecimals(float value) {
+        return String.format(Locale.US, "%.2f", value);
+    }
+
+    @Override
+    public String toString() {
+        return type != null ? format() : "CounterEvent";
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.fitness.ble;
+
+/**
+ * Sends a counter's {@link CounterEvent}s to its listener. Every method returns straight
+ * away, without touching the event, when there is no listener or the verbosity is too
+ * low for the event type, so the per-prediction path costs one comparison.
+ */
+final class CounterEvents {
+
+    private final CounterEvent event = new CounterEvent();
+    private RepCounter.RepCountListener listener;
+    private volatile CounterEvent.Verbosity verbosity = CounterEvent.Verbosity.EVENTS;
+
+    void setListener(RepCounter.RepCountListener listener) {
+        this.listener = listener;
+    }
+
+    void setVerbosity(CounterEvent.Verbosity verbosity) {
+        this.verbosity = verbosity;
+    }
+
+    boolean isEnabled(CounterEvent.Type type) {
+        return listener != null && verbosity.compareTo(type.verbosity) >= 0;
+    }
+
+    void config(String exercise, String source, Object detail) {
+        if (isEnabled(CounterEvent.Type.CONFIG)) {
+            CounterEvent e = event.clear(CounterEvent.Type.CONFIG);
+            e.exercise = exercise;
+            e.source = source;
+            e.detail = detail;
+            listener.onCounterEvent(e);
+        }
+    }
+
+    /**
+     * @param exercise null when every label was reset
+     */
+    void reset(String exercise) {
+        if (isEnabled(CounterEvent.Type.RESET)) {
+            CounterEvent e = event.clear(CounterEvent.Type.RESET);
+            e.exercise = exercise;
+            listener.onCounterEvent(e);
+        }
+    }
+
+    void stateChanged(String exercise, boolean doing, float confidence, long timeMs) {
+        if (isEnabled(CounterEvent.Type.STATE_CHANGE)) {
+            CounterEvent e = event.clear(CounterEvent.Type.STATE_CHANGE);
+            e.exercise = exercise;
+            e.doing = doing;
+            e.confidence = confidence;
+            e.timeMs = timeMs;
+            listener.onCounterEvent(e);
+        }
+    }
+
+    void rep(String exercise, int repCount, String source, long timeMs) {
+        if (isEnabled(CounterEvent.Type.REP)) {
+            CounterEvent e = event.clear(CounterEvent.Type.REP);
+            e.exercise = exercise;
+            e.repCount = repCount;
+            e.source = source;
+            e.timeMs = timeMs;
+            listener.onCounterEvent(e);
+        }
+    }
+
+    void signalRep(String exercise, int repCount, float peakG, float tempoMs, long timeMs) {
+        if (isEnabled(CounterEvent.Type.REP)) {
+            CounterEvent e = event.clear(CounterEvent.Type.REP);
+            e.exercise = exercise;
+            e.repCount = repCount;
+            e.peakG = peakG;
+            e.tempoMs = tempoMs;
+            e.timeMs = timeMs;
+            listener.onCounterEvent(e);
+        }
+    }
+
+    void rejected(String exercise, String source, long timeMs) {
+        if (isEnabled(CounterEvent.Type.REJECTED)) {
+            CounterEvent e = event.clear(CounterEvent.Type.REJECTED);
+            e.exercise = exercise;
+            e.source = source;
+            e.timeMs = timeMs;
+            listener.onCounterEvent(e);
+        }
+    }
+
+    void confidence(String exercise, boolean doing, float confidence, ConfidenceSmoother smoother, long timeMs) {
+        if (isEnabled(CounterEvent.Type.CONFIDENCE)) {
+            CounterEvent e = event.clear(CounterEvent.Type.CONFIDENCE);
+            e.exercise = exercise;
+            e.doing = doing;
+            e.confidence = confidence;
+            e.smoother = smoother;
+            e.timeMs = timeMs;
+            listener.onCounterEvent(e);
+        }
+    }
+}
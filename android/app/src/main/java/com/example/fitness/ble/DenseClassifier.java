@@ -0,0 +1,209 @@
+package com.example.fitness.ble;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Small fully connected network used to classify IMU feature vectors on the phone.
+ * Weights are read from an asset so a new model can be shipped without reflashing
+ * the sensor board. Inference runs into buffers allocated at load time.
+ *
+ * <p>Model file layout (little-endian):
+ * <pre>
+ * "FITM"  magic
+ * u8      format version (1)
+ * u16     window size in samples
+ * u16     input size
+ * f32[]   input mean, then input standard deviation (input size each)
+ * u8      layer count
+ * per layer:  u16 inputs, u16 outputs, u8 activation, f32 weights[outputs][inputs], f32 biases[outputs]
+ * u8      label count
+ * per label:  u8 length, ASCII name
+ * </pre>
+ * The last layer must have one output per label.
+ */
+public class DenseClassifier {
+
+    public static final int ACTIVATION_LINEAR = 0;
+    public static final int ACTIVATION_RELU = 1;
+    public static final int ACTIVATION_SOFTMAX = 2;
+
+    private static final int MAGIC = 0x4D544946; // "FITM" read as little-endian int
+    private static final int FORMAT_VERSION = 1;
+
+    private final int windowSize;
+    private final int inputSize;
+    private final float[] mean;
+    private final float[] inverseStd;
+    private final float[][] weights;
+    private final float[][] biases;
+    private final int[] activations;
+    private final int[] layerInputs;
+    private final float[][] outputs;
+    private final float[] normalized;
+    private final String[] labels;
+
+    DenseClassifier(int windowSize, float[] mean, float[] std, float[][] weights,
+                    float[][] biases, int[] layerInputs, int[] activations, String[] labels) {
+        this.windowSize = windowSize;
+        this.inputSize = mean.length;
+        this.mean = mean;
+        this.inverseStd = new float[inputSize];
+        for (int i = 0; i < inputSize; i++) {
+            inverseStd[i] = std[i] > 1e-6f ? 1f / std[i] : 1f;
+        }
+        this.weights = weights;
+        this.biases = biases;
+        this.layerInputs = layerInputs;
+        this.activations = activations;
+        this.labels = labels;
+        this.normalized = new float[inputSize];
+        this.outputs = new float[biases.length][];
+        for (int layer = 0; layer < biases.length; layer++) {
+            outputs[layer] = new float[biases[layer].length];
+        }
+    }
+
+    /**
+     * Read a model in the format described above.
+     *
+     * @throws IOException if the stream is not a valid model
+     */
+    public static DenseClassifier read(InputStream input) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] chunk = new byte[4096];
+        int n;
+        while ((n = input.read(chunk)) > 0) {
+            bytes.write(chunk, 0, n);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray()).order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a classifier model");
+            }
+            int version = buffer.get() & 0xFF;
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Unsupported model version " + version);
+            }
+            int windowSize = buffer.getShort() & 0xFFFF;
+            int inputSize = buffer.getShort() & 0xFFFF;
+            float[] mean = readFloats(buffer, inputSize);
+            float[] std = readFloats(buffer, inputSize);
+
+            int layerCount = buffer.get() & 0xFF;
+            float[][] weights = new float[layerCount][];
+            float[][] biases = new float[layerCount][];
+            int[] layerInputs = new int[layerCount];
+            int[] activations = new int[layerCount];
+            int expectedInputs = inputSize;
+            for (int layer = 0; layer < layerCount; layer++) {
+                int inputs = buffer.getShort() & 0xFFFF;
+                int outputs = buffer.getShort() & 0xFFFF;
+                if (inputs != expectedInputs) {
+                    throw new IOException("Layer " + layer + " expects " + inputs + " inputs, got " + expectedInputs);
+                }
+                layerInputs[layer] = inputs;
+                activations[layer] = buffer.get() & 0xFF;
+                weights[layer] = readFloats(buffer, inputs * outputs);
+                biases[layer] = readFloats(buffer, outputs);
+                expectedInputs = outputs;
+            }
+
+            int labelCount = buffer.get() & 0xFF;
+            if (layerCount == 0 || labelCount != expectedInputs) {
+                throw new IOException("Model has " + expectedInputs + " outputs but " + labelCount + " labels");
+            }
+            String[] labels = new String[labelCount];
+            for (int i = 0; i < labelCount; i++) {
+                byte[] name = new byte[buffer.get() & 0xFF];
+                buffer.get(name);
+                labels[i] = new String(name, StandardCharsets.US_ASCII);
+            }
+            return new DenseClassifier(windowSize, mean, std, weights, biases, layerInputs, activations, labels);
+        } catch (java.nio.BufferUnderflowException e) {
+            throw new IOException("Truncated model file", e);
+        }
+    }
+
+    private static float[] readFloats(ByteBuffer buffer, int count) {
+        float[] values = new float[count];
+        buffer.asFloatBuffer().get(values);
+        buffer.position(buffer.position() + count * 4);
+        return values;
+    }
+
+    /**
+     * Run the network on one feature vector.
+     *
+     * @return output of the last layer, one score per label. Reused by the next call.
+     */
+    public float[] predict(float[] features) {
+        for (int i = 0; i < inputSize; i++) {
+            normalized[i] = (features[i] - mean[i]) * inverseStd[i];
+        }
+        float[] input = normalized;
+        for (int layer = 0; layer < weights.length; layer++) {
+            float[] w = weights[layer];
+            float[] b = biases[layer];
+            float[] out = outputs[layer];
+            int inputs = layerInputs[layer];
+            for (int o = 0; o < out.length; o++) {
+                float sum = b[o];
+                int row = o * inputs;
+                for (int i = 0; i < inputs; i++) {
+                    sum += w[row + i] * input[i];
+                }
+                out[o] = sum;
+            }
+            activate(out, activations[layer]);
+            input = out;
+        }
+        return input;
+    }
+
+    private static void activate(float[] values, int activation) {
+        switch (activation) {
+            case ACTIVATION_RELU:
+                for (int i = 0; i < values.length; i++) {
+                    if (values[i] < 0) values[i] = 0;
+                }
+                break;
+            case ACTIVATION_SOFTMAX:
+                float max = -Float.MAX_VALUE;
+                for (float v : values) {
+                    if (v > max) max = v;
+                }
+                float sum = 0;
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = (float) Math.exp(values[i] - max);
+                    sum += values[i];
+                }
+                for (int i = 0; i < values.length; i++) {
+                    values[i] /= sum;
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    public int getInputSize() {
+        return inputSize;
+    }
+
+    public int getLabelCount() {
+        return labels.length;
+    }
+
+    public String getLabel(int index) {
+        return labels[index];
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.fitness.ble;
+
+/**
+ * Maps a sensor's {@code millis()} onto the phone's elapsedRealtime timeline.
+ * <p>
+ * Every frame gives one observation {@code received - device}, the clock offset plus
+ * a radio delay that is never negative. The smallest observation in each
+ * {@link #WINDOW_MS} window is the one least delayed, and a least-squares line through
+ * the last {@link #WINDOWS} window minima gives both the offset and the drift between
+ * the two crystals. Until two windows are complete the drift is taken as zero.
+ * A device clock that jumps backwards means the sensor restarted and the fit starts over.
+ */
+public class DeviceClock {
+
+    static final long WINDOW_MS = 5000;
+    static final int WINDOWS = 24;   // Two minutes of history
+    private static final long RESTART_JUMP_MS = 1000;
+
+    private long baseDevice = Long.MIN_VALUE;
+    private long baseLocal;
+    private long lastDevice;
+
+    // Current window
+    private long windowStart;
+    private long windowMinResidual;
+    private long windowMinDevice;
+
+    // Completed window minima, relative to the base, in a ring
+    private final double[] minDevice = new double[WINDOWS];
+    private final double[] minResidual = new double[WINDOWS];
+    private int windowCount;
+    private int windowIndex;
+
+    // Fitted line: residual = intercept + slope * (device - baseDevice)
+    private double intercept;
+    private double slope;
+
+    /**
+     * Add one observation.
+     *
+     * @param deviceMs Sensor time of the frame
+     * @param localMs  elapsedRealtime when it arrived
+     */
+    public void observe(long deviceMs, long localMs) {
+        if (baseDevice == Long.MIN_VALUE || deviceMs < lastDevice - RESTART_JUMP_MS) {
+            reset();
+            baseDevice = deviceMs;
+            baseLocal = localMs;
+            windowStart = deviceMs;
+            windowMinResidual = 0;
+            windowMinDevice = deviceMs;
+        }
+        lastDevice = deviceMs;
+
+        long residual = (localMs - baseLocal) - (deviceMs - baseDevice);
+        if (deviceMs - windowStart >= WINDOW_MS) {
+            closeWindow();
+            windowStart = deviceMs;
+            windowMinResidual = residual;
+            windowMinDevice = deviceMs;
+        } else if (residual < windowMinResidual) {
+            windowMinResidual = residual;
+            windowMinDevice = deviceMs;
+        }
+        if (windowCount < 2 && windowMinResidual < intercept) {
+            // Follow the minimum until there is enough history for a fit
+            intercept = windowMinResidual;
+        }
+    }
+
+    private void closeWindow() {
+        minDevice[windowIndex] = windowMinDevice - baseDevice;
+        minResidual[windowIndex] = windowMinResidual;
+        windowIndex = (windowIndex + 1) % WINDOWS;
+        if (windowCount < WINDOWS) {
+            windowCount++;
+        }
+        if (windowCount >= 2) {
+            fit();
+        } else {
+            intercept = Math.min(intercept, windowMinResidual);
+        }
+    }
+
+    private void fit() {
+        double meanX = 0;
+        double meanY = 0;
+        for (int i = 0; i < windowCount; i++) {
+            meanX += minDevice[i];
+            meanY += minResidual[i];
+        }
+        meanX /= windowCount;
+        meanY /= windowCount;
+        double sxx = 0;
+        double sxy = 0;
+        for (int i = 0; i < windowCount; i++) {
+            double dx = minDevice[i] - meanX;
+            sxx += dx * dx;
+            sxy += dx * (minResidual[i] - meanY);
+        }
+        slope = sxx > 0 ? sxy / sxx : 0;
+        intercept = meanY - slope * meanX;
+    }
+
+    /**
+     * @return Local time a frame stamped {@code deviceMs} arrives at with the least radio
+     *         delay seen, or {@code deviceMs} unchanged before the first observation
+     */
+    public long toLocal(long deviceMs) {
+        if (baseDevice == Long.MIN_VALUE) {
+            return deviceMs;
+        }
+        long elapsed = deviceMs - baseDevice;
+        return baseLocal + elapsed + Math.round(intercept + slope * elapsed);
+    }
+
+    public boolean isSynced() {
+        return baseDevice != Long.MIN_VALUE;
+    }
+
+    /**
+     * Drift of the sensor clock against the phone's, in parts per million
+     */
+    public double getDriftPpm() {
+        return slope * 1_000_000;
+    }
+
+    public void reset() {
+        baseDevice = Long.MIN_VALUE;
+        windowCount = 0;
+        windowIndex = 0;
+        intercept = 0;
+        slope = 0;
+    }
+}
@@ -0,0 +1,186 @@
+package com.example.fitness.ble;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded single-producer single-consumer queue of byte frames. Slots are allocated
+ * up front and frames are copied in and out, so neither side allocates. The producer
+ * never blocks: when the consumer falls behind, the {@link OverflowPolicy} decides
+ * which frame is sacrificed. Each slot is guarded by a sequence counter so the
+ * consumer can detect a slot that was overwritten while it was being copied.
+ * The counter is checked again with a compare-and-set, which also keeps the copy's
+ * plain reads from moving after the check ({@code VarHandle} fences need API 33).
+ */
+public class FrameQueue {
+
+    public enum OverflowPolicy {
+        /** Overwrite the oldest queued frame, keeping the most recent history */
+        DROP_OLDEST,
+        /** Replace the newest queued frame, so a burst collapses into its latest value */
+        COALESCE
+    }
+
+    private final byte[][] slots;
+    private final int[] lengths;
+    private final long[] timestamps;
+    private final long[] positions; // Absolute queue position of the frame held by each slot
+    private final AtomicIntegerArray versions; // Odd while a slot is being written
+    private final int capacity;
+    private final int mask;
+    private final int slotSize;
+    private final OverflowPolicy policy;
+
+    private final AtomicLong head = new AtomicLong(); // Next slot to read, written by the consumer
+    private final AtomicLong tail = new AtomicLong(); // Next slot to write, written by the producer
+
+    // Producer-side counters
+    private volatile long droppedCount;
+    private volatile long coalescedCount;
+    private volatile long oversizedCount;
+    private volatile int maxDepth;
+
+    // Consumer-side state
+    private long lastTimestamp;
+
+    /**
+     * @param capacity Number of slots, rounded up to a power of two (at least 2)
+     * @param slotSize Largest frame in bytes that fits in a slot
+     */
+    public FrameQueue(int capacity, int slotSize, OverflowPolicy policy) {
+        int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+        this.capacity = size;
+        this.mask = size - 1;
+        this.slotSize = slotSize;
+        this.policy = policy;
+        this.slots = new byte[size][slotSize];
+        this.lengths = new int[size];
+        this.timestamps = new long[size];
+        this.positions = new long[size];
+        this.versions = new AtomicIntegerArray(size);
+    }
+
+    /**
+     * Producer side. Copies the frame into the queue.
+     *
+     * @return false if the frame is larger than a slot and was rejected
+     */
+    public boolean offer(byte[] data, int offset, int length, long timestamp) {
+        if (length > slotSize) {
+            oversizedCount++;
+            return false;
+        }
+        long t = tail.get();
+        long depth = t - head.get();
+        if (depth >= capacity) {
+            if (policy == OverflowPolicy.COALESCE) {
+                write(t - 1, data, offset, length, timestamp);
+                coalescedCount++;
+                return true;
+            }
+            // The consumer notices it was lapped and skips ahead
+            droppedCount++;
+        }
+        write(t, data, offset, length, timestamp);
+        tail.lazySet(t + 1);
+        if (depth + 1 > maxDepth) {
+            maxDepth = (int) Math.min(depth + 1, capacity);
+        }
+        return true;
+    }
+
+    private void write(long position, byte[] data, int offset, int length, long timestamp) {
+        int index = (int) (position & mask);
+        versions.incrementAndGet(index);
+        System.arraycopy(data, offset, slots[index], 0, length);
+        lengths[index] = length;
+        timestamps[index] = timestamp;
+        positions[index] = position;
+        versions.incrementAndGet(index);
+    }
+
+    /**
+     * Consumer side. Copies the oldest available frame into {@code destination},
+     * which must be at least {@link #getSlotSize()} bytes long.
+     *
+     * @return length of the frame, or -1 if the queue is empty
+     */
+    public int poll(byte[] destination) {
+        while (true) {
+            long h = head.get();
+            long t = tail.get();
+            if (h >= t) {
+                return -1;
+            }
+            if (t - h > capacity) {
+                // Lapped by the producer, the oldest frames are gone
+                h = t - capacity;
+            }
+            int index = (int) (h & mask);
+            int version = versions.get(index);
+            if ((version & 1) != 0) {
+                continue; // Slot is being written right now
+            }
+            int length = lengths[index];
+            long timestamp = timestamps[index];
+            long position = positions[index];
+            System.arraycopy(slots[index], 0, destination, 0, length);
+            if (!versions.compareAndSet(index, version, version)) {
+                continue; // Overwritten while copying, read again
+            }
+            if (position != h) {
+                // Already replaced by a newer frame whose tail update is not visible yet
+                continue;
+            }
+            head.lazySet(h + 1);
+            lastTimestamp = timestamp;
+            return length;
+        }
+    }
+
+    /**
+     * Consumer side. Discards everything currently queued.
+     */
+    public void clear() {
+        head.lazySet(tail.get());
+    }
+
+    /**
+     * Timestamp that was offered with the frame last returned by {@link #poll(byte[])}.
+     */
+    public long getLastTimestamp() {
+        return lastTimestamp;
+    }
+
+    public int getDepth() {
+        return (int) Math.min(Math.max(tail.get() - head.get(), 0), capacity);
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getSlotSize() {
+        return slotSize;
+    }
+
+    public OverflowPolicy getPolicy() {
+        return policy;
+    }
+
+    public long getDroppedCount() {
+        return droppedCount;
+    }
+
+    public long getCoalescedCount() {
+        return coalescedCount;
+    }
+
+    public long getOversizedCount() {
+        return oversizedCount;
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.fitness.ble;
+
+/**
+ * Combines both engines: reps are timed by {@link SignalRepCounter}, and a signal rep
+ * only counts while the classifier agrees the target exercise is being done. If one
+ * source goes quiet the other is used on its own, so a board that only streams raw
+ * samples, or only predictions, still counts.
+ */
+public class FusedRepCounter implements RepCounter {
+
+    // How long a classifier detection of the target exercise vouches for signal reps
+    private static final long CLASSIFIER_GATE_MS = 2500;
+    // A source with nothing newer than this is treated as absent
+    private static final long SOURCE_STALE_MS = 2000;
+
+    private final MultiLabelExerciseCounter classifier;
+    private final SignalRepCounter signal;
+    private RepCountListener listener;
+    private final CounterEvents events = new CounterEvents();
+
+    private int repCount;
+    private long lastPredictionMs = -1;
+    private long lastTargetDetectedMs = -1;
+    private long lastSampleMs = -1;
+
+    public FusedRepCounter(String targetExercise, long targetTempoMs) {
+        this(targetExercise, targetTempoMs, SmoothingConfig.DEFAULT);
+    }
+
+    public FusedRepCounter(String targetExercise, long targetTempoMs, SmoothingConfig smoothing) {
+        this(targetExercise, targetTempoMs, smoothing, SignalRepCounter.DEFAULT_SAMPLE_RATE_HZ);
+    }
+
+    /**
+     * @param sampleRateHz Rate of the raw samples, see {@link #setSampleRate}
+     */
+    public FusedRepCounter(String targetExercise, long targetTempoMs, SmoothingConfig smoothing, float sampleRateHz) {
+        this.classifier = new MultiLabelExerciseCounter(targetExercise, smoothing);
+        this.signal = new SignalRepCounter(targetExercise, targetTempoMs, sampleRateHz);
+        // Their events would repeat ours, and nobody listens to them
+        classifier.setVerbosity(CounterEvent.Verbosity.OFF);
+        signal.setVerbosity(CounterEvent.Verbosity.OFF);
+        classifier.setRepCountListener(new RepCountListener() {
+            @Override
+            public void onRepCompleted(int classifierReps) {
+                if (isSignalStale(lastPredictionMs)) {
+                    countRep("classifier", lastPredictionMs);
+                }
+            }
+
+            @Override
+            public void onExerciseStateChanged(boolean isDoingExercise, String exerciseName, double confidence) {
+                if (listener != null && isSignalStale(lastPredictionMs)) {
+                    listener.onExerciseStateChanged(isDoingExercise, exerciseName, confidence);
+                }
+            }
+        });
+        signal.setRepCountListener(new RepCountListener() {
+            @Override
+            public void onRepCompleted(int signalReps) {
+                long repTime = signal.getLastRepTimeMs();
+                boolean classifierSilent = lastPredictionMs < 0 || repTime - lastPredictionMs > SOURCE_STALE_MS;
+                boolean classifierAgrees = lastTargetDetectedMs >= 0
+                        && repTime - lastTargetDetectedMs <= CLASSIFIER_GATE_MS;
+                if (classifierSilent || classifierAgrees) {
+                    countRep("signal", repTime);
+                } else {
+                    events.rejected(getTargetExercise(), "signal", repTime);
+                }
+            }
+
+            @Override
+            public void onExerciseStateChanged(boolean isDoingExercise, String exerciseName, double confidence) {
+                if (listener != null) {
+                    listener.onExerciseStateChanged(isDoingExercise, exerciseName, confidence);
+                }
+            }
+        });
+    }
+
+    private boolean isSignalStale(long nowMs) {
+        return lastSampleMs < 0 || nowMs - lastSampleMs > SOURCE_STALE_MS;
+    }
+
+    private void countRep(String source, long sampledAtMs) {
+        repCount++;
+        if (listener != null) {
+            listener.onRepCompleted(repCount, sampledAtMs);
+        }
+        events.rep(getTargetExercise(), repCount, source, sampledAtMs);
+    }
+
+    @Override
+    public void setRepCountListener(RepCountListener listener) {
+        this.listener = listener;
+        events.setListener(listener);
+        events.config(getTargetExercise(), "fused", classifier.getSmoothing());
+    }
+
+    @Override
+    public void setVerbosity(CounterEvent.Verbosity verbosity) {
+        events.setVerbosity(verbosity);
+    }
+
+    @Override
+    public void setExerciseDetectionListener(ExerciseDetectionListener detectionListener) {
+        classifier.setExerciseDetectionListener(detectionListener);
+    }
+
+    @Override
+    public void setActiveExercise(String exerciseLabel, long repTempoMs, SmoothingConfig smoothing) {
+        repCount = 0;
+        classifier.setActiveExercise(exerciseLabel, repTempoMs, smoothing);
+        signal.setActiveExercise(exerciseLabel, repTempoMs, smoothing);
+    }
+
+    @Override
+    public void processPrediction(PredictionFrame frame) {
+        lastPredictionMs = frame.getSampledAtMs();
+        classifier.processPrediction(frame);
+        if (classifier.isTargetDetected()) {
+            lastTargetDetectedMs = lastPredictionMs;
+        }
+    }
+
+    @Override
+    public void processSample(float ax, float ay, float az, float gx, float gy, float gz, long timestampMs) {
+        lastSampleMs = timestampMs;
+        signal.processSample(ax, ay, az, gx, gy, gz, timestampMs);
+    }
+
+    @Override
+    public void setSampleRate(float sampleRateHz) {
+        signal.setSampleRate(sampleRateHz);
+    }
+
+    @Override
+    public void reset() {
+        repCount = 0;
+        lastPredictionMs = -1;
+        lastTargetDetectedMs = -1;
+        lastSampleMs = -1;
+        classifier.reset();
+        signal.reset();
+        events.reset(getTargetExercise());
+    }
+
+    @Override
+    public int getRepCount() {
+        return repCount;
+    }
+
+    @Override
+    public String getTargetExercise() {
+        return classifier.getTargetExercise();
+    }
+
+    @Override
+    public boolean isDoingExercise() {
+        return isSignalStale(lastPredictionMs) ? classifier.isDoingExercise() : signal.isDoingExercise();
+    }
+}
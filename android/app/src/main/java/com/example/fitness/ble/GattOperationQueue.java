@@ -0,0 +1,203 @@
+package com.example.fitness.ble;
+
+import android.os.Handler;
+import android.util.Log;
+
+import java.util.ArrayDeque;
+
+/**
+ * Runs GATT operations one at a time. Android only tracks a single outstanding request
+ * per connection and silently drops, or fails with status 133, whatever is issued while
+ * another is in flight, so every request goes through here instead of being spaced out
+ * with delays.
+ * <p>
+ * An operation is issued as soon as the previous one has completed, which happens when
+ * the matching {@code BluetoothGattCallback} method calls {@link #complete}. Operations
+ * that the stack refuses, that fail or that time out are retried with exponential
+ * backoff up to their retry limit, then reported through their {@link Callback} and
+ * skipped. All queue state lives on the handler's thread; {@link #enqueue},
+ * {@link #complete} and {@link #clear} may be called from any thread.
+ */
+public class GattOperationQueue {
+
+    public enum Type {
+        REQUEST_MTU,
+        DISCOVER_SERVICES,
+        WRITE_DESCRIPTOR,
+        WRITE_CHARACTERISTIC,
+        READ_CHARACTERISTIC,
+        READ_RSSI
+    }
+
+    /**
+     * Issues the request to the stack.
+     */
+    public interface Request {
+        /**
+         * @return false if the stack refused the request, e.g. because it is busy
+         */
+        boolean issue();
+    }
+
+    public interface Callback {
+        /**
+         * Called on the handler thread once the operation is done.
+         *
+         * @param status The GATT status of the last attempt, {@link #STATUS_TIMEOUT} or
+         *               {@link #STATUS_NOT_ISSUED} if it never completed
+         */
+        void onResult(int status);
+    }
+
+    public static final int STATUS_SUCCESS = 0; // BluetoothGatt.GATT_SUCCESS
+    public static final int STATUS_TIMEOUT = -1;
+    public static final int STATUS_NOT_ISSUED = -2;
+
+    public static final long DEFAULT_TIMEOUT_MS = 5000;
+    private static final long BASE_BACKOFF_MS = 100;
+    private static final long MAX_BACKOFF_MS = 2000;
+
+    private static final String TAG = "GattOperationQueue";
+
+    private final Handler handler;
+    private final ArrayDeque<Operation> pending = new ArrayDeque<>();
+    private Operation current;
+    private int generation; // Bumped by clear(), stale completions and timers are ignored
+    private final Runnable timeoutRunnable = this::onTimeout;
+
+    public GattOperationQueue(Handler handler) {
+        this.handler = handler;
+    }
+
+    /**
+     * Queue an operation.
+     *
+     * @param timeoutMs  How long to wait for the callback before an attempt counts as failed
+     * @param maxRetries Extra attempts after the first one fails
+     * @param callback   May be null
+     */
+    public void enqueue(Type type, String name, long timeoutMs, int maxRetries, Request request, Callback callback) {
+        Operation operation = new Operation(type, name, timeoutMs, maxRetries, request, callback);
+        handler.post(() -> {
+            pending.add(operation);
+            if (current == null) {
+                next();
+            }
+        });
+    }
+
+    /**
+     * Report the result of the operation in flight, from the matching GATT callback.
+     * Results for anything else than the current operation are ignored.
+     */
+    public void complete(Type type, int status) {
+        handler.post(() -> {
+            Operation operation = current;
+            if (operation == null || operation.type != type || !operation.issued) {
+                Log.w(TAG, "⚠️ Unexpected " + type + " result, status " + status);
+                return;
+            }
+            handler.removeCallbacks(timeoutRunnable);
+            if (status == STATUS_SUCCESS) {
+                finish(operation, status);
+            } else {
+                retryOrFail(operation, status);
+            }
+        });
+    }
+
+    /**
+     * Drop every pending operation without calling back, e.g. when the connection goes away.
+     */
+    public void clear() {
+        handler.post(() -> {
+            generation++;
+            handler.removeCallbacks(timeoutRunnable);
+            pending.clear();
+            current = null;
+        });
+    }
+
+    private void next() {
+        current = pending.poll();
+        if (current != null) {
+            issue(current);
+        }
+    }
+
+    private void issue(Operation operation) {
+        operation.attempt++;
+        operation.issued = false;
+        boolean issued;
+        try {
+            issued = operation.request.issue();
+        } catch (SecurityException e) {
+            Log.e(TAG, "❌ Permission denied for " + operation.name, e);
+            finish(operation, STATUS_NOT_ISSUED);
+            return;
+        }
+        if (!issued) {
+            Log.w(TAG, "⚠️ " + operation.name + " not accepted (attempt " + operation.attempt + ")");
+            retryOrFail(operation, STATUS_NOT_ISSUED);
+            return;
+        }
+        operation.issued = true;
+        handler.postDelayed(timeoutRunnable, operation.timeoutMs);
+    }
+
+    private void onTimeout() {
+        Operation operation = current;
+        if (operation != null) {
+            Log.w(TAG, "⏰ " + operation.name + " timed out after " + operation.timeoutMs + " ms");
+            retryOrFail(operation, STATUS_TIMEOUT);
+        }
+    }
+
+    private void retryOrFail(Operation operation, int status) {
+        if (operation.attempt > operation.maxRetries) {
+            Log.e(TAG, "❌ " + operation.name + " failed after " + operation.attempt + " attempts, status " + status);
+            finish(operation, status);
+            return;
+        }
+        long backoff = Math.min(MAX_BACKOFF_MS, BASE_BACKOFF_MS << (operation.attempt - 1));
+        Log.d(TAG, "🔄 Retrying " + operation.name + " in " + backoff + " ms (status " + status + ")");
+        operation.issued = false;
+        int scheduledIn = generation;
+        handler.postDelayed(() -> {
+            if (generation == scheduledIn && current == operation) {
+                issue(operation);
+            }
+        }, backoff);
+    }
+
+    private void finish(Operation operation, int status) {
+        int finishedIn = generation;
+        if (operation.callback != null) {
+            operation.callback.onResult(status);
+        }
+        // The callback may have cleared the queue
+        if (generation == finishedIn && current == operation) {
+            next();
+        }
+    }
+
+    private static final class Operation {
+        final Type type;
+        final String name;
+        final long timeoutMs;
+        final int maxRetries;
+        final Request request;
+        final Callback callback;
+        int attempt;
+        boolean issued;
+
+        Operation(Type type, String name, long timeoutMs, int maxRetries, Request request, Callback callback) {
+            this.type = type;
+            this.name = name;
+            this.timeoutMs = timeoutMs;
+            this.maxRetries = maxRetries;
+            this.request = request;
+            this.callback = callback;
+        }
+    }
+}
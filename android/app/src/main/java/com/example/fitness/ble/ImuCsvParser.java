@@ -0,0 +1,121 @@
+package com.example.fitness.ble;
+
+/**
+ * Parses the {@code ax,ay,az,gx,gy,gz} lines streamed by the esp32_bt_data_csv firmware
+ * straight from notification bytes, without building Strings or calling split().
+ * A notification usually carries one line without a terminator; several
+ * newline-separated lines in one payload are handled as well.
+ */
+public class ImuCsvParser {
+
+    public interface SampleListener {
+        void onSample(float ax, float ay, float az, float gx, float gy, float gz);
+    }
+
+    public static final int VALUES_PER_SAMPLE = 6;
+
+    private final float[] values = new float[VALUES_PER_SAMPLE];
+    private long malformedCount;
+
+    /**
+     * @return true if the payload looks like a CSV sample rather than a JSON or binary frame
+     */
+    public static boolean isCsvPayload(byte[] data, int offset, int length) {
+        if (length <= 0) {
+            return false;
+        }
+        byte b = data[offset];
+        return (b >= '0' && b <= '9') || b == '-' || b == '+' || b == '.';
+    }
+
+    /**
+     * @return number of samples delivered to the listener
+     */
+    public int parse(byte[] data, int offset, int length, SampleListener listener) {
+        int samples = 0;
+        int valueIndex = 0;
+        boolean lineHasContent = false;
+        int end = offset + length;
+        int p = offset;
+
+        while (p <= end) {
+            byte b = p < end ? data[p] : (byte) '\n';
+            if (b == '\n' || b == '\r' || b == 0) {
+                if (lineHasContent) {
+                    if (valueIndex == VALUES_PER_SAMPLE) {
+                        listener.onSample(values[0], values[1], values[2], values[3], values[4], values[5]);
+                        samples++;
+                    } else {
+                        malformedCount++;
+                    }
+                }
+                valueIndex = 0;
+                lineHasContent = false;
+                p++;
+                continue;
+            }
+            if (b == ',' || b == ' ' || b == '\t') {
+                p++;
+                continue;
+            }
+
+            // Parse one number in place
+            lineHasContent = true;
+            boolean negative = false;
+            if (b == '-' || b == '+') {
+                negative = b == '-';
+                p++;
+            }
+            float value = 0;
+            int digits = 0;
+            while (p < end && data[p] >= '0' && data[p] <= '9') {
+                value = value * 10 + (data[p++] - '0');
+                digits++;
+            }
+            if (p < end && data[p] == '.') {
+                p++;
+                float scale = 0.1f;
+                while (p < end && data[p] >= '0' && data[p] <= '9') {
+                    value += (data[p++] - '0') * scale;
+                    scale *= 0.1f;
+                    digits++;
+                }
+            }
+            if (digits == 0) {
+                // Unexpected character, skip the rest of this line
+                valueIndex = VALUES_PER_SAMPLE + 1;
+                while (p < end && data[p] != '\n') {
+                    p++;
+                }
+                continue;
+            }
+            if (valueIndex < VALUES_PER_SAMPLE) {
+                values[valueIndex] = negative ? -value : value;
+            }
+            valueIndex++;
+        }
+        return samples;
+    }
+
+    /**
+     * Number of non-empty lines, i.e. samples in a batched payload, without parsing them
+     */
+    public static int countLines(byte[] data, int offset, int length) {
+        int lines = 0;
+        boolean lineHasContent = false;
+        for (int p = offset, end = offset + length; p < end; p++) {
+            byte b = data[p];
+            if (b == '\n' || b == '\r' || b == 0) {
+                lineHasContent = false;
+            } else if (!lineHasContent) {
+                lineHasContent = true;
+                lines++;
+            }
+        }
+        return lines;
+    }
+
+    public long getMalformedCount() {
+        return malformedCount;
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.fitness.ble;
+
+import com.example.fitness.ble.features.ImuFeatureWindow;
+
+/**
+ * Phone-side replacement for the Edge Impulse model on the sensor board. Raw CSV
+ * samples from esp32_bt_data_csv go through {@link ImuCsvParser} into an
+ * {@link ImuFeatureWindow}; every time a window is ready its features are classified by a
+ * {@link DenseClassifier} and the scores are written into a {@link PredictionFrame},
+ * the same shape the {@link RepCounter}s already consume for on-device predictions.
+ */
+public class ImuInferenceEngine {
+
+    private final DenseClassifier classifier;
+    private final PredictionLabels labels;
+    private final ImuFeatureWindow window;
+    private final float[] features;
+    private final int[] labelIds;
+    private int labelsVersion = -1;
+    private long predictionCount;
+
+    public ImuInferenceEngine(DenseClassifier classifier, PredictionLabels labels) {
+        if (classifier.getInputSize() != ImuFeatureWindow.FEATURE_COUNT) {
+            throw new IllegalArgumentException("Model expects " + classifier.getInputSize()
+                    + " features, extractor produces " + ImuFeatureWindow.FEATURE_COUNT);
+        }
+        this.classifier = classifier;
+        this.labels = labels;
+        this.window = new ImuFeatureWindow(classifier.getWindowSize());
+        this.features = new float[ImuFeatureWindow.FEATURE_COUNT];
+        this.labelIds = new int[classifier.getLabelCount()];
+    }
+
+    /**
+     * Feed one sample, accelerations in g and rotation rates in deg/s.
+     *
+     * @return true if a window completed and {@code frame} now holds its prediction
+     */
+    public boolean addSample(float ax, float ay, float az, float gx, float gy, float gz,
+                             long receivedAtMs, PredictionFrame frame) {
+        if (!window.add(ax, ay, az, gx, gy, gz)) {
+            return false;
+        }
+
+        window.extract(features);
+        float[] scores = classifier.predict(features);
+
+        if (labelsVersion != labels.getVersion()) {
+            for (int i = 0; i < labelIds.length; i++) {
+                labelIds[i] = labels.intern(classifier.getLabel(i));
+            }
+            labelsVersion = labels.getVersion();
+        }
+
+        frame.clear();
+        frame.format = PredictionFrame.FORMAT_LOCAL_MODEL;
+        frame.sequence = predictionCount++;
+        frame.receivedAtMs = receivedAtMs;
+        frame.sampledAtMs = receivedAtMs;
+        for (int i = 0; i < labelIds.length; i++) {
+            if (labelIds[i] >= 0) {
+                frame.scores[labelIds[i]] = scores[i];
+            }
+        }
+        frame.imu[PredictionFrame.IMU_AX] = ax;
+        frame.imu[PredictionFrame.IMU_AY] = ay;
+        frame.imu[PredictionFrame.IMU_AZ] = az;
+        frame.imu[PredictionFrame.IMU_GX] = gx;
+        frame.imu[PredictionFrame.IMU_GY] = gy;
+        frame.imu[PredictionFrame.IMU_GZ] = gz;
+        frame.hasImu = true;
+        return true;
+    }
+
+    /**
+     * Forget buffered samples, e.g. after a reconnect.
+     */
+    public void reset() {
+        window.reset();
+    }
+
+    public long getPredictionCount() {
+        return predictionCount;
+    }
+}
@@ -0,0 +1,257 @@
+package com.example.fitness.ble;
+
+import java.util.Arrays;
+
+/**
+ * Classifier rep counter that follows every label at once. State lives in primitive
+ * arrays indexed by label id and all labels are updated in a single pass over each
+ * prediction frame: a {@link ConfidenceSmoother} decides when a label's movement starts
+ * and ends, and each end is one rep unless it comes within a second of the last.
+ * The active exercise uses its own {@link SmoothingConfig}, every other label the default.
+ * Switching exercises only changes which label is reported, so nothing is rebuilt,
+ * and the label that dominates recent frames is reported as the detected exercise.
+ */
+public class MultiLabelExerciseCounter implements RepCounter {
+
+    private static final int MAX_LABELS = PredictionLabels.MAX_LABELS;
+    // Confidence swings with every rep, so detection looks at a slow average instead
+    private static final float DETECTION_ALPHA = 0.1f;
+    private static final float DETECTION_THRESHOLD = 0.3f;
+    private static final int DETECTION_FRAMES = 5; // Consecutive frames a label must lead to be detected
+
+    private final long minRepGap = 1000; // 1 second in milliseconds
+
+    private final ConfidenceSmoother[] smoothers = new ConfidenceSmoother[MAX_LABELS];
+    private final boolean[] doing = new boolean[MAX_LABELS];
+    private final int[] repCounts = new int[MAX_LABELS];
+    private final long[] lastRepTimes = new long[MAX_LABELS];
+    private final float[] confidences = new float[MAX_LABELS];
+    private final float[] smoothed = new float[MAX_LABELS];
+
+    private RepCountListener listener;
+    private final CounterEvents events = new CounterEvents();
+    private ExerciseDetectionListener detectionListener;
+    private PredictionLabels labels;
+    private int labelsVersion = -1;
+
+    private String activeExercise;
+    private SmoothingConfig activeSmoothing;
+    private int activeId = -1;
+    private int detectedId = -1;
+    private int candidateId = -1;
+    private int candidateFrames;
+
+    public MultiLabelExerciseCounter(String activeExercise) {
+        this(activeExercise, SmoothingConfig.DEFAULT);
+    }
+
+    public MultiLabelExerciseCounter(String activeExercise, SmoothingConfig smoothing) {
+        this.activeExercise = activeExercise.toLowerCase();
+        this.activeSmoothing = smoothing;
+        for (int id = 0; id < MAX_LABELS; id++) {
+            smoothers[id] = new ConfidenceSmoother(SmoothingConfig.DEFAULT);
+        }
+        Arrays.fill(lastRepTimes, Long.MIN_VALUE / 2);
+    }
+
+    @Override
+    public void setRepCountListener(RepCountListener listener) {
+        this.listener = listener;
+        events.setListener(listener);
+        events.config(activeExercise, "tracking all labels", activeSmoothing);
+    }
+
+    @Override
+    public void setVerbosity(CounterEvent.Verbosity verbosity) {
+        events.setVerbosity(verbosity);
+    }
+
+    @Override
+    public void setExerciseDetectionListener(ExerciseDetectionListener detectionListener) {
+        this.detectionListener = detectionListener;
+    }
+
+    /**
+     * Report reps for another exercise. Its count starts from zero, the state of every
+     * other label is kept.
+     */
+    @Override
+    public void setActiveExercise(String exerciseLabel, long repTempoMs, SmoothingConfig smoothing) {
+        activeExercise = exerciseLabel.toLowerCase();
+        activeSmoothing = smoothing;
+        resolveActiveId(labels != null ? labels.indexOf(activeExercise) : -1);
+        if (activeId >= 0) {
+            repCounts[activeId] = 0;
+        }
+        events.config(activeExercise, null, smoothing);
+    }
+
+    /**
+     * Moves the exercise specific smoothing over to the new active label
+     */
+    private void resolveActiveId(int id) {
+        if (activeId >= 0 && activeId != id) {
+            applySmoothing(activeId, SmoothingConfig.DEFAULT);
+        }
+        activeId = id;
+        if (id >= 0) {
+            applySmoothing(id, activeSmoothing);
+        }
+    }
+
+    private void applySmoothing(int id, SmoothingConfig config) {
+        if (smoothers[id].getConfig() != config) {
+            smoothers[id].configure(config);
+            doing[id] = false;
+        }
+    }
+
+    @Override
+    public void processPrediction(PredictionFrame frame) {
+        PredictionLabels frameLabels = frame.getLabels();
+        if (frameLabels != labels || frameLabels.getVersion() != labelsVersion) {
+            // Label table changed, resolve the active id again
+            labels = frameLabels;
+            labelsVersion = frameLabels.getVersion();
+            resolveActiveId(labels.indexOf(activeExercise));
+        }
+
+        long now = frame.getSampledAtMs();
+        int count = Math.min(frame.getLabelCount(), MAX_LABELS);
+        int best = -1;
+        float bestScore = DETECTION_THRESHOLD;
+
+        for (int id = 0; id < count; id++) {
+            float confidence = frame.getScore(id);
+            confidences[id] = confidence;
+            smoothed[id] += DETECTION_ALPHA * (confidence - smoothed[id]);
+            if (smoothed[id] >= bestScore) {
+                bestScore = smoothed[id];
+                best = id;
+            }
+
+            ConfidenceSmoother smoother = smoothers[id];
+            boolean active = smoother.update(confidence);
+            // Need enough readings for stability
+            if (!smoother.isReady()) {
+                continue;
+            }
+
+            if (!doing[id] && active) {
+                if (now - lastRepTimes[id] >= minRepGap) {
+                    doing[id] = true;
+                    if (id == activeId && listener != null) {
+                        events.stateChanged(activeExercise, true, confidence, now);
+                        listener.onExerciseStateChanged(true, activeExercise, confidence);
+                    }
+                }
+            } else if (doing[id] && !active) {
+                // Finished the movement = 1 rep completed
+                doing[id] = false;
+                repCounts[id]++;
+                lastRepTimes[id] = now;
+                if (id == activeId && listener != null) {
+                    listener.onRepCompleted(repCounts[id], now);
+                    events.rep(activeExercise, repCounts[id], null, now);
+                    listener.onExerciseStateChanged(false, activeExercise, confidence);
+                }
+            }
+        }
+
+        if (activeId >= 0 && activeId < count) {
+            // Continuous status of the active exercise, only for the debug console
+            events.confidence(activeExercise, doing[activeId], confidences[activeId], smoothers[activeId], now);
+        }
+        updateDetection(best, bestScore);
+    }
+
+    private void updateDetection(int best, float score) {
+        if (best == candidateId) {
+            candidateFrames++;
+        } else {
+            candidateId = best;
+            candidateFrames = 1;
+        }
+        if (candidateFrames == DETECTION_FRAMES && candidateId != detectedId) {
+            detectedId = candidateId;
+            if (detectionListener != null) {
+                detectionListener.onExerciseDetected(getDetectedExercise(), score);
+            }
+        }
+    }
+
+    /**
+     * Raw samples are not used, reps come from classifier confidences only
+     */
+    @Override
+    public void processSample(float ax, float ay, float az, float gx, float gy, float gz, long timestampMs) {
+    }
+
+    @Override
+    public void setSampleRate(float sampleRateHz) {
+    }
+
+    @Override
+    public void reset() {
+        for (ConfidenceSmoother smoother : smoothers) {
+            smoother.reset();
+        }
+        Arrays.fill(doing, false);
+        Arrays.fill(repCounts, 0);
+        Arrays.fill(lastRepTimes, Long.MIN_VALUE / 2);
+        Arrays.fill(confidences, 0f);
+        Arrays.fill(smoothed, 0f);
+        detectedId = -1;
+        candidateId = -1;
+        candidateFrames = 0;
+        events.reset(null);
+    }
+
+    @Override
+    public int getRepCount() {
+        return activeId >= 0 ? repCounts[activeId] : 0;
+    }
+
+    /**
+     * Reps seen so far for any label, whether or not it is the active exercise
+     */
+    public int getRepCount(String label) {
+        int id = labels != null ? labels.indexOf(label) : -1;
+        return id >= 0 ? repCounts[id] : 0;
+    }
+
+    @Override
+    public String getTargetExercise() {
+        return activeExercise;
+    }
+
+    @Override
+    public boolean isDoingExercise() {
+        return activeId >= 0 && doing[activeId];
+    }
+
+    /**
+     * @return label the user appears to be doing, or null if none stands out
+     */
+    public String getDetectedExercise() {
+        return labels != null ? labels.getName(detectedId) : null;
+    }
+
+    public SmoothingConfig getSmoothing() {
+        return activeSmoothing;
+    }
+
+    /**
+     * Whether the smoothed confidence for the active exercise currently says it is being done
+     */
+    public boolean isTargetDetected() {
+        return activeId >= 0 && smoothers[activeId].isActive();
+    }
+
+    /**
+     * Confidence for the active exercise in the last processed prediction
+     */
+    public double getLastConfidence() {
+        return activeId >= 0 ? confidences[activeId] : 0.0;
+    }
+}
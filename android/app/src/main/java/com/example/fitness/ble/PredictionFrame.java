@@ -0,0 +1,109 @@
+package com.example.fitness.ble;
+
+import java.util.Arrays;
+
+/**
+ * One classifier output decoded from the BLE link. Instances are reused by the
+ * decoder, so consumers must read what they need during the callback instead of
+ * keeping a reference.
+ */
+public class PredictionFrame {
+
+    public static final int FORMAT_JSON = 0;
+    public static final int FORMAT_BINARY = 1;
+    public static final int FORMAT_LOCAL_MODEL = 2; // Classified on the phone from raw IMU samples
+
+    public static final int IMU_AX = 0;
+    public static final int IMU_AY = 1;
+    public static final int IMU_AZ = 2;
+    public static final int IMU_GX = 3;
+    public static final int IMU_GY = 4;
+    public static final int IMU_GZ = 5;
+
+    private final PredictionLabels labels;
+    final float[] scores = new float[PredictionLabels.MAX_LABELS]; // Indexed by label id
+    final float[] imu = new float[6]; // ax, ay, az in g; gx, gy, gz in deg/s
+
+    int format;
+    int version;
+    long sequence = -1;      // -1 when the sender does not number its frames
+    long deviceTimeMs = -1;  // Sensor millis() when available, -1 otherwise
+    long receivedAtMs;
+    long sampledAtMs;        // Phone time of the sensor sample, receivedAtMs when not synced
+    boolean timeSynced;
+    boolean hasImu;
+
+    public PredictionFrame(PredictionLabels labels) {
+        this.labels = labels;
+    }
+
+    void clear() {
+        Arrays.fill(scores, 0f);
+        format = FORMAT_JSON;
+        version = 0;
+        sequence = -1;
+        deviceTimeMs = -1;
+        timeSynced = false;
+        hasImu = false;
+    }
+
+    public PredictionLabels getLabels() {
+        return labels;
+    }
+
+    public int getLabelCount() {
+        return labels.size();
+    }
+
+    public float getScore(int labelId) {
+        return labelId >= 0 && labelId < scores.length ? scores[labelId] : 0f;
+    }
+
+    public float getScore(String label) {
+        return getScore(labels.indexOf(label));
+    }
+
+    public int getFormat() {
+        return format;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public long getDeviceTimeMs() {
+        return deviceTimeMs;
+    }
+
+    public long getReceivedAtMs() {
+        return receivedAtMs;
+    }
+
+    /**
+     * elapsedRealtime when the sensor sample behind this prediction was taken, from the
+     * tracker's synchronized clock. Falls back to {@link #getReceivedAtMs()} until
+     * {@link BleTimeSync} has an estimate or when the firmware sends no timestamps.
+     */
+    public long getSampledAtMs() {
+        return sampledAtMs;
+    }
+
+    /**
+     * Whether {@link #getSampledAtMs()} comes from the synchronized sensor clock
+     */
+    public boolean isTimeSynced() {
+        return timeSynced;
+    }
+
+    public boolean hasImu() {
+        return hasImu;
+    }
+
+    public float getImu(int axis) {
+        return imu[axis];
+    }
+}
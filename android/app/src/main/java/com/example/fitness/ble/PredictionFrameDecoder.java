@@ -0,0 +1,514 @@
+package com.example.fitness.ble;
+
+import android.util.Log;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Decodes prediction frames sent by the ESP32 straight from the notification bytes
+ * into a reusable {@link PredictionFrame}.
+ *
+ * <p>Two wire formats are understood and told apart by their first byte:</p>
+ * <ul>
+ *   <li>Packed binary frames starting with {@link #MAGIC}, sent by current firmware.</li>
+ *   <li>The legacy JSON object starting with '{', sent by older firmware. It is read by a
+ *       small byte scanner instead of {@code org.json}, so the fallback does not allocate
+ *       either once all labels are known.</li>
+ * </ul>
+ *
+ * <p>Binary layout, version 1, little-endian:</p>
+ * <pre>
+ *  0  u8   magic 0xA5
+ *  1  u8   protocol version
+ *  2  u8   frame type (1 = prediction, 2 = label table, 3 = time sync, 4 = sensor profile)
+ *  3  u8   flags (bit 0 = IMU sample present)
+ *
+ *  prediction:
+ *  4  u16  sequence number
+ *  6  u32  device timestamp, millis()
+ * 10  u8   label count N
+ * 11  u16 x N  label scores, value * 65535
+ *      i16 x 6 optional IMU sample: ax, ay, az in milli-g, gx, gy, gz in 0.1 deg/s
+ *
+ *  label table:
+ *  4  u8   label count N
+ *  5  N x (u8 length, ASCII name) in the same order as the prediction scores
+ *          Labels that do not fit in {@link PredictionLabels} still count, so frames
+ *          match the table, but their scores are skipped.
+ *
+ *  time sync: see {@link BleTimeSync}
+ *  sensor profile: see {@link BleCommands}
+ * </pre>
+ *
+ * <p>Depending on the {@link SensorProfile}, one notification may carry several prediction
+ * frames back to back; {@link #frameLength} tells where each one ends.</p>
+ */
+public class PredictionFrameDecoder {
+
+    public static final byte MAGIC = (byte) 0xA5;
+    public static final int PROTOCOL_VERSION = 1;
+
+    public static final int TYPE_PREDICTION = 0x01;
+    public static final int TYPE_LABELS = 0x02;
+    public static final int TYPE_TIME_SYNC = 0x03;
+    public static final int TYPE_SENSOR_PROFILE = 0x04;
+
+    public static final int FLAG_IMU = 0x01;
+
+    private static final String TAG = "PredictionFrameDecoder";
+
+    private static final int HEADER_SIZE = 4;
+    private static final int PREDICTION_HEADER_SIZE = 11;
+    private static final int IMU_SIZE = 12;
+    private static final int MAX_WIRE_LABELS = 0xFF; // The label count is a u8
+    private static final float SCORE_SCALE = 1f / 65535f;
+    private static final float ACCEL_SCALE = 1f / 1000f;
+    private static final float GYRO_SCALE = 1f / 10f;
+
+    private static final byte[] KEY_PREDICTIONS = ascii("predictions");
+    private static final byte[] KEY_SENSOR = ascii("sensor");
+    private static final byte[] KEY_SEQUENCE = ascii("seq");
+    private static final byte[] KEY_TIMESTAMP = ascii("ts");
+    private static final byte[][] IMU_KEYS = {
+            ascii("ax"), ascii("ay"), ascii("az"), ascii("gx"), ascii("gy"), ascii("gz")
+    };
+
+    private final PredictionLabels labels;
+
+    // Firmware label order -> registry id or -1 if it did not fit, filled by the label table frame
+    private final int[] binaryLabelIds = new int[MAX_WIRE_LABELS];
+    private int binaryLabelCount;
+
+    // JSON scanner state, only valid during decode()
+    private byte[] json;
+    private int pos;
+    private int end;
+    private int tokenStart;
+    private int tokenLength;
+    private boolean malformed;
+
+    private long malformedCount;
+    private long missingLabelTableCount;
+
+    public PredictionFrameDecoder(PredictionLabels labels) {
+        this.labels = labels;
+    }
+
+    public PredictionLabels getLabels() {
+        return labels;
+    }
+
+    public static boolean isBinaryFrame(byte[] data, int offset, int length) {
+        return length >= HEADER_SIZE && data[offset] == MAGIC;
+    }
+
+    /**
+     * Length of the binary frame starting at {@code offset}, so batched prediction frames
+     * can be split. Anything else is taken to fill the rest of the notification.
+     */
+    public static int frameLength(byte[] data, int offset, int length) {
+        if (length < PREDICTION_HEADER_SIZE || data[offset] != MAGIC
+                || (data[offset + 2] & 0xFF) != TYPE_PREDICTION) {
+            return length;
+        }
+        boolean hasImu = (data[offset + 3] & FLAG_IMU) != 0;
+        int frameLength = PREDICTION_HEADER_SIZE + (data[offset + 10] & 0xFF) * 2 + (hasImu ? IMU_SIZE : 0);
+        // A truncated frame is left whole for decode() to count as malformed
+        return Math.min(frameLength, length);
+    }
+
+    /**
+     * Decode one complete frame.
+     *
+     * @return true if {@code frame} now holds a prediction, false for label tables
+     *         and frames that could not be decoded
+     */
+    public boolean decode(byte[] data, int offset, int length, PredictionFrame frame) {
+        if (length <= 0) {
+            return false;
+        }
+        if (data[offset] == MAGIC) {
+            return decodeBinary(data, offset, length, frame);
+        }
+        if (data[offset] == '{') {
+            return decodeJson(data, offset, length, frame);
+        }
+        malformedCount++;
+        return false;
+    }
+
+    public void reset() {
+        binaryLabelCount = 0;
+    }
+
+    public long getMalformedCount() {
+        return malformedCount;
+    }
+
+    public long getMissingLabelTableCount() {
+        return missingLabelTableCount;
+    }
+
+    // ---------------------------------------------------------------- binary
+
+    private boolean decodeBinary(byte[] data, int offset, int length, PredictionFrame frame) {
+        if (length < HEADER_SIZE) {
+            malformedCount++;
+            return false;
+        }
+        int version = data[offset + 1] & 0xFF;
+        if (version != PROTOCOL_VERSION) {
+            // Newer layouts must bump the version, older apps cannot guess at them
+            malformedCount++;
+            return false;
+        }
+
+        int type = data[offset + 2] & 0xFF;
+        int flags = data[offset + 3] & 0xFF;
+        switch (type) {
+            case TYPE_PREDICTION:
+                return decodeBinaryPrediction(data, offset, length, version, flags, frame);
+            case TYPE_LABELS:
+                decodeLabelTable(data, offset, length);
+                return false;
+            case TYPE_TIME_SYNC:
+            case TYPE_SENSOR_PROFILE:
+                // Handled by the connection before decoding, only seen in recordings
+                return false;
+            default:
+                malformedCount++;
+                return false;
+        }
+    }
+
+    private boolean decodeBinaryPrediction(byte[] data, int offset, int length, int version,
+                                           int flags, PredictionFrame frame) {
+        if (length < PREDICTION_HEADER_SIZE) {
+            malformedCount++;
+            return false;
+        }
+        int labelCount = data[offset + 10] & 0xFF;
+        boolean hasImu = (flags & FLAG_IMU) != 0;
+        int required = PREDICTION_HEADER_SIZE + labelCount * 2 + (hasImu ? IMU_SIZE : 0);
+        if (length < required) {
+            malformedCount++;
+            return false;
+        }
+        if (labelCount != binaryLabelCount) {
+            // Scores are positional, without the label table they cannot be attributed
+            missingLabelTableCount++;
+            return false;
+        }
+
+        frame.clear();
+        frame.format = PredictionFrame.FORMAT_BINARY;
+        frame.version = version;
+        frame.sequence = readUInt16(data, offset + 4);
+        frame.deviceTimeMs = readUInt32(data, offset + 6);
+
+        int p = offset + PREDICTION_HEADER_SIZE;
+        for (int i = 0; i < labelCount; i++, p += 2) {
+            int id = binaryLabelIds[i];
+            if (id >= 0) {
+                frame.scores[id] = readUInt16(data, p) * SCORE_SCALE;
+            }
+        }
+
+        if (hasImu) {
+            frame.hasImu = true;
+            for (int axis = 0; axis < 6; axis++, p += 2) {
+                float scale = axis < 3 ? ACCEL_SCALE : GYRO_SCALE;
+                frame.imu[axis] = readInt16(data, p) * scale;
+            }
+        }
+        return true;
+    }
+
+    private void decodeLabelTable(byte[] data, int offset, int length) {
+        if (length < HEADER_SIZE + 1) {
+            malformedCount++;
+            return;
+        }
+        int count = data[offset + 4] & 0xFF;
+        int p = offset + HEADER_SIZE + 1;
+        int end = offset + length;
+        int skipped = 0;
+        for (int i = 0; i < count; i++) {
+            int nameLength = p < end ? data[p++] & 0xFF : -1;
+            if (nameLength < 0 || p + nameLength > end) {
+                // The ids read so far would not match the scores of the old table either
+                binaryLabelCount = 0;
+                malformedCount++;
+                Log.w(TAG, "⚠️ Truncated label table, " + i + " of " + count + " labels");
+                return;
+            }
+            binaryLabelIds[i] = labels.intern(data, p, nameLength);
+            if (binaryLabelIds[i] < 0) {
+                skipped++;
+            }
+            p += nameLength;
+        }
+        binaryLabelCount = count;
+        if (skipped > 0) {
+            Log.w(TAG, "⚠️ Label table has " + count + " labels, " + skipped + " do not fit in the "
+                    + PredictionLabels.MAX_LABELS + " known ones and their scores are ignored");
+        }
+    }
+
+    static int readUInt16(byte[] data, int p) {
+        return (data[p] & 0xFF) | (data[p + 1] & 0xFF) << 8;
+    }
+
+    private static int readInt16(byte[] data, int p) {
+        return (short) readUInt16(data, p);
+    }
+
+    static long readUInt32(byte[] data, int p) {
+        return ((long) readUInt16(data, p)) | ((long) readUInt16(data, p + 2)) << 16;
+    }
+
+    // ---------------------------------------------------------------- JSON fallback
+
+    private boolean decodeJson(byte[] data, int offset, int length, PredictionFrame frame) {
+        json = data;
+        pos = offset;
+        end = offset + length;
+        malformed = false;
+        frame.clear();
+        frame.format = PredictionFrame.FORMAT_JSON;
+
+        boolean hasPredictions = false;
+        pos++; // Opening brace
+        while (!malformed) {
+            skipWhitespace();
+            if (pos >= end) {
+                malformed = true;
+                break;
+            }
+            byte b = json[pos];
+            if (b == '}') {
+                break;
+            }
+            if (b == ',') {
+                pos++;
+                continue;
+            }
+            if (!readKey()) {
+                break;
+            }
+            if (tokenEquals(KEY_PREDICTIONS)) {
+                hasPredictions = readScores(frame);
+            } else if (tokenEquals(KEY_SENSOR)) {
+                readSensor(frame);
+            } else if (tokenEquals(KEY_SEQUENCE)) {
+                frame.sequence = (long) readNumber();
+            } else if (tokenEquals(KEY_TIMESTAMP)) {
+                frame.deviceTimeMs = (long) readNumber();
+            } else {
+                skipValue();
+            }
+        }
+        json = null;
+
+        if (malformed) {
+            malformedCount++;
+            return false;
+        }
+        return hasPredictions;
+    }
+
+    private boolean readScores(PredictionFrame frame) {
+        if (!expect('{')) {
+            return false;
+        }
+        while (!malformed) {
+            skipWhitespace();
+            if (pos >= end) {
+                malformed = true;
+                return false;
+            }
+            byte b = json[pos];
+            if (b == '}') {
+                pos++;
+                return true;
+            }
+            if (b == ',') {
+                pos++;
+                continue;
+            }
+            if (!readKey()) {
+                return false;
+            }
+            int id = labels.intern(json, tokenStart, tokenLength);
+            double value = readNumber();
+            if (id >= 0 && !malformed) {
+                frame.scores[id] = (float) value;
+            }
+        }
+        return false;
+    }
+
+    private void readSensor(PredictionFrame frame) {
+        if (!expect('{')) {
+            return;
+        }
+        while (!malformed) {
+            skipWhitespace();
+            if (pos >= end) {
+                malformed = true;
+                return;
+            }
+            byte b = json[pos];
+            if (b == '}') {
+                pos++;
+                return;
+            }
+            if (b == ',') {
+                pos++;
+                continue;
+            }
+            if (!readKey()) {
+                return;
+            }
+            int axis = -1;
+            for (int i = 0; i < IMU_KEYS.length; i++) {
+                if (tokenEquals(IMU_KEYS[i])) {
+                    axis = i;
+                    break;
+                }
+            }
+            if (axis >= 0) {
+                frame.imu[axis] = (float) readNumber();
+                frame.hasImu = true;
+            } else {
+                skipValue();
+            }
+        }
+    }
+
+    /**
+     * Read a quoted key followed by a colon, leaving the key in tokenStart/tokenLength.
+     */
+    private boolean readKey() {
+        skipWhitespace();
+        if (!expect('"')) {
+            return false;
+        }
+        tokenStart = pos;
+        while (pos < end && json[pos] != '"') {
+            if (json[pos] == '\\') {
+                pos++;
+            }
+            pos++;
+        }
+        if (pos >= end) {
+            malformed = true;
+            return false;
+        }
+        tokenLength = pos - tokenStart;
+        pos++;
+        skipWhitespace();
+        return expect(':');
+    }
+
+    private double readNumber() {
+        skipWhitespace();
+        boolean negative = false;
+        if (pos < end && (json[pos] == '-' || json[pos] == '+')) {
+            negative = json[pos] == '-';
+            pos++;
+        }
+        int start = pos;
+        double value = 0;
+        while (pos < end && json[pos] >= '0' && json[pos] <= '9') {
+            value = value * 10 + (json[pos++] - '0');
+        }
+        if (pos < end && json[pos] == '.') {
+            pos++;
+            double scale = 0.1;
+            while (pos < end && json[pos] >= '0' && json[pos] <= '9') {
+                value += (json[pos++] - '0') * scale;
+                scale *= 0.1;
+            }
+        }
+        if (pos < end && (json[pos] == 'e' || json[pos] == 'E')) {
+            pos++;
+            boolean negativeExponent = false;
+            if (pos < end && (json[pos] == '-' || json[pos] == '+')) {
+                negativeExponent = json[pos] == '-';
+                pos++;
+            }
+            int exponent = 0;
+            while (pos < end && json[pos] >= '0' && json[pos] <= '9') {
+                exponent = exponent * 10 + (json[pos++] - '0');
+            }
+            value *= Math.pow(10, negativeExponent ? -exponent : exponent);
+        }
+        if (pos == start) {
+            // Not a number (e.g. null or nan from the firmware)
+            skipValue();
+            return 0;
+        }
+        return negative ? -value : value;
+    }
+
+    private void skipValue() {
+        skipWhitespace();
+        int depth = 0;
+        boolean inString = false;
+        while (pos < end) {
+            byte b = json[pos];
+            if (inString) {
+                if (b == '\\') {
+                    pos++;
+                } else if (b == '"') {
+                    inString = false;
+                }
+            } else if (b == '"') {
+                inString = true;
+            } else if (b == '{' || b == '[') {
+                depth++;
+            } else if (b == '}' || b == ']') {
+                if (depth == 0) {
+                    return;
+                }
+                depth--;
+            } else if (b == ',' && depth == 0) {
+                return;
+            }
+            pos++;
+        }
+    }
+
+    private void skipWhitespace() {
+        while (pos < end && json[pos] <= ' ') {
+            pos++;
+        }
+    }
+
+    private boolean expect(char c) {
+        skipWhitespace();
+        if (pos < end && json[pos] == c) {
+            pos++;
+            return true;
+        }
+        malformed = true;
+        return false;
+    }
+
+    private boolean tokenEquals(byte[] key) {
+        if (tokenLength != key.length) {
+            return false;
+        }
+        for (int i = 0; i < tokenLength; i++) {
+            if (json[tokenStart + i] != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}
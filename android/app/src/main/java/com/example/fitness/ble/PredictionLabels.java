@@ -0,0 +1,120 @@
+package com.example.fitness.ble;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Registry of classifier labels seen on the BLE link. Every label gets a stable
+ * small integer id so predictions can be stored in primitive arrays, and lookups
+ * straight from received bytes do not allocate once a label is known.
+ *
+ * <p>Shared by the decoders of every source and read by the counters, so it is safe
+ * to use from any thread: lookups are lock-free, a new label is written under a lock
+ * and only then made visible by the volatile size.</p>
+ */
+public class PredictionLabels {
+
+    public static final int MAX_LABELS = 16;
+
+    private final String[] names = new String[MAX_LABELS];
+    private final byte[][] encodedNames = new byte[MAX_LABELS][];
+    private volatile int size;
+    private volatile int version; // Bumped whenever a label is added so consumers can refresh cached ids
+
+    public int size() {
+        return size;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public String getName(int id) {
+        return id >= 0 && id < size ? names[id] : null;
+    }
+
+    /**
+     * @return id of the label, or -1 if it has not been seen yet
+     */
+    public int indexOf(String name) {
+        if (name == null) {
+            return -1;
+        }
+        int count = size;
+        for (int i = 0; i < count; i++) {
+            String known = names[i];
+            if (known != null && known.equalsIgnoreCase(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Look up a label from raw ASCII bytes, registering it if it is new.
+     *
+     * @return id of the label, or -1 if the registry is full
+     */
+    public int intern(byte[] buffer, int offset, int length) {
+        int id = find(buffer, offset, length);
+        if (id >= 0 || size == MAX_LABELS) {
+            return id;
+        }
+        return add(new String(buffer, offset, length, StandardCharsets.US_ASCII).toLowerCase());
+    }
+
+    public int intern(String name) {
+        int id = indexOf(name);
+        if (id >= 0 || size == MAX_LABELS) {
+            return id;
+        }
+        return add(name.toLowerCase());
+    }
+
+    private int find(byte[] buffer, int offset, int length) {
+        int count = size;
+        for (int i = 0; i < count; i++) {
+            byte[] encoded = encodedNames[i];
+            if (encoded != null && encoded.length == length && regionMatches(encoded, buffer, offset, length)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private synchronized int add(String name) {
+        // Another thread may have added it since the lock-free lookup
+        int id = indexOf(name);
+        if (id >= 0 || size == MAX_LABELS) {
+            return id;
+        }
+        id = size;
+        names[id] = name;
+        encodedNames[id] = name.getBytes(StandardCharsets.US_ASCII);
+        size = id + 1;
+        version++;
+        return id;
+    }
+
+    private static boolean regionMatches(byte[] encoded, byte[] buffer, int offset, int length) {
+        for (int i = 0; i < length; i++) {
+            byte b = buffer[offset + i];
+            if (b >= 'A' && b <= 'Z') {
+                b += 'a' - 'A';
+            }
+            if (encoded[i] != b) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public synchronized void clear() {
+        int count = size;
+        size = 0;
+        version++;
+        for (int i = 0; i < count; i++) {
+            names[i] = null;
+            encodedNames[i] = null;
+        }
+    }
+}
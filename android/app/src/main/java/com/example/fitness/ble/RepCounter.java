@@ -0,0 +1,113 @@
+package com.example.fitness.ble;
+
+/**
+ * Common interface of the rep counting engines. All methods are called on the BLE
+ * processing thread; listeners must hop to the UI thread themselves.
+ */
+public interface RepCounter {
+
+    enum Engine {
+        /** Majority vote over classifier confidences, see {@link MultiLabelExerciseCounter} */
+        CLASSIFIER,
+        /** Peak detection on the accelerometer magnitude, see {@link SignalRepCounter} */
+        SIGNAL,
+        /** Signal reps confirmed by the classifier, see {@link FusedRepCounter} */
+        FUSED;
+
+        /**
+         * The counter a workout uses with this engine, also what a replayed session is
+         * counted with.
+         *
+         * @param repTempoMs   Expected time per rep, 0 if unknown
+         * @param sampleRateHz Rate of the raw samples, 0 if unknown
+         */
+        public RepCounter create(String exerciseLabel, long repTempoMs, SmoothingConfig smoothing,
+                                 float sampleRateHz) {
+            switch (this) {
+                case SIGNAL:
+                    return new SignalRepCounter(exerciseLabel, repTempoMs, sampleRateHz);
+                case FUSED:
+                    return new FusedRepCounter(exerciseLabel, repTempoMs, smoothing, sampleRateHz);
+                case CLASSIFIER:
+                default:
+                    return new MultiLabelExerciseCounter(exerciseLabel, smoothing);
+            }
+        }
+    }
+
+    interface RepCountListener {
+        void onRepCompleted(int repCount);
+
+        /**
+         * What counters call, for listeners that also want to know when the rep happened
+         *
+         * @param sampledAtMs elapsedRealtime of the sample that completed the rep
+         */
+        default void onRepCompleted(int repCount, long sampledAtMs) {
+            onRepCompleted(repCount);
+        }
+
+        void onExerciseStateChanged(boolean isDoingExercise, String exerciseName, double confidence);
+
+        /**
+         * Diagnostics, as far as {@link #setVerbosity} lets them through. The event is
+         * reused, format it here if it is to be shown.
+         */
+        default void onCounterEvent(CounterEvent event) {
+        }
+    }
+
+    interface ExerciseDetectionListener {
+        /**
+         * @param exerciseLabel Label the user appears to be doing, null when none stands out
+         */
+        void onExerciseDetected(String exerciseLabel, double confidence);
+    }
+
+    void setRepCountListener(RepCountListener listener);
+
+    /**
+     * How many {@link CounterEvent}s reach the listener, {@link CounterEvent.Verbosity#EVENTS}
+     * by default. May be changed from any thread.
+     */
+    void setVerbosity(CounterEvent.Verbosity verbosity);
+
+    /**
+     * Engines without a classifier never report a detected exercise.
+     */
+    void setExerciseDetectionListener(ExerciseDetectionListener listener);
+
+    /**
+     * Switch to counting another exercise, starting again from zero.
+     *
+     * @param repTempoMs Expected time per rep, 0 if unknown
+     * @param smoothing How classifier confidences for this exercise are smoothed
+     */
+    void setActiveExercise(String exerciseLabel, long repTempoMs, SmoothingConfig smoothing);
+
+    /**
+     * Classifier output, either from the sensor board or from the phone-side model.
+     */
+    void processPrediction(PredictionFrame frame);
+
+    /**
+     * One raw IMU sample, accelerations in g and rotation rates in deg/s.
+     *
+     * @param timestampMs {@link android.os.SystemClock#elapsedRealtime()} when it was received
+     */
+    void processSample(float ax, float ay, float az, float gx, float gy, float gz, long timestampMs);
+
+    /**
+     * Rate of the samples given to {@link #processSample}, as the tracker applied it.
+     * Called before the first sample at a new rate.
+     */
+    void setSampleRate(float sampleRateHz);
+
+    void reset();
+
+    int getRepCount();
+
+    String getTargetExercise();
+
+    boolean isDoingExercise();
+}
@@ -0,0 +1,291 @@
+package com.example.fitness.ble;
+
+/**
+ * Combines the prediction streams of several trackers, e.g. wrist and ankle, into one
+ * stream for the rep counters. Runs on the pipeline thread and does not allocate.
+ * <p>
+ * Each tracker's frames are placed on the phone's timeline at their sample time when
+ * the tracker's clock is synchronized, see {@link BleTimeSync}, and otherwise through
+ * its own {@link DeviceClock}, so radio jitter and crystal drift do not skew the
+ * alignment; frames without a sensor timestamp fall back to their arrival time. The primary
+ * tracker, the lowest source still sending, sets the output rate: each of its frames is
+ * held until every other live tracker has sent a frame at or after the same instant,
+ * or for at most {@link #MAX_WAIT_MS}, then the others' scores are linearly interpolated
+ * to that instant and averaged in with the given weights. IMU values, sequence and
+ * timestamps of the output come from the primary tracker.
+ */
+public class SensorFusion {
+
+    public static final int MAX_SOURCES = 4;
+
+    /** How long a primary frame waits for the other trackers */
+    static final long MAX_WAIT_MS = 150;
+    /** A tracker silent for this long is left out until it sends again */
+    static final long STALE_MS = 1000;
+    private static final int HISTORY = 8; // Power of two
+
+    private final PredictionFrame output;
+    private final Track[] tracks = new Track[MAX_SOURCES];
+    private final float[] weights = new float[MAX_SOURCES];
+    private BleProcessingPipeline.PredictionListener listener;
+    private int primary = -1;
+    private long now = Long.MIN_VALUE;
+    private long lastEmittedTime = Long.MIN_VALUE;
+
+    public SensorFusion(PredictionLabels labels) {
+        this.output = new PredictionFrame(labels);
+        for (int i = 0; i < MAX_SOURCES; i++) {
+            tracks[i] = new Track();
+            weights[i] = 1f;
+        }
+    }
+
+    public void setListener(BleProcessingPipeline.PredictionListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Relative trust in a tracker's scores, 1 by default. A placement that sees an
+     * exercise poorly can be weighted down without dropping it.
+     */
+    public void setWeight(int source, float weight) {
+        weights[source] = weight;
+    }
+
+    /**
+     * Feed one decoded frame from {@code source}
+     */
+    public void accept(int source, PredictionFrame frame) {
+        now = Math.max(now, frame.receivedAtMs);
+        Track track = tracks[source];
+        long time;
+        if (frame.timeSynced) {
+            time = frame.sampledAtMs;
+        } else if (frame.deviceTimeMs >= 0) {
+            track.clock.observe(frame.deviceTimeMs, frame.receivedAtMs);
+            time = track.clock.toLocal(frame.deviceTimeMs);
+        } else {
+            time = frame.receivedAtMs;
+        }
+
+        if (source == primary && track.pending() == HISTORY) {
+            // Never overwrite a frame that was not passed on
+            emit(track, track.emitted);
+        }
+        track.push(time, frame);
+        // After the push, so a tracker is in the running from its first frame
+        emitReady(selectPrimary());
+    }
+
+    private int selectPrimary() {
+        for (int i = 0; i < MAX_SOURCES; i++) {
+            Track track = tracks[i];
+            if (track.isLive(now)) {
+                if (i != primary) {
+                    // Take over after the last frame passed on, the output never goes back in time
+                    while (track.pending() > 0 && track.time(track.emitted) <= lastEmittedTime) {
+                        track.emitted++;
+                    }
+                }
+                primary = i;
+                return i;
+            }
+        }
+        primary = -1;
+        return -1;
+    }
+
+    private void emitReady(int p) {
+        if (p < 0) {
+            return;
+        }
+        Track track = tracks[p];
+        while (track.pending() > 0) {
+            long index = track.emitted;
+            long time = track.time(index);
+            if (now - track.arrival(index) < MAX_WAIT_MS && !othersCaughtUp(p, time)) {
+                return;
+            }
+            emit(track, index);
+        }
+    }
+
+    private boolean othersCaughtUp(int p, long time) {
+        for (int i = 0; i < MAX_SOURCES; i++) {
+            Track other = tracks[i];
+            if (i != p && other.isLive(now) && other.newestTime() < time) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void emit(Track track, long index) {
+        int slot = track.slot(index);
+        int labelCount = output.getLabelCount();
+        long time = track.times[slot];
+
+        output.clear();
+        output.format = track.formats[slot];
+        output.version = track.versions[slot];
+        output.sequence = track.sequences[slot];
+        output.deviceTimeMs = track.deviceTimes[slot];
+        output.receivedAtMs = track.arrivals[slot];
+        output.sampledAtMs = time;
+        output.timeSynced = track.synced[slot];
+        output.hasImu = track.hasImu[slot];
+        System.arraycopy(track.imu[slot], 0, output.imu, 0, output.imu.length);
+
+        int p = primary;
+        float total = weights[p];
+        float[] scores = track.scores[slot];
+        for (int id = 0; id < labelCount; id++) {
+            output.scores[id] = scores[id] * total;
+        }
+        for (int i = 0; i < MAX_SOURCES; i++) {
+            Track other = tracks[i];
+            if (i == p || !other.isLive(now) || other.count == 0) {
+                continue;
+            }
+            float weight = weights[i];
+            other.addInterpolated(time, weight, output.scores, labelCount);
+            total += weight;
+        }
+        if (total > 0) {
+            float scale = 1f / total;
+            for (int id = 0; id < labelCount; id++) {
+                output.scores[id] *= scale;
+            }
+        }
+        track.emitted = index + 1;
+        lastEmittedTime = time;
+
+        BleProcessingPipeline.PredictionListener l = listener;
+        if (l != null) {
+            l.onPrediction(output);
+        }
+    }
+
+    /**
+     * Forget every tracker's history and clock, e.g. after a disconnect
+     */
+    public void reset() {
+        for (Track track : tracks) {
+            track.reset();
+        }
+        primary = -1;
+        now = Long.MIN_VALUE;
+        lastEmittedTime = Long.MIN_VALUE;
+    }
+
+    public void reset(int source) {
+        tracks[source].reset();
+    }
+
+    /**
+     * Estimated drift of a tracker's clock, in parts per million
+     */
+    public double getDriftPpm(int source) {
+        return tracks[source].clock.getDriftPpm();
+    }
+
+    /**
+     * Recent frames of one tracker, on the phone's timeline
+     */
+    private static final class Track {
+        final DeviceClock clock = new DeviceClock();
+        final long[] times = new long[HISTORY];
+        final long[] arrivals = new long[HISTORY];
+        final long[] sequences = new long[HISTORY];
+        final long[] deviceTimes = new long[HISTORY];
+        final int[] formats = new int[HISTORY];
+        final int[] versions = new int[HISTORY];
+        final boolean[] hasImu = new boolean[HISTORY];
+        final boolean[] synced = new boolean[HISTORY];
+        final float[][] scores = new float[HISTORY][PredictionLabels.MAX_LABELS];
+        final float[][] imu = new float[HISTORY][6];
+        long count;   // Frames pushed
+        long emitted; // Frames passed on, only advanced on the primary
+        long lastArrival = Long.MIN_VALUE;
+
+        void push(long time, PredictionFrame frame) {
+            int slot = slot(count);
+            times[slot] = time;
+            arrivals[slot] = frame.receivedAtMs;
+            sequences[slot] = frame.sequence;
+            deviceTimes[slot] = frame.deviceTimeMs;
+            formats[slot] = frame.format;
+            versions[slot] = frame.version;
+            hasImu[slot] = frame.hasImu;
+            synced[slot] = frame.timeSynced;
+            System.arraycopy(frame.scores, 0, scores[slot], 0, frame.scores.length);
+            System.arraycopy(frame.imu, 0, imu[slot], 0, frame.imu.length);
+            count++;
+            if (count - emitted > HISTORY) {
+                emitted = count - HISTORY;
+            }
+            lastArrival = frame.receivedAtMs;
+        }
+
+        int slot(long index) {
+            return (int) (index & (HISTORY - 1));
+        }
+
+        long time(long index) {
+            return times[slot(index)];
+        }
+
+        long arrival(long index) {
+            return arrivals[slot(index)];
+        }
+
+        long pending() {
+            return count - emitted;
+        }
+
+        long newestTime() {
+            return count == 0 ? Long.MIN_VALUE : times[slot(count - 1)];
+        }
+
+        boolean isLive(long now) {
+            return count > 0 && now - lastArrival < STALE_MS;
+        }
+
+        /**
+         * Add {@code weight} times this tracker's scores at {@code time} into {@code out}
+         */
+        void addInterpolated(long time, float weight, float[] out, int labelCount) {
+            long oldest = Math.max(0, count - HISTORY);
+            long after = count - 1;
+            // Newest frame at or before the time, frames are in time order
+            while (after > oldest && times[slot(after)] > time) {
+                after--;
+            }
+            int a = slot(after);
+            long next = after + 1;
+            if (next >= count || times[a] > time) {
+                // Outside the history, hold the closest frame
+                float[] s = scores[a];
+                for (int id = 0; id < labelCount; id++) {
+                    out[id] += s[id] * weight;
+                }
+                return;
+            }
+            int b = slot(next);
+            long span = times[b] - times[a];
+            float f = span > 0 ? (float) (time - times[a]) / span : 0f;
+            float[] sa = scores[a];
+            float[] sb = scores[b];
+            for (int id = 0; id < labelCount; id++) {
+                out[id] += (sa[id] + (sb[id] - sa[id]) * f) * weight;
+            }
+        }
+
+        void reset() {
+            clock.reset();
+            count = 0;
+            emitted = 0;
+            lastArrival = Long.MIN_VALUE;
+        }
+    }
+}
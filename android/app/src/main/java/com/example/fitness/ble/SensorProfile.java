@@ -0,0 +1,172 @@
+package com.example.fitness.ble;
+
+import java.util.Locale;
+
+/**
+ * What a tracker samples and sends, written to it with {@link BleCommands}. Slow holds
+ * get by with a prediction every second, fast reps need more; the cheapest profile that
+ * still resolves an exercise's reps saves radio time and battery. Immutable, like
+ * {@link SmoothingConfig}.
+ */
+public final class SensorProfile {
+
+    public enum Mode {
+        /** On-sensor classifier, one prediction frame per inference */
+        PREDICTIONS,
+        /** Raw IMU samples as CSV lines, classified and counted on the phone */
+        RAW_SAMPLES
+    }
+
+    /** Lets the firmware pick, i.e. the classifier's rate or half a window */
+    public static final int FIRMWARE_DEFAULT = 0;
+
+    /** What the firmware does until told otherwise */
+    public static final SensorProfile DEFAULT = predictions(FIRMWARE_DEFAULT, 1);
+
+    public static final int MIN_SAMPLE_RATE_HZ = 5;
+    public static final int MAX_SAMPLE_RATE_HZ = 100;
+    public static final int MAX_STRIDE_MS = 5000;
+    public static final int MAX_BATCH_SIZE = 8;
+
+    // Chosen from the rep tempo, see forRepTempo()
+    private static final int PREDICTIONS_PER_REP = 4;
+    private static final int MIN_STRIDE_MS = 200;
+    private static final int HOLD_STRIDE_MS = 1000;
+    private static final int HOLD_BATCH_SIZE = 2;
+    private static final int SAMPLES_PER_REP = 20;
+    private static final int MIN_RAW_RATE_HZ = 10;
+    private static final int MAX_RAW_RATE_HZ = 50;
+    private static final int RAW_NOTIFICATIONS_PER_SECOND = 5;
+
+    /**
+     * Between sets: fewer inferences and notifications, but the next exercise starting
+     * is still noticed within a few seconds
+     */
+    public static final SensorProfile REST = predictions(HOLD_STRIDE_MS, HOLD_BATCH_SIZE);
+
+    private final Mode mode;
+    private final int sampleRateHz;
+    private final int strideMs;
+    private final int batchSize;
+
+    private SensorProfile(Mode mode, int sampleRateHz, int strideMs, int batchSize) {
+        this.mode = mode;
+        this.sampleRateHz = sampleRateHz;
+        this.strideMs = strideMs;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Predictions at the classifier's own sample rate, which the model was trained on
+     *
+     * @param strideMs  Time between inferences, {@link #FIRMWARE_DEFAULT} for half a window
+     * @param batchSize Predictions per notification, more adds latency but fewer radio events
+     */
+    public static SensorProfile predictions(int strideMs, int batchSize) {
+        if (strideMs < 0 || strideMs > MAX_STRIDE_MS) {
+            throw new IllegalArgumentException("Invalid stride " + strideMs + " ms");
+        }
+        checkBatchSize(batchSize);
+        return new SensorProfile(Mode.PREDICTIONS, FIRMWARE_DEFAULT, strideMs, batchSize);
+    }
+
+    /**
+     * @param batchSize Samples per notification
+     */
+    public static SensorProfile rawSamples(int sampleRateHz, int batchSize) {
+        if (sampleRateHz < MIN_SAMPLE_RATE_HZ || sampleRateHz > MAX_SAMPLE_RATE_HZ) {
+            throw new IllegalArgumentException("Invalid sample rate " + sampleRateHz + " Hz");
+        }
+        checkBatchSize(batchSize);
+        return new SensorProfile(Mode.RAW_SAMPLES, sampleRateHz, FIRMWARE_DEFAULT, batchSize);
+    }
+
+    /**
+     * Cheapest profile that still resolves reps of the given tempo.
+     *
+     * @param repTempoMs Typical time per rep, 0 for holds such as a plank
+     * @param rawSamples Whether reps are counted from the IMU signal on the phone
+     */
+    public static SensorProfile forRepTempo(long repTempoMs, boolean rawSamples) {
+        if (rawSamples) {
+            // The signal counter needs a few samples on each side of a peak
+            int rate = repTempoMs > 0 ? (int) (SAMPLES_PER_REP * 1000 / repTempoMs) : MIN_RAW_RATE_HZ;
+            rate = clamp(rate, MIN_RAW_RATE_HZ, MAX_RAW_RATE_HZ);
+            return rawSamples(rate, clamp(rate / RAW_NOTIFICATIONS_PER_SECOND, 1, MAX_BATCH_SIZE));
+        }
+        if (repTempoMs <= 0) {
+            // Only whether the hold is still going matters, a second or two late is fine
+            return predictions(HOLD_STRIDE_MS, HOLD_BATCH_SIZE);
+        }
+        // A rep has to rise and fall through the smoother, that takes a few predictions
+        int stride = clamp((int) (repTempoMs / PREDICTIONS_PER_REP), MIN_STRIDE_MS, HOLD_STRIDE_MS);
+        return predictions(stride, 1);
+    }
+
+    /**
+     * Exactly these values, e.g. as reported back by a tracker
+     */
+    static SensorProfile of(Mode mode, int sampleRateHz, int strideMs, int batchSize) {
+        return new SensorProfile(mode, sampleRateHz, strideMs, batchSize);
+    }
+
+    private static void checkBatchSize(int batchSize) {
+        if (batchSize < 1 || batchSize > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("Invalid batch size " + batchSize);
+        }
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * IMU sample rate, {@link #FIRMWARE_DEFAULT} for the classifier's rate
+     */
+    public int getSampleRateHz() {
+        return sampleRateHz;
+    }
+
+    /**
+     * Time between inferences, {@link #FIRMWARE_DEFAULT} for half a window
+     */
+    public int getStrideMs() {
+        return strideMs;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof SensorProfile)) return false;
+        SensorProfile that = (SensorProfile) o;
+        return mode == that.mode && sampleRateHz == that.sampleRateHz
+                && strideMs == that.strideMs && batchSize == that.batchSize;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = mode.hashCode();
+        result = 31 * result + sampleRateHz;
+        result = 31 * result + strideMs;
+        result = 31 * result + batchSize;
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        if (mode == Mode.RAW_SAMPLES) {
+            return String.format(Locale.US, "raw %d Hz, %d per notification", sampleRateHz, batchSize);
+        }
+        String rate = sampleRateHz == FIRMWARE_DEFAULT ? "model rate" : sampleRateHz + " Hz";
+        String stride = strideMs == FIRMWARE_DEFAULT ? "default stride" : "every " + strideMs + " ms";
+        return String.format(Locale.US, "predictions at %s, %s, %d per notification", rate, stride, batchSize);
+    }
+}
@@ -0,0 +1,234 @@
+package com.example.fitness.ble;
+
+import com.example.fitness.ble.features.BiquadFilter;
+
+/**
+ * Counts reps straight from the accelerometer magnitude instead of classifier votes.
+ * The magnitude is band-passed around typical rep frequencies, then each excursion
+ * above an adaptive threshold is one rep:
+ * <ul>
+ *   <li>the threshold follows an envelope of recent peak heights, so light and heavy
+ *       movement both work, and has separate enter and exit levels (hysteresis)</li>
+ *   <li>a refractory period after each rep starts from the exercise's target tempo and
+ *       then follows the measured tempo, so fast sets are not capped at one rep per second</li>
+ * </ul>
+ * Every sample costs a fixed amount of work and no memory.
+ */
+public class SignalRepCounter implements RepCounter {
+
+    /** esp32_bt_data_csv sends a sample every 1000 / 11 ms */
+    public static final float DEFAULT_SAMPLE_RATE_HZ = 11f;
+    public static final long DEFAULT_TEMPO_MS = 2000;
+
+    private static final float HIGH_PASS_HZ = 0.1f;    // Removes gravity and slow posture changes
+    private static final float LOW_PASS_HZ = 3f;       // Removes tremor and impact spikes
+    private static final float NOISE_FLOOR_G = 0.05f;  // Peaks below this are never reps
+    private static final float INITIAL_ENVELOPE_G = 0.15f;
+    private static final float ENTER_RATIO = 0.5f;     // Of the envelope, to start a rep
+    private static final float EXIT_RATIO = 0.15f;     // Of the envelope, to finish it
+    private static final float MIN_PEAK_RATIO = 0.6f;  // Of the envelope, smaller swings are rebounds
+    private static final float ENVELOPE_ALPHA = 0.3f;
+    private static final float ENVELOPE_DECAY_TEMPOS = 8f; // Time to forget a loud set, in reps
+    private static final float TEMPO_ALPHA = 0.3f;
+    private static final float REFRACTORY_FRACTION = 0.5f; // Of the current tempo
+    private static final long MIN_REFRACTORY_MS = 250;
+
+    private String targetExercise;
+    private long targetTempoMs;
+    private float sampleRateHz;
+    private BiquadFilter highPass;
+    private BiquadFilter lowPass;
+    private RepCountListener listener;
+    private final CounterEvents events = new CounterEvents();
+
+    private int repCount;
+    private boolean isDoingExercise;
+    private float envelope = INITIAL_ENVELOPE_G;
+    private float peakValue;
+    private long peakTimeMs;
+    private long lastRepTimeMs = -1;
+    private long lastSampleTimeMs = -1;
+    private float tempoMs;
+    private long refractoryMs;
+
+    public SignalRepCounter(String targetExercise, long targetTempoMs) {
+        this(targetExercise, targetTempoMs, DEFAULT_SAMPLE_RATE_HZ);
+    }
+
+    /**
+     * @param targetTempoMs Expected time per rep for this exercise, 0 for the default
+     * @param sampleRateHz  Rate of the raw samples, 0 if unknown
+     */
+    public SignalRepCounter(String targetExercise, long targetTempoMs, float sampleRateHz) {
+        this.targetExercise = targetExercise.toLowerCase();
+        this.targetTempoMs = targetTempoMs > 0 ? targetTempoMs : DEFAULT_TEMPO_MS;
+        buildFilters(sampleRateHz);
+        resetTempo();
+    }
+
+    private void buildFilters(float sampleRateHz) {
+        this.sampleRateHz = sampleRateHz > 0 ? sampleRateHz : DEFAULT_SAMPLE_RATE_HZ;
+        highPass = BiquadFilter.highPass(HIGH_PASS_HZ, this.sampleRateHz);
+        lowPass = BiquadFilter.lowPass(LOW_PASS_HZ, this.sampleRateHz);
+    }
+
+    @Override
+    public void setRepCountListener(RepCountListener listener) {
+        this.listener = listener;
+        events.setListener(listener);
+        if (events.isEnabled(CounterEvent.Type.CONFIG)) {
+            events.config(targetExercise, "signal", "target tempo " + targetTempoMs + " ms");
+        }
+    }
+
+    @Override
+    public void setVerbosity(CounterEvent.Verbosity verbosity) {
+        events.setVerbosity(verbosity);
+    }
+
+    /**
+     * Without a classifier the exercise cannot be told apart, so nothing is detected
+     */
+    @Override
+    public void setExerciseDetectionListener(ExerciseDetectionListener detectionListener) {
+    }
+
+    /**
+     * The cutoffs are in Hz, so the filters are designed again for the new rate. Reps
+     * counted so far are kept, only the filter state starts over.
+     *
+     * @param sampleRateHz 0 if unknown
+     */
+    @Override
+    public void setSampleRate(float sampleRateHz) {
+        float rate = sampleRateHz > 0 ? sampleRateHz : DEFAULT_SAMPLE_RATE_HZ;
+        if (rate != this.sampleRateHz) {
+            buildFilters(rate);
+        }
+    }
+
+    public float getSampleRateHz() {
+        return sampleRateHz;
+    }
+
+    @Override
+    public void setActiveExercise(String exerciseLabel, long repTempoMs, SmoothingConfig smoothing) {
+        targetExercise = exerciseLabel.toLowerCase();
+        targetTempoMs = repTempoMs > 0 ? repTempoMs : DEFAULT_TEMPO_MS;
+        reset();
+    }
+
+    /**
+     * Classifier output is not used by this engine
+     */
+    @Override
+    public void processPrediction(PredictionFrame frame) {
+    }
+
+    @Override
+    public void processSample(float ax, float ay, float az, float gx, float gy, float gz, long timestampMs) {
+        float magnitude = (float) Math.sqrt(ax * ax + ay * ay + az * az);
+        float x = lowPass.process(highPass.process(magnitude));
+
+        // Let the envelope sink back after a pause so a lighter set is still picked up,
+        // but not between reps, where it would let rebounds through
+        boolean paused = lastRepTimeMs < 0 || timestampMs - lastRepTimeMs > 2 * tempoMs;
+        if (lastSampleTimeMs >= 0 && !isDoingExercise && paused) {
+            float decay = (timestampMs - lastSampleTimeMs) / (ENVELOPE_DECAY_TEMPOS * tempoMs);
+            envelope = Math.max(INITIAL_ENVELOPE_G * 0.5f, envelope * (1 - Math.min(decay, 1f)));
+        }
+        lastSampleTimeMs = timestampMs;
+
+        float enter = Math.max(NOISE_FLOOR_G, ENTER_RATIO * envelope);
+        float exit = Math.max(NOISE_FLOOR_G * 0.5f, EXIT_RATIO * envelope);
+
+        if (!isDoingExercise) {
+            boolean refractory = lastRepTimeMs >= 0 && timestampMs - lastRepTimeMs < refractoryMs;
+            if (x > enter && !refractory) {
+                isDoingExercise = true;
+                peakValue = x;
+                peakTimeMs = timestampMs;
+                if (listener != null) {
+                    float strength = Math.min(1f, x / envelope);
+                    events.stateChanged(targetExercise, true, strength, timestampMs);
+                    listener.onExerciseStateChanged(true, targetExercise, strength);
+                }
+            }
+        } else if (x > peakValue) {
+            peakValue = x;
+            peakTimeMs = timestampMs;
+        } else if (x < exit) {
+            isDoingExercise = false;
+            if (peakValue >= MIN_PEAK_RATIO * envelope) {
+                completeRep();
+            } else if (listener != null) {
+                listener.onExerciseStateChanged(false, targetExercise, peakValue / envelope);
+            }
+        }
+    }
+
+    private void completeRep() {
+        repCount++;
+
+        if (lastRepTimeMs >= 0) {
+            long interval = peakTimeMs - lastRepTimeMs;
+            // Ignore pauses between sets and double peaks when learning the tempo
+            if (interval > tempoMs * 0.4f && interval < tempoMs * 2.5f) {
+                tempoMs += TEMPO_ALPHA * (interval - tempoMs);
+                refractoryMs = Math.max(MIN_REFRACTORY_MS, (long) (tempoMs * REFRACTORY_FRACTION));
+            }
+        }
+        lastRepTimeMs = peakTimeMs;
+        envelope += ENVELOPE_ALPHA * (peakValue - envelope);
+
+        if (listener != null) {
+            listener.onRepCompleted(repCount, peakTimeMs);
+            events.signalRep(targetExercise, repCount, peakValue, tempoMs, peakTimeMs);
+            listener.onExerciseStateChanged(false, targetExercise, Math.min(1f, peakValue / envelope));
+        }
+    }
+
+    private void resetTempo() {
+        tempoMs = targetTempoMs;
+        refractoryMs = Math.max(MIN_REFRACTORY_MS, (long) (targetTempoMs * REFRACTORY_FRACTION));
+    }
+
+    @Override
+    public void reset() {
+        repCount = 0;
+        isDoingExercise = false;
+        envelope = INITIAL_ENVELOPE_G;
+        lastRepTimeMs = -1;
+        lastSampleTimeMs = -1;
+        highPass.reset();
+        lowPass.reset();
+        resetTempo();
+        events.reset(targetExercise);
+    }
+
+    @Override
+    public int getRepCount() {
+        return repCount;
+    }
+
+    @Override
+    public String getTargetExercise() {
+        return targetExercise;
+    }
+
+    @Override
+    public boolean isDoingExercise() {
+        return isDoingExercise;
+    }
+
+    /**
+     * Time of the peak of the last counted rep, -1 before the first one
+     */
+    public long getLastRepTimeMs() {
+        return lastRepTimeMs;
+    }
+
+    public long getRefractoryMs() {
+        return refractoryMs;
+    }
+}
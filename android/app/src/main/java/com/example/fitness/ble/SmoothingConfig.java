@@ -0,0 +1,119 @@
+package com.example.fitness.ble;
+
+import java.util.Locale;
+
+/**
+ * How a {@link ConfidenceSmoother} turns raw classifier confidences into an
+ * "exercising / not exercising" decision. Immutable, so one instance can be shared
+ * by every counter that follows the same exercise.
+ */
+public final class SmoothingConfig {
+
+    public enum Mode {
+        /** Exponential moving average compared against a single threshold */
+        EMA,
+        /** At least N of the last M confidences above the threshold */
+        VOTE,
+        /** Starts above the enter threshold, stops below the lower exit threshold */
+        HYSTERESIS
+    }
+
+    /** What the counter always did: 2 of the last 3 confidences at or above 0.4 */
+    public static final SmoothingConfig DEFAULT = vote(2, 3, 0.4f);
+
+    /** Longest vote window, the window is kept as bits of a long */
+    public static final int MAX_WINDOW = 64;
+
+    private final Mode mode;
+    private final float alpha;
+    private final int votes;
+    private final int window;
+    private final float enterThreshold;
+    private final float exitThreshold;
+
+    private SmoothingConfig(Mode mode, float alpha, int votes, int window,
+                            float enterThreshold, float exitThreshold) {
+        this.mode = mode;
+        this.alpha = alpha;
+        this.votes = votes;
+        this.window = window;
+        this.enterThreshold = enterThreshold;
+        this.exitThreshold = exitThreshold;
+    }
+
+    /**
+     * @param alpha Weight of the newest confidence, 1 follows the raw value
+     */
+    public static SmoothingConfig ema(float alpha, float threshold) {
+        if (alpha <= 0f || alpha > 1f) {
+            throw new IllegalArgumentException("EMA alpha must be in (0, 1]: " + alpha);
+        }
+        return new SmoothingConfig(Mode.EMA, alpha, 1, 1, threshold, threshold);
+    }
+
+    public static SmoothingConfig vote(int votes, int window, float threshold) {
+        if (window < 1 || window > MAX_WINDOW || votes < 1 || votes > window) {
+            throw new IllegalArgumentException("Invalid vote " + votes + " of " + window);
+        }
+        return new SmoothingConfig(Mode.VOTE, 1f, votes, window, threshold, threshold);
+    }
+
+    public static SmoothingConfig hysteresis(float enterThreshold, float exitThreshold) {
+        return hysteresis(1f, enterThreshold, exitThreshold);
+    }
+
+    /**
+     * Hysteresis on an EMA of the confidence rather than on the raw value
+     */
+    public static SmoothingConfig hysteresis(float alpha, float enterThreshold, float exitThreshold) {
+        if (alpha <= 0f || alpha > 1f) {
+            throw new IllegalArgumentException("EMA alpha must be in (0, 1]: " + alpha);
+        }
+        if (exitThreshold > enterThreshold) {
+            throw new IllegalArgumentException("Exit threshold " + exitThreshold
+                    + " is above enter threshold " + enterThreshold);
+        }
+        return new SmoothingConfig(Mode.HYSTERESIS, alpha, 1, 1, enterThreshold, exitThreshold);
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public float getAlpha() {
+        return alpha;
+    }
+
+    public int getVotes() {
+        return votes;
+    }
+
+    public int getWindow() {
+        return window;
+    }
+
+    /**
+     * Threshold a confidence has to reach for the exercise to count as started
+     */
+    public float getEnterThreshold() {
+        return enterThreshold;
+    }
+
+    public float getExitThreshold() {
+        return exitThreshold;
+    }
+
+    @Override
+    public String toString() {
+        switch (mode) {
+            case EMA:
+                return String.format(Locale.US, "EMA(alpha %.2f) >= %.2f", alpha, enterThreshold);
+            case VOTE:
+                return String.format(Locale.US, "%d of %d >= %.2f", votes, window, enterThreshold);
+            case HYSTERESIS:
+            default:
+                return String.format(Locale.US, "EMA(alpha %.2f) enter %.2f / exit %.2f",
+                        alpha, enterThreshold, exitThreshold);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.fitness.ble.features;
+
+/**
+ * Second-order IIR section (transposed direct form II) with the usual audio EQ
+ * cookbook low-pass and high-pass designs. Two of them in series make the band-pass
+ * used for rep detection.
+ */
+public class BiquadFilter {
+
+    private static final double BUTTERWORTH_Q = Math.sqrt(0.5);
+
+    private final float b0;
+    private final float b1;
+    private final float b2;
+    private final float a1;
+    private final float a2;
+    private float z1;
+    private float z2;
+    private boolean primed;
+
+    private BiquadFilter(double b0, double b1, double b2, double a0, double a1, double a2) {
+        this.b0 = (float) (b0 / a0);
+        this.b1 = (float) (b1 / a0);
+        this.b2 = (float) (b2 / a0);
+        this.a1 = (float) (a1 / a0);
+        this.a2 = (float) (a2 / a0);
+    }
+
+    public static BiquadFilter lowPass(float cutoffHz, float sampleRateHz) {
+        double w0 = 2 * Math.PI * clampCutoff(cutoffHz, sampleRateHz) / sampleRateHz;
+        double cos = Math.cos(w0);
+        double alpha = Math.sin(w0) / (2 * BUTTERWORTH_Q);
+        return new BiquadFilter((1 - cos) / 2, 1 - cos, (1 - cos) / 2, 1 + alpha, -2 * cos, 1 - alpha);
+    }
+
+    public static BiquadFilter highPass(float cutoffHz, float sampleRateHz) {
+        double w0 = 2 * Math.PI * clampCutoff(cutoffHz, sampleRateHz) / sampleRateHz;
+        double cos = Math.cos(w0);
+        double alpha = Math.sin(w0) / (2 * BUTTERWORTH_Q);
+        return new BiquadFilter((1 + cos) / 2, -(1 + cos), (1 + cos) / 2, 1 + alpha, -2 * cos, 1 - alpha);
+    }
+
+    private static double clampCutoff(float cutoffHz, float sampleRateHz) {
+        return Math.min(cutoffHz, sampleRateHz * 0.45f);
+    }
+
+    public float process(float x) {
+        if (!primed) {
+            // Start from the steady state for the first input instead of from zero,
+            // otherwise the gravity step rings through the filter as a fake rep
+            float dcGain = (b0 + b1 + b2) / (1 + a1 + a2);
+            float y = dcGain * x;
+            z2 = b2 * x - a2 * y;
+            z1 = (b1 + b2) * x - (a1 + a2) * y;
+            primed = true;
+        }
+        float y = b0 * x + z1;
+        z1 = b1 * x - a1 * y + z2;
+        z2 = b2 * x - a2 * y;
+        return y;
+    }
+
+    public void reset() {
+        z1 = 0;
+        z2 = 0;
+        primed = false;
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.fitness.ble.features;
+
+/**
+ * One signal (an IMU axis or the acceleration magnitude) with its sliding window
+ * and the incrementally maintained time-domain features.
+ */
+public class FeatureChannel {
+
+    // Rebuild the running moments exactly after this many windows worth of samples
+    private static final int REBUILD_INTERVAL_WINDOWS = 64;
+
+    private final int size;
+    private final float[] samples;
+    private final float[] ordered; // Scratch copy, oldest sample first
+    private final SlidingMoments moments = new SlidingMoments();
+    private final SlidingExtrema extrema;
+    private final ZeroCrossingCounter zeroCrossings;
+    private int writeIndex;
+    private int filled;
+    private long sinceRebuild;
+
+    /**
+     * @param size Samples per window
+     */
+    public FeatureChannel(int size) {
+        this.size = size;
+        this.samples = new float[size];
+        this.ordered = new float[size];
+        this.extrema = new SlidingExtrema(size);
+        this.zeroCrossings = new ZeroCrossingCounter(size);
+    }
+
+    public void add(float value) {
+        if (filled < size) {
+            moments.add(value);
+            filled++;
+        } else {
+            moments.replace(samples[writeIndex], value);
+        }
+        samples[writeIndex] = value;
+        writeIndex = writeIndex + 1 == size ? 0 : writeIndex + 1;
+        extrema.add(value);
+        zeroCrossings.add(value);
+
+        if (++sinceRebuild >= (long) size * REBUILD_INTERVAL_WINDOWS) {
+            sinceRebuild = 0;
+            moments.rebuild(samples, filled);
+        }
+    }
+
+    /**
+     * @return the window, oldest sample first. The array is reused by the next call.
+     */
+    public float[] ordered() {
+        if (filled < size) {
+            System.arraycopy(samples, 0, ordered, 0, filled);
+        } else {
+            int tail = size - writeIndex;
+            System.arraycopy(samples, writeIndex, ordered, 0, tail);
+            System.arraycopy(samples, 0, ordered, tail, writeIndex);
+        }
+        return ordered;
+    }
+
+    public void reset() {
+        writeIndex = 0;
+        filled = 0;
+        sinceRebuild = 0;
+        moments.reset();
+        extrema.reset();
+        zeroCrossings.reset();
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getFilled() {
+        return filled;
+    }
+
+    public float getMean() {
+        return moments.getMean();
+    }
+
+    public float getVariance() {
+        return moments.getVariance();
+    }
+
+    public float getStandardDeviation() {
+        return moments.getStandardDeviation();
+    }
+
+    public float getRms() {
+        return moments.getRms();
+    }
+
+    public float getMin() {
+        return extrema.getMin();
+    }
+
+    public float getMax() {
+        return extrema.getMax();
+    }
+
+    public float getPeakToPeak() {
+        return extrema.getPeakToPeak();
+    }
+
+    public int getZeroCrossings() {
+        return zeroCrossings.getCount();
+    }
+
+    public float getZeroCrossingRate() {
+        return zeroCrossings.getRate();
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.fitness.ble.features;
+
+/**
+ * Streaming feature extraction over the six IMU axes plus the acceleration
+ * magnitude. Time-domain features are updated as each sample arrives; spectral band
+ * energies are computed with {@link RealFft} only when a window is requested. Like
+ * esp32_predict_reuse, a window becomes ready once full and then every half window.
+ * Nothing is allocated after construction, which keeps up with the 833 Hz the
+ * LSM6DS3 is configured for with a wide margin.
+ *
+ * <p>Feature vector layout, for each channel in {@link #AX}..{@link #MAGNITUDE} order:
+ * mean, standard deviation, RMS, minimum, maximum, zero-crossing rate, then
+ * {@link #SPECTRAL_BANDS} band energies of the mean-removed signal.
+ */
+public class ImuFeatureWindow {
+
+    public static final int AX = 0;
+    public static final int AY = 1;
+    public static final int AZ = 2;
+    public static final int GX = 3;
+    public static final int GY = 4;
+    public static final int GZ = 5;
+    public static final int MAGNITUDE = 6;
+    public static final int CHANNELS = 7;
+
+    public static final int STATISTICAL_FEATURES = 6;
+    public static final int SPECTRAL_BANDS = 4;
+    public static final int FEATURES_PER_CHANNEL = STATISTICAL_FEATURES + SPECTRAL_BANDS;
+    public static final int FEATURE_COUNT = CHANNELS * FEATURES_PER_CHANNEL;
+
+    private final FeatureChannel[] channels = new FeatureChannel[CHANNELS];
+    private final RealFft fft;
+    private final float[] power;
+    private final int size;
+    private final int hop;
+    private int filled;
+    private int sinceLastWindow;
+
+    /**
+     * @param size Samples per window
+     */
+    public ImuFeatureWindow(int size) {
+        this.size = size;
+        this.hop = Math.max(1, size / 2);
+        for (int i = 0; i < CHANNELS; i++) {
+            channels[i] = new FeatureChannel(size);
+        }
+        this.fft = new RealFft(RealFft.sizeFor(size));
+        this.power = new float[fft.getSize() / 2 + 1];
+    }
+
+    /**
+     * Append a sample, accelerations in g and rotation rates in deg/s.
+     *
+     * @return true when a new window is ready for {@link #extract(float[])}
+     */
+    public boolean add(float ax, float ay, float az, float gx, float gy, float gz) {
+        channels[AX].add(ax);
+        channels[AY].add(ay);
+        channels[AZ].add(az);
+        channels[GX].add(gx);
+        channels[GY].add(gy);
+        channels[GZ].add(gz);
+        channels[MAGNITUDE].add(magnitude(ax, ay, az));
+
+        if (filled < size) {
+            if (++filled == size) {
+                sinceLastWindow = 0;
+                return true;
+            }
+            return false;
+        }
+        if (++sinceLastWindow >= hop) {
+            sinceLastWindow = 0;
+            return true;
+        }
+        return false;
+    }
+
+    public static float magnitude(float x, float y, float z) {
+        return (float) Math.sqrt(x * x + y * y + z * z);
+    }
+
+    /**
+     * Write the current window's features.
+     *
+     * @param features Destination, at least {@link #FEATURE_COUNT} long
+     */
+    public void extract(float[] features) {
+        int out = 0;
+        for (FeatureChannel channel : channels) {
+            features[out++] = channel.getMean();
+            features[out++] = channel.getStandardDeviation();
+            features[out++] = channel.getRms();
+            features[out++] = channel.getMin();
+            features[out++] = channel.getMax();
+            features[out++] = channel.getZeroCrossingRate();
+            bandEnergies(channel, features, out);
+            out += SPECTRAL_BANDS;
+        }
+    }
+
+    /**
+     * Spectral band energies of one channel's mean-removed window.
+     */
+    public void bandEnergies(FeatureChannel channel, float[] out, int offset) {
+        fft.powerSpectrum(channel.ordered(), channel.getFilled(), channel.getMean(), power);
+        RealFft.bandEnergies(power, power.length, out, offset, SPECTRAL_BANDS);
+    }
+
+    public FeatureChannel getChannel(int channel) {
+        return channels[channel];
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public boolean isFull() {
+        return filled == size;
+    }
+
+    public void reset() {
+        for (FeatureChannel channel : channels) {
+            channel.reset();
+        }
+        filled = 0;
+        sinceLastWindow = 0;
+    }
+}
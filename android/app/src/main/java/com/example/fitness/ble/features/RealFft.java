@@ -0,0 +1,104 @@
+package com.example.fitness.ble.features;
+
+/**
+ * In-place iterative radix-2 FFT for real signals. Twiddle factors, the bit-reversal
+ * permutation and the working buffers are computed once per size, so a transform
+ * allocates nothing.
+ */
+public class RealFft {
+
+    private final int size;
+    private final int[] bitReversed;
+    private final float[] cos;
+    private final float[] sin;
+    private final float[] re;
+    private final float[] im;
+
+    /**
+     * @param size Transform length, must be a power of two
+     */
+    public RealFft(int size) {
+        if (size < 2 || Integer.bitCount(size) != 1) {
+            throw new IllegalArgumentException("FFT size must be a power of two: " + size);
+        }
+        this.size = size;
+        this.re = new float[size];
+        this.im = new float[size];
+        this.cos = new float[size / 2];
+        this.sin = new float[size / 2];
+        for (int i = 0; i < size / 2; i++) {
+            double angle = -2 * Math.PI * i / size;
+            cos[i] = (float) Math.cos(angle);
+            sin[i] = (float) Math.sin(angle);
+        }
+        this.bitReversed = new int[size];
+        int bits = Integer.numberOfTrailingZeros(size);
+        for (int i = 0; i < size; i++) {
+            bitReversed[i] = Integer.reverse(i) >>> (32 - bits);
+        }
+    }
+
+    /**
+     * Smallest power of two that holds {@code length} samples.
+     */
+    public static int sizeFor(int length) {
+        return Math.max(2, Integer.highestOneBit(Math.max(length, 2) - 1) << 1);
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Power spectrum of {@code length} samples with {@code offset} subtracted from each,
+     * zero-padded to the transform size.
+     *
+     * @param power Destination for bins 0..size/2, normalised by the transform size
+     */
+    public void powerSpectrum(float[] samples, int length, float offset, float[] power) {
+        for (int i = 0; i < size; i++) {
+            int source = bitReversed[i];
+            re[i] = source < length ? samples[source] - offset : 0f;
+            im[i] = 0f;
+        }
+
+        for (int half = 1; half < size; half <<= 1) {
+            int step = size / (half << 1);
+            for (int start = 0; start < size; start += half << 1) {
+                for (int k = 0, t = 0; k < half; k++, t += step) {
+                    int a = start + k;
+                    int b = a + half;
+                    float wr = cos[t];
+                    float wi = sin[t];
+                    float xr = re[b] * wr - im[b] * wi;
+                    float xi = re[b] * wi + im[b] * wr;
+                    re[b] = re[a] - xr;
+                    im[b] = im[a] - xi;
+                    re[a] += xr;
+                    im[a] += xi;
+                }
+            }
+        }
+
+        for (int k = 0; k <= size / 2; k++) {
+            power[k] = (re[k] * re[k] + im[k] * im[k]) / size;
+        }
+    }
+
+    /**
+     * Sum a power spectrum into equal-width bands between bin 1 and the Nyquist bin.
+     * The DC bin is left out.
+     */
+    public static void bandEnergies(float[] power, int bins, float[] out, int offset, int bands) {
+        int usable = bins - 1;
+        for (int band = 0; band < bands; band++) {
+            int from = 1 + band * usable / bands;
+            int to = 1 + (band + 1) * usable / bands;
+            float energy = 0;
+            for (int k = from; k < to; k++) {
+                energy += power[k];
+            }
+            out[offset + band] = energy;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.fitness.ble.features;
+
+/**
+ * Minimum and maximum over a sliding window using two monotonic deques, so each
+ * sample costs amortized O(1) instead of a rescan of the window. The deques are
+ * fixed-size rings of (sample number, value) pairs.
+ */
+public class SlidingExtrema {
+
+    private final int size;
+    private final int mask;
+    private final long[] minIndex;
+    private final float[] minValue;
+    private final long[] maxIndex;
+    private final float[] maxValue;
+    private int minHead;
+    private int minTail;
+    private int maxHead;
+    private int maxTail;
+    private long sampleNumber;
+
+    /**
+     * @param size Samples per window
+     */
+    public SlidingExtrema(int size) {
+        this.size = size;
+        int ringSize = Integer.highestOneBit(Math.max(size, 2) - 1) << 1;
+        this.mask = ringSize - 1;
+        this.minIndex = new long[ringSize];
+        this.minValue = new float[ringSize];
+        this.maxIndex = new long[ringSize];
+        this.maxValue = new float[ringSize];
+    }
+
+    public void add(float value) {
+        long oldest = sampleNumber - size + 1;
+
+        // Drop entries that left the window, then entries the new value dominates
+        while (minHead != minTail && minIndex[minHead & mask] < oldest) minHead++;
+        while (minHead != minTail && minValue[(minTail - 1) & mask] >= value) minTail--;
+        minIndex[minTail & mask] = sampleNumber;
+        minValue[minTail & mask] = value;
+        minTail++;
+
+        while (maxHead != maxTail && maxIndex[maxHead & mask] < oldest) maxHead++;
+        while (maxHead != maxTail && maxValue[(maxTail - 1) & mask] <= value) maxTail--;
+        maxIndex[maxTail & mask] = sampleNumber;
+        maxValue[maxTail & mask] = value;
+        maxTail++;
+
+        sampleNumber++;
+    }
+
+    public void reset() {
+        minHead = minTail = 0;
+        maxHead = maxTail = 0;
+        sampleNumber = 0;
+    }
+
+    public float getMin() {
+        return minHead != minTail ? minValue[minHead & mask] : 0f;
+    }
+
+    public float getMax() {
+        return maxHead != maxTail ? maxValue[maxHead & mask] : 0f;
+    }
+
+    public float getPeakToPeak() {
+        return getMax() - getMin();
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.fitness.ble.features;
+
+/**
+ * Mean, variance and RMS over a sliding window, updated in O(1) per sample with
+ * Welford's method extended to removals. Accumulators are doubles and are rebuilt
+ * from the window contents from time to time, so rounding error cannot build up
+ * over a long session.
+ */
+public class SlidingMoments {
+
+    private int count;
+    private double mean;
+    private double m2; // Sum of squared deviations from the mean
+
+    /**
+     * Add a sample while the window is still filling.
+     */
+    public void add(float value) {
+        count++;
+        double delta = value - mean;
+        mean += delta / count;
+        m2 += delta * (value - mean);
+    }
+
+    /**
+     * Replace the oldest sample of a full window with a new one.
+     */
+    public void replace(float removed, float added) {
+        double oldMean = mean;
+        double delta = added - removed;
+        mean += delta / count;
+        m2 += delta * (added - mean + removed - oldMean);
+        if (m2 < 0) {
+            m2 = 0;
+        }
+    }
+
+    /**
+     * Recompute the accumulators exactly from the current window contents.
+     */
+    public void rebuild(float[] values, int length) {
+        count = 0;
+        mean = 0;
+        m2 = 0;
+        for (int i = 0; i < length; i++) {
+            add(values[i]);
+        }
+    }
+
+    public void reset() {
+        count = 0;
+        mean = 0;
+        m2 = 0;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public float getMean() {
+        return (float) mean;
+    }
+
+    /**
+     * Population variance of the window.
+     */
+    public float getVariance() {
+        return count > 0 ? (float) (m2 / count) : 0f;
+    }
+
+    public float getStandardDeviation() {
+        return (float) Math.sqrt(getVariance());
+    }
+
+    public float getRms() {
+        return count > 0 ? (float) Math.sqrt(m2 / count + mean * mean) : 0f;
+    }
+}
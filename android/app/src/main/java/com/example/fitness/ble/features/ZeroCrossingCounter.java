@@ -0,0 +1,56 @@
+package com.example.fitness.ble.features;
+
+/**
+ * Counts sign changes between consecutive samples inside a sliding window. One flag
+ * per sample records whether it crossed zero relative to its predecessor, so the
+ * flag leaving the window can be subtracted without rescanning.
+ */
+public class ZeroCrossingCounter {
+
+    private final int size;
+    private final boolean[] crossed;
+    private long sampleNumber;
+    private boolean lastNegative;
+    private int count;
+
+    /**
+     * @param size Samples per window
+     */
+    public ZeroCrossingCounter(int size) {
+        this.size = size;
+        this.crossed = new boolean[size];
+    }
+
+    public void add(float value) {
+        boolean negative = value < 0;
+        boolean crossing = sampleNumber > 0 && negative != lastNegative;
+        int slot = (int) (sampleNumber % size);
+        if (sampleNumber >= size) {
+            // The pair formed by the oldest two samples is no longer in the window
+            int leaving = slot + 1 == size ? 0 : slot + 1;
+            if (crossed[leaving]) count--;
+        }
+        crossed[slot] = crossing;
+        if (crossing) count++;
+        lastNegative = negative;
+        sampleNumber++;
+    }
+
+    public void reset() {
+        sampleNumber = 0;
+        count = 0;
+        lastNegative = false;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * @return crossings per pair of consecutive samples in the window, 0..1
+     */
+    public float getRate() {
+        int pairs = (int) Math.min(sampleNumber, size) - 1;
+        return pairs > 0 ? (float) count / pairs : 0f;
+    }
+}
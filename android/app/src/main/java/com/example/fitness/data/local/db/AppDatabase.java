@@ -0,0 +1,14 @@
+package com.example.fitness.data.local.db;
+
+import androidx.room.Database;
+import androidx.room.RoomDatabase;
+
+@Database(entities = {PendingExerciseResult.class, PendingWorkoutSession.class}, version = 1, exportSchema = false)
+public abstract class AppDatabase extends RoomDatabase {
+
+    public static final String NAME = "fitness.db";
+
+    public abstract PendingExerciseResultDao pendingExerciseResultDao();
+
+    public abstract PendingWorkoutSessionDao pendingWorkoutSessionDao();
+}
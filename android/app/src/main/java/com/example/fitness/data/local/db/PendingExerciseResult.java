@@ -0,0 +1,109 @@
+package com.example.fitness.data.local.db;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.Ignore;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+/**
+ * An exercise result recorded on the device and not yet confirmed by the server. The row
+ * is written before the UI moves on and only deleted once the server has applied it, so
+ * a failed or interrupted upload is retried instead of lost.
+ */
+@Entity(tableName = "pending_exercise_results",
+        indices = {@Index(value = "idempotencyKey", unique = true), @Index("userId")})
+public class PendingExerciseResult {
+
+    @PrimaryKey(autoGenerate = true)
+    private final long id;
+
+    /** Sent with every attempt, so the server applies the result at most once */
+    @NonNull
+    private final String idempotencyKey;
+
+    /** Whose token may upload it, the queue outlives a logout */
+    @NonNull
+    private final String userId;
+
+    private final int workoutPlanDayExerciseId;
+    private final int userWorkoutPlanId;
+    private final Integer reps;
+    private final Integer duration;
+    private final Integer calories;
+    private final long completedAtMs;
+
+    private final int attempts;
+    private final String lastError;
+
+    public PendingExerciseResult(long id, @NonNull String idempotencyKey, @NonNull String userId,
+                                 int workoutPlanDayExerciseId, int userWorkoutPlanId,
+                                 Integer reps, Integer duration, Integer calories,
+                                 long completedAtMs, int attempts, String lastError) {
+        this.id = id;
+        this.idempotencyKey = idempotencyKey;
+        this.userId = userId;
+        this.workoutPlanDayExerciseId = workoutPlanDayExerciseId;
+        this.userWorkoutPlanId = userWorkoutPlanId;
+        this.reps = reps;
+        this.duration = duration;
+        this.calories = calories;
+        this.completedAtMs = completedAtMs;
+        this.attempts = attempts;
+        this.lastError = lastError;
+    }
+
+    @Ignore
+    public PendingExerciseResult(@NonNull String idempotencyKey, @NonNull String userId,
+                                 int workoutPlanDayExerciseId, int userWorkoutPlanId,
+                                 Integer reps, Integer duration, Integer calories, long completedAtMs) {
+        this(0, idempotencyKey, userId, workoutPlanDayExerciseId, userWorkoutPlanId,
+                reps, duration, calories, completedAtMs, 0, null);
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    @NonNull
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+
+    @NonNull
+    public String getUserId() {
+        return userId;
+    }
+
+    public int getWorkoutPlanDayExerciseId() {
+        return workoutPlanDayExerciseId;
+    }
+
+    public int getUserWorkoutPlanId() {
+        return userWorkoutPlanId;
+    }
+
+    public Integer getReps() {
+        return reps;
+    }
+
+    public Integer getDuration() {
+        return duration;
+    }
+
+    public Integer getCalories() {
+        return calories;
+    }
+
+    public long getCompletedAtMs() {
+        return completedAtMs;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.fitness.data.local.db;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import java.util.List;
+
+@Dao
+public interface PendingExerciseResultDao {
+
+    /**
+     * A result with a key that is already queued is a retry of the same write, keep the first
+     */
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    long insert(PendingExerciseResult result);
+
+    /**
+     * Oldest first, so a result recorded later for the same exercise is applied last
+     */
+    @Query("SELECT * FROM pending_exercise_results WHERE userId = :userId ORDER BY completedAtMs, id LIMIT :limit")
+    List<PendingExerciseResult> getOldest(String userId, int limit);
+
+    @Query("DELETE FROM pending_exercise_results WHERE idempotencyKey IN (:keys)")
+    int delete(List<String> keys);
+
+    @Query("UPDATE pending_exercise_results SET attempts = attempts + 1, lastError = :error WHERE idempotencyKey IN (:keys)")
+    void recordFailure(List<String> keys, String error);
+}
@@ -0,0 +1,81 @@
+package com.example.fitness.data.local.db;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.Ignore;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+/**
+ * A workout session waiting for upload. Saved again after every set, so leaving the app
+ * mid-workout loses at most the set in progress; uploaded once it has ended.
+ */
+@Entity(tableName = "pending_workout_sessions", indices = {@Index("userId")})
+public class PendingWorkoutSession {
+
+    /** Also the upload's idempotency key */
+    @PrimaryKey
+    @NonNull
+    private final String clientSessionId;
+
+    @NonNull
+    private final String userId;
+
+    /** The upload request as JSON, see RecordWorkoutSession */
+    @NonNull
+    private final String payload;
+
+    private final boolean ended;
+    private final long updatedAtMs;
+
+    private final int attempts;
+    private final String lastError;
+
+    public PendingWorkoutSession(@NonNull String clientSessionId, @NonNull String userId, @NonNull String payload,
+                                 boolean ended, long updatedAtMs, int attempts, String lastError) {
+        this.clientSessionId = clientSessionId;
+        this.userId = userId;
+        this.payload = payload;
+        this.ended = ended;
+        this.updatedAtMs = updatedAtMs;
+        this.attempts = attempts;
+        this.lastError = lastError;
+    }
+
+    @Ignore
+    public PendingWorkoutSession(@NonNull String clientSessionId, @NonNull String userId, @NonNull String payload,
+                                 boolean ended, long updatedAtMs) {
+        this(clientSessionId, userId, payload, ended, updatedAtMs, 0, null);
+    }
+
+    @NonNull
+    public String getClientSessionId() {
+        return clientSessionId;
+    }
+
+    @NonNull
+    public String getUserId() {
+        return userId;
+    }
+
+    @NonNull
+    public String getPayload() {
+        return payload;
+    }
+
+    public boolean isEnded() {
+        return ended;
+    }
+
+    public long getUpdatedAtMs() {
+        return updatedAtMs;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.fitness.data.local.db;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import java.util.List;
+
+@Dao
+public interface PendingWorkoutSessionDao {
+
+    /**
+     * Replaces the previous snapshot of the same session
+     */
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void save(PendingWorkoutSession session);
+
+    /**
+     * Ended sessions, and those nobody has touched since {@code abandonedBeforeMs}, e.g.
+     * because the app was killed mid-workout
+     */
+    @Query("SELECT * FROM pending_workout_sessions WHERE userId = :userId AND (ended = 1 OR updatedAtMs < :abandonedBeforeMs) ORDER BY updatedAtMs")
+    List<PendingWorkoutSession> getUploadable(String userId, long abandonedBeforeMs);
+
+    @Query("DELETE FROM pending_workout_sessions WHERE clientSessionId = :clientSessionId")
+    void delete(String clientSessionId);
+
+    @Query("UPDATE pending_workout_sessions SET attempts = attempts + 1, lastError = :error WHERE clientSessionId = :clientSessionId")
+    void recordFailure(String clientSessionId, String error);
+}
@@ -0,0 +1,51 @@
+package com.example.fitness.data.network;
+
+import java.io.IOException;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.GzipSink;
+import okio.Okio;
+
+/**
+ * Compresses the body of requests declared with {@code @Headers("Content-Encoding: gzip")},
+ * e.g. whole workout sessions. Added after the logging interceptor, so logs still show
+ * the plain JSON.
+ */
+@Singleton
+public class GzipRequestInterceptor implements Interceptor {
+
+    @Inject
+    public GzipRequestInterceptor() {
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request originalRequest = chain.request();
+        RequestBody body = originalRequest.body();
+        if (body == null || !"gzip".equalsIgnoreCase(originalRequest.header("Content-Encoding"))) {
+            return chain.proceed(originalRequest);
+        }
+
+        // Compressed up front so the request has a known length and can be retried
+        Buffer compressed = new Buffer();
+        try (BufferedSink gzip = Okio.buffer(new GzipSink(compressed))) {
+            body.writeTo(gzip);
+        }
+        MediaType contentType = body.contentType();
+        RequestBody gzippedBody = RequestBody.create(compressed.readByteString(), contentType);
+
+        Request compressedRequest = originalRequest.newBuilder()
+                .method(originalRequest.method(), gzippedBody)
+                .build();
+        return chain.proceed(compressedRequest);
+    }
+}
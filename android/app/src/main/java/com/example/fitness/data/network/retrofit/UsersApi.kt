@@ -203,6 +203,38 @@ interface UsersApi {
     @POST("api/users/workout/exercise-results")
     fun apiUsersWorkoutExerciseResultsPost(@Body recordExerciseResult: RecordExerciseResult? = null): Call<ExerciseResult>
 
+    /**
+     * POST api/users/workout/exercise-results/batch
+     * Record queued exercise results
+     * Record results queued on the device while offline. Each item carries an idempotency key, so retrying a batch never applies a result twice, and an older result never overwrites a newer one.
+     * Responses:
+     *  - 200: Outcome of every item, in request order
+     *  - 400: Invalid input data
+     *  - 401: Unauthorized
+     *
+     * @param recordExerciseResultBatch Exercise results, oldest first (optional)
+     * @return [Call]<[ExerciseResultBatchOutcome]>
+     */
+    @POST("api/users/workout/exercise-results/batch")
+    fun apiUsersWorkoutExerciseResultsBatchPost(@Body recordExerciseResultBatch: RecordExerciseResultBatch? = null): Call<ExerciseResultBatchOutcome>
+
+    /**
+     * POST api/users/workout/sessions
+     * Record workout session
+     * Record a whole workout when it ends: every set as performed, per-rep timestamps, rest taken and skipped exercises. Completed sets also update the exercise results. The body may be sent with Content-Encoding: gzip. Uploading the same clientSessionId again is a no-op.
+     * Responses:
+     *  - 201: Workout session recorded
+     *  - 200: Workout session was already recorded
+     *  - 400: Invalid input data
+     *  - 401: Unauthorized
+     *
+     * @param recordWorkoutSession Workout session data (optional)
+     * @return [Call]<[WorkoutSessionOutcome]>
+     */
+    @Headers("Content-Encoding: gzip")
+    @POST("api/users/workout/sessions")
+    fun apiUsersWorkoutSessionsPost(@Body recordWorkoutSession: RecordWorkoutSession? = null): Call<WorkoutSessionOutcome>
+
     /**
      * GET api/users/workout-plans
      * Get user assigned workout plans
@@ -1,6 +1,7 @@
 package com.example.fitness.data.repository;
 
 import com.example.fitness.R;
+import com.example.fitness.ble.SmoothingConfig;
 import com.example.fitness.data.network.retrofit.ExercisesApi;
 import com.example.fitness.data.network.model.generated.*;
 import com.example.fitness.model.ExerciseMetaData;
@@ -26,14 +27,25 @@ public class ExercisesRepository {
 
         this.exerciseMetaData = new ArrayList<>();
 
-        exerciseMetaData.add(new ExerciseMetaData("Squat", R.drawable.exercise_squat, "squat"));
-        exerciseMetaData.add(new ExerciseMetaData("Sit-up", R.drawable.exercise_sit_up, "sit_up"));
-        exerciseMetaData.add(new ExerciseMetaData("Lunge", R.drawable.exercise_lunge, "lunge"));
-//        exerciseMetaData.add(new ExerciseMetaData("Bicep Curl", R.drawable.exercise_bicep_curl, "bicep_curl"));
-//        exerciseMetaData.add(new ExerciseMetaData("Crunch", R.drawable.exercise_crunch, "crunch"));
-//        exerciseMetaData.add(new ExerciseMetaData("Heel Touch", R.drawable.exercise_heel_touch, "heel_touch"));
-        exerciseMetaData.add(new ExerciseMetaData("Plank", R.drawable.exercise_plank, "plank"));
-        exerciseMetaData.add(new ExerciseMetaData("Cobra", R.drawable.exercise_cobra, "cobra"));
+        // Squats are short and crisp, the plain 2-of-3 vote works well
+        exerciseMetaData.add(new ExerciseMetaData("Squat", R.drawable.exercise_squat, "squat", 2000,
+                SmoothingConfig.DEFAULT));
+        // Confidence sags halfway up a sit-up, hysteresis keeps it one rep
+        exerciseMetaData.add(new ExerciseMetaData("Sit-up", R.drawable.exercise_sit_up, "sit_up", 2500,
+                SmoothingConfig.hysteresis(0.6f, 0.45f, 0.25f)));
+        // Slow reps, a wider window rides over the step between legs
+        exerciseMetaData.add(new ExerciseMetaData("Lunge", R.drawable.exercise_lunge, "lunge", 2500,
+                SmoothingConfig.vote(3, 5, 0.4f)));
+//        exerciseMetaData.add(new ExerciseMetaData("Bicep Curl", R.drawable.exercise_bicep_curl, "bicep_curl", 2000,
+//                SmoothingConfig.DEFAULT));
+//        exerciseMetaData.add(new ExerciseMetaData("Crunch", R.drawable.exercise_crunch, "crunch", 1500,
+//                SmoothingConfig.ema(0.6f, 0.4f)));
+//        exerciseMetaData.add(new ExerciseMetaData("Heel Touch", R.drawable.exercise_heel_touch, "heel_touch", 1000,
+//                SmoothingConfig.ema(0.8f, 0.4f)));
+        exerciseMetaData.add(new ExerciseMetaData("Plank", R.drawable.exercise_plank, "plank", 0,
+                SmoothingConfig.DEFAULT));
+        exerciseMetaData.add(new ExerciseMetaData("Cobra", R.drawable.exercise_cobra, "cobra", 0,
+                SmoothingConfig.DEFAULT));
     }
 
     public interface ExercisesCallback<T> {
@@ -113,6 +125,24 @@ public class ExercisesRepository {
         return null;
     }
 
+    public long getExerciseRepTempoByName(String name) {
+        for (ExerciseMetaData metaData : exerciseMetaData) {
+            if (metaData.getName().equalsIgnoreCase(name)) {
+                return metaData.getRepTempoMs();
+            }
+        }
+        return 0;
+    }
+
+    public SmoothingConfig getExerciseSmoothingByName(String name) {
+        for (ExerciseMetaData metaData : exerciseMetaData) {
+            if (metaData.getName().equalsIgnoreCase(name)) {
+                return metaData.getSmoothing();
+            }
+        }
+        return SmoothingConfig.DEFAULT;
+    }
+
     public String getAllExerciseLabels() {
         StringBuilder labels = new StringBuilder();
         for (ExerciseMetaData metaData : exerciseMetaData) {
@@ -3,6 +3,7 @@ package com.example.fitness.data.repository;
 import com.example.fitness.data.network.retrofit.UsersApi;
 import com.example.fitness.data.network.model.generated.*;
 
+import java.io.IOException;
 import java.util.List;
 
 import javax.inject.Inject;
@@ -229,6 +230,20 @@ public class UsersRepository {
         });
     }
 
+    /**
+     * Blocking, for the background sync, which decides itself what to retry
+     */
+    public Response<ExerciseResultBatchOutcome> recordExerciseResultBatch(RecordExerciseResultBatch batch) throws IOException {
+        return usersApi.apiUsersWorkoutExerciseResultsBatchPost(batch).execute();
+    }
+
+    /**
+     * Uploads a whole workout in one gzip-compressed request. Blocking, for the background sync.
+     */
+    public Response<WorkoutSessionOutcome> recordWorkoutSession(RecordWorkoutSession session) throws IOException {
+        return usersApi.apiUsersWorkoutSessionsPost(session).execute();
+    }
+
     public void resetExerciseResult(String userWorkoutPlanId, String dayId, UsersCallback<SuccessMessage> callback) {
         usersApi.apiUsersWorkoutUserPlansUserWorkoutPlanIdDaysDayIdResultsDelete(userWorkoutPlanId, dayId).enqueue(new Callback<SuccessMessage>() {
             @Override
@@ -0,0 +1,77 @@
+package com.example.fitness.data.sync;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.example.fitness.data.local.AuthDataStore;
+import com.example.fitness.data.local.db.PendingWorkoutSession;
+import com.example.fitness.data.local.db.PendingWorkoutSessionDao;
+import com.example.fitness.data.network.model.generated.RecordWorkoutSession;
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.Moshi;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import dagger.hilt.android.qualifiers.ApplicationContext;
+
+/**
+ * Write-ahead log for workout results. A session is committed to the local database after
+ * every set and the caller moves on right away, {@link ExerciseResultSyncWorker} uploads
+ * it once it has ended, whenever there is a network, however long that takes.
+ */
+@Singleton
+public class ExerciseResultQueue {
+    private static final String TAG = "ExerciseResultQueue";
+
+    private final Context context;
+    private final PendingWorkoutSessionDao sessionDao;
+    private final AuthDataStore authDataStore;
+    private final JsonAdapter<RecordWorkoutSession> sessionAdapter;
+    // One writer keeps snapshots in the order they were taken
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> new Thread(r, "ExerciseResultQueue"));
+
+    @Inject
+    public ExerciseResultQueue(@ApplicationContext Context context, PendingWorkoutSessionDao sessionDao,
+                               AuthDataStore authDataStore, Moshi moshi) {
+        this.context = context;
+        this.sessionDao = sessionDao;
+        this.authDataStore = authDataStore;
+        this.sessionAdapter = moshi.adapter(RecordWorkoutSession.class);
+    }
+
+    /**
+     * Stores the session, replacing its previous snapshot, and returns without waiting
+     * for the disk or the network
+     *
+     * @param ended Whether it can be uploaded now, otherwise it waits for more sets
+     */
+    public void saveSession(RecordWorkoutSession session, boolean ended) {
+        long savedAtMs = System.currentTimeMillis();
+
+        executor.execute(() -> {
+            try {
+                String userId = authDataStore.getUserIdSync().blockingGet();
+                sessionDao.save(new PendingWorkoutSession(session.getClientSessionId(), userId,
+                        sessionAdapter.toJson(session), ended, savedAtMs));
+                Log.d(TAG, "📝 Saved session with " + session.getSets().size() + " sets" + (ended ? ", ended" : ""));
+            } catch (Exception e) {
+                Log.e(TAG, "❌ Failed to save workout session: " + e.getMessage());
+                return;
+            }
+            if (ended) {
+                ExerciseResultSyncWorker.enqueue(context);
+            }
+        });
+    }
+
+    /**
+     * Uploads whatever is still queued, e.g. from a session that ended offline
+     */
+    public void sync() {
+        ExerciseResultSyncWorker.enqueue(context);
+    }
+}
@@ -0,0 +1,273 @@
+package com.example.fitness.data.sync;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.BackoffPolicy;
+import androidx.work.Constraints;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.example.fitness.data.local.AuthDataStore;
+import com.example.fitness.data.local.db.PendingExerciseResult;
+import com.example.fitness.data.local.db.PendingExerciseResultDao;
+import com.example.fitness.data.local.db.PendingWorkoutSession;
+import com.example.fitness.data.local.db.PendingWorkoutSessionDao;
+import com.example.fitness.data.network.model.generated.ExerciseResultBatchItemOutcome;
+import com.example.fitness.data.network.model.generated.ExerciseResultBatchOutcome;
+import com.example.fitness.data.network.model.generated.RecordExerciseResultBatch;
+import com.example.fitness.data.network.model.generated.RecordExerciseResultBatchItem;
+import com.example.fitness.data.network.model.generated.RecordWorkoutSession;
+import com.example.fitness.data.network.model.generated.WorkoutSessionOutcome;
+import com.example.fitness.data.network.model.generated.WorkoutSessionSet;
+import com.example.fitness.data.repository.UsersRepository;
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.Moshi;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import dagger.hilt.EntryPoint;
+import dagger.hilt.InstallIn;
+import dagger.hilt.android.EntryPointAccessors;
+import dagger.hilt.components.SingletonComponent;
+import retrofit2.Response;
+
+/**
+ * Drains the {@link ExerciseResultQueue}: every ended workout session in one compressed
+ * request each, then any single results in batches of up to {@link #BATCH_SIZE}. Sessions
+ * and results keep their idempotency keys across attempts, so an upload that reached the
+ * server but whose response was lost is simply sent again. Network errors and server
+ * errors are retried with exponential backoff. A session the server refuses is split
+ * into single results, and a result it refuses on its own is dropped, so neither can
+ * block the rest of the queue.
+ */
+public class ExerciseResultSyncWorker extends Worker {
+    private static final String TAG = "ExerciseResultSync";
+    private static final String WORK_NAME = "exercise_result_sync";
+
+    static final int BATCH_SIZE = 20;
+    // A session not saved for this long will not get another set
+    private static final long SESSION_ABANDONED_AFTER_MS = TimeUnit.HOURS.toMillis(3);
+    private static final long INITIAL_BACKOFF_SECONDS = 30;
+
+    /**
+     * Workers are created by WorkManager, not Hilt, so they look their dependencies up
+     */
+    @EntryPoint
+    @InstallIn(SingletonComponent.class)
+    interface SyncEntryPoint {
+        PendingExerciseResultDao pendingExerciseResultDao();
+        PendingWorkoutSessionDao pendingWorkoutSessionDao();
+        UsersRepository usersRepository();
+        AuthDataStore authDataStore();
+        Moshi moshi();
+    }
+
+    private final PendingExerciseResultDao dao;
+    private final PendingWorkoutSessionDao sessionDao;
+    private final UsersRepository usersRepository;
+    private final AuthDataStore authDataStore;
+    private final JsonAdapter<RecordWorkoutSession> sessionAdapter;
+
+    public ExerciseResultSyncWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+        SyncEntryPoint entryPoint = EntryPointAccessors.fromApplication(context, SyncEntryPoint.class);
+        dao = entryPoint.pendingExerciseResultDao();
+        sessionDao = entryPoint.pendingWorkoutSessionDao();
+        usersRepository = entryPoint.usersRepository();
+        authDataStore = entryPoint.authDataStore();
+        sessionAdapter = entryPoint.moshi().adapter(RecordWorkoutSession.class);
+    }
+
+    /**
+     * Runs once a network is available. Appended rather than replaced, so a result queued
+     * while a sync is finishing still gets a pass of its own.
+     */
+    static void enqueue(Context context) {
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(ExerciseResultSyncWorker.class)
+                .setConstraints(new Constraints.Builder()
+                        .setRequiredNetworkType(NetworkType.CONNECTED)
+                        .build())
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, INITIAL_BACKOFF_SECONDS, TimeUnit.SECONDS)
+                .build();
+        WorkManager.getInstance(context)
+                .enqueueUniqueWork(WORK_NAME, ExistingWorkPolicy.APPEND_OR_REPLACE, request);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        String userId;
+        try {
+            userId = authDataStore.getUserIdSync().blockingGet();
+        } catch (Exception e) {
+            return Result.retry();
+        }
+        if (userId == null || userId.isEmpty()) {
+            // Logged out, the rows wait for their owner to log back in
+            return Result.success();
+        }
+
+        long abandonedBeforeMs = System.currentTimeMillis() - SESSION_ABANDONED_AFTER_MS;
+        for (PendingWorkoutSession session : sessionDao.getUploadable(userId, abandonedBeforeMs)) {
+            if (isStopped() || !uploadSession(session)) {
+                return Result.retry();
+            }
+        }
+
+        List<PendingExerciseResult> batch;
+        while (!(batch = dao.getOldest(userId, BATCH_SIZE)).isEmpty()) {
+            if (isStopped() || !upload(batch)) {
+                return Result.retry();
+            }
+        }
+        return Result.success();
+    }
+
+    /**
+     * @return false if the session could not be settled and should be retried later
+     */
+    private boolean uploadSession(PendingWorkoutSession pending) {
+        String clientSessionId = pending.getClientSessionId();
+        RecordWorkoutSession session;
+        try {
+            session = sessionAdapter.fromJson(pending.getPayload());
+        } catch (IOException e) {
+            session = null;
+        }
+        if (session == null) {
+            Log.e(TAG, "❌ Dropping session " + clientSessionId + ", it could not be read back");
+            sessionDao.delete(clientSessionId);
+            return true;
+        }
+
+        Response<WorkoutSessionOutcome> response;
+        try {
+            response = usersRepository.recordWorkoutSession(session);
+        } catch (IOException e) {
+            Log.w(TAG, "📡 Upload of session " + clientSessionId + " failed: " + e.getMessage());
+            sessionDao.recordFailure(clientSessionId, e.getMessage());
+            return false;
+        }
+
+        if (response.isSuccessful()) {
+            sessionDao.delete(clientSessionId);
+            Log.d(TAG, "✅ Synced session with " + session.getSets().size() + " sets");
+            return true;
+        }
+        int code = response.code();
+        if (isTransient(code)) {
+            Log.w(TAG, "📡 Upload of session " + clientSessionId + " failed: HTTP " + code);
+            sessionDao.recordFailure(clientSessionId, "HTTP " + code);
+            return false;
+        }
+
+        // Keep what the trainee did even if the session as a whole is refused
+        Log.e(TAG, "❌ Server refused session " + clientSessionId + ": HTTP " + code + ", queueing its results");
+        for (WorkoutSessionSet set : session.getSets()) {
+            if (set.getStatus() == WorkoutSessionSet.Status.completed) {
+                dao.insert(new PendingExerciseResult(set.getIdempotencyKey(), pending.getUserId(),
+                        set.getWorkoutPlanDayExerciseId(), session.getUserWorkoutPlanId(),
+                        set.getReps(), set.getDuration(), set.getCalories(), Timestamps.parse(set.getEndedAt())));
+            }
+        }
+        sessionDao.delete(clientSessionId);
+        return true;
+    }
+
+    /**
+     * @return false if the batch could not be settled and should be retried later
+     */
+    private boolean upload(List<PendingExerciseResult> batch) {
+        List<String> keys = keysOf(batch);
+        Response<ExerciseResultBatchOutcome> response;
+        try {
+            response = usersRepository.recordExerciseResultBatch(toRequest(batch));
+        } catch (IOException e) {
+            Log.w(TAG, "📡 Upload of " + batch.size() + " results failed: " + e.getMessage());
+            dao.recordFailure(keys, e.getMessage());
+            return false;
+        }
+
+        ExerciseResultBatchOutcome outcome = response.body();
+        if (response.isSuccessful() && outcome != null) {
+            return settle(keys, outcome);
+        }
+
+        int code = response.code();
+        if (isTransient(code)) {
+            Log.w(TAG, "📡 Upload of " + batch.size() + " results failed: HTTP " + code);
+            dao.recordFailure(keys, "HTTP " + code);
+            return false;
+        }
+        if (batch.size() > 1) {
+            // Find the result the server refuses instead of dropping the whole batch
+            for (PendingExerciseResult result : batch) {
+                if (!upload(Collections.singletonList(result))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        Log.e(TAG, "❌ Dropping result " + keys.get(0) + ", server refused it: HTTP " + code);
+        dao.delete(keys);
+        return true;
+    }
+
+    private static boolean isTransient(int code) {
+        return code >= 500 || code == 401 || code == 408 || code == 429;
+    }
+
+    private boolean settle(List<String> keys, ExerciseResultBatchOutcome outcome) {
+        List<String> settled = new ArrayList<>();
+        for (ExerciseResultBatchItemOutcome item : outcome.getResults()) {
+            if (!keys.contains(item.getIdempotencyKey())) {
+                continue;
+            }
+            if (item.getStatus() == ExerciseResultBatchItemOutcome.Status.rejected) {
+                Log.e(TAG, "❌ Dropping result " + item.getIdempotencyKey() + ", server rejected it: " + item.getError());
+            }
+            settled.add(item.getIdempotencyKey());
+        }
+        if (settled.isEmpty()) {
+            // Nothing was acknowledged, asking again right away would loop
+            dao.recordFailure(keys, "No results acknowledged");
+            return false;
+        }
+        dao.delete(settled);
+        Log.d(TAG, "✅ Synced " + settled.size() + " exercise results");
+        return true;
+    }
+
+    private static RecordExerciseResultBatch toRequest(List<PendingExerciseResult> batch) {
+        List<RecordExerciseResultBatchItem> items = new ArrayList<>(batch.size());
+        for (PendingExerciseResult result : batch) {
+            items.add(new RecordExerciseResultBatchItem(
+                    result.getWorkoutPlanDayExerciseId(),
+                    result.getUserWorkoutPlanId(),
+                    result.getIdempotencyKey(),
+                    Timestamps.format(result.getCompletedAtMs()),
+                    result.getReps(),
+                    result.getDuration(),
+                    result.getCalories()));
+        }
+        return new RecordExerciseResultBatch(items);
+    }
+
+    private static List<String> keysOf(List<PendingExerciseResult> batch) {
+        List<String> keys = new ArrayList<>(batch.size());
+        for (PendingExerciseResult result : batch) {
+            keys.add(result.getIdempotencyKey());
+        }
+        return keys;
+    }
+}
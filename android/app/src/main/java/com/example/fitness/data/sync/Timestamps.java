@@ -0,0 +1,38 @@
+package com.example.fitness.data.sync;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * ISO-8601 in UTC, as the API expects. java.time needs API 26, minSdk is 24.
+ */
+final class Timestamps {
+
+    private Timestamps() {
+    }
+
+    static String format(long wallClockMs) {
+        return newFormat().format(new Date(wallClockMs));
+    }
+
+    /**
+     * @return the time in ms, or now if it cannot be read
+     */
+    static long parse(String timestamp) {
+        try {
+            return newFormat().parse(timestamp).getTime();
+        } catch (ParseException | NullPointerException e) {
+            return System.currentTimeMillis();
+        }
+    }
+
+    // SimpleDateFormat is not thread-safe
+    private static SimpleDateFormat newFormat() {
+        SimpleDateFormat iso = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", Locale.US);
+        iso.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return iso;
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.fitness.data.sync;
+
+import com.example.fitness.data.network.model.generated.DetailedWorkoutPlanDayExercise;
+import com.example.fitness.data.network.model.generated.RecordWorkoutSession;
+import com.example.fitness.data.network.model.generated.WorkoutSessionSet;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Collects a workout as it happens: one set per exercise reached, done or skipped, with
+ * the rest actually taken before it and when each counted rep happened. Times are taken
+ * as elapsedRealtime, so a clock change mid-workout does not distort durations, and turned
+ * into wall-clock times from the session start. Used from the main thread only.
+ */
+public class WorkoutSessionRecorder {
+
+    private final String clientSessionId = UUID.randomUUID().toString();
+    private final int userWorkoutPlanId;
+    private final Integer workoutPlanDayId;
+    private final long startedAtWallMs;
+    private final long startedAtMs;
+    private final List<WorkoutSessionSet> sets = new ArrayList<>();
+
+    private long restStartedAtMs = -1;
+    private DetailedWorkoutPlanDayExercise currentExercise;
+    private long setStartedAtMs;
+    private Integer restBeforeSetSeconds;
+    private final List<Integer> repTimestamps = new ArrayList<>();
+    private boolean finished;
+
+    /**
+     * @param nowMs elapsedRealtime, as for every other time passed in
+     */
+    public WorkoutSessionRecorder(int userWorkoutPlanId, Integer workoutPlanDayId, long nowMs) {
+        this.userWorkoutPlanId = userWorkoutPlanId;
+        this.workoutPlanDayId = workoutPlanDayId;
+        this.startedAtWallMs = System.currentTimeMillis();
+        this.startedAtMs = nowMs;
+    }
+
+    public void startRest(long nowMs) {
+        restStartedAtMs = nowMs;
+    }
+
+    public void startSet(DetailedWorkoutPlanDayExercise exercise, long nowMs) {
+        currentExercise = exercise;
+        setStartedAtMs = nowMs;
+        restBeforeSetSeconds = restStartedAtMs >= 0 ? (int) ((nowMs - restStartedAtMs) / 1000) : null;
+        restStartedAtMs = -1;
+        repTimestamps.clear();
+    }
+
+    /**
+     * @param sampledAtMs When the tracker saw the rep, reps from before the set are ignored
+     */
+    public void recordRep(long sampledAtMs) {
+        if (currentExercise != null && sampledAtMs >= setStartedAtMs) {
+            repTimestamps.add((int) (sampledAtMs - setStartedAtMs));
+        }
+    }
+
+    public void completeSet(Integer reps, Integer duration, Integer calories, long nowMs) {
+        endSet(WorkoutSessionSet.Status.completed, reps, duration, calories, nowMs);
+    }
+
+    public void skipSet(long nowMs) {
+        endSet(WorkoutSessionSet.Status.skipped, null, null, null, nowMs);
+    }
+
+    private void endSet(WorkoutSessionSet.Status status, Integer reps, Integer duration, Integer calories, long nowMs) {
+        if (currentExercise == null) {
+            return;
+        }
+        sets.add(new WorkoutSessionSet(
+                UUID.randomUUID().toString(),
+                currentExercise.getId(),
+                sets.size(),
+                status,
+                Timestamps.format(toWallClock(setStartedAtMs)),
+                Timestamps.format(toWallClock(nowMs)),
+                reps,
+                duration,
+                calories,
+                repTimestamps.isEmpty() ? null : new ArrayList<>(repTimestamps),
+                restBeforeSetSeconds));
+        currentExercise = null;
+    }
+
+    /**
+     * The session so far, saved after every set. Should the app never get to
+     * {@link #finish}, it is uploaded like this, as abandoned.
+     */
+    public RecordWorkoutSession snapshot(long nowMs) {
+        return build(RecordWorkoutSession.Status.abandoned, nowMs);
+    }
+
+    /**
+     * @param done Whether every exercise was reached, false when the user left early; an
+     *             exercise still in progress then counts as skipped
+     */
+    public RecordWorkoutSession finish(boolean done, long nowMs) {
+        skipSet(nowMs);
+        finished = true;
+        return build(done ? RecordWorkoutSession.Status.done : RecordWorkoutSession.Status.abandoned, nowMs);
+    }
+
+    private RecordWorkoutSession build(RecordWorkoutSession.Status status, long nowMs) {
+        return new RecordWorkoutSession(
+                clientSessionId,
+                userWorkoutPlanId,
+                status,
+                Timestamps.format(startedAtWallMs),
+                Timestamps.format(toWallClock(nowMs)),
+                new ArrayList<>(sets),
+                workoutPlanDayId);
+    }
+
+    private long toWallClock(long elapsedMs) {
+        return startedAtWallMs + (elapsedMs - startedAtMs);
+    }
+
+    public boolean hasSets() {
+        return !sets.isEmpty();
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.fitness.di;
+
+import android.content.Context;
+
+import androidx.room.Room;
+
+import com.example.fitness.data.local.db.AppDatabase;
+import com.example.fitness.data.local.db.PendingExerciseResultDao;
+import com.example.fitness.data.local.db.PendingWorkoutSessionDao;
+
+import javax.inject.Singleton;
+
+import dagger.Module;
+import dagger.Provides;
+import dagger.hilt.InstallIn;
+import dagger.hilt.android.qualifiers.ApplicationContext;
+import dagger.hilt.components.SingletonComponent;
+
+@Module
+@InstallIn(SingletonComponent.class)
+public class DatabaseModule {
+
+    @Provides
+    @Singleton
+    public AppDatabase provideAppDatabase(@ApplicationContext Context context) {
+        return Room.databaseBuilder(context, AppDatabase.class, AppDatabase.NAME)
+                .build();
+    }
+
+    @Provides
+    public PendingExerciseResultDao providePendingExerciseResultDao(AppDatabase database) {
+        return database.pendingExerciseResultDao();
+    }
+
+    @Provides
+    public PendingWorkoutSessionDao providePendingWorkoutSessionDao(AppDatabase database) {
+        return database.pendingWorkoutSessionDao();
+    }
+}
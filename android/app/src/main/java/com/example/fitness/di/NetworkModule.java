@@ -48,7 +48,7 @@ public class NetworkModule {
 
     @Provides
     @Singleton
-    public OkHttpClient provideOkHttpClient(AuthInterceptor authInterceptor) {
+    public OkHttpClient provideOkHttpClient(AuthInterceptor authInterceptor, GzipRequestInterceptor gzipRequestInterceptor) {
         OkHttpClient.Builder builder = new OkHttpClient.Builder()
                 .readTimeout(30, TimeUnit.SECONDS)
                 .writeTimeout(30, TimeUnit.SECONDS)
@@ -59,6 +59,7 @@ public class NetworkModule {
         builder.addInterceptor(loggingInterceptor);
 
         builder.addInterceptor(authInterceptor);
+        builder.addInterceptor(gzipRequestInterceptor);
 
         return builder.build();
     }
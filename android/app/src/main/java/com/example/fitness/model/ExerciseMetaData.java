@@ -1,5 +1,7 @@
 package com.example.fitness.model;
 
+import com.example.fitness.ble.SmoothingConfig;
+
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.Setter;
@@ -11,4 +13,6 @@ public class ExerciseMetaData {
     private String name;
     private int imageResourceId;
     private String label;
+    private long repTempoMs; // Expected time per rep, 0 for holds
+    private SmoothingConfig smoothing; // How classifier confidences are turned into reps
 }
@@ -1,8 +1,6 @@
 package com.example.fitness.ui.activity.trainee;
 
 import android.os.Bundle;
-import android.os.Handler;
-import android.os.Looper;
 import android.util.Log;
 import android.view.Menu;
 import android.view.MenuItem;
@@ -19,9 +17,10 @@ import androidx.core.view.WindowInsetsCompat;
 import androidx.lifecycle.ViewModelProvider;
 
 import com.bumptech.glide.Glide;
+import com.bumptech.glide.RequestBuilder;
+import com.bumptech.glide.load.resource.gif.GifDrawable;
 import com.example.fitness.R;
-import com.example.fitness.ble.BleExerciseCounter;
-import com.example.fitness.ble.BleServiceManager;
+import com.example.fitness.ble.RepCounter;
 import com.example.fitness.data.network.model.generated.DetailedWorkoutPlanDayExercise;
 import com.example.fitness.data.network.model.generated.ExerciseType;
 import com.example.fitness.data.repository.ExercisesRepository;
@@ -30,8 +29,8 @@ import com.example.fitness.ui.viewmodel.TraineeWorkoutViewModel;
 import com.example.fitness.ui.viewmodel.WorkoutDayDetailsViewModel;
 import com.example.fitness.ui.viewmodel.WorkoutPlanDetailsViewModel;
 import com.example.fitness.ui.viewmodel.WorkoutPlanViewModel;
-
-import org.json.JSONObject;
+import com.example.fitness.workout.WorkoutSessionConfig;
+import com.example.fitness.workout.WorkoutSessionState;
 
 import java.util.List;
 
@@ -53,18 +52,12 @@ public class TraineeWorkoutActivity extends AppCompatActivity {
     @Inject
     ExercisesRepository exercisesRepository;
     
-    // Timer handling
-    private Handler timerHandler;
-    private Runnable exerciseTimerRunnable;
-    private Runnable restTimerRunnable;
+    // Last session state shown, to tell a new step from a countdown tick
+    private WorkoutSessionState renderedState;
     
-    // BLE functionality
-    private BleServiceManager bleServiceManager;
-    private BleExerciseCounter exerciseCounter;
+    // How the session counts reps, the counting itself runs in the session controller
+    private RepCounter.Engine repCounterEngine = RepCounter.Engine.CLASSIFIER;
     private boolean isBleConnected;
-    private int currentRepCount = 0;
-    private Integer targetReps = 0;
-    private String currentExerciseCounterName = null; // Track which exercise counter is set up
     
     // Intent data
     private int dayId;
@@ -93,12 +86,16 @@ public class TraineeWorkoutActivity extends AppCompatActivity {
         getIntentData();
         initializeViews();
         setupViewModels();
-        setupBleIfConnected();
         setupListeners();
         observeViewModels();
         
-        // Initialize timer handler
-        timerHandler = new Handler(Looper.getMainLooper());
+        // The session keeps running without this screen, rejoin it if it is this workout
+        WorkoutSessionConfig sessionConfig = new WorkoutSessionConfig(planId, dayNumber, userWorkoutPlanId,
+                allowRecording, isBleConnected, repCounterEngine);
+        if (workoutViewModel.openSession(sessionConfig, getIntent())) {
+            Log.d(TAG, "♻️ Rejoined the running workout");
+            return;
+        }
         
         // Load exercises for the day
         if (planId != null) {
@@ -124,6 +121,14 @@ public class TraineeWorkoutActivity extends AppCompatActivity {
             allowRecording = getIntent().getBooleanExtra("ALLOW_RECORDING", true);
             assignmentId = getIntent().getIntExtra("ASSIGNMENT_ID", -1);
             startDate = getIntent().getStringExtra("START_DATE");
+            String engine = getIntent().getStringExtra("REP_COUNTER_ENGINE");
+            if (engine != null) {
+                try {
+                    repCounterEngine = RepCounter.Engine.valueOf(engine);
+                } catch (IllegalArgumentException e) {
+                    Log.w(TAG, "Unknown rep counter engine: " + engine);
+                }
+            }
         }
     }
 
@@ -159,94 +164,12 @@ public class TraineeWorkoutActivity extends AppCompatActivity {
         planDetailsViewModel = new ViewModelProvider(this).get(WorkoutPlanDetailsViewModel.class);
         planViewModel = new ViewModelProvider(this).get(WorkoutPlanViewModel.class);
         
-        if (userWorkoutPlanId != null) {
-            workoutViewModel.setUserWorkoutPlanId(userWorkoutPlanId);
-        }
-        
-        // Set whether to allow recording results
-        workoutViewModel.setAllowRecording(allowRecording);
-        
         // Load plan details to check if user can delete it
         if (planId != null) {
             planDetailsViewModel.loadWorkoutPlan(planId);
         }
     }
     
-    private void setupBleIfConnected() {
-        if (isBleConnected) {
-            bleServiceManager = new BleServiceManager(this);
-            bleServiceManager.setBleConnectionListener(new BleServiceManager.BleConnectionListener() {
-                @Override
-                public void onConnectionStatusChanged(boolean isConnected) {
-                    isBleConnected = isConnected;
-                    if (!isConnected) {
-                        Log.d(TAG, "❌ Exercise tracker disconnected");
-                        Toast.makeText(TraineeWorkoutActivity.this, 
-                            "Exercise tracker disconnected. Manual rep counting will be used.", 
-                            Toast.LENGTH_LONG).show();
-                    } else {
-                        Log.d(TAG, "🔗 Exercise tracker connected successfully");
-                    }
-                }
-                
-                @Override
-                public void onDeviceFound(String deviceName, String deviceAddress) {
-                    Log.d(TAG, "📱 Found device: " + deviceName + " (" + deviceAddress + ")");
-                }
-                
-                @Override
-                public void onDataReceived(String data) {
-                    try {
-                        // Always log that we received data
-                        Log.d(TAG, "📡 Received BLE data: " + data);
-                        
-                        JSONObject jsonData = new JSONObject(data);
-                        if (jsonData.has("predictions")) {
-                            if (exerciseCounter != null) {
-                                JSONObject predictions = jsonData.getJSONObject("predictions");
-                                Log.d(TAG, "🔄 Processing predictions with exercise counter");
-                                exerciseCounter.processPrediction(predictions);
-                            } else {
-                                Log.d(TAG, "⚠️ Received predictions but exercise counter not ready yet");
-                            }
-                        } else {
-                            Log.d(TAG, "⚠️ No 'predictions' field in data");
-                        }
-                    } catch (Exception e) {
-                        // Log JSON parsing errors
-                        Log.d(TAG, "❌ Data error: " + e.getMessage());
-                        Log.d(TAG, "🔍 Raw data was: " + data);
-                    }
-                }
-                
-                @Override
-                public void onError(String error) {
-                    Log.d(TAG, "❌ BLE Error: " + error);
-                    Toast.makeText(TraineeWorkoutActivity.this, "BLE Error: " + error, Toast.LENGTH_SHORT).show();
-                }
-                
-                @Override
-                public void onScanStarted() {
-                    Log.d(TAG, "🔍 Scanning for exercise tracker...");
-                }
-                
-                @Override
-                public void onScanStopped() {
-                    Log.d(TAG, "🛑 Scan stopped");
-                }
-            });
-            
-            // Actually start the BLE connection process
-            Log.d(TAG, "🚀 Starting BLE connection...");
-            if (bleServiceManager.isBluetoothEnabled() && bleServiceManager.hasRequiredPermissions()) {
-                bleServiceManager.startScanning();
-            } else {
-                Log.d(TAG, "❌ Bluetooth not enabled or missing permissions");
-                isBleConnected = false;
-            }
-        }
-    }
-
     private void setupListeners() {
         binding.toolbar.setNavigationOnClickListener(v -> finish());
         
@@ -258,15 +181,7 @@ public class TraineeWorkoutActivity extends AppCompatActivity {
         binding.buttonSkipReps.setOnClickListener(v -> workoutViewModel.skipExercise());
         
         // Manual rep counting button
-        binding.buttonAddRep.setOnClickListener(v -> {
-            currentRepCount++;
-            updateRepDisplay();
-            
-            // Check if target reached
-            if (targetReps != null && currentRepCount >= targetReps) {
-                Toast.makeText(this, "Target reps reached! Great job!", Toast.LENGTH_SHORT).show();
-            }
-        });
+        binding.buttonAddRep.setOnClickListener(v -> workoutViewModel.addManualRep());
         
         // Rest period controls
         binding.buttonSkipRest.setOnClickListener(v -> workoutViewModel.skipRestPeriod());
@@ -305,87 +220,19 @@ public class TraineeWorkoutActivity extends AppCompatActivity {
         // Observe workout state
         workoutViewModel.exercises.observe(this, exercises -> {
             if (exercises != null && !exercises.isEmpty()) {
-                displayCurrentExercise();
                 updateProgress();
             }
         });
         
-        workoutViewModel.currentExerciseIndex.observe(this, index -> {
-            // Reset exercise counter tracking when moving to new exercise
-            currentExerciseCounterName = null;
-            displayCurrentExercise();
-            updateProgress();
-        });
-        
-        workoutViewModel.isResting.observe(this, isResting -> {
-            if (isResting != null) {
-                binding.layoutRestPeriod.setVisibility(isResting ? View.VISIBLE : View.GONE);
-                binding.layoutCurrentExercise.setVisibility(isResting ? View.GONE : View.VISIBLE);
-                
-                if (isResting) {
-                    displayNextExercisePreview();
-                    startRestTimer();
-                } else {
-                    stopRestTimer();
-                    displayCurrentExercise();
-                }
-            }
-        });
-        
-        workoutViewModel.restTimeRemaining.observe(this, timeRemaining -> {
-            if (timeRemaining != null) {
-                binding.textViewRestTimer.setText(String.valueOf(timeRemaining));
-                
-                if (timeRemaining <= 0) {
-                    workoutViewModel.nextExercise();
-                }
-            }
-        });
-        
-        workoutViewModel.exerciseTimeRemaining.observe(this, timeRemaining -> {
-            if (timeRemaining != null) {
-                binding.textViewDurationTimer.setText(String.valueOf(timeRemaining));
-                
-                if (timeRemaining <= 0) {
-                    workoutViewModel.completeExercise();
-                }
-            }
-        });
-        
-        workoutViewModel.isPaused.observe(this, isPaused -> {
-            if (isPaused != null) {
-                binding.buttonPauseResume.setText(isPaused ? "Resume" : "Pause");
-                
-                if (isPaused) {
-                    stopExerciseTimer();
-                } else {
-                    DetailedWorkoutPlanDayExercise currentExercise = workoutViewModel.getCurrentExercise();
-                    if (currentExercise != null && 
-                        currentExercise.getExerciseType().getLogType() == ExerciseType.LogType.duration) {
-                        startExerciseTimer();
-                    }
-                }
-            }
-        });
-        
-        workoutViewModel.isWorkoutCompleted.observe(this, isCompleted -> {
-            if (isCompleted != null && isCompleted) {
-                stopAllTimers();
-                showWorkoutCompleted();
-            }
-        });
+        workoutViewModel.sessionState.observe(this, this::renderSessionState);
         
-        workoutViewModel.error.observe(this, error -> {
-            if (error != null) {
-                Toast.makeText(this, error, Toast.LENGTH_LONG).show();
-                workoutViewModel.clearError();
+        workoutViewModel.message.observe(this, message -> {
+            if (message != null) {
+                Toast.makeText(this, message, Toast.LENGTH_SHORT).show();
+                workoutViewModel.clearMessage();
             }
         });
         
-        workoutViewModel.isRecordingResult.observe(this, isRecording -> {
-            // You can show a loading indicator here if needed
-        });
-        
         // Observe plan details to enable/disable delete option
         planDetailsViewModel.detailedWorkoutPlan.observe(this, detailedPlan -> {
             // Invalidate options menu to update delete option visibility
@@ -415,6 +262,48 @@ public class TraineeWorkoutActivity extends AppCompatActivity {
         });
     }
 
+    /**
+     * Shows the session state, redrawing the exercise only when the step changes
+     */
+    private void renderSessionState(WorkoutSessionState state) {
+        WorkoutSessionState previous = renderedState;
+        renderedState = state;
+        if (state.getPhase() == WorkoutSessionState.Phase.NOT_STARTED) {
+            return;
+        }
+        if (state.isCompleted()) {
+            if (previous == null || !previous.isCompleted()) {
+                showWorkoutCompleted();
+            }
+            return;
+        }
+        
+        if (!state.isSameStepAs(previous)) {
+            if (previous == null || previous.getExerciseIndex() != state.getExerciseIndex()) {
+                updateProgress();
+            }
+            binding.layoutRestPeriod.setVisibility(state.isResting() ? View.VISIBLE : View.GONE);
+            binding.layoutCurrentExercise.setVisibility(state.isResting() ? View.GONE : View.VISIBLE);
+            
+            if (state.isResting()) {
+                displayNextExercisePreview();
+            } else {
+                displayCurrentExercise();
+            }
+        }
+        
+        if (state.isResting()) {
+            binding.textViewRestTimer.setText(String.valueOf(state.getSecondsRemaining()));
+        } else if (state.getSecondsRemaining() != WorkoutSessionState.NO_COUNTDOWN) {
+            binding.textViewDurationTimer.setText(String.valueOf(state.getSecondsRemaining()));
+        }
+        binding.buttonPauseResume.setText(state.isPaused() ? "Resume" : "Pause");
+        
+        if (state.isExercising()) {
+            updateRepDisplay(state);
+        }
+    }
+
     private void displayCurrentExercise() {
         DetailedWorkoutPlanDayExercise currentExercise = workoutViewModel.getCurrentExercise();
         if (currentExercise == null) {
@@ -426,15 +315,8 @@ public class TraineeWorkoutActivity extends AppCompatActivity {
         // Set exercise name
         binding.textViewExerciseName.setText(currentExercise.getExerciseType().getName());
         
-        // Set exercise image
-        int imageResource = exercisesRepository.getExerciseImageResourceByName(
-            currentExercise.getExerciseType().getName());
-        Glide.with(this)
-                .asGif()
-                .load(imageResource)
-                .placeholder(R.drawable.placeholder_exercise)
-                .error(R.drawable.placeholder_exercise)
-                .into(binding.imageViewExercise);
+        // Set exercise image, already in the memory cache from the preview during the rest
+        loadExerciseAnimation(currentExercise).into(binding.imageViewExercise);
         
         // Set exercise notes if available
         if (currentExercise.getNotes() != null && !currentExercise.getNotes().isEmpty()) {
@@ -450,23 +332,13 @@ public class TraineeWorkoutActivity extends AppCompatActivity {
         if (logType == ExerciseType.LogType.duration) {
             binding.layoutDurationExercise.setVisibility(View.VISIBLE);
             binding.layoutRepsExercise.setVisibility(View.GONE);
-            
-            // Start duration timer if not paused
-            Boolean isPaused = workoutViewModel.isPaused.getValue();
-            if (isPaused == null || !isPaused) {
-                startExerciseTimer();
-            }
-            
         } else if (logType == ExerciseType.LogType.reps) {
             binding.layoutDurationExercise.setVisibility(View.GONE);
             binding.layoutRepsExercise.setVisibility(View.VISIBLE);
             
             // Set target reps
-            targetReps = currentExercise.getTargetReps();
+            Integer targetReps = currentExercise.getTargetReps();
             binding.textViewTargetReps.setText(String.valueOf(targetReps != null ? targetReps : 0));
-            
-            // Initialize BLE rep counting if connected
-            setupRepCounting(currentExercise);
         }
     }
     
@@ -489,14 +361,7 @@ public class TraineeWorkoutActivity extends AppCompatActivity {
         binding.textViewNextExerciseName.setText(nextExercise.getExerciseType().getName());
         
         // Set next exercise image
-        int imageResource = exercisesRepository.getExerciseImageResourceByName(
-            nextExercise.getExerciseType().getName());
-        Glide.with(this)
-                .asGif()
-                .load(imageResource)
-                .placeholder(R.drawable.placeholder_exercise)
-                .error(R.drawable.placeholder_exercise)
-                .into(binding.imageViewNextExercise);
+        loadExerciseAnimation(nextExercise).into(binding.imageViewNextExercise);
         
         // Set target information based on log type
         ExerciseType.LogType logType = nextExercise.getExerciseType().getLogType();
@@ -509,6 +374,22 @@ public class TraineeWorkoutActivity extends AppCompatActivity {
         }
     }
 
+    /**
+     * Same request for both cards, so the exercise finds the preview's decode in the
+     * memory cache when it starts
+     */
+    private RequestBuilder<GifDrawable> loadExerciseAnimation(DetailedWorkoutPlanDayExercise exercise) {
+        int imageResource = exercisesRepository.getExerciseImageResourceByName(
+            exercise.getExerciseType().getName());
+        // Explicit rather than taken from the view, the transformation is part of the cache key
+        return Glide.with(this)
+                .asGif()
+                .load(imageResource)
+                .centerCrop()
+                .placeholder(R.drawable.placeholder_exercise)
+                .error(R.drawable.placeholder_exercise);
+    }
+
     private void updateProgress() {
         int currentExerciseNumber = workoutViewModel.getCurrentExerciseNumber();
         int totalExercises = workoutViewModel.getTotalExerciseCount();
@@ -521,170 +402,54 @@ public class TraineeWorkoutActivity extends AppCompatActivity {
         }
     }
 
-    private void startExerciseTimer() {
-        stopExerciseTimer(); // Stop any existing timer
-        
-        exerciseTimerRunnable = new Runnable() {
-            @Override
-            public void run() {
-                Integer currentTime = workoutViewModel.exerciseTimeRemaining.getValue();
-                if (currentTime != null && currentTime > 0) {
-                    workoutViewModel.updateExerciseTimeRemaining(currentTime - 1);
-                    timerHandler.postDelayed(this, 1000);
-                }
-            }
-        };
-        
-        timerHandler.postDelayed(exerciseTimerRunnable, 1000);
-    }
-
-    private void stopExerciseTimer() {
-        if (exerciseTimerRunnable != null) {
-            timerHandler.removeCallbacks(exerciseTimerRunnable);
-            exerciseTimerRunnable = null;
-        }
-    }
-
-    private void startRestTimer() {
-        stopRestTimer(); // Stop any existing timer
-        
-        restTimerRunnable = new Runnable() {
-            @Override
-            public void run() {
-                Integer currentTime = workoutViewModel.restTimeRemaining.getValue();
-                if (currentTime != null && currentTime > 0) {
-                    workoutViewModel.updateRestTimeRemaining(currentTime - 1);
-                    timerHandler.postDelayed(this, 1000);
-                }
-            }
-        };
-        
-        timerHandler.postDelayed(restTimerRunnable, 1000);
-    }
-
-    private void stopRestTimer() {
-        if (restTimerRunnable != null) {
-            timerHandler.removeCallbacks(restTimerRunnable);
-            restTimerRunnable = null;
-        }
-    }
-
-    private void stopAllTimers() {
-        stopExerciseTimer();
-        stopRestTimer();
-    }
-    
-    private void setupRepCounting(DetailedWorkoutPlanDayExercise exercise) {
-        currentRepCount = 0;
-        
-        // Check if we already have a counter set up for this exercise
-        String exerciseName = exercise.getExerciseType().getName();
-        if (exerciseName.equals(currentExerciseCounterName)) {
-            Log.d(TAG, "🔄 Rep counter already set up for: " + exerciseName);
-            updateRepDisplay();
-            return;
-        }
-        
-        if (isBleConnected && bleServiceManager != null) {
-            // Get exercise label for BLE matching
-            String exerciseLabel = exercisesRepository.getExerciseLabelByName(exercise.getExerciseType().getName());
-            Log.d(TAG, "🔍 Looking for exercise label: " + exercise.getExerciseType().getName() + " -> " + exerciseLabel);
-            
-            if (exerciseLabel != null) {
-                // Reset previous counter if exists
-                if (exerciseCounter != null) {
-                    exerciseCounter.reset();
-                }
-                
-                // Initialize exercise counter for this specific exercise
-                Log.d(TAG, "🏗️ Creating exercise counter for: " + exerciseLabel);
-                exerciseCounter = new BleExerciseCounter(exerciseLabel);
-                currentExerciseCounterName = exerciseName; // Mark this exercise as set up
-                exerciseCounter.setRepCountListener(new BleExerciseCounter.RepCountListener() {
-                    @Override
-                    public void onRepCompleted(int repCount) {
-                        runOnUiThread(() -> {
-                            currentRepCount = repCount;
-                            updateRepDisplay();
-                            
-                            // Check if target reached
-                            if (targetReps != null && repCount >= targetReps) {
-                                Toast.makeText(TraineeWorkoutActivity.this, 
-                                    "Target reps reached! Great job!", Toast.LENGTH_SHORT).show();
-                                // Auto-complete after a brief delay
-                                new Handler(Looper.getMainLooper()).postDelayed(() -> {
-                                    workoutViewModel.completeExercise();
-                                }, 2000);
-                            }
-                        });
-                    }
-                    
-                    @Override
-                    public void onExerciseStateChanged(boolean isDoingExercise, String exerciseName, double confidence) {
-                        runOnUiThread(() -> {
-                            // Update UI to show exercise state
-                            if (isDoingExercise) {
-                                binding.textViewExerciseName.setTextColor(getColor(com.google.android.material.R.color.design_default_color_primary));
-                            } else {
-                                binding.textViewExerciseName.setTextColor(getColor(android.R.color.black));
-                            }
-                        });
-                    }
-                    
-                    @Override
-                    public void onDebugLog(String logMessage) {
-                        // Log debug messages to logcat
-                        Log.d(TAG, logMessage);
-                    }
-                });
-                
-                Toast.makeText(this, "BLE rep counting enabled for " + exercise.getExerciseType().getName(), 
-                    Toast.LENGTH_SHORT).show();
-                
-                // Show BLE status
-                if (binding.textViewBleStatus != null) {
-                    binding.textViewBleStatus.setText("🔗 Automatic rep counting enabled");
-                    binding.textViewBleStatus.setVisibility(View.VISIBLE);
-                }
-                
-                Log.d(TAG, "🚀 BLE Rep Counter Started");
-                Log.d(TAG, "🔗 Connected to exercise tracker");
-                Log.d(TAG, "🏃 Monitoring " + exerciseLabel + " reps...");
-                Log.d(TAG, "💡 Start exercising!");
-                Log.d(TAG, "------------------------------------");
-            } else {
-                Log.d(TAG, "❌ No exercise label found for: " + exercise.getExerciseType().getName());
-                Log.d(TAG, "📋 Available exercise labels: " + exercisesRepository.getAllExerciseLabels());
-                Toast.makeText(this, "BLE rep counting not available for this exercise", 
-                    Toast.LENGTH_SHORT).show();
-            }
-        } else {
-            // BLE not connected, show manual mode
-            if (binding.textViewBleStatus != null) {
-                binding.textViewBleStatus.setText("📱 Manual mode - tap '+1 Rep' to count");
-                binding.textViewBleStatus.setVisibility(View.VISIBLE);
-            }
-            
-            // Show manual rep counting button
-            binding.buttonAddRep.setVisibility(View.VISIBLE);
-        }
-        
-        updateRepDisplay();
+    private void showRepCounterEngineDialog() {
+        RepCounter.Engine[] engines = RepCounter.Engine.values();
+        String[] names = {"Classifier votes", "Motion signal", "Fused (signal + classifier)"};
+        new AlertDialog.Builder(this)
+                .setTitle("Rep Counting Engine")
+                .setSingleChoiceItems(names, workoutViewModel.getRepCounterEngine().ordinal(), (dialog, which) -> {
+                    dialog.dismiss();
+                    // Rebuilds the counter for the exercise in progress
+                    workoutViewModel.setRepCounterEngine(engines[which]);
+                })
+                .setNegativeButton("Cancel", null)
+                .show();
     }
     
-    private void updateRepDisplay() {
+    private void updateRepDisplay(WorkoutSessionState state) {
         // Update current reps display
+        int repCount = state.getRepCount();
         if (binding.textViewCurrentReps != null) {
-            binding.textViewCurrentReps.setText(String.valueOf(currentRepCount));
+            binding.textViewCurrentReps.setText(String.valueOf(repCount));
         }
         
         // Update progress if we have target reps
+        DetailedWorkoutPlanDayExercise currentExercise = workoutViewModel.getCurrentExercise();
+        Integer targetReps = currentExercise != null ? currentExercise.getTargetReps() : null;
         if (targetReps != null && targetReps > 0) {
-            float progress = (float) currentRepCount / targetReps;
+            float progress = (float) repCount / targetReps;
             if (binding.progressBarReps != null) {
                 binding.progressBarReps.setProgress((int) (progress * 100));
             }
         }
+        
+        if (state.getRepSource() == WorkoutSessionState.RepSource.TRACKER) {
+            // Show BLE status
+            binding.textViewBleStatus.setText("🔗 Automatic rep counting enabled");
+            binding.textViewBleStatus.setVisibility(View.VISIBLE);
+        } else if (state.getRepSource() == WorkoutSessionState.RepSource.MANUAL) {
+            // BLE not connected, show manual mode
+            binding.textViewBleStatus.setText("📱 Manual mode - tap '+1 Rep' to count");
+            binding.textViewBleStatus.setVisibility(View.VISIBLE);
+            binding.buttonAddRep.setVisibility(View.VISIBLE);
+        }
+        
+        // The tracker sees the exercise being done
+        if (state.isMovementDetected()) {
+            binding.textViewExerciseName.setTextColor(getColor(com.google.android.material.R.color.design_default_color_primary));
+        } else {
+            binding.textViewExerciseName.setTextColor(getColor(android.R.color.black));
+        }
     }
 
     private void showWorkoutCompleted() {
@@ -693,37 +458,6 @@ public class TraineeWorkoutActivity extends AppCompatActivity {
         binding.layoutWorkoutCompleted.setVisibility(View.VISIBLE);
     }
 
-    @Override
-    protected void onPause() {
-        super.onPause();
-        // Pause timers when activity is paused
-        stopAllTimers();
-    }
-
-    @Override
-    protected void onResume() {
-        super.onResume();
-        // Resume timers if needed
-        Boolean isResting = workoutViewModel.isResting.getValue();
-        Boolean isPaused = workoutViewModel.isPaused.getValue();
-        Boolean isCompleted = workoutViewModel.isWorkoutCompleted.getValue();
-        
-        if (isCompleted != null && isCompleted) {
-            // Don't resume any timers if workout is completed
-            return;
-        }
-        
-        if (isResting != null && isResting) {
-            startRestTimer();
-        } else if (isPaused == null || !isPaused) {
-            DetailedWorkoutPlanDayExercise currentExercise = workoutViewModel.getCurrentExercise();
-            if (currentExercise != null && 
-                currentExercise.getExerciseType().getLogType() == ExerciseType.LogType.duration) {
-                startExerciseTimer();
-            }
-        }
-    }
-
     @Override
     public boolean onCreateOptionsMenu(Menu menu) {
         getMenuInflater().inflate(R.menu.menu_trainee_workout, menu);
@@ -741,6 +475,11 @@ public class TraineeWorkoutActivity extends AppCompatActivity {
             deleteItem.setVisible(canDelete);
         }
         
+        MenuItem engineItem = menu.findItem(R.id.action_rep_counter_engine);
+        if (engineItem != null) {
+            engineItem.setVisible(workoutViewModel.isUsingTracker());
+        }
+        
         return true;
     }
 
@@ -750,6 +489,9 @@ public class TraineeWorkoutActivity extends AppCompatActivity {
         if (itemId == R.id.action_delete_plan) {
             showDeleteConfirmationDialog();
             return true;
+        } else if (itemId == R.id.action_rep_counter_engine) {
+            showRepCounterEngineDialog();
+            return true;
         }
         return super.onOptionsItemSelected(item);
     }
@@ -780,14 +522,10 @@ public class TraineeWorkoutActivity extends AppCompatActivity {
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        stopAllTimers();
         
-        // Cleanup BLE resources
-        if (bleServiceManager != null) {
-            bleServiceManager.cleanup();
-        }
-        if (exerciseCounter != null) {
-            exerciseCounter.reset();
+        if (isFinishing()) {
+            // Left the workout; recreated or only hidden, it keeps running for the next screen
+            workoutViewModel.closeSession();
         }
         
         binding = null;
@@ -47,7 +47,6 @@ public class TraineeWorkoutPlanDayDetailsActivity extends AppCompatActivity {
     private ActivityTraineeWorkoutPlanDayDetailsBinding binding;
     private TraineeWorkoutExerciseAdapter exerciseAdapter;
     private WorkoutDayDetailsViewModel viewModel;
-    private BleServiceManager bleServiceManager;
     
     private int dayId;
     private int dayNumber;
@@ -65,6 +64,9 @@ public class TraineeWorkoutPlanDayDetailsActivity extends AppCompatActivity {
     @Inject
     ExercisesRepository exercisesRepository;
     
+    @Inject
+    BleServiceManager bleServiceManager;
+    
     // Permission request launcher
     private final ActivityResultLauncher<String[]> permissionLauncher = 
         registerForActivityResult(new ActivityResultContracts.RequestMultiplePermissions(), result -> {
@@ -105,9 +107,6 @@ public class TraineeWorkoutPlanDayDetailsActivity extends AppCompatActivity {
         observeViewModel();
         displayDayInfo();
         
-        // Initialize BLE service manager
-        bleServiceManager = new BleServiceManager(this);
-        
         // Load current user ID and plan data
         viewModel.loadCurrentUserId();
         
@@ -227,6 +226,12 @@ public class TraineeWorkoutPlanDayDetailsActivity extends AppCompatActivity {
     }
     
     private void showBleConnectionDialog() {
+        if (bleServiceManager.isConnected()) {
+            // Reuse the link that is still up, no dialog and no reconnect
+            boolean allowRecording = startDate == null || DateUtils.isDayAvailableForRecording(startDate, dayNumber);
+            startWorkout(allowRecording);
+            return;
+        }
         BleConnectionDialog dialog = BleConnectionDialog.newInstance();
         dialog.setBleServiceManager(bleServiceManager);
         dialog.setBleConnectionDialogListener(new BleConnectionDialog.BleConnectionDialogListener() {
@@ -288,7 +293,7 @@ public class TraineeWorkoutPlanDayDetailsActivity extends AppCompatActivity {
         intent.putExtra("USER_WORKOUT_PLAN_ID", "1");
         
         // Pass BLE connection status
-        intent.putExtra("BLE_CONNECTED", bleServiceManager != null && bleServiceManager.isConnected());
+        intent.putExtra("BLE_CONNECTED", bleServiceManager.isConnected());
         
         // Pass flag to indicate we should start with uncompleted exercises only
         intent.putExtra("START_WITH_UNCOMPLETED", true);
@@ -527,9 +532,7 @@ public class TraineeWorkoutPlanDayDetailsActivity extends AppCompatActivity {
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        if (bleServiceManager != null) {
-            bleServiceManager.cleanup();
-        }
+        // The tracker link is app-wide and stays up for the workout screen
         binding = null;
     }
 }
\ No newline at end of file
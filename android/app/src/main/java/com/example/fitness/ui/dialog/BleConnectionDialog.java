@@ -6,6 +6,7 @@ import android.os.Bundle;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.widget.Button;
+import android.widget.CheckBox;
 import android.widget.ProgressBar;
 import android.widget.TextView;
 
@@ -14,8 +15,15 @@ import androidx.appcompat.app.AlertDialog;
 import androidx.fragment.app.DialogFragment;
 
 import com.example.fitness.R;
+import com.example.fitness.ble.BleLinkStats;
 import com.example.fitness.ble.BleServiceManager;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import io.reactivex.rxjava3.android.schedulers.AndroidSchedulers;
+import io.reactivex.rxjava3.disposables.CompositeDisposable;
+
 /**
  * Dialog for BLE device connection with status updates
  */
@@ -34,6 +42,13 @@ public class BleConnectionDialog extends DialogFragment implements BleServiceMan
     private ProgressBar progressBar;
     private Button retryButton;
     private Button cancelButton;
+    private CheckBox secondTrackerCheckBox;
+    private CheckBox recordSessionCheckBox;
+    private CheckBox linkDetailsCheckBox;
+    private TextView linkStatsText;
+    private boolean connected;
+    private final Map<String, BleLinkStats> linkStatsByDevice = new LinkedHashMap<>();
+    private final CompositeDisposable disposables = new CompositeDisposable();
     
     public static BleConnectionDialog newInstance() {
         return new BleConnectionDialog();
@@ -60,10 +75,43 @@ public class BleConnectionDialog extends DialogFragment implements BleServiceMan
         progressBar = view.findViewById(R.id.progressBar);
         retryButton = view.findViewById(R.id.buttonRetry);
         cancelButton = view.findViewById(R.id.buttonCancel);
+        secondTrackerCheckBox = view.findViewById(R.id.checkBoxSecondTracker);
+        recordSessionCheckBox = view.findViewById(R.id.checkBoxRecordSession);
+        linkDetailsCheckBox = view.findViewById(R.id.checkBoxLinkDetails);
+        linkStatsText = view.findViewById(R.id.textViewLinkStats);
+        
+        if (bleServiceManager != null) {
+            // A second tracker, e.g. on the ankle, is fused with the first one
+            secondTrackerCheckBox.setChecked(bleServiceManager.getDeviceCount() > 1);
+            secondTrackerCheckBox.setOnCheckedChangeListener((buttonView, isChecked) -> {
+                bleServiceManager.setDeviceCount(isChecked ? 2 : 1);
+                if (!connected) {
+                    // Search again for the new number of trackers
+                    bleServiceManager.stopScanning();
+                    bleServiceManager.disconnect();
+                    startConnection();
+                }
+            });
+            recordSessionCheckBox.setChecked(bleServiceManager.isSessionRecordingEnabled());
+            recordSessionCheckBox.setOnCheckedChangeListener((buttonView, isChecked) ->
+                bleServiceManager.setSessionRecordingEnabled(isChecked));
+        } else {
+            secondTrackerCheckBox.setVisibility(View.GONE);
+            recordSessionCheckBox.setVisibility(View.GONE);
+            linkDetailsCheckBox.setVisibility(View.GONE);
+        }
+        
+        // Debug panel for tuning the link, keeps the dialog open once connected
+        linkDetailsCheckBox.setOnCheckedChangeListener((buttonView, isChecked) ->
+            linkStatsText.setVisibility(isChecked ? View.VISIBLE : View.GONE));
         
         retryButton.setOnClickListener(v -> startConnection());
         cancelButton.setOnClickListener(v -> {
-            if (listener != null) listener.onBleConnectionCancelled();
+            if (connected) {
+                if (listener != null) listener.onBleConnected();
+            } else if (listener != null) {
+                listener.onBleConnectionCancelled();
+            }
             dismiss();
         });
         
@@ -78,16 +126,50 @@ public class BleConnectionDialog extends DialogFragment implements BleServiceMan
     public void onStart() {
         super.onStart();
         if (bleServiceManager != null) {
-            bleServiceManager.setBleConnectionListener(this);
-            startConnection();
+            bleServiceManager.addBleConnectionListener(this);
+            disposables.add(bleServiceManager.observeLinkStats()
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(this::showLinkStats));
+            if (bleServiceManager.isConnected()) {
+                // The app-wide link is still up from an earlier screen
+                onConnectionStatusChanged(true);
+            } else {
+                startConnection();
+            }
+        }
+    }
+    
+    @Override
+    public void onStop() {
+        super.onStop();
+        disposables.clear();
+        if (bleServiceManager != null) {
+            bleServiceManager.removeBleConnectionListener(this);
         }
     }
     
+    private void showLinkStats(BleLinkStats stats) {
+        linkStatsByDevice.put(stats.getDeviceAddress(), stats);
+        if (linkStatsByDevice.size() == 1) {
+            linkStatsText.setText(stats.format());
+            return;
+        }
+        StringBuilder text = new StringBuilder();
+        for (BleLinkStats deviceStats : linkStatsByDevice.values()) {
+            if (text.length() > 0) {
+                text.append("\n\n");
+            }
+            text.append(deviceStats.getDeviceAddress()).append('\n').append(deviceStats.format());
+        }
+        linkStatsText.setText(text);
+    }
+    
     private void startConnection() {
         statusText.setText("Searching for exercise tracker device...");
         deviceText.setText("");
         progressBar.setVisibility(View.VISIBLE);
         retryButton.setVisibility(View.GONE);
+        linkStatsByDevice.clear();
         
         if (bleServiceManager != null) {
             if (!bleServiceManager.isBluetoothEnabled()) {
@@ -100,23 +182,42 @@ public class BleConnectionDialog extends DialogFragment implements BleServiceMan
                 return;
             }
             
-            bleServiceManager.startScanning();
+            bleServiceManager.connect();
         }
     }
     
     @Override
     public void onConnectionStatusChanged(boolean isConnected) {
+        connected = isConnected;
         if (isConnected) {
             statusText.setText("Connected successfully!");
-            deviceText.setText("Exercise tracker is ready");
+            int expected = bleServiceManager.getDeviceCount();
+            int found = bleServiceManager.getConnectedDeviceCount();
+            if (found < expected) {
+                // The others join the session as soon as they are found
+                deviceText.setText(found + " of " + expected + " trackers ready");
+            } else {
+                deviceText.setText("Exercise tracker is ready");
+            }
             progressBar.setVisibility(View.GONE);
             
+            if (linkDetailsCheckBox.isChecked()) {
+                // Stay open to watch the link, closed with the button
+                cancelButton.setText("Done");
+                return;
+            }
+            
             // Delay to show success message, then dismiss
             statusText.postDelayed(() -> {
+                if (linkDetailsCheckBox.isChecked()) {
+                    cancelButton.setText("Done");
+                    return;
+                }
                 if (listener != null) listener.onBleConnected();
                 dismiss();
             }, 1500);
         } else {
+            cancelButton.setText("Cancel");
             statusText.setText("Connection lost");
             progressBar.setVisibility(View.GONE);
             retryButton.setVisibility(View.VISIBLE);
@@ -125,15 +226,9 @@ public class BleConnectionDialog extends DialogFragment implements BleServiceMan
     
     @Override
     public void onDeviceFound(String deviceName, String deviceAddress) {
+        // The scan is filtered on the tracker's service, anything found is the tracker
         deviceText.setText("Found: " + deviceName + " (" + deviceAddress + ")");
-        if ("MyESP32".equals(deviceName) || "8C:D0:B2:A8:74:F4".equals(deviceAddress)) {
-            statusText.setText("Connecting to exercise tracker...");
-        }
-    }
-    
-    @Override
-    public void onDataReceived(String data) {
-        // Not needed for connection dialog
+        statusText.setText("Connecting to exercise tracker...");
     }
     
     @Override
@@ -152,12 +247,4 @@ public class BleConnectionDialog extends DialogFragment implements BleServiceMan
     public void onScanStopped() {
         // Handle in other callbacks
     }
-    
-    @Override
-    public void onDestroy() {
-        super.onDestroy();
-        if (bleServiceManager != null) {
-            bleServiceManager.cleanup();
-        }
-    }
 }
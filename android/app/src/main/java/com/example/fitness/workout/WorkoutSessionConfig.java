@@ -0,0 +1,63 @@
+package com.example.fitness.workout;
+
+import com.example.fitness.ble.RepCounter;
+
+/**
+ * What a workout session is for and how it counts, fixed when it is opened. Immutable.
+ */
+public final class WorkoutSessionConfig {
+
+    private final String planId;
+    private final int dayNumber;
+    private final String userWorkoutPlanId;
+    private final boolean allowRecording;
+    private final boolean useTracker;
+    private final RepCounter.Engine repCounterEngine;
+
+    /**
+     * @param userWorkoutPlanId Null to not record the session
+     * @param allowRecording    False for practice runs, nothing is recorded
+     * @param useTracker        Count reps with the exercise tracker rather than by tapping
+     */
+    public WorkoutSessionConfig(String planId, int dayNumber, String userWorkoutPlanId, boolean allowRecording,
+                                boolean useTracker, RepCounter.Engine repCounterEngine) {
+        this.planId = planId;
+        this.dayNumber = dayNumber;
+        this.userWorkoutPlanId = userWorkoutPlanId;
+        this.allowRecording = allowRecording;
+        this.useTracker = useTracker;
+        this.repCounterEngine = repCounterEngine;
+    }
+
+    /**
+     * Whether this is the same workout, i.e. the same day of the same plan
+     */
+    public boolean isSameWorkoutAs(WorkoutSessionConfig other) {
+        return other != null && dayNumber == other.dayNumber
+                && (planId != null ? planId.equals(other.planId) : other.planId == null);
+    }
+
+    public String getPlanId() {
+        return planId;
+    }
+
+    public int getDayNumber() {
+        return dayNumber;
+    }
+
+    public String getUserWorkoutPlanId() {
+        return userWorkoutPlanId;
+    }
+
+    public boolean isAllowRecording() {
+        return allowRecording;
+    }
+
+    public boolean isUseTracker() {
+        return useTracker;
+    }
+
+    public RepCounter.Engine getRepCounterEngine() {
+        return repCounterEngine;
+    }
+}
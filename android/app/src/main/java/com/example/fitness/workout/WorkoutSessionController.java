@@ -0,0 +1,851 @@
+package com.example.fitness.workout;
+
+import android.content.Context;
+import android.content.Intent;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import com.example.fitness.ble.BleProcessingPipeline;
+import com.example.fitness.ble.BleServiceManager;
+import com.example.fitness.ble.CounterEvent;
+import com.example.fitness.ble.RepCounter;
+import com.example.fitness.ble.SensorProfile;
+import com.example.fitness.ble.SmoothingConfig;
+import com.example.fitness.data.network.model.generated.DetailedWorkoutPlanDayExercise;
+import com.example.fitness.data.network.model.generated.ExerciseType;
+import com.example.fitness.data.network.model.generated.RecordWorkoutSession;
+import com.example.fitness.data.repository.ExercisesRepository;
+import com.example.fitness.data.sync.ExerciseResultQueue;
+import com.example.fitness.data.sync.WorkoutSessionRecorder;
+
+import java.util.List;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import dagger.hilt.android.qualifiers.ApplicationContext;
+
+/**
+ * The workout in progress: its exercises, the countdowns, the tracker stream, rep counting
+ * and what gets recorded. App-wide like {@link BleServiceManager}, so it does not depend on
+ * a screen being open: with the screen off or another app in front counting goes on, and a
+ * recreated screen rejoins the session as it is. {@link WorkoutSessionService} keeps the
+ * process in the foreground while a session runs. Called on the main thread only.
+ */
+@Singleton
+public class WorkoutSessionController {
+
+    private static final String TAG = "WorkoutSessionController";
+
+    private static final int REST_SECONDS = 10; // Rest between exercises
+    private static final int DEFAULT_EXERCISE_SECONDS = 30; // Timed exercises without a target
+    private static final int BLE_PREWARM_SECONDS = 3; // Before the rest ends, see prewarmTrackerForNextExercise()
+    private static final long AUTO_COMPLETE_DELAY_MS = 2000; // Once the target reps are reached
+
+    private static final String KEY_PHASE = "phase";
+    private static final String KEY_UPCOMING_EXERCISE_ID = "upcoming_exercise_id";
+    private static final String KEY_TIMER = "timer";
+
+    private final Context context;
+    private final BleServiceManager bleServiceManager;
+    private final ExercisesRepository exercisesRepository;
+    private final ExerciseResultQueue exerciseResultQueue;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final WorkoutTimerEngine timer;
+    private final Runnable autoComplete = this::completeExercise;
+
+    private final MutableLiveData<List<DetailedWorkoutPlanDayExercise>> _exercises = new MutableLiveData<>();
+    public final LiveData<List<DetailedWorkoutPlanDayExercise>> exercises = _exercises;
+
+    // Phase, exercise, countdown and reps in one value, screens render whatever it says
+    private final MutableLiveData<WorkoutSessionState> _sessionState = new MutableLiveData<>(WorkoutSessionState.NOT_STARTED);
+    public final LiveData<WorkoutSessionState> sessionState = _sessionState;
+
+    // Something to tell the user, cleared once shown
+    private final MutableLiveData<String> _message = new MutableLiveData<>();
+    public final LiveData<String> message = _message;
+
+    private WorkoutSessionConfig config; // Null while no session is open
+    private Intent sessionIntent; // Opens the screen showing the session
+    private Bundle restoredSession; // From before process death, until the exercises are back
+    private WorkoutSessionRecorder sessionRecorder; // Null when not recording
+
+    // Tracker, held for the whole session
+    private BleServiceManager.BleConnectionListener bleConnectionListener;
+    private BleProcessingPipeline.PredictionListener predictionListener;
+    private BleProcessingPipeline.ImuSampleListener imuSampleListener;
+    private volatile RepCounter exerciseCounter; // Used from the BLE processing thread
+    private volatile int rawSampleRateHz; // Set on the BLE processing thread, 0 until known
+    private RepCounter.Engine repCounterEngine = RepCounter.Engine.CLASSIFIER;
+    private boolean isBleConnected;
+    private String detectedExerciseLabel; // What the tracker thinks the user is doing, since the step started
+    private long stepStartedAtMs;
+
+    @Inject
+    public WorkoutSessionController(@ApplicationContext Context context, BleServiceManager bleServiceManager,
+                                    ExercisesRepository exercisesRepository, ExerciseResultQueue exerciseResultQueue) {
+        this.context = context;
+        this.bleServiceManager = bleServiceManager;
+        this.exercisesRepository = exercisesRepository;
+        this.exerciseResultQueue = exerciseResultQueue;
+
+        timer = new WorkoutTimerEngine(new WorkoutTimerEngine.Listener() {
+            @Override
+            public void onSecondsRemainingChanged(int secondsRemaining) {
+                setState(getState().withSecondsRemaining(secondsRemaining));
+                if (getState().isResting() && secondsRemaining <= BLE_PREWARM_SECONDS) {
+                    prewarmTrackerForNextExercise();
+                }
+            }
+
+            @Override
+            public void onFinished() {
+                if (getState().isResting()) {
+                    nextExercise();
+                } else if (getState().isExercising()) {
+                    completeExercise();
+                }
+            }
+        });
+    }
+
+    /**
+     * Opens a session for a screen, or rejoins the one running for the same workout.
+     *
+     * @param sessionIntent Brings the screen back, e.g. from the notification
+     * @param restoredState From {@link #saveState()} before the process died, or null
+     * @return true when rejoining a session that has its exercises, they need not be loaded
+     */
+    public boolean open(WorkoutSessionConfig config, Intent sessionIntent, Bundle restoredState) {
+        this.sessionIntent = sessionIntent;
+        if (config.isSameWorkoutAs(this.config)) {
+            Log.d(TAG, "♻️ Rejoining the running workout");
+            return _exercises.getValue() != null;
+        }
+
+        close();
+        Log.d(TAG, "🏋️ Opening a workout session for day " + config.getDayNumber());
+        this.config = config;
+        restoredSession = restoredState;
+        repCounterEngine = config.getRepCounterEngine();
+        if (config.isUseTracker()) {
+            attachTracker();
+        }
+        WorkoutSessionService.start(context);
+        return false;
+    }
+
+    /**
+     * Ends the session because the user left it, what was done so far is uploaded
+     */
+    public void close() {
+        if (config == null) {
+            return;
+        }
+        Log.d(TAG, "🏁 Closing the workout session");
+        // Left before the end, upload what was done so far
+        finishSession(false);
+        stopRunning();
+        config = null;
+        sessionIntent = null;
+        restoredSession = null;
+        sessionRecorder = null;
+        _exercises.setValue(null);
+        _message.setValue(null);
+        _sessionState.setValue(WorkoutSessionState.NOT_STARTED);
+    }
+
+    public boolean isOpen() {
+        return config != null;
+    }
+
+    public Intent getSessionIntent() {
+        return sessionIntent;
+    }
+
+    public void setExercises(List<DetailedWorkoutPlanDayExercise> exercises) {
+        List<DetailedWorkoutPlanDayExercise> previousExercises = _exercises.getValue();
+        if (config == null || exercises == null || exercises.isEmpty() || exercises.equals(previousExercises)) {
+            // Same exercises again, e.g. delivered to a recreated screen, the workout goes on
+            return;
+        }
+        WorkoutSessionState state = getState();
+        int upcomingExerciseId = getUpcomingExerciseId();
+        _exercises.setValue(exercises);
+
+        if (sessionRecorder == null && config.getUserWorkoutPlanId() != null && config.isAllowRecording()) {
+            sessionRecorder = new WorkoutSessionRecorder(Integer.parseInt(config.getUserWorkoutPlanId()),
+                    exercises.get(0).getWorkoutPlanDayId(), SystemClock.elapsedRealtime());
+        }
+
+        // Pick up where the workout was, found by exercise since a reloaded list may
+        // leave out the exercises completed since
+        if (restoredSession != null) {
+            Bundle session = restoredSession;
+            restoredSession = null;
+            if (resumeSession(session)) {
+                return;
+            }
+        } else if (previousExercises != null && (state.isResting() || state.isExercising())) {
+            int upcomingIndex = indexOfExercise(exercises, upcomingExerciseId);
+            if (upcomingIndex >= 0) {
+                // The countdown keeps running
+                setState(state.withExerciseIndex(state.isResting() ? upcomingIndex - 1 : upcomingIndex));
+                return;
+            }
+        }
+
+        // Start with rest period before first exercise
+        timer.stop();
+        setState(WorkoutSessionState.NOT_STARTED);
+        startRestPeriod();
+    }
+
+    public DetailedWorkoutPlanDayExercise getCurrentExercise() {
+        return getExercise(getState().getExerciseIndex());
+    }
+
+    public DetailedWorkoutPlanDayExercise getNextExercise() {
+        return getExercise(getState().getExerciseIndex() + 1);
+    }
+
+    private DetailedWorkoutPlanDayExercise getExercise(int index) {
+        List<DetailedWorkoutPlanDayExercise> exerciseList = _exercises.getValue();
+
+        if (exerciseList != null && index >= 0 && index < exerciseList.size()) {
+            return exerciseList.get(index);
+        }
+        return null;
+    }
+
+    public int getTotalExerciseCount() {
+        List<DetailedWorkoutPlanDayExercise> exerciseList = _exercises.getValue();
+        return exerciseList != null ? exerciseList.size() : 0;
+    }
+
+    public void skipRestPeriod() {
+        if (getState().isResting()) {
+            nextExercise();
+        }
+    }
+
+    public void skipExercise() {
+        if (!getState().isExercising()) {
+            return;
+        }
+        // No result, but the session keeps that it was skipped
+        if (sessionRecorder != null) {
+            sessionRecorder.skipSet(SystemClock.elapsedRealtime());
+            saveSessionSnapshot();
+        }
+        proceedToNextExercise();
+    }
+
+    public void completeExercise() {
+        // Also reached from delayed callbacks, which may come after the exercise ended
+        if (!getState().isExercising()) {
+            return;
+        }
+        DetailedWorkoutPlanDayExercise currentExercise = getCurrentExercise();
+        if (currentExercise != null) {
+            if (currentExercise.getExerciseType().getLogType() == ExerciseType.LogType.reps) {
+                // For reps, record what the tracker or the taps counted, the target if nothing was
+                WorkoutSessionState state = getState();
+                Integer reps = currentExercise.getTargetReps();
+                if (state.getRepSource() != WorkoutSessionState.RepSource.NONE && state.getRepCount() > 0) {
+                    reps = state.getRepCount();
+                }
+                recordCurrentExerciseResult(reps, null);
+            } else {
+                // For duration, record the target duration minus remaining time
+                Integer targetDuration = currentExercise.getTargetDuration();
+                int timeRemaining = getState().getSecondsRemaining();
+                if (targetDuration != null && timeRemaining != WorkoutSessionState.NO_COUNTDOWN) {
+                    int completedDuration = targetDuration - timeRemaining;
+                    recordCurrentExerciseResult(null, completedDuration);
+                } else {
+                    recordCurrentExerciseResult(null, targetDuration);
+                }
+            }
+        }
+    }
+
+    public void togglePause() {
+        WorkoutSessionState state = getState();
+        if (state.isPaused()) {
+            timer.resume();
+        } else {
+            timer.pause();
+        }
+        setState(state.withPaused(!state.isPaused()));
+    }
+
+    /**
+     * A rep the user counted by tapping
+     */
+    public void addManualRep() {
+        if (getState().isExercising()) {
+            onRepCounted(getState().getRepCount() + 1, SystemClock.elapsedRealtime(), false);
+        }
+    }
+
+    public boolean isUsingTracker() {
+        return bleConnectionListener != null;
+    }
+
+    public RepCounter.Engine getRepCounterEngine() {
+        return repCounterEngine;
+    }
+
+    public void setRepCounterEngine(RepCounter.Engine engine) {
+        if (engine == repCounterEngine) {
+            return;
+        }
+        repCounterEngine = engine;
+        Log.d(TAG, "⚙️ Rep counter engine: " + repCounterEngine);
+
+        // Rebuild the counter for the exercise in progress
+        exerciseCounter = null;
+        DetailedWorkoutPlanDayExercise currentExercise = getCurrentExercise();
+        if (currentExercise != null) {
+            // The signal engine wants raw samples instead of predictions
+            applySensorProfile(currentExercise);
+        }
+        if (currentExercise != null && getState().isExercising() &&
+            currentExercise.getExerciseType().getLogType() != ExerciseType.LogType.duration) {
+            setupRepCounting(currentExercise);
+        }
+    }
+
+    public void clearMessage() {
+        _message.setValue(null);
+    }
+
+    /**
+     * Only what the exercises and the clock cannot tell: the step, which exercise, and the
+     * countdown's deadline
+     */
+    public Bundle saveState() {
+        if (restoredSession != null) {
+            // Died again before the exercises came back
+            return restoredSession;
+        }
+        Bundle session = new Bundle();
+        session.putString(KEY_PHASE, getState().getPhase().name());
+        session.putInt(KEY_UPCOMING_EXERCISE_ID, getUpcomingExerciseId());
+        session.putBundle(KEY_TIMER, timer.saveState());
+        return session;
+    }
+
+    private void nextExercise() {
+        List<DetailedWorkoutPlanDayExercise> exerciseList = _exercises.getValue();
+
+        if (exerciseList != null) {
+            int nextIndex = getState().getExerciseIndex() + 1;
+
+            if (nextIndex >= exerciseList.size()) {
+                // Workout completed
+                completeWorkout();
+            } else {
+                // Move to next exercise
+                proceedToExercise(nextIndex);
+            }
+        }
+    }
+
+    private void startRestPeriod() {
+        mainHandler.removeCallbacks(autoComplete);
+        if (sessionRecorder != null) {
+            sessionRecorder.startRest(SystemClock.elapsedRealtime());
+        }
+        timer.start(REST_SECONDS);
+        setState(new WorkoutSessionState(WorkoutSessionState.Phase.RESTING,
+                getState().getExerciseIndex(), REST_SECONDS, false));
+        onStepStarted();
+    }
+
+    private void proceedToExercise(int index) {
+        mainHandler.removeCallbacks(autoComplete);
+        DetailedWorkoutPlanDayExercise exercise = getExercise(index);
+        if (sessionRecorder != null && exercise != null) {
+            sessionRecorder.startSet(exercise, SystemClock.elapsedRealtime());
+        }
+
+        // Set timer for the exercise if it's duration-based
+        int countdown = WorkoutSessionState.NO_COUNTDOWN;
+        if (exercise != null && exercise.getExerciseType().getLogType() == ExerciseType.LogType.duration) {
+            Integer duration = exercise.getTargetDuration();
+            countdown = duration != null ? duration : DEFAULT_EXERCISE_SECONDS;
+            timer.start(countdown);
+        } else {
+            timer.stop();
+        }
+        setState(new WorkoutSessionState(WorkoutSessionState.Phase.EXERCISING, index, countdown, false));
+        onStepStarted();
+    }
+
+    /**
+     * What the tracker does for the step just entered
+     */
+    private void onStepStarted() {
+        // Only what the tracker sees from now on may move the workout along
+        detectedExerciseLabel = null;
+        stepStartedAtMs = SystemClock.elapsedRealtime();
+        if (getState().isResting()) {
+            // Nothing is counted while resting, let the link and the tracker idle
+            setTrackerLowPowerMode(true);
+            return;
+        }
+        DetailedWorkoutPlanDayExercise currentExercise = getCurrentExercise();
+        if (getState().isExercising() && currentExercise != null) {
+            setTrackerLowPowerMode(false);
+            applySensorProfile(currentExercise);
+            if (currentExercise.getExerciseType().getLogType() == ExerciseType.LogType.reps) {
+                setupRepCounting(currentExercise);
+            }
+        }
+    }
+
+    private void proceedToNextExercise() {
+        // Check if this was the last exercise
+        List<DetailedWorkoutPlanDayExercise> exerciseList = _exercises.getValue();
+
+        if (exerciseList != null && getState().getExerciseIndex() >= exerciseList.size() - 1) {
+            // This was the last exercise, complete workout
+            completeWorkout();
+        } else {
+            // Start rest period before next exercise
+            startRestPeriod();
+        }
+    }
+
+    private void completeWorkout() {
+        finishSession(true);
+        // Nothing left to keep running, the screen shows the result until it is closed
+        stopRunning();
+        setState(new WorkoutSessionState(WorkoutSessionState.Phase.COMPLETED,
+                getState().getExerciseIndex(), WorkoutSessionState.NO_COUNTDOWN, false));
+    }
+
+    private void stopRunning() {
+        timer.stop();
+        mainHandler.removeCallbacks(autoComplete);
+        detachTracker();
+        WorkoutSessionService.stop(context);
+    }
+
+    private void recordCurrentExerciseResult(Integer reps, Integer duration) {
+        DetailedWorkoutPlanDayExercise currentExercise = getCurrentExercise();
+        if (currentExercise == null || sessionRecorder == null) {
+            // Skip recording and proceed to next exercise
+            proceedToNextExercise();
+            return;
+        }
+
+        // Calculate estimated calories based on exercise type and duration/reps
+        Integer estimatedCalories = null;
+        if (currentExercise.getEstimatedCalories() != null) {
+            estimatedCalories = currentExercise.getEstimatedCalories();
+        }
+
+        // Committed locally and uploaded with the whole session, a bad connection neither
+        // holds up the workout nor loses the result
+        sessionRecorder.completeSet(reps, duration, estimatedCalories, SystemClock.elapsedRealtime());
+        saveSessionSnapshot();
+        proceedToNextExercise();
+    }
+
+    private void saveSessionSnapshot() {
+        exerciseResultQueue.saveSession(sessionRecorder.snapshot(SystemClock.elapsedRealtime()), false);
+    }
+
+    /**
+     * Ends the session and queues it for upload, once
+     *
+     * @param done Whether every exercise was reached
+     */
+    private void finishSession(boolean done) {
+        if (sessionRecorder == null || sessionRecorder.isFinished()) {
+            return;
+        }
+        RecordWorkoutSession session = sessionRecorder.finish(done, SystemClock.elapsedRealtime());
+        if (sessionRecorder.hasSets()) {
+            exerciseResultQueue.saveSession(session, true);
+        }
+    }
+
+    private WorkoutSessionState getState() {
+        return _sessionState.getValue();
+    }
+
+    private void setState(WorkoutSessionState state) {
+        // Observers only hear about actual changes, e.g. a new second on the countdown
+        if (!state.equals(_sessionState.getValue())) {
+            _sessionState.setValue(state);
+        }
+    }
+
+    /**
+     * Id of the exercise the current step leads to: the one in progress, or the one
+     * after the rest. -1 if there is none.
+     */
+    private int getUpcomingExerciseId() {
+        WorkoutSessionState state = getState();
+        int index = state.isResting() ? state.getExerciseIndex() + 1 : state.getExerciseIndex();
+        DetailedWorkoutPlanDayExercise exercise = getExercise(index);
+        return exercise != null ? exercise.getId() : -1;
+    }
+
+    private static int indexOfExercise(List<DetailedWorkoutPlanDayExercise> exercises, int exerciseId) {
+        for (int i = 0; i < exercises.size(); i++) {
+            if (exercises.get(i).getId() == exerciseId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return false if the saved step is not in the exercises, the workout starts over then
+     */
+    private boolean resumeSession(Bundle session) {
+        List<DetailedWorkoutPlanDayExercise> exerciseList = _exercises.getValue();
+        WorkoutSessionState.Phase phase = WorkoutSessionState.Phase.valueOf(
+                session.getString(KEY_PHASE, WorkoutSessionState.Phase.NOT_STARTED.name()));
+        if (phase == WorkoutSessionState.Phase.COMPLETED) {
+            stopRunning();
+            setState(new WorkoutSessionState(phase, exerciseList.size() - 1, WorkoutSessionState.NO_COUNTDOWN, false));
+            return true;
+        }
+        int upcomingIndex = indexOfExercise(exerciseList, session.getInt(KEY_UPCOMING_EXERCISE_ID, -1));
+        if (upcomingIndex < 0 || phase == WorkoutSessionState.Phase.NOT_STARTED) {
+            return false;
+        }
+
+        int index = phase == WorkoutSessionState.Phase.RESTING ? upcomingIndex - 1 : upcomingIndex;
+        if (sessionRecorder != null) {
+            // The sets before are already with the queue, the recorder starts a new session
+            if (phase == WorkoutSessionState.Phase.RESTING) {
+                sessionRecorder.startRest(SystemClock.elapsedRealtime());
+            } else {
+                sessionRecorder.startSet(exerciseList.get(index), SystemClock.elapsedRealtime());
+            }
+        }
+        // A countdown that ran out meanwhile finishes right after, as if it had kept running
+        timer.restoreState(session.getBundle(KEY_TIMER));
+        setState(new WorkoutSessionState(phase, index, timer.getSecondsRemaining(), timer.isPaused()));
+        onStepStarted();
+        return true;
+    }
+
+    private void attachTracker() {
+        isBleConnected = true;
+        bleConnectionListener = new BleServiceManager.BleConnectionListener() {
+            @Override
+            public void onConnectionStatusChanged(boolean isConnected) {
+                isBleConnected = isConnected;
+                if (!isConnected) {
+                    Log.d(TAG, "❌ Exercise tracker disconnected");
+                    _message.setValue("Exercise tracker disconnected. Manual rep counting will be used.");
+                } else {
+                    Log.d(TAG, "🔗 Exercise tracker connected successfully");
+                }
+            }
+
+            @Override
+            public void onDeviceFound(String deviceName, String deviceAddress) {
+                Log.d(TAG, "📱 Found device: " + deviceName + " (" + deviceAddress + ")");
+            }
+
+            @Override
+            public void onError(String error) {
+                Log.d(TAG, "❌ BLE Error: " + error);
+                _message.setValue("BLE Error: " + error);
+            }
+
+            @Override
+            public void onScanStarted() {
+                Log.d(TAG, "🔍 Scanning for exercise tracker...");
+            }
+
+            @Override
+            public void onScanStopped() {
+                Log.d(TAG, "🛑 Scan stopped");
+            }
+        };
+        // Listening for the whole session also keeps the link from closing as idle
+        bleServiceManager.addBleConnectionListener(bleConnectionListener);
+
+        // Predictions are decoded and counted on the BLE processing thread,
+        // the counter only posts rep and state changes back to the main thread
+        predictionListener = frame -> {
+            RepCounter counter = exerciseCounter;
+            if (counter != null) {
+                counter.processPrediction(frame);
+            }
+        };
+        imuSampleListener = new BleProcessingPipeline.ImuSampleListener() {
+            @Override
+            public void onImuSample(float ax, float ay, float az, float gx, float gy, float gz, long receivedAtMs) {
+                RepCounter counter = exerciseCounter;
+                if (counter != null) {
+                    counter.processSample(ax, ay, az, gx, gy, gz, receivedAtMs);
+                }
+            }
+
+            @Override
+            public void onSampleRateChanged(int sampleRateHz) {
+                // What the tracker applied, counters created later start from it too
+                rawSampleRateHz = sampleRateHz;
+                RepCounter counter = exerciseCounter;
+                if (counter != null) {
+                    counter.setSampleRate(sampleRateHz);
+                }
+            }
+        };
+        bleServiceManager.setPredictionListener(predictionListener);
+        bleServiceManager.setImuSampleListener(imuSampleListener);
+
+        if (bleServiceManager.isConnected()) {
+            // Connected on the previous screen, start counting on the live link
+            Log.d(TAG, "♻️ Reusing the connected exercise tracker");
+            return;
+        }
+
+        // The link dropped since the previous screen, connect again
+        Log.d(TAG, "🚀 Starting BLE connection...");
+        if (bleServiceManager.isBluetoothEnabled() && bleServiceManager.hasRequiredPermissions()) {
+            bleServiceManager.connect();
+        } else {
+            Log.d(TAG, "❌ Bluetooth not enabled or missing permissions");
+            isBleConnected = false;
+        }
+    }
+
+    /**
+     * Stop listening, the link stays up for the next workout and closes itself when idle
+     */
+    private void detachTracker() {
+        if (bleConnectionListener != null) {
+            bleServiceManager.removeBleConnectionListener(bleConnectionListener);
+            bleServiceManager.removePredictionListener(predictionListener);
+            bleServiceManager.removeImuSampleListener(imuSampleListener);
+            bleServiceManager.setLowPowerMode(false);
+            bleServiceManager.setSensorProfile(SensorProfile.DEFAULT);
+            bleConnectionListener = null;
+            predictionListener = null;
+            imuSampleListener = null;
+            rawSampleRateHz = 0;
+        }
+        RepCounter counter = exerciseCounter;
+        if (counter != null) {
+            exerciseCounter = null;
+            counter.reset();
+        }
+        isBleConnected = false;
+        detectedExerciseLabel = null;
+    }
+
+    private void setupRepCounting(DetailedWorkoutPlanDayExercise exercise) {
+        if (!isBleConnected) {
+            // BLE not connected, the user counts by tapping
+            setState(getState().withRepCount(0).withRepSource(WorkoutSessionState.RepSource.MANUAL));
+            return;
+        }
+
+        // Get exercise label for BLE matching
+        String exerciseName = exercise.getExerciseType().getName();
+        String exerciseLabel = exercisesRepository.getExerciseLabelByName(exerciseName);
+        Log.d(TAG, "🔍 Looking for exercise label: " + exerciseName + " -> " + exerciseLabel);
+
+        if (exerciseLabel == null) {
+            Log.d(TAG, "❌ No exercise label found for: " + exerciseName);
+            Log.d(TAG, "📋 Available exercise labels: " + exercisesRepository.getAllExerciseLabels());
+            _message.setValue("BLE rep counting not available for this exercise");
+            setState(getState().withRepCount(0).withRepSource(WorkoutSessionState.RepSource.NONE));
+            return;
+        }
+
+        long repTempoMs = exercisesRepository.getExerciseRepTempoByName(exerciseName);
+        SmoothingConfig smoothing = exercisesRepository.getExerciseSmoothingByName(exerciseName);
+        RepCounter counter = exerciseCounter;
+        if (counter == null) {
+            Log.d(TAG, "🏗️ Creating " + repCounterEngine + " exercise counter for: " + exerciseLabel);
+            counter = repCounterEngine.create(exerciseLabel, repTempoMs, smoothing, rawSampleRateHz);
+            counter.setVerbosity(getCounterVerbosity());
+            counter.setRepCountListener(createRepCountListener());
+            counter.setExerciseDetectionListener((detectedLabel, confidence) -> {
+                long detectedAtMs = SystemClock.elapsedRealtime();
+                mainHandler.post(() -> onExerciseDetected(detectedLabel, detectedAtMs));
+            });
+            // Publish only once the listeners are attached, the BLE thread may use it right away
+            exerciseCounter = counter;
+        } else {
+            // Same counter for the whole workout, switch the exercise on the BLE thread
+            Log.d(TAG, "🎯 Switching exercise counter to: " + exerciseLabel);
+            RepCounter activeCounter = counter;
+            bleServiceManager.runOnProcessingThread(() ->
+                activeCounter.setActiveExercise(exerciseLabel, repTempoMs, smoothing));
+        }
+
+        _message.setValue("BLE rep counting enabled for " + exerciseName);
+        setState(getState().withRepCount(0).withRepSource(WorkoutSessionState.RepSource.TRACKER));
+
+        Log.d(TAG, "🚀 BLE Rep Counter Started");
+        Log.d(TAG, "🏃 Monitoring " + exerciseLabel + " reps...");
+        Log.d(TAG, "------------------------------------");
+    }
+
+    /**
+     * Ask the tracker for the cheapest sampling that still resolves this exercise's reps
+     */
+    private void applySensorProfile(DetailedWorkoutPlanDayExercise exercise) {
+        if (bleConnectionListener == null) {
+            return;
+        }
+        long repTempoMs = exercisesRepository.getExerciseRepTempoByName(exercise.getExerciseType().getName());
+        boolean rawSamples = repCounterEngine == RepCounter.Engine.SIGNAL;
+        bleServiceManager.setSensorProfile(SensorProfile.forRepTempo(repTempoMs, rawSamples));
+    }
+
+    private void setTrackerLowPowerMode(boolean lowPower) {
+        if (bleConnectionListener != null) {
+            bleServiceManager.setLowPowerMode(lowPower);
+        }
+    }
+
+    /**
+     * Leave low-power mode a few seconds before the rest ends, so the connection interval
+     * and the tracker's window are back up by the first rep
+     */
+    private void prewarmTrackerForNextExercise() {
+        if (bleConnectionListener == null || !bleServiceManager.isLowPowerMode()) {
+            return;
+        }
+        Log.d(TAG, "🔥 Pre-warming the tracker for the next exercise");
+        DetailedWorkoutPlanDayExercise nextExercise = getNextExercise();
+        if (nextExercise != null) {
+            // Stored while in low-power mode, sent when leaving it
+            applySensorProfile(nextExercise);
+        }
+        bleServiceManager.setLowPowerMode(false);
+    }
+
+    /**
+     * Counter diagnostics go to logcat on demand only, e.g.
+     * {@code adb shell setprop log.tag.WorkoutSessionController VERBOSE} for every prediction
+     */
+    private static CounterEvent.Verbosity getCounterVerbosity() {
+        if (Log.isLoggable(TAG, Log.VERBOSE)) {
+            return CounterEvent.Verbosity.SAMPLES;
+        }
+        return Log.isLoggable(TAG, Log.DEBUG) ? CounterEvent.Verbosity.EVENTS : CounterEvent.Verbosity.OFF;
+    }
+
+    private RepCounter.RepCountListener createRepCountListener() {
+        return new RepCounter.RepCountListener() {
+            @Override
+            public void onRepCompleted(int repCount) {
+                onRepCompleted(repCount, SystemClock.elapsedRealtime());
+            }
+
+            @Override
+            public void onRepCompleted(int repCount, long sampledAtMs) {
+                mainHandler.post(() -> {
+                    if (getState().isExercising()) {
+                        onRepCounted(repCount, sampledAtMs, true);
+                    }
+                });
+            }
+
+            @Override
+            public void onExerciseStateChanged(boolean isDoingExercise, String exerciseName, double confidence) {
+                mainHandler.post(() -> setState(getState().withMovementDetected(isDoingExercise)));
+            }
+
+            @Override
+            public void onCounterEvent(CounterEvent event) {
+                // Formatted only here, the counter only reports what the verbosity lets through
+                Log.d(TAG, event.format());
+            }
+        };
+    }
+
+    /**
+     * @param autoComplete Whether reaching the target finishes the exercise, as it does when
+     *                     the tracker counts
+     */
+    private void onRepCounted(int repCount, long sampledAtMs, boolean autoComplete) {
+        if (sessionRecorder != null) {
+            sessionRecorder.recordRep(sampledAtMs);
+        }
+        setState(getState().withRepCount(repCount));
+
+        // Check if target reached
+        DetailedWorkoutPlanDayExercise currentExercise = getCurrentExercise();
+        Integer targetReps = currentExercise != null ? currentExercise.getTargetReps() : null;
+        if (targetReps != null && repCount >= targetReps) {
+            _message.setValue("Target reps reached! Great job!");
+            if (autoComplete) {
+                // Auto-complete after a brief delay
+                mainHandler.removeCallbacks(this.autoComplete);
+                mainHandler.postDelayed(this.autoComplete, AUTO_COMPLETE_DELAY_MS);
+            }
+        }
+    }
+
+    /**
+     * @param detectedAtMs When the tracker saw it, a detection from before the current step
+     *                     is ignored
+     */
+    private void onExerciseDetected(String exerciseLabel, long detectedAtMs) {
+        if (detectedAtMs < stepStartedAtMs) {
+            return;
+        }
+        detectedExerciseLabel = exerciseLabel;
+        Log.d(TAG, "🔎 Detected exercise: " + (exerciseLabel != null ? exerciseLabel : "none"));
+        autoAdvanceIfNextExerciseDetected();
+    }
+
+    /**
+     * Move on when the tracker sees the user already doing the next exercise:
+     * skip the rest period, or finish the current exercise if it is still running.
+     */
+    private void autoAdvanceIfNextExerciseDetected() {
+        if (detectedExerciseLabel == null || config == null) {
+            return;
+        }
+        DetailedWorkoutPlanDayExercise nextExercise = getNextExercise();
+        if (nextExercise == null) {
+            return;
+        }
+        String nextLabel = exercisesRepository.getExerciseLabelByName(nextExercise.getExerciseType().getName());
+        if (!detectedExerciseLabel.equalsIgnoreCase(nextLabel)) {
+            return;
+        }
+        // The same exercise again, e.g. another set, cannot be told apart from carrying on
+        // with this one
+        DetailedWorkoutPlanDayExercise currentExercise = getCurrentExercise();
+        String currentLabel = currentExercise != null
+                ? exercisesRepository.getExerciseLabelByName(currentExercise.getExerciseType().getName()) : null;
+        if (nextLabel.equalsIgnoreCase(currentLabel)) {
+            return;
+        }
+
+        if (getState().isResting()) {
+            Log.d(TAG, "⏭️ " + nextLabel + " detected during rest, starting it now");
+            _message.setValue(nextExercise.getExerciseType().getName() + " detected, starting now");
+            skipRestPeriod();
+        } else if (currentExercise != null &&
+            currentExercise.getExerciseType().getLogType() == ExerciseType.LogType.reps) {
+            Log.d(TAG, "⏭️ " + nextLabel + " detected, finishing " + currentLabel);
+            completeExercise();
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.example.fitness.workout;
+
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.app.Service;
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.ServiceInfo;
+import android.os.Build;
+import android.os.IBinder;
+import android.os.PowerManager;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+import androidx.core.app.NotificationCompat;
+import androidx.core.app.ServiceCompat;
+import androidx.core.content.ContextCompat;
+import androidx.lifecycle.Observer;
+
+import com.example.fitness.data.network.model.generated.DetailedWorkoutPlanDayExercise;
+import com.example.fitness.data.network.model.generated.ExerciseType;
+
+import java.util.Locale;
+
+import javax.inject.Inject;
+
+import dagger.hilt.android.AndroidEntryPoint;
+
+/**
+ * Keeps the process in the foreground and the CPU awake while a workout runs, so the
+ * countdowns tick on time and reps are counted at the tracker's full rate with the screen
+ * off or another app in front. The session itself belongs to {@link WorkoutSessionController};
+ * this service only owns the notification and the wake lock, and is started and stopped by it.
+ */
+@AndroidEntryPoint
+public class WorkoutSessionService extends Service {
+
+    private static final String TAG = "WorkoutSessionService";
+
+    private static final String CHANNEL_ID = "workout_session";
+    private static final int NOTIFICATION_ID = 1002;
+    private static final String WAKE_LOCK_TAG = "fitness:workout_session";
+    // Released with the session at the latest, this only bounds a session never closed
+    private static final long WAKE_LOCK_TIMEOUT_MS = 3 * 60 * 60 * 1000L;
+
+    @Inject
+    WorkoutSessionController sessionController;
+
+    private final Observer<WorkoutSessionState> stateObserver = this::updateNotification;
+    private PowerManager.WakeLock wakeLock;
+
+    /**
+     * Called by the controller when a session opens, while its screen is in the foreground
+     */
+    static void start(Context context) {
+        try {
+            ContextCompat.startForegroundService(context, new Intent(context, WorkoutSessionService.class));
+        } catch (IllegalStateException | SecurityException e) {
+            // Not allowed from the background; the session still runs while its screen is open
+            Log.w(TAG, "⚠️ Could not start the workout foreground service: " + e.getMessage());
+        }
+    }
+
+    static void stop(Context context) {
+        context.stopService(new Intent(context, WorkoutSessionService.class));
+    }
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        createNotificationChannel();
+        startInForeground(buildNotification(sessionController.sessionState.getValue()));
+
+        PowerManager powerManager = getSystemService(PowerManager.class);
+        if (powerManager != null) {
+            wakeLock = powerManager.newWakeLock(PowerManager.PARTIAL_WAKE_LOCK, WAKE_LOCK_TAG);
+            wakeLock.setReferenceCounted(false);
+            wakeLock.acquire(WAKE_LOCK_TIMEOUT_MS);
+        }
+        sessionController.sessionState.observeForever(stateObserver);
+    }
+
+    @Override
+    public int onStartCommand(Intent intent, int flags, int startId) {
+        // A restarted process has no session to keep
+        return START_NOT_STICKY;
+    }
+
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+        sessionController.sessionState.removeObserver(stateObserver);
+        if (wakeLock != null && wakeLock.isHeld()) {
+            wakeLock.release();
+        }
+    }
+
+    @Nullable
+    @Override
+    public IBinder onBind(Intent intent) {
+        return null;
+    }
+
+    private void startInForeground(Notification notification) {
+        // The tracker is what needs the screen-off time, its Bluetooth permissions qualify
+        int type = Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q
+                ? ServiceInfo.FOREGROUND_SERVICE_TYPE_CONNECTED_DEVICE : 0;
+        try {
+            ServiceCompat.startForeground(this, NOTIFICATION_ID, notification, type);
+        } catch (SecurityException e) {
+            Log.e(TAG, "❌ Missing permission for a connected device service", e);
+            stopSelf();
+        }
+    }
+
+    private void createNotificationChannel() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            NotificationChannel channel = new NotificationChannel(CHANNEL_ID, "Workout",
+                    NotificationManager.IMPORTANCE_LOW);
+            channel.setDescription("Shown during a workout");
+            NotificationManager manager = getSystemService(NotificationManager.class);
+            if (manager != null) {
+                manager.createNotificationChannel(channel);
+            }
+        }
+    }
+
+    private void updateNotification(WorkoutSessionState state) {
+        if (!state.isResting() && !state.isExercising()) {
+            // Over, the controller is stopping this service
+            return;
+        }
+        NotificationManager manager = getSystemService(NotificationManager.class);
+        if (manager != null) {
+            manager.notify(NOTIFICATION_ID, buildNotification(state));
+        }
+    }
+
+    private Notification buildNotification(WorkoutSessionState state) {
+        String title = "Workout";
+        String text = "Starting...";
+        if (state != null && state.isResting()) {
+            DetailedWorkoutPlanDayExercise nextExercise = sessionController.getNextExercise();
+            title = "Rest " + formatSeconds(state.getSecondsRemaining());
+            text = nextExercise != null ? "Next: " + nextExercise.getExerciseType().getName() : "";
+        } else if (state != null && state.isExercising()) {
+            DetailedWorkoutPlanDayExercise exercise = sessionController.getCurrentExercise();
+            title = exercise != null ? exercise.getExerciseType().getName() : title;
+            if (exercise != null && exercise.getExerciseType().getLogType() == ExerciseType.LogType.reps) {
+                Integer targetReps = exercise.getTargetReps();
+                text = state.getRepCount() + (targetReps != null ? " of " + targetReps : "") + " reps";
+            } else {
+                text = formatSeconds(state.getSecondsRemaining()) + " left" + (state.isPaused() ? ", paused" : "");
+            }
+        }
+
+        NotificationCompat.Builder builder = new NotificationCompat.Builder(this, CHANNEL_ID)
+                .setSmallIcon(android.R.drawable.ic_media_play)
+                .setContentTitle(title)
+                .setContentText(text)
+                .setOngoing(true)
+                .setOnlyAlertOnce(true)
+                .setPriority(NotificationCompat.PRIORITY_LOW);
+
+        Intent sessionIntent = sessionController.getSessionIntent();
+        if (sessionIntent != null) {
+            // Back to the running session, not a new screen on top of it
+            Intent open = new Intent(sessionIntent)
+                    .addFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_SINGLE_TOP);
+            builder.setContentIntent(PendingIntent.getActivity(this, 0, open,
+                    PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE));
+        }
+        return builder.build();
+    }
+
+    private static String formatSeconds(int seconds) {
+        if (seconds < 0) {
+            return "";
+        }
+        return String.format(Locale.US, "%d:%02d", seconds / 60, seconds % 60);
+    }
+}
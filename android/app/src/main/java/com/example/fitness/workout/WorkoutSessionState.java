@@ -0,0 +1,167 @@
+package com.example.fitness.workout;
+
+/**
+ * Where a workout is, as one value for the screen to render: the phase, which exercise,
+ * the countdown shown for it and the reps counted so far. Immutable, a change is a new state.
+ */
+public final class WorkoutSessionState {
+
+    public enum Phase {
+        /** Waiting for the exercises */
+        NOT_STARTED,
+        /** Rest before the exercise after {@link #getExerciseIndex()} */
+        RESTING,
+        EXERCISING,
+        COMPLETED
+    }
+
+    public enum RepSource {
+        /** Nothing counts reps, e.g. a timed exercise or one the tracker cannot recognize */
+        NONE,
+        /** The user taps for each rep */
+        MANUAL,
+        /** The tracker counts them */
+        TRACKER
+    }
+
+    /** No countdown, e.g. for exercises counted in reps */
+    public static final int NO_COUNTDOWN = -1;
+
+    public static final WorkoutSessionState NOT_STARTED =
+            new WorkoutSessionState(Phase.NOT_STARTED, -1, NO_COUNTDOWN, false);
+
+    private final Phase phase;
+    private final int exerciseIndex;
+    private final int secondsRemaining;
+    private final boolean paused;
+    private final int repCount;
+    private final RepSource repSource;
+    private final boolean movementDetected;
+
+    /**
+     * A new step, no reps counted yet
+     */
+    public WorkoutSessionState(Phase phase, int exerciseIndex, int secondsRemaining, boolean paused) {
+        this(phase, exerciseIndex, secondsRemaining, paused, 0, RepSource.NONE, false);
+    }
+
+    public WorkoutSessionState(Phase phase, int exerciseIndex, int secondsRemaining, boolean paused,
+                               int repCount, RepSource repSource, boolean movementDetected) {
+        this.phase = phase;
+        this.exerciseIndex = exerciseIndex;
+        this.secondsRemaining = secondsRemaining;
+        this.paused = paused;
+        this.repCount = repCount;
+        this.repSource = repSource;
+        this.movementDetected = movementDetected;
+    }
+
+    public Phase getPhase() {
+        return phase;
+    }
+
+    public boolean isResting() {
+        return phase == Phase.RESTING;
+    }
+
+    public boolean isExercising() {
+        return phase == Phase.EXERCISING;
+    }
+
+    public boolean isCompleted() {
+        return phase == Phase.COMPLETED;
+    }
+
+    /**
+     * Current exercise, or while resting the one before the rest, -1 before the first
+     */
+    public int getExerciseIndex() {
+        return exerciseIndex;
+    }
+
+    /**
+     * Of the rest period or the timed exercise, {@link #NO_COUNTDOWN} if there is none
+     */
+    public int getSecondsRemaining() {
+        return secondsRemaining;
+    }
+
+    public boolean isPaused() {
+        return paused;
+    }
+
+    public int getRepCount() {
+        return repCount;
+    }
+
+    public RepSource getRepSource() {
+        return repSource;
+    }
+
+    /**
+     * Whether the tracker sees the user doing the current exercise right now
+     */
+    public boolean isMovementDetected() {
+        return movementDetected;
+    }
+
+    public WorkoutSessionState withExerciseIndex(int exerciseIndex) {
+        return new WorkoutSessionState(phase, exerciseIndex, secondsRemaining, paused, repCount, repSource, movementDetected);
+    }
+
+    public WorkoutSessionState withSecondsRemaining(int secondsRemaining) {
+        return new WorkoutSessionState(phase, exerciseIndex, secondsRemaining, paused, repCount, repSource, movementDetected);
+    }
+
+    public WorkoutSessionState withPaused(boolean paused) {
+        return new WorkoutSessionState(phase, exerciseIndex, secondsRemaining, paused, repCount, repSource, movementDetected);
+    }
+
+    public WorkoutSessionState withRepCount(int repCount) {
+        return new WorkoutSessionState(phase, exerciseIndex, secondsRemaining, paused, repCount, repSource, movementDetected);
+    }
+
+    public WorkoutSessionState withRepSource(RepSource repSource) {
+        return new WorkoutSessionState(phase, exerciseIndex, secondsRemaining, paused, repCount, repSource, movementDetected);
+    }
+
+    public WorkoutSessionState withMovementDetected(boolean movementDetected) {
+        return new WorkoutSessionState(phase, exerciseIndex, secondsRemaining, paused, repCount, repSource, movementDetected);
+    }
+
+    /**
+     * Same phase and exercise, i.e. only the countdown, pause or reps changed
+     */
+    public boolean isSameStepAs(WorkoutSessionState other) {
+        return other != null && phase == other.phase && exerciseIndex == other.exerciseIndex;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof WorkoutSessionState)) return false;
+        WorkoutSessionState that = (WorkoutSessionState) o;
+        return phase == that.phase && exerciseIndex == that.exerciseIndex
+                && secondsRemaining == that.secondsRemaining && paused == that.paused
+                && repCount == that.repCount && repSource == that.repSource
+                && movementDetected == that.movementDetected;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = phase.hashCode();
+        result = 31 * result + exerciseIndex;
+        result = 31 * result + secondsRemaining;
+        result = 31 * result + (paused ? 1 : 0);
+        result = 31 * result + repCount;
+        result = 31 * result + repSource.hashCode();
+        result = 31 * result + (movementDetected ? 1 : 0);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return phase + " #" + exerciseIndex + ", " + secondsRemaining + " s" + (paused ? ", paused" : "")
+                + ", " + repCount + " reps (" + repSource + ")";
+    }
+}
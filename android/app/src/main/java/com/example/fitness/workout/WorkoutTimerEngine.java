@@ -0,0 +1,169 @@
+package com.example.fitness.workout;
+
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+/**
+ * Countdown for rest periods and timed exercises. It keeps a deadline on
+ * {@link SystemClock#elapsedRealtime()} instead of counting ticks, so a late tick never
+ * adds up to drift and sleep time is counted too. Ticks are scheduled for the moment the
+ * displayed whole second changes, and only such a change is reported. Main thread only.
+ */
+public class WorkoutTimerEngine {
+
+    public interface Listener {
+        /**
+         * The displayed time changed, rounded up so a countdown shows 0 only when it is over
+         */
+        void onSecondsRemainingChanged(int secondsRemaining);
+
+        /**
+         * Reached zero, once per countdown
+         */
+        void onFinished();
+    }
+
+    /**
+     * {@link SystemClock#elapsedRealtime()}, a fake one in tests
+     */
+    interface Clock {
+        long elapsedRealtime();
+    }
+
+    private static final String KEY_DEADLINE_MS = "deadline_ms";
+    private static final String KEY_PAUSED_REMAINING_MS = "paused_remaining_ms";
+    private static final long NONE = -1;
+
+    private final Handler handler;
+    private final Clock clock;
+    private final Runnable tick = this::tick;
+    private final Listener listener;
+
+    private long deadlineMs = NONE; // elapsedRealtime, while running
+    private long pausedRemainingMs = NONE; // While paused
+    private int lastSecondsRemaining = -1;
+
+    public WorkoutTimerEngine(Listener listener) {
+        this(listener, new Handler(Looper.getMainLooper()), SystemClock::elapsedRealtime);
+    }
+
+    WorkoutTimerEngine(Listener listener, Handler handler, Clock clock) {
+        this.listener = listener;
+        this.handler = handler;
+        this.clock = clock;
+    }
+
+    /**
+     * Starts counting down, replacing any countdown in progress. The start value is not
+     * reported, the caller already knows it.
+     */
+    public void start(int seconds) {
+        stop();
+        deadlineMs = clock.elapsedRealtime() + seconds * 1000L;
+        lastSecondsRemaining = seconds;
+        scheduleNextTick(seconds * 1000L);
+    }
+
+    public void pause() {
+        if (deadlineMs == NONE) {
+            return;
+        }
+        handler.removeCallbacks(tick);
+        pausedRemainingMs = Math.max(0, deadlineMs - clock.elapsedRealtime());
+        deadlineMs = NONE;
+    }
+
+    public void resume() {
+        if (pausedRemainingMs == NONE) {
+            return;
+        }
+        deadlineMs = clock.elapsedRealtime() + pausedRemainingMs;
+        pausedRemainingMs = NONE;
+        handler.post(tick);
+    }
+
+    public void stop() {
+        handler.removeCallbacks(tick);
+        deadlineMs = NONE;
+        pausedRemainingMs = NONE;
+        lastSecondsRemaining = -1;
+    }
+
+    public boolean isRunning() {
+        return deadlineMs != NONE;
+    }
+
+    public boolean isPaused() {
+        return pausedRemainingMs != NONE;
+    }
+
+    /**
+     * @return the displayed time, or -1 when nothing is counting down
+     */
+    public int getSecondsRemaining() {
+        if (deadlineMs != NONE) {
+            return toSeconds(Math.max(0, deadlineMs - clock.elapsedRealtime()));
+        }
+        return pausedRemainingMs != NONE ? toSeconds(pausedRemainingMs) : -1;
+    }
+
+    /**
+     * The deadline stays valid across process death, elapsedRealtime keeps counting.
+     * Saved state does not outlive a reboot, which would reset it.
+     */
+    public Bundle saveState() {
+        Bundle state = new Bundle();
+        state.putLong(KEY_DEADLINE_MS, deadlineMs);
+        state.putLong(KEY_PAUSED_REMAINING_MS, pausedRemainingMs);
+        return state;
+    }
+
+    /**
+     * Continues a countdown from {@link #saveState()}. One that ran out in the meantime
+     * finishes on the next tick, as if it had been running all along.
+     */
+    public void restoreState(Bundle state) {
+        stop();
+        if (state == null) {
+            return;
+        }
+        deadlineMs = state.getLong(KEY_DEADLINE_MS, NONE);
+        pausedRemainingMs = state.getLong(KEY_PAUSED_REMAINING_MS, NONE);
+        lastSecondsRemaining = getSecondsRemaining();
+        if (deadlineMs != NONE) {
+            handler.post(tick);
+        }
+    }
+
+    private void tick() {
+        long remainingMs = deadlineMs - clock.elapsedRealtime();
+        if (remainingMs <= 0) {
+            deadlineMs = NONE;
+            report(0);
+            listener.onFinished();
+            return;
+        }
+        report(toSeconds(remainingMs));
+        scheduleNextTick(remainingMs);
+    }
+
+    private void scheduleNextTick(long remainingMs) {
+        // Right when the remaining time drops to the next whole second. Handler delays are
+        // on uptime, which stops in deep sleep, so a tick may come late but never early.
+        long untilChangeMs = remainingMs - (toSeconds(remainingMs) - 1) * 1000L;
+        handler.postDelayed(tick, untilChangeMs);
+    }
+
+    private void report(int secondsRemaining) {
+        if (secondsRemaining != lastSecondsRemaining) {
+            lastSecondsRemaining = secondsRemaining;
+            listener.onSecondsRemainingChanged(secondsRemaining);
+        }
+    }
+
+    private static int toSeconds(long remainingMs) {
+        return (int) ((remainingMs + 999) / 1000);
+    }
+}
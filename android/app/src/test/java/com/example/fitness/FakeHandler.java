@@ -0,0 +1,100 @@
+package com.example.fitness;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A handler on a clock the test moves, posted runnables run from {@link #advanceBy}
+ * in the order of their due time. The unit test android.jar has no working looper but
+ * leaves {@link Handler} open for overriding.
+ */
+public class FakeHandler extends Handler {
+
+    private final List<Task> tasks = new ArrayList<>();
+    private long nowMs;
+    private long nextOrder;
+
+    public FakeHandler() {
+        super(Looper.getMainLooper());
+    }
+
+    public long now() {
+        return nowMs;
+    }
+
+    @Override
+    public boolean post(Runnable runnable) {
+        return postDelayed(runnable, 0);
+    }
+
+    @Override
+    public boolean postDelayed(Runnable runnable, long delayMillis) {
+        tasks.add(new Task(runnable, nowMs + Math.max(delayMillis, 0), nextOrder++));
+        return true;
+    }
+
+    @Override
+    public void removeCallbacks(Runnable runnable) {
+        tasks.removeIf(task -> task.runnable == runnable);
+    }
+
+    /**
+     * Runs what is due now, including what those runnables post without a delay
+     */
+    public void runPending() {
+        advanceBy(0);
+    }
+
+    /**
+     * Moves the clock forward, running every runnable that falls due on the way at its time
+     */
+    public void advanceBy(long ms) {
+        long targetMs = nowMs + ms;
+        Task task;
+        while ((task = nextDue(targetMs)) != null) {
+            tasks.remove(task);
+            // Due while asleep, it runs late rather than turning the clock back
+            nowMs = Math.max(nowMs, task.dueMs);
+            task.runnable.run();
+        }
+        nowMs = targetMs;
+    }
+
+    /**
+     * Moves the clock forward without running anything, like deep sleep, which stops
+     * handler delays but not elapsedRealtime
+     */
+    public void sleep(long ms) {
+        nowMs += ms;
+    }
+
+    public int getPendingCount() {
+        return tasks.size();
+    }
+
+    private Task nextDue(long targetMs) {
+        Task next = null;
+        for (Task task : tasks) {
+            if (task.dueMs <= targetMs && (next == null || task.dueMs < next.dueMs
+                    || task.dueMs == next.dueMs && task.order < next.order)) {
+                next = task;
+            }
+        }
+        return next;
+    }
+
+    private static final class Task {
+        final Runnable runnable;
+        final long dueMs;
+        final long order;
+
+        Task(Runnable runnable, long dueMs, long order) {
+            this.runnable = runnable;
+            this.dueMs = dueMs;
+            this.order = order;
+        }
+    }
+}
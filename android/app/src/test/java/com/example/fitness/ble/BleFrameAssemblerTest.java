@@ -0,0 +1,141 @@
+package com.example.fitness.ble;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Frame boundaries found byte by byte, across chunks, strings, escapes and the end of
+ * the ring, and partial frames dropped when the tracker stops sending.
+ */
+public class BleFrameAssemblerTest {
+
+    private final List<String> frames = new ArrayList<>();
+    private BleFrameAssembler assembler;
+
+    @Before
+    public void setUp() {
+        assembler = assembler(BleFrameAssembler.DEFAULT_CAPACITY);
+    }
+
+    @Test
+    public void frameSplitAcrossChunksIsEmittedOnce() {
+        String frame = "{\"predictions\":{\"squat\":0.91,\"idle\":0.09}}";
+        feedInChunks(frame, 7, 0);
+
+        assertEquals(List.of(frame), frames);
+        assertEquals(1, assembler.getFrameCount());
+        assertFalse(assembler.isInFrame());
+    }
+
+    @Test
+    public void bracesInStringsAndEscapedQuotesDoNotEndTheFrame() {
+        String frame = "{\"note\":\"} {\\\"}\\\\\",\"nested\":{\"a\":{\"b\":1}}}";
+        feedInChunks(frame, 1, 0);
+
+        assertEquals(List.of(frame), frames);
+    }
+
+    @Test
+    public void bytesBetweenFramesAreSkipped() {
+        assembler.accept(ascii("ok\r\n{\"a\":1}\n  {\"b\":2}}garbage{\"c\":3}"), 0);
+
+        assertEquals(List.of("{\"a\":1}", "{\"b\":2}", "{\"c\":3}"), frames);
+    }
+
+    @Test
+    public void framesWrappingTheRingEndAreContiguous() {
+        assembler = assembler(64);
+        List<String> sent = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            // 41 to 42 bytes, so most frames straddle the end of the 64 byte ring
+            String frame = "{\"seq\":" + i + ",\"scores\":{\"squat\":0.500}}";
+            sent.add(frame);
+            feedInChunks(frame, 5, i * 200L);
+        }
+
+        assertEquals(sent, frames);
+        assertEquals(0, assembler.getOverflowCount());
+    }
+
+    @Test
+    public void oversizedFrameIsDroppedAndTheNextOneResyncs() {
+        assembler = assembler(64);
+        StringBuilder big = new StringBuilder("{\"blob\":\"");
+        for (int i = 0; i < 100; i++) {
+            big.append('x');
+        }
+        big.append("\"}");
+        feedInChunks(big.toString(), 20, 0);
+        assembler.accept(ascii("{\"a\":1}"), 0);
+
+        assertEquals(1, assembler.getOverflowCount());
+        assertEquals(List.of("{\"a\":1}"), frames);
+    }
+
+    @Test
+    public void staleFrameExpiresWithoutAnotherChunk() {
+        assembler.accept(ascii("{\"predictions\":{\"squ"), 0);
+
+        assertFalse(assembler.expireIfStale(BleFrameAssembler.DEFAULT_TIMEOUT_MS));
+        assertTrue(assembler.isInFrame());
+        assertTrue(assembler.expireIfStale(BleFrameAssembler.DEFAULT_TIMEOUT_MS + 1));
+        assertFalse(assembler.isInFrame());
+        assertEquals(0, assembler.getBufferedBytes());
+        assertEquals(1, assembler.getTimeoutCount());
+
+        assembler.accept(ascii("{\"a\":1}"), 1500);
+        assertEquals(List.of("{\"a\":1}"), frames);
+    }
+
+    @Test
+    public void staleFrameExpiresWhenTheNextChunkArrives() {
+        assembler.accept(ascii("{\"predictions\":{\"squ"), 0);
+        assembler.accept(ascii("{\"a\":1}"), 2000);
+
+        assertEquals(1, assembler.getTimeoutCount());
+        assertEquals(List.of("{\"a\":1}"), frames);
+    }
+
+    @Test
+    public void binaryFrameAfterALostTailTakesTheDirectPath() {
+        List<byte[]> submitted = new ArrayList<>();
+        BleNotificationRouter router = new BleNotificationRouter((data, offset, length, receivedAtMs) ->
+                submitted.add(Arrays.copyOfRange(data, offset, offset + length)));
+        byte[] partial = ascii("{\"predictions\":{\"squ");
+        router.onNotification(partial, 0, partial.length, 0);
+        byte[] binary = {PredictionFrameDecoder.MAGIC, 1, PredictionFrameDecoder.TYPE_PREDICTION, 0,
+                1, 0, 0, 0, 0, 0, 0};
+        router.onNotification(binary, 0, binary.length, 1500);
+
+        assertEquals(1, submitted.size());
+        assertEquals(PredictionFrameDecoder.MAGIC, submitted.get(0)[0]);
+        assertEquals(1, router.getFrameAssembler().getTimeoutCount());
+    }
+
+    private BleFrameAssembler assembler(int capacity) {
+        BleFrameAssembler assembler = new BleFrameAssembler(capacity, BleFrameAssembler.DEFAULT_TIMEOUT_MS);
+        assembler.setFrameListener((buffer, offset, length) ->
+                frames.add(new String(buffer, offset, length, StandardCharsets.US_ASCII)));
+        return assembler;
+    }
+
+    private void feedInChunks(String frame, int chunkSize, long nowMs) {
+        byte[] bytes = ascii(frame);
+        for (int i = 0; i < bytes.length; i += chunkSize) {
+            assembler.accept(bytes, i, Math.min(chunkSize, bytes.length - i), nowMs);
+        }
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,262 @@
+package com.example.fitness.ble;
+
+import com.example.fitness.FakeHandler;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Replays sessions through the live reassembly, decode and counting path. Recorded
+ * sessions dropped into {@code src/test/resources/ble_sessions/<session>/} next to an
+ * {@code expected.properties} ({@code exercise}, {@code reps}, optional {@code engine})
+ * are checked as well, so counting changes can be regression-tested on real workouts.
+ */
+public class BleSessionReplayerTest {
+
+    private static final long FRAME_INTERVAL_NANOS = 200_000_000L; // 5 predictions per second
+    private static final long TRACKER_BEHIND_MS = 1000; // Phone time minus tracker time
+    private static final String CORPUS_DIR = "ble_sessions";
+
+    @Test
+    public void fragmentedJsonSessionCountsEveryRep() throws IOException {
+        BleSessionReplayer.MemorySource source = squatSession(5, 0);
+
+        BleSessionReplayer.Result result = new BleSessionReplayer(BleSessionReplayer.Speed.AS_FAST_AS_POSSIBLE)
+                .replay(source, squatCounter());
+
+        assertEquals(5, result.getRepCount());
+        assertEquals(5, result.getFinalRepCount());
+        assertEquals(50, result.getPredictionCount());
+        assertEquals(0, result.getMalformedCount());
+        List<Long> reps = result.getRepOffsetsMs();
+        for (int i = 1; i < reps.size(); i++) {
+            // One rep every 10 frames
+            assertEquals(2000, reps.get(i) - reps.get(i - 1));
+        }
+        long p50 = result.getLatencyPercentileNanos(50);
+        assertTrue(p50 > 0);
+        assertTrue(p50 <= result.getLatencyPercentileNanos(99));
+        assertTrue(result.getLatencyPercentileNanos(99) <= result.getLatencyPercentileNanos(100));
+    }
+
+    @Test
+    public void replayIsDeterministicAtAnySpeed() throws IOException {
+        // Starts mid-uptime like a real elapsedRealtime clock
+        BleSessionReplayer.MemorySource source = squatSession(2, 3_600_000_000_000L);
+
+        BleSessionReplayer.Result fast = new BleSessionReplayer(BleSessionReplayer.Speed.AS_FAST_AS_POSSIBLE)
+                .replay(source, squatCounter());
+        source.rewind();
+        long start = System.nanoTime();
+        BleSessionReplayer.Result realTime = new BleSessionReplayer(BleSessionReplayer.Speed.REAL_TIME)
+                .replay(source, squatCounter());
+        long elapsed = System.nanoTime() - start;
+
+        assertEquals(fast.getRepCount(), realTime.getRepCount());
+        for (int i = 0; i < fast.getRepCount(); i++) {
+            assertEquals(fast.getRepTimestampNanos(i), realTime.getRepTimestampNanos(i));
+        }
+        // 20 frames, the last one 19 intervals after the first
+        assertTrue(elapsed >= 19 * FRAME_INTERVAL_NANOS);
+    }
+
+    @Test
+    public void pingsAndEchoesPlaceRepsAtTheirSampleTime() throws IOException {
+        BleSessionReplayer.MemorySource source = new BleSessionReplayer.MemorySource();
+        source.add(ms(9_000), labelTable("squat", "lunge", "idle"));
+        for (long sent = 10_000; sent <= 11_000; sent += 500) {
+            int id = (int) (sent / 500);
+            source.add(ms(sent), ping(id));
+            // 10 ms each way, 2 ms on the tracker
+            source.add(ms(sent + 22), echo(id, sent + 10 - TRACKER_BEHIND_MS,
+                    sent + 12 - TRACKER_BEHIND_MS));
+        }
+        for (int i = 0; i < 30; i++) {
+            long sampledAt = 12_000 + i * 200L;
+            float squat = i % 10 < 4 ? 0.85f : 0.05f;
+            // Every other frame waits longer in the radio
+            long latency = i % 2 == 0 ? 20 : 90;
+            source.add(ms(sampledAt + latency),
+                    prediction(i, sampledAt - TRACKER_BEHIND_MS, squat, 0.05f, 0.95f - squat));
+        }
+
+        BleSessionReplayer.Result result = new BleSessionReplayer(BleSessionReplayer.Speed.AS_FAST_AS_POSSIBLE)
+                .replay(source, squatCounter());
+
+        assertEquals(3, result.getRepCount());
+        assertEquals(30, result.getPredictionCount());
+        for (int i = 0; i < result.getRepCount(); i++) {
+            long sampledAt = result.getRepSampledAtMs(i);
+            long arrivedAt = result.getRepTimestampNanos(i) / 1_000_000;
+            assertEquals(0, (sampledAt - 12_000) % 200);
+            assertTrue(arrivedAt - sampledAt == 20 || arrivedAt - sampledAt == 90);
+        }
+    }
+
+    @Test
+    public void recordedSegmentsReplayLikeTheLiveStream() throws IOException {
+        BleSessionReplayer.MemorySource source = squatSession(3, 0);
+        File rootDir = Files.createTempDirectory("sessions").toFile();
+        File sessionDir = null;
+        try {
+            sessionDir = record(source, rootDir, 400);
+            source.rewind();
+
+            BleSessionReplayer replayer = new BleSessionReplayer(BleSessionReplayer.Speed.AS_FAST_AS_POSSIBLE);
+            BleSessionReplayer.Result fromMemory = replayer.replay(source, squatCounter());
+            BleSessionReplayer.Result fromDisk;
+            try (BleSessionReader reader = new BleSessionReader(sessionDir)) {
+                fromDisk = replayer.replay(reader, squatCounter());
+            }
+
+            assertTrue(BleSessionRecorder.listSegments(sessionDir).length > 1);
+            assertEquals(fromMemory.getNotificationCount(), fromDisk.getNotificationCount());
+            assertEquals(fromMemory.getRepOffsetsMs(), fromDisk.getRepOffsetsMs());
+        } finally {
+            if (sessionDir != null) {
+                for (File file : BleSessionRecorder.listSegments(sessionDir)) {
+                    file.delete();
+                }
+                sessionDir.delete();
+            }
+            rootDir.delete();
+        }
+    }
+
+    @Test
+    public void corpusSessionsMatchExpectedReps() throws IOException {
+        URL corpus = getClass().getClassLoader().getResource(CORPUS_DIR);
+        if (corpus == null) {
+            return; // No recorded sessions checked in
+        }
+        File[] sessions = new File(corpus.getPath()).listFiles(File::isDirectory);
+        if (sessions == null) {
+            return;
+        }
+        BleSessionReplayer replayer = new BleSessionReplayer(BleSessionReplayer.Speed.AS_FAST_AS_POSSIBLE);
+        for (File session : sessions) {
+            Properties expected = new Properties();
+            try (InputStream input = new FileInputStream(new File(session, "expected.properties"))) {
+                expected.load(input);
+            }
+            String exercise = expected.getProperty("exercise");
+            RepCounter.Engine engine = RepCounter.Engine.valueOf(expected.getProperty("engine", "CLASSIFIER"));
+            BleSessionReplayer.Result result;
+            try (BleSessionReader reader = new BleSessionReader(session)) {
+                result = replayer.replay(reader, engine.create(exercise, 0, SmoothingConfig.DEFAULT, 0));
+            }
+            assertEquals(session.getName(), Integer.parseInt(expected.getProperty("reps")), result.getFinalRepCount());
+        }
+    }
+
+    /**
+     * What a workout counts squats with by default
+     */
+    private static RepCounter squatCounter() {
+        return RepCounter.Engine.CLASSIFIER.create("squat", 0, SmoothingConfig.DEFAULT, 0);
+    }
+
+    /**
+     * Legacy JSON predictions at 5 Hz, each split across two notifications: squat
+     * confidence is high for 4 frames and low for 6, i.e. one rep every 2 seconds.
+     */
+    private static BleSessionReplayer.MemorySource squatSession(int reps, long startNanos) {
+        BleSessionReplayer.MemorySource source = new BleSessionReplayer.MemorySource();
+        long time = startNanos;
+        for (int rep = 0; rep < reps; rep++) {
+            for (int frame = 0; frame < 10; frame++) {
+                float squat = frame < 4 ? 0.85f : 0.05f;
+                String json = String.format(Locale.US,
+                        "{\"predictions\":{\"squat\":%.2f,\"lunge\":%.2f,\"idle\":%.2f}}",
+                        squat, 0.05f, 0.95f - squat);
+                byte[] bytes = json.getBytes(StandardCharsets.US_ASCII);
+                int split = bytes.length / 2;
+                source.add(time, Arrays.copyOfRange(bytes, 0, split));
+                source.add(time + 1_000_000L, Arrays.copyOfRange(bytes, split, bytes.length));
+                time += FRAME_INTERVAL_NANOS;
+            }
+        }
+        return source;
+    }
+
+    private static long ms(long millis) {
+        return millis * 1_000_000L;
+    }
+
+    private static byte[] labelTable(String... names) {
+        ByteBuffer buffer = ByteBuffer.allocate(256).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put(PredictionFrameDecoder.MAGIC).put((byte) PredictionFrameDecoder.PROTOCOL_VERSION)
+                .put((byte) PredictionFrameDecoder.TYPE_LABELS).put((byte) 0).put((byte) names.length);
+        for (String name : names) {
+            byte[] bytes = name.getBytes(StandardCharsets.US_ASCII);
+            buffer.put((byte) bytes.length).put(bytes);
+        }
+        return Arrays.copyOf(buffer.array(), buffer.position());
+    }
+
+    private static byte[] prediction(int sequence, long deviceTimeMs, float... scores) {
+        ByteBuffer buffer = ByteBuffer.allocate(11 + 2 * scores.length).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put(PredictionFrameDecoder.MAGIC).put((byte) PredictionFrameDecoder.PROTOCOL_VERSION)
+                .put((byte) PredictionFrameDecoder.TYPE_PREDICTION).put((byte) 0)
+                .putShort((short) sequence).putInt((int) deviceTimeMs).put((byte) scores.length);
+        for (float score : scores) {
+            buffer.putShort((short) Math.round(score * 65535));
+        }
+        return buffer.array();
+    }
+
+    private static byte[] ping(int id) {
+        return ByteBuffer.allocate(BleTimeSync.PING_SIZE).order(ByteOrder.LITTLE_ENDIAN)
+                .put(PredictionFrameDecoder.MAGIC).put((byte) PredictionFrameDecoder.PROTOCOL_VERSION)
+                .put((byte) PredictionFrameDecoder.TYPE_TIME_SYNC).put((byte) 0)
+                .putShort((short) id)
+                .array();
+    }
+
+    private static byte[] echo(int id, long deviceReceived, long deviceSent) {
+        return ByteBuffer.allocate(BleTimeSync.ECHO_SIZE).order(ByteOrder.LITTLE_ENDIAN)
+                .put(PredictionFrameDecoder.MAGIC).put((byte) PredictionFrameDecoder.PROTOCOL_VERSION)
+                .put((byte) PredictionFrameDecoder.TYPE_TIME_SYNC).put((byte) 0)
+                .putShort((short) id).putInt((int) deviceReceived).putInt((int) deviceSent)
+                .array();
+    }
+
+    /**
+     * Records the session with {@link BleSessionRecorder}, its background work run
+     * between notifications
+     *
+     * @return the session directory
+     */
+    private static File record(BleSessionReplayer.MemorySource source, File rootDir, int segmentSize) {
+        FakeHandler handler = new FakeHandler();
+        BleSessionRecorder recorder = new BleSessionRecorder(rootDir, segmentSize, Long.MAX_VALUE, handler);
+        recorder.start();
+        handler.runPending();
+        byte[] payload = new byte[1024];
+        while (source.next()) {
+            source.readPayload(payload, 0);
+            recorder.record(payload, 0, source.getPayloadLength(), source.getTimestampNanos());
+            handler.runPending();
+        }
+        recorder.stop();
+        handler.runPending();
+        assertEquals(0, recorder.getDroppedCount());
+        return recorder.getSessionDir();
+    }
+}
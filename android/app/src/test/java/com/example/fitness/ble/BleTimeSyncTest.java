@@ -0,0 +1,167 @@
+package com.example.fitness.ble;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Ping/echo exchanges against a simulated tracker clock: offset at the exchange midpoint,
+ * slow exchanges left out, drift once the exchanges span long enough, and echoes that
+ * must not count.
+ */
+public class BleTimeSyncTest {
+
+    private static final long OFFSET_MS = -2_000_000; // Phone time minus tracker time
+    private static final long UPLINK_MS = 10;
+    private static final long TURNAROUND_MS = 2;
+    private static final long DOWNLINK_MS = 10;
+
+    private final BleTimeSync sync = new BleTimeSync();
+    private double trackerDrift; // How much slower the tracker's crystal runs
+
+    @Test
+    public void pingCarriesTheHeaderAndId() {
+        sync.createPing(0);
+        byte[] ping = sync.createPing(0);
+
+        assertEquals(BleTimeSync.PING_SIZE, ping.length);
+        assertEquals(PredictionFrameDecoder.MAGIC, ping[0]);
+        assertEquals(PredictionFrameDecoder.PROTOCOL_VERSION, ping[1]);
+        assertEquals(PredictionFrameDecoder.TYPE_TIME_SYNC, ping[2]);
+        assertEquals(1, PredictionFrameDecoder.readUInt16(ping, 4));
+    }
+
+    @Test
+    public void onlyEchoesAreTakenFromTheStream() {
+        byte[] prediction = new byte[BleTimeSync.ECHO_SIZE];
+        prediction[0] = PredictionFrameDecoder.MAGIC;
+        prediction[2] = PredictionFrameDecoder.TYPE_PREDICTION;
+
+        assertFalse(sync.onNotification(prediction, 0, prediction.length, 0));
+        assertTrue(sync.onNotification(echo(0, 0, 0), 0, BleTimeSync.ECHO_SIZE, 0));
+    }
+
+    @Test
+    public void offsetIsTakenAtTheExchangeMidpoint() {
+        exchange(10_000, UPLINK_MS, DOWNLINK_MS);
+        exchange(10_500, UPLINK_MS, DOWNLINK_MS);
+        assertFalse(sync.isSynced());
+        assertEquals(BleTimeSync.PING_INTERVAL_MS, sync.getPingIntervalMs());
+
+        exchange(11_000, UPLINK_MS, DOWNLINK_MS);
+
+        assertTrue(sync.isSynced());
+        assertEquals(BleTimeSync.SYNCED_PING_INTERVAL_MS, sync.getPingIntervalMs());
+        assertEquals(UPLINK_MS + DOWNLINK_MS, sync.getRoundTripMs());
+        assertEquals(20_000, sync.toLocal(20_000 - OFFSET_MS));
+        assertEquals(0, sync.getDriftPpm(), 0);
+    }
+
+    @Test
+    public void slowExchangesAreLeftOut() {
+        exchange(10_000, UPLINK_MS, DOWNLINK_MS);
+        exchange(10_500, UPLINK_MS, DOWNLINK_MS);
+        exchange(11_000, UPLINK_MS, DOWNLINK_MS);
+        // Held up on the way out only, its midpoint is 40 ms off
+        exchange(11_500, 90, DOWNLINK_MS);
+
+        assertEquals(20_000, sync.toLocal(20_000 - OFFSET_MS));
+    }
+
+    @Test
+    public void driftIsFittedOnceTheExchangesSpanLongEnough() {
+        trackerDrift = 120e-6;
+        for (long local = 10_000; local <= 30_000; local += 5000) {
+            exchange(local, UPLINK_MS, DOWNLINK_MS);
+        }
+        // 20 seconds cannot tell drift from jitter
+        assertEquals(0, sync.getDriftPpm(), 0);
+
+        for (long local = 35_000; local <= 85_000; local += 5000) {
+            exchange(local, UPLINK_MS, DOWNLINK_MS);
+        }
+
+        assertEquals(120, sync.getDriftPpm(), 1);
+        long later = 145_000;
+        assertEquals(later, sync.toLocal(trackerTime(later)), 1);
+    }
+
+    @Test
+    public void unknownAndRepeatedEchoesAreIgnored() {
+        byte[] ping = sync.createPing(10_000);
+        int id = PredictionFrameDecoder.readUInt16(ping, 4);
+        long received = trackerTime(10_000 + UPLINK_MS);
+        byte[] echo = echo(id, received, received + TURNAROUND_MS);
+        for (int i = 0; i < 3; i++) {
+            sync.onNotification(echo, 0, echo.length, 10_022);
+        }
+        byte[] unknown = echo(id + 1, received, received + TURNAROUND_MS);
+        sync.onNotification(unknown, 0, unknown.length, 10_022);
+        exchange(10_500, UPLINK_MS, DOWNLINK_MS);
+
+        assertFalse(sync.isSynced());
+    }
+
+    @Test
+    public void restartedTrackerStartsTheEstimateOver() {
+        exchange(10_000, UPLINK_MS, DOWNLINK_MS);
+        exchange(10_500, UPLINK_MS, DOWNLINK_MS);
+        exchange(11_000, UPLINK_MS, DOWNLINK_MS);
+        assertTrue(sync.isSynced());
+
+        // millis() starts from zero again
+        long restartOffset = 12_000;
+        for (long local = 12_000; local <= 13_000; local += 500) {
+            byte[] ping = sync.createPing(local);
+            long received = local + UPLINK_MS - restartOffset;
+            byte[] echo = echo(PredictionFrameDecoder.readUInt16(ping, 4), received, received + TURNAROUND_MS);
+            sync.onNotification(echo, 0, echo.length, local + UPLINK_MS + TURNAROUND_MS + DOWNLINK_MS);
+            if (local == 12_000) {
+                assertFalse(sync.isSynced());
+            }
+        }
+
+        assertEquals(20_000, sync.toLocal(20_000 - restartOffset));
+    }
+
+    @Test
+    public void resetForgetsPingsInFlight() {
+        byte[] ping = sync.createPing(10_000);
+        sync.reset();
+        long received = trackerTime(10_000 + UPLINK_MS);
+        byte[] echo = echo(PredictionFrameDecoder.readUInt16(ping, 4), received, received + TURNAROUND_MS);
+        sync.onNotification(echo, 0, echo.length, 10_022);
+        exchange(10_500, UPLINK_MS, DOWNLINK_MS);
+        exchange(11_000, UPLINK_MS, DOWNLINK_MS);
+
+        assertFalse(sync.isSynced());
+    }
+
+    /**
+     * One ping written at {@code sentAtMs} and answered by the simulated tracker
+     */
+    private void exchange(long sentAtMs, long uplinkMs, long downlinkMs) {
+        byte[] ping = sync.createPing(sentAtMs);
+        int id = PredictionFrameDecoder.readUInt16(ping, 4);
+        long arrivedAt = sentAtMs + uplinkMs;
+        byte[] echo = echo(id, trackerTime(arrivedAt), trackerTime(arrivedAt + TURNAROUND_MS));
+        sync.onNotification(echo, 0, echo.length, arrivedAt + TURNAROUND_MS + downlinkMs);
+    }
+
+    private long trackerTime(long localMs) {
+        return Math.round((localMs - OFFSET_MS) * (1 - trackerDrift));
+    }
+
+    private static byte[] echo(int id, long deviceReceived, long deviceSent) {
+        return ByteBuffer.allocate(BleTimeSync.ECHO_SIZE).order(ByteOrder.LITTLE_ENDIAN)
+                .put(PredictionFrameDecoder.MAGIC).put((byte) PredictionFrameDecoder.PROTOCOL_VERSION)
+                .put((byte) PredictionFrameDecoder.TYPE_TIME_SYNC).put((byte) 0)
+                .putShort((short) id).putInt((int) deviceReceived).putInt((int) deviceSent)
+                .array();
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.fitness.ble;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * When each smoothing mode starts and stops an exercise for a sequence of classifier
+ * confidences, and the configs it refuses.
+ */
+public class ConfidenceSmootherTest {
+
+    @Test
+    public void voteNeedsItsMajorityOfTheWindow() {
+        ConfidenceSmoother smoother = new ConfidenceSmoother(SmoothingConfig.vote(2, 3, 0.4f));
+
+        assertFalse(smoother.update(0.5f));
+        assertFalse(smoother.isReady());
+        assertTrue(smoother.update(0.5f));
+        assertTrue(smoother.isReady());
+        // Still 2 of the last 3
+        assertTrue(smoother.update(0.1f));
+        assertFalse(smoother.update(0.1f));
+        assertFalse(smoother.update(0.5f));
+        assertTrue(smoother.update(0.4f));
+        assertEquals(0.4f, smoother.getValue(), 0f);
+    }
+
+    @Test
+    public void voteWindowRidesOverShortDips() {
+        ConfidenceSmoother narrow = new ConfidenceSmoother(SmoothingConfig.vote(2, 3, 0.4f));
+        ConfidenceSmoother wide = new ConfidenceSmoother(SmoothingConfig.vote(3, 5, 0.4f));
+
+        boolean narrowDropped = false;
+        boolean wideDropped = false;
+        boolean started = false;
+        for (float confidence : new float[]{0.8f, 0.8f, 0.8f, 0.1f, 0.1f, 0.8f}) {
+            narrow.update(confidence);
+            wide.update(confidence);
+            started |= wide.isActive();
+            narrowDropped |= started && !narrow.isActive();
+            wideDropped |= started && !wide.isActive();
+        }
+
+        assertTrue(narrowDropped);
+        assertFalse(wideDropped);
+    }
+
+    @Test
+    public void emaEntersAndExitsAtOneThreshold() {
+        ConfidenceSmoother smoother = new ConfidenceSmoother(SmoothingConfig.ema(0.5f, 0.35f));
+        assertTrue(smoother.isReady());
+
+        // The first confidence is taken as is
+        assertTrue(smoother.update(0.8f));
+        assertEquals(0.8f, smoother.getValue(), 1e-6f);
+        assertTrue(smoother.update(0f));
+        assertEquals(0.4f, smoother.getValue(), 1e-6f);
+        assertFalse(smoother.update(0f));
+        assertTrue(smoother.update(0.6f));
+    }
+
+    @Test
+    public void hysteresisEntersHighAndExitsLow() {
+        ConfidenceSmoother smoother = new ConfidenceSmoother(SmoothingConfig.hysteresis(0.6f, 0.3f));
+
+        assertFalse(smoother.update(0.5f));
+        assertTrue(smoother.update(0.65f));
+        assertTrue(smoother.update(0.35f));
+        assertFalse(smoother.update(0.25f));
+        // Below the enter threshold again, not enough to start over
+        assertFalse(smoother.update(0.5f));
+        assertTrue(smoother.update(0.6f));
+    }
+
+    @Test
+    public void hysteresisOnAnAverage() {
+        ConfidenceSmoother smoother = new ConfidenceSmoother(SmoothingConfig.hysteresis(0.5f, 0.6f, 0.3f));
+
+        assertFalse(smoother.update(0.5f));
+        assertTrue(smoother.update(1f));
+        assertEquals(0.75f, smoother.getValue(), 1e-6f);
+        assertTrue(smoother.update(0f));
+        assertFalse(smoother.update(0f));
+    }
+
+    @Test
+    public void configureForgetsEarlierConfidences() {
+        ConfidenceSmoother smoother = new ConfidenceSmoother(SmoothingConfig.DEFAULT);
+        smoother.update(0.9f);
+        smoother.update(0.9f);
+        assertTrue(smoother.isActive());
+
+        SmoothingConfig ema = SmoothingConfig.ema(0.2f, 0.4f);
+        smoother.configure(ema);
+
+        assertFalse(smoother.isActive());
+        assertEquals(0f, smoother.getValue(), 0f);
+        assertEquals(ema, smoother.getConfig());
+        // Starts from the next confidence, not from the reset value
+        assertTrue(smoother.update(0.5f));
+    }
+
+    @Test
+    public void stateListsTheVoteWindowOldestFirst() {
+        ConfidenceSmoother smoother = new ConfidenceSmoother(SmoothingConfig.vote(2, 3, 0.4f));
+        smoother.update(0.9f);
+        smoother.update(0.1f);
+
+        StringBuilder out = new StringBuilder();
+        smoother.appendState(out);
+
+        assertEquals("[true, false]", out.toString());
+    }
+
+    @Test
+    public void invalidConfigsAreRefused() {
+        assertThrows(IllegalArgumentException.class, () -> SmoothingConfig.ema(0f, 0.4f));
+        assertThrows(IllegalArgumentException.class, () -> SmoothingConfig.ema(1.5f, 0.4f));
+        assertThrows(IllegalArgumentException.class, () -> SmoothingConfig.vote(0, 3, 0.4f));
+        assertThrows(IllegalArgumentException.class, () -> SmoothingConfig.vote(4, 3, 0.4f));
+        assertThrows(IllegalArgumentException.class,
+                () -> SmoothingConfig.vote(2, SmoothingConfig.MAX_WINDOW + 1, 0.4f));
+        assertThrows(IllegalArgumentException.class, () -> SmoothingConfig.hysteresis(0.3f, 0.6f));
+        assertThrows(IllegalArgumentException.class, () -> SmoothingConfig.hysteresis(0f, 0.6f, 0.3f));
+    }
+
+    @Test
+    public void longestVoteWindowKeepsEveryBit() {
+        ConfidenceSmoother smoother = new ConfidenceSmoother(
+                SmoothingConfig.vote(SmoothingConfig.MAX_WINDOW, SmoothingConfig.MAX_WINDOW, 0.4f));
+
+        for (int i = 0; i < SmoothingConfig.MAX_WINDOW - 1; i++) {
+            assertFalse(smoother.update(0.9f));
+        }
+        assertTrue(smoother.update(0.9f));
+        assertFalse(smoother.update(0.1f));
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.fitness.ble;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Offset from the least delayed frames, drift between the crystals, and a restarted
+ * sensor starting the fit over.
+ */
+public class DeviceClockTest {
+
+    private static final long OFFSET_MS = 3_600_000;
+    private static final long FRAME_INTERVAL_MS = 40;
+
+    private final DeviceClock clock = new DeviceClock();
+    private final Random random = new Random(7);
+
+    @Test
+    public void deviceTimeIsUnchangedBeforeTheFirstFrame() {
+        assertFalse(clock.isSynced());
+        assertEquals(1234, clock.toLocal(1234));
+    }
+
+    @Test
+    public void offsetFollowsTheLeastDelayedFrame() {
+        clock.observe(0, OFFSET_MS + 30);
+        for (long device = FRAME_INTERVAL_MS; device < 4000; device += FRAME_INTERVAL_MS) {
+            // 8 to 40 ms of radio delay, never less
+            clock.observe(device, OFFSET_MS + device + 8 + random.nextInt(33));
+        }
+
+        assertTrue(clock.isSynced());
+        assertEquals(OFFSET_MS + 5000 + 8, clock.toLocal(5000), 1);
+        assertEquals(0, clock.getDriftPpm(), 0);
+    }
+
+    @Test
+    public void driftIsFittedOverTheWindowMinima() {
+        // The sensor's crystal runs 80 ppm slow against the phone's
+        double drift = 80e-6;
+        long end = DeviceClock.WINDOW_MS * DeviceClock.WINDOWS;
+        for (long device = 0; device < end; device += FRAME_INTERVAL_MS) {
+            long delay = device % 1000 == 0 ? 6 : 6 + random.nextInt(60);
+            clock.observe(device, OFFSET_MS + device + Math.round(device * drift) + delay);
+        }
+
+        assertEquals(80, clock.getDriftPpm(), 5);
+        // Extrapolated a minute past the last frame
+        long later = end + 60_000;
+        assertEquals(OFFSET_MS + later + Math.round(later * drift) + 6, clock.toLocal(later), 2);
+    }
+
+    @Test
+    public void restartedSensorStartsTheFitOver() {
+        for (long device = 100_000; device < 130_000; device += FRAME_INTERVAL_MS) {
+            clock.observe(device, OFFSET_MS + device + 10);
+        }
+        // millis() starts from zero again, ten seconds later
+        long restartLocal = OFFSET_MS + 140_000;
+        clock.observe(0, restartLocal);
+        clock.observe(FRAME_INTERVAL_MS, restartLocal + FRAME_INTERVAL_MS + 3);
+
+        assertEquals(restartLocal + 1000, clock.toLocal(1000), 1);
+        assertEquals(0, clock.getDriftPpm(), 0);
+    }
+}
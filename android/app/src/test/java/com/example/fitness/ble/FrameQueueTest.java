@@ -0,0 +1,186 @@
+package com.example.fitness.ble;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Order, overflow policies and torn reads of the SPSC frame queue. Every frame carries
+ * its sequence number in all of its bytes, so a frame mixed from two writes is caught.
+ */
+public class FrameQueueTest {
+
+    private static final int SLOT_SIZE = 64;
+    private static final int STRESS_FRAMES = 200_000;
+
+    private final byte[] destination = new byte[SLOT_SIZE];
+
+    @Test
+    public void framesComeOutInOrderAcrossTheRingEnd() {
+        FrameQueue queue = new FrameQueue(4, SLOT_SIZE, FrameQueue.OverflowPolicy.DROP_OLDEST);
+        for (int round = 0; round < 10; round++) {
+            // Three at a time, so the slots in use move around the ring
+            for (int sequence = round * 3; sequence < round * 3 + 3; sequence++) {
+                assertTrue(queue.offer(frame(sequence), 0, frameLength(sequence), sequence));
+            }
+            for (int sequence = round * 3; sequence < round * 3 + 3; sequence++) {
+                assertPolled(queue, sequence);
+            }
+        }
+        assertEquals(-1, queue.poll(destination));
+        assertEquals(0, queue.getDroppedCount());
+    }
+
+    @Test
+    public void dropOldestSkipsFramesTheProducerLapped() {
+        FrameQueue queue = new FrameQueue(4, SLOT_SIZE, FrameQueue.OverflowPolicy.DROP_OLDEST);
+        for (int sequence = 0; sequence < 10; sequence++) {
+            queue.offer(frame(sequence), 0, frameLength(sequence), sequence);
+        }
+
+        assertEquals(6, queue.getDroppedCount());
+        assertEquals(4, queue.getDepth());
+        assertEquals(4, queue.getMaxDepth());
+        for (int sequence = 6; sequence < 10; sequence++) {
+            assertPolled(queue, sequence);
+        }
+        assertEquals(-1, queue.poll(destination));
+    }
+
+    @Test
+    public void coalesceReplacesTheNewestFrame() {
+        FrameQueue queue = new FrameQueue(4, SLOT_SIZE, FrameQueue.OverflowPolicy.COALESCE);
+        for (int sequence = 0; sequence < 10; sequence++) {
+            queue.offer(frame(sequence), 0, frameLength(sequence), sequence);
+        }
+
+        assertEquals(6, queue.getCoalescedCount());
+        assertEquals(0, queue.getDroppedCount());
+        assertPolled(queue, 0);
+        assertPolled(queue, 1);
+        assertPolled(queue, 2);
+        assertPolled(queue, 9);
+        assertEquals(-1, queue.poll(destination));
+    }
+
+    @Test
+    public void oversizedFrameIsRejected() {
+        FrameQueue queue = new FrameQueue(4, 8, FrameQueue.OverflowPolicy.DROP_OLDEST);
+
+        assertFalse(queue.offer(new byte[9], 0, 9, 0));
+        assertTrue(queue.offer(new byte[8], 0, 8, 0));
+        assertEquals(1, queue.getOversizedCount());
+        assertEquals(1, queue.getDepth());
+    }
+
+    @Test
+    public void clearDiscardsQueuedFrames() {
+        FrameQueue queue = new FrameQueue(4, SLOT_SIZE, FrameQueue.OverflowPolicy.DROP_OLDEST);
+        queue.offer(frame(0), 0, frameLength(0), 0);
+        queue.offer(frame(1), 0, frameLength(1), 1);
+        queue.clear();
+
+        assertEquals(0, queue.getDepth());
+        assertEquals(-1, queue.poll(destination));
+        queue.offer(frame(2), 0, frameLength(2), 2);
+        assertPolled(queue, 2);
+    }
+
+    @Test
+    public void concurrentDropOldestNeverTearsOrReorders() throws InterruptedException {
+        stress(FrameQueue.OverflowPolicy.DROP_OLDEST);
+    }
+
+    @Test
+    public void concurrentCoalesceNeverTearsOrReorders() throws InterruptedException {
+        stress(FrameQueue.OverflowPolicy.COALESCE);
+    }
+
+    /**
+     * A producer thread against this one polling, with a queue small enough to be lapped
+     * and overwritten while frames are being copied out
+     */
+    private void stress(FrameQueue.OverflowPolicy policy) throws InterruptedException {
+        FrameQueue queue = new FrameQueue(4, SLOT_SIZE, policy);
+        AtomicBoolean done = new AtomicBoolean();
+        Thread producer = new Thread(() -> {
+            for (int sequence = 0; sequence < STRESS_FRAMES; sequence++) {
+                queue.offer(frame(sequence), 0, frameLength(sequence), sequence);
+            }
+            done.set(true);
+        });
+        AtomicReference<String> failure = new AtomicReference<>();
+        producer.start();
+
+        long last = -1;
+        int polled = 0;
+        while (failure.get() == null) {
+            boolean finished = done.get();
+            int length = queue.poll(destination);
+            if (length < 0) {
+                if (finished) {
+                    break;
+                }
+                continue;
+            }
+            int sequence = destination[0] & 0xFF | (destination[1] & 0xFF) << 8 | (destination[2] & 0xFF) << 16;
+            String torn = checkFrame(sequence, length, queue.getLastTimestamp());
+            if (torn != null) {
+                failure.set(torn);
+            } else if (sequence <= last) {
+                failure.set("Frame " + sequence + " after " + last);
+            }
+            last = sequence;
+            polled++;
+        }
+        producer.join();
+
+        assertNull(failure.get());
+        assertEquals(STRESS_FRAMES - 1, last);
+        if (policy == FrameQueue.OverflowPolicy.DROP_OLDEST) {
+            assertTrue(polled + queue.getDroppedCount() >= STRESS_FRAMES);
+        } else {
+            assertEquals(STRESS_FRAMES, polled + queue.getCoalescedCount());
+        }
+    }
+
+    private void assertPolled(FrameQueue queue, int sequence) {
+        int length = queue.poll(destination);
+        assertEquals(frameLength(sequence), length);
+        assertNull(checkFrame(sequence, length, queue.getLastTimestamp()));
+    }
+
+    private String checkFrame(int sequence, int length, long timestamp) {
+        if (length != frameLength(sequence) || timestamp != sequence) {
+            return "Frame " + sequence + " has length " + length + " and timestamp " + timestamp;
+        }
+        byte[] expected = frame(sequence);
+        for (int i = 0; i < length; i++) {
+            if (destination[i] != expected[i]) {
+                return "Frame " + sequence + " differs at byte " + i;
+            }
+        }
+        return null;
+    }
+
+    private static int frameLength(int sequence) {
+        return 3 + sequence % (SLOT_SIZE - 3);
+    }
+
+    private static byte[] frame(int sequence) {
+        byte[] frame = new byte[frameLength(sequence)];
+        frame[0] = (byte) sequence;
+        frame[1] = (byte) (sequence >> 8);
+        frame[2] = (byte) (sequence >> 16);
+        for (int i = 3; i < frame.length; i++) {
+            frame[i] = (byte) (sequence * 31 + i);
+        }
+        return frame;
+    }
+}
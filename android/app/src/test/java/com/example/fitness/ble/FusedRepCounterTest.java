@@ -0,0 +1,155 @@
+package com.example.fitness.ble;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Signal reps gated by the classifier: counted while it detects the target exercise,
+ * rejected while it detects another one, and either source counting on its own when the
+ * other goes quiet.
+ */
+public class FusedRepCounterTest {
+
+    private static final long TEMPO_MS = 2000;
+    private static final long FRAME_MS = 200;
+    private static final int SAMPLES_PER_FRAME = 4; // 20 Hz
+    private static final int FRAMES_PER_REP = (int) (TEMPO_MS / FRAME_MS);
+
+    private PredictionLabels labels;
+    private PredictionFrame frame;
+    private int squat;
+    private int lunge;
+    private long nowMs = 10_000;
+
+    private FusedRepCounter counter;
+    private final List<String> reps = new ArrayList<>();     // Source of each counted rep
+    private final List<String> rejected = new ArrayList<>(); // Source of each rejected rep
+
+    @Before
+    public void setUp() {
+        labels = new PredictionLabels();
+        squat = labels.intern("squat");
+        lunge = labels.intern("lunge");
+        frame = new PredictionFrame(labels);
+
+        counter = new FusedRepCounter("Squat", TEMPO_MS, SmoothingConfig.DEFAULT, 1000f / FRAME_MS * SAMPLES_PER_FRAME);
+        counter.setVerbosity(CounterEvent.Verbosity.EVENTS);
+        counter.setRepCountListener(new RepCounter.RepCountListener() {
+            @Override
+            public void onRepCompleted(int repCount) {
+            }
+
+            @Override
+            public void onExerciseStateChanged(boolean isDoingExercise, String exerciseName, double confidence) {
+            }
+
+            @Override
+            public void onCounterEvent(CounterEvent event) {
+                if (event.getType() == CounterEvent.Type.REP) {
+                    reps.add(event.getSource());
+                } else if (event.getType() == CounterEvent.Type.REJECTED) {
+                    rejected.add(event.getSource());
+                }
+            }
+        });
+    }
+
+    @Test
+    public void signalRepsCountWhileTheClassifierAgrees() {
+        for (int i = 0; i < 10 * FRAMES_PER_REP; i++) {
+            swing(i);
+            predict(0.85f, 0.05f);
+        }
+
+        assertEquals(10, counter.getRepCount());
+        assertTrue(reps.stream().allMatch("signal"::equals));
+        assertTrue(rejected.isEmpty());
+    }
+
+    @Test
+    public void signalRepsAreRejectedWhileTheClassifierSeesAnotherExercise() {
+        for (int i = 0; i < 10 * FRAMES_PER_REP; i++) {
+            swing(i);
+            predict(0.05f, 0.9f);
+        }
+
+        assertEquals(0, counter.getRepCount());
+        assertEquals(10, rejected.size());
+        assertTrue(rejected.stream().allMatch("signal"::equals));
+    }
+
+    @Test
+    public void classifierDetectionVouchesOnlyForAWhile() {
+        // Agreeing for three reps, then another exercise for five
+        for (int i = 0; i < 8 * FRAMES_PER_REP; i++) {
+            swing(i);
+            predict(i < 3 * FRAMES_PER_REP ? 0.85f : 0.05f, i < 3 * FRAMES_PER_REP ? 0.05f : 0.9f);
+        }
+
+        // The last detection still vouches for the two reps that follow within the gate
+        assertEquals(5, counter.getRepCount());
+        assertEquals(3, rejected.size());
+    }
+
+    @Test
+    public void signalCountsAloneWithoutPredictions() {
+        for (int i = 0; i < 10 * FRAMES_PER_REP; i++) {
+            swing(i);
+            nowMs += FRAME_MS;
+        }
+
+        assertEquals(10, counter.getRepCount());
+        assertTrue(reps.stream().allMatch("signal"::equals));
+    }
+
+    @Test
+    public void classifierCountsAloneWithoutSamples() {
+        // 4 frames confident, 6 not, as in the squat sessions
+        for (int i = 0; i < 3 * FRAMES_PER_REP; i++) {
+            predict(i % FRAMES_PER_REP < 4 ? 0.85f : 0.05f, 0.05f);
+        }
+
+        assertEquals(3, counter.getRepCount());
+        assertTrue(reps.stream().allMatch("classifier"::equals));
+    }
+
+    @Test
+    public void resetStartsOver() {
+        for (int i = 0; i < 3 * FRAMES_PER_REP; i++) {
+            swing(i);
+            predict(0.85f, 0.05f);
+        }
+        counter.reset();
+
+        assertEquals(0, counter.getRepCount());
+        assertEquals("squat", counter.getTargetExercise());
+    }
+
+    /**
+     * The raw samples of frame {@code index}: vertical acceleration swinging half a g once
+     * per {@link #TEMPO_MS}
+     */
+    private void swing(int index) {
+        long intervalMs = FRAME_MS / SAMPLES_PER_FRAME;
+        for (int i = 0; i < SAMPLES_PER_FRAME; i++) {
+            double phase = 2 * Math.PI * (index * SAMPLES_PER_FRAME + i) / (FRAMES_PER_REP * SAMPLES_PER_FRAME);
+            float az = 1f + 0.5f * (float) Math.sin(phase);
+            counter.processSample(0.01f, -0.02f, az, 1.5f, -3.2f, 0.7f, nowMs + i * intervalMs);
+        }
+    }
+
+    private void predict(float squatScore, float lungeScore) {
+        nowMs += FRAME_MS;
+        frame.sampledAtMs = nowMs;
+        frame.receivedAtMs = nowMs;
+        frame.scores[squat] = squatScore;
+        frame.scores[lunge] = lungeScore;
+        counter.processPrediction(frame);
+    }
+}
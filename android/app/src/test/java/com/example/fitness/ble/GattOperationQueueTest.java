@@ -0,0 +1,142 @@
+package com.example.fitness.ble;
+
+import com.example.fitness.FakeHandler;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * One operation in flight at a time, timeouts, retries with their backoff, and results
+ * and timers from before a clear() being ignored.
+ */
+public class GattOperationQueueTest {
+
+    private static final long TIMEOUT_MS = 1000;
+
+    private FakeHandler handler;
+    private GattOperationQueue queue;
+    private final List<String> log = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        handler = new FakeHandler();
+        queue = new GattOperationQueue(handler);
+    }
+
+    @Test
+    public void nextOperationWaitsForTheCurrentOneToComplete() {
+        enqueue(GattOperationQueue.Type.REQUEST_MTU, "mtu", 0, true);
+        enqueue(GattOperationQueue.Type.DISCOVER_SERVICES, "discover", 0, true);
+        handler.runPending();
+        assertEquals(List.of("issue mtu@0"), log);
+
+        handler.advanceBy(50);
+        queue.complete(GattOperationQueue.Type.REQUEST_MTU, GattOperationQueue.STATUS_SUCCESS);
+        handler.runPending();
+
+        assertEquals(List.of("issue mtu@0", "result mtu 0", "issue discover@50"), log);
+    }
+
+    @Test
+    public void timedOutOperationIsRetriedThenReported() {
+        enqueue(GattOperationQueue.Type.WRITE_DESCRIPTOR, "cccd", 2, true);
+        enqueue(GattOperationQueue.Type.READ_RSSI, "rssi", 0, true);
+        handler.advanceBy(3300);
+
+        // Timeout, then 100 and 200 ms of backoff before the retries
+        assertEquals(List.of("issue cccd@0", "issue cccd@1100", "issue cccd@2300",
+                "result cccd " + GattOperationQueue.STATUS_TIMEOUT, "issue rssi@3300"), log);
+    }
+
+    @Test
+    public void failedStatusIsRetriedUntilItSucceeds() {
+        enqueue(GattOperationQueue.Type.WRITE_CHARACTERISTIC, "write", 3, true);
+        handler.runPending();
+        queue.complete(GattOperationQueue.Type.WRITE_CHARACTERISTIC, 133);
+        handler.advanceBy(100);
+        queue.complete(GattOperationQueue.Type.WRITE_CHARACTERISTIC, GattOperationQueue.STATUS_SUCCESS);
+        handler.advanceBy(10_000);
+
+        assertEquals(List.of("issue write@0", "issue write@100", "result write 0"), log);
+    }
+
+    @Test
+    public void refusedRequestBacksOffExponentiallyUpToTheCap() {
+        enqueue(GattOperationQueue.Type.READ_CHARACTERISTIC, "read", 7, false);
+        handler.advanceBy(60_000);
+
+        // 100, 200, 400, 800, 1600, then capped at 2000 ms
+        assertEquals(List.of("issue read@0", "issue read@100", "issue read@300", "issue read@700",
+                "issue read@1500", "issue read@3100", "issue read@5100", "issue read@7100",
+                "result read " + GattOperationQueue.STATUS_NOT_ISSUED), log);
+    }
+
+    @Test
+    public void permissionDeniedIsReportedWithoutRetrying() {
+        queue.enqueue(GattOperationQueue.Type.DISCOVER_SERVICES, "discover", TIMEOUT_MS, 3,
+                () -> {
+                    log.add("issue discover@" + handler.now());
+                    throw new SecurityException("BLUETOOTH_CONNECT");
+                },
+                status -> log.add("result discover " + status));
+        handler.advanceBy(10_000);
+
+        assertEquals(List.of("issue discover@0", "result discover " + GattOperationQueue.STATUS_NOT_ISSUED), log);
+    }
+
+    @Test
+    public void resultForAnotherOperationIsIgnored() {
+        enqueue(GattOperationQueue.Type.REQUEST_MTU, "mtu", 0, true);
+        handler.runPending();
+        queue.complete(GattOperationQueue.Type.READ_RSSI, GattOperationQueue.STATUS_SUCCESS);
+        handler.advanceBy(TIMEOUT_MS - 1);
+
+        assertEquals(List.of("issue mtu@0"), log);
+    }
+
+    @Test
+    public void clearDropsTheQueueAndItsTimers() {
+        enqueue(GattOperationQueue.Type.WRITE_DESCRIPTOR, "cccd", 3, true);
+        enqueue(GattOperationQueue.Type.READ_RSSI, "rssi", 0, true);
+        handler.runPending();
+        queue.clear();
+        handler.runPending();
+        // A late result from the old connection
+        queue.complete(GattOperationQueue.Type.WRITE_DESCRIPTOR, GattOperationQueue.STATUS_SUCCESS);
+        handler.advanceBy(10_000);
+
+        assertEquals(List.of("issue cccd@0"), log);
+        assertEquals(0, handler.getPendingCount());
+
+        enqueue(GattOperationQueue.Type.REQUEST_MTU, "mtu", 0, true);
+        handler.runPending();
+        assertEquals("issue mtu@10000", log.get(log.size() - 1));
+    }
+
+    @Test
+    public void retryScheduledBeforeAClearIsNotIssued() {
+        enqueue(GattOperationQueue.Type.WRITE_CHARACTERISTIC, "write", 3, true);
+        handler.runPending();
+        queue.complete(GattOperationQueue.Type.WRITE_CHARACTERISTIC, 133);
+        handler.runPending();
+        // The backoff is pending when the connection goes away
+        queue.clear();
+        handler.advanceBy(10_000);
+
+        assertEquals(List.of("issue write@0"), log);
+    }
+
+    private void enqueue(GattOperationQueue.Type type, String name, int maxRetries, boolean accepted) {
+        queue.enqueue(type, name, TIMEOUT_MS, maxRetries,
+                () -> {
+                    log.add("issue " + name + "@" + handler.now());
+                    return accepted;
+                },
+                status -> log.add("result " + name + " " + status));
+    }
+}
@@ -0,0 +1,235 @@
+package com.example.fitness.ble;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Reps of every label in one pass: the active exercise and its smoothing, the minimum
+ * gap between reps, switching exercises, and the slow average that reports which
+ * exercise the user is doing.
+ */
+public class MultiLabelExerciseCounterTest {
+
+    private static final long FRAME_MS = 200;
+
+    private PredictionLabels labels;
+    private PredictionFrame frame;
+    private int squat;
+    private int lunge;
+    private int idle;
+    private long nowMs = 10_000;
+
+    private MultiLabelExerciseCounter counter;
+    private final List<Long> reps = new ArrayList<>(); // sampledAtMs of each reported rep
+    private final List<String> detected = new ArrayList<>();
+    private final List<CounterEvent.Type> events = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        labels = new PredictionLabels();
+        squat = labels.intern("squat");
+        lunge = labels.intern("lunge");
+        idle = labels.intern("idle");
+        frame = new PredictionFrame(labels);
+
+        counter = new MultiLabelExerciseCounter("Squat");
+        counter.setRepCountListener(new RepCounter.RepCountListener() {
+            @Override
+            public void onRepCompleted(int repCount) {
+            }
+
+            @Override
+            public void onRepCompleted(int repCount, long sampledAtMs) {
+                reps.add(sampledAtMs);
+            }
+
+            @Override
+            public void onExerciseStateChanged(boolean isDoingExercise, String exerciseName, double confidence) {
+            }
+
+            @Override
+            public void onCounterEvent(CounterEvent event) {
+                events.add(event.getType());
+            }
+        });
+        counter.setExerciseDetectionListener((label, confidence) -> detected.add(label));
+    }
+
+    @Test
+    public void repsOfTheActiveExerciseAreCountedAtTheirSampleTime() {
+        for (int rep = 0; rep < 3; rep++) {
+            rep(squat);
+        }
+
+        assertEquals(3, counter.getRepCount());
+        assertEquals(3, reps.size());
+        // One rep every 10 frames
+        assertEquals(2000, reps.get(1) - reps.get(0));
+        assertEquals(2000, reps.get(2) - reps.get(1));
+        assertEquals("squat", counter.getTargetExercise());
+    }
+
+    @Test
+    public void repsCloserThanTheMinimumGapAreNotCounted() {
+        // Three frames up, three down, a rep every 600 ms
+        for (int cycle = 0; cycle < 10; cycle++) {
+            for (int i = 0; i < 6; i++) {
+                feed(100, i < 3 ? 0.9f : 0.05f, 0.05f);
+            }
+        }
+
+        assertTrue(counter.getRepCount() > 0);
+        assertTrue(counter.getRepCount() < 10);
+        for (int i = 1; i < reps.size(); i++) {
+            assertTrue(reps.get(i) - reps.get(i - 1) >= 1000);
+        }
+    }
+
+    @Test
+    public void everyLabelIsCountedButOnlyTheActiveOneReported() {
+        rep(squat);
+        rep(lunge);
+        rep(lunge);
+
+        assertEquals(1, counter.getRepCount());
+        assertEquals(1, reps.size());
+        assertEquals(1, counter.getRepCount("squat"));
+        assertEquals(2, counter.getRepCount("lunge"));
+        assertEquals(0, counter.getRepCount("plank"));
+    }
+
+    @Test
+    public void switchingStartsTheNewExerciseFromZeroAndKeepsTheOthers() {
+        rep(squat);
+        rep(squat);
+        rep(lunge);
+
+        counter.setActiveExercise("lunge", 0, SmoothingConfig.DEFAULT);
+
+        assertEquals("lunge", counter.getTargetExercise());
+        assertEquals(0, counter.getRepCount());
+        assertEquals(2, counter.getRepCount("squat"));
+        rep(lunge);
+        assertEquals(1, counter.getRepCount());
+        assertEquals(3, reps.size());
+    }
+
+    @Test
+    public void activeExerciseUsesItsOwnSmoothing() {
+        counter.setActiveExercise("squat", 0, SmoothingConfig.hysteresis(0.6f, 0.2f));
+        // Enough for the default vote, not for this exercise's enter threshold
+        for (int i = 0; i < 10; i++) {
+            feed(FRAME_MS, 0.5f, 0.45f);
+        }
+        assertFalse(counter.isTargetDetected());
+
+        feed(FRAME_MS, 0.65f, 0.05f);
+        assertTrue(counter.isTargetDetected());
+        assertTrue(counter.isDoingExercise());
+        // Stays active down to the exit threshold
+        feed(FRAME_MS, 0.3f, 0.05f);
+        assertTrue(counter.isDoingExercise());
+        feed(FRAME_MS, 0.1f, 0.05f);
+        assertFalse(counter.isDoingExercise());
+        assertEquals(1, counter.getRepCount());
+        assertEquals(0.1, counter.getLastConfidence(), 1e-6);
+    }
+
+    @Test
+    public void exerciseIsDetectedOnceItsAverageLeadsForFiveFrames() {
+        // The average of a steady 0.85 passes 0.3 on the 5th frame
+        for (int i = 0; i < 8; i++) {
+            feed(FRAME_MS, 0.85f, 0.05f);
+        }
+        assertTrue(detected.isEmpty());
+        assertNull(counter.getDetectedExercise());
+
+        feed(FRAME_MS, 0.85f, 0.05f);
+
+        assertEquals(List.of("squat"), detected);
+        assertEquals("squat", counter.getDetectedExercise());
+        for (int i = 0; i < 20; i++) {
+            feed(FRAME_MS, 0.85f, 0.05f);
+        }
+        assertEquals(1, detected.size());
+    }
+
+    @Test
+    public void detectionFollowsTheExerciseThatTakesOver() {
+        for (int i = 0; i < 20; i++) {
+            feed(FRAME_MS, 0.85f, 0.05f);
+        }
+        for (int i = 0; i < 40; i++) {
+            feed(FRAME_MS, 0.05f, 0.85f);
+        }
+
+        assertEquals(List.of("squat", "lunge"), detected);
+    }
+
+    @Test
+    public void nothingIsDetectedBelowTheThreshold() {
+        // The model cannot tell, nothing stands out
+        for (int i = 0; i < 50; i++) {
+            feed(FRAME_MS, 0.25f, 0.25f, 0.25f);
+        }
+
+        assertTrue(detected.isEmpty());
+        assertNull(counter.getDetectedExercise());
+    }
+
+    @Test
+    public void samplesVerbosityReportsTheActiveConfidenceOfEveryFrame() {
+        events.clear();
+        rep(lunge);
+        assertFalse(events.contains(CounterEvent.Type.CONFIDENCE));
+
+        counter.setVerbosity(CounterEvent.Verbosity.SAMPLES);
+        rep(lunge);
+
+        assertEquals(10, events.stream().filter(type -> type == CounterEvent.Type.CONFIDENCE).count());
+    }
+
+    @Test
+    public void resetForgetsEveryLabel() {
+        rep(squat);
+        rep(lunge);
+        counter.reset();
+
+        assertEquals(0, counter.getRepCount());
+        assertEquals(0, counter.getRepCount("lunge"));
+        assertFalse(counter.isDoingExercise());
+        assertNull(counter.getDetectedExercise());
+    }
+
+    /**
+     * One rep of {@code label} at the squat session's pattern: 4 frames confident, 6 not
+     */
+    private void rep(int label) {
+        for (int i = 0; i < 10; i++) {
+            float score = i < 4 ? 0.85f : 0.05f;
+            feed(FRAME_MS, label == squat ? score : 0.05f, label == lunge ? score : 0.05f);
+        }
+    }
+
+    private void feed(long afterMs, float squatScore, float lungeScore) {
+        feed(afterMs, squatScore, lungeScore, Math.max(0f, 1f - squatScore - lungeScore));
+    }
+
+    private void feed(long afterMs, float squatScore, float lungeScore, float idleScore) {
+        nowMs += afterMs;
+        frame.sampledAtMs = nowMs;
+        frame.receivedAtMs = nowMs;
+        frame.scores[squat] = squatScore;
+        frame.scores[lunge] = lungeScore;
+        frame.scores[idle] = idleScore;
+        counter.processPrediction(frame);
+    }
+}
@@ -0,0 +1,229 @@
+package com.example.fitness.ble;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Both wire formats, truncated and unexpected frames, and label tables larger than
+ * the registry.
+ */
+public class PredictionFrameDecoderTest {
+
+    private static final String[] LABELS = {"squat", "lunge", "idle"};
+
+    private PredictionLabels labels;
+    private PredictionFrameDecoder decoder;
+    private PredictionFrame frame;
+
+    @Before
+    public void setUp() {
+        labels = new PredictionLabels();
+        decoder = new PredictionFrameDecoder(labels);
+        frame = new PredictionFrame(labels);
+    }
+
+    @Test
+    public void binaryPredictionIsReadAfterItsLabelTable() {
+        decode(labelTable(LABELS));
+        assertTrue(decode(prediction(7, 123_456L, true, 0.75f, 0.25f, 0f)));
+
+        assertEquals(PredictionFrame.FORMAT_BINARY, frame.getFormat());
+        assertEquals(7, frame.getSequence());
+        assertEquals(123_456L, frame.getDeviceTimeMs());
+        assertEquals(0.75f, frame.getScore("squat"), 1e-4f);
+        assertEquals(0.25f, frame.getScore("lunge"), 1e-4f);
+        assertEquals(0f, frame.getScore("idle"), 0f);
+        assertTrue(frame.hasImu());
+        assertEquals(-0.981f, frame.getImu(PredictionFrame.IMU_AY), 1e-4f);
+        assertEquals(-3.2f, frame.getImu(PredictionFrame.IMU_GY), 1e-4f);
+    }
+
+    @Test
+    public void binaryPredictionWithoutLabelTableIsDropped() {
+        assertFalse(decode(prediction(1, 0, false, 0.5f, 0.5f, 0f)));
+
+        assertEquals(1, decoder.getMissingLabelTableCount());
+        assertEquals(0, decoder.getMalformedCount());
+    }
+
+    @Test
+    public void labelsBeyondTheRegistryAreSkippedNotTheFrames() {
+        String[] many = new String[PredictionLabels.MAX_LABELS + 4];
+        float[] scores = new float[many.length];
+        for (int i = 0; i < many.length; i++) {
+            many[i] = "label_" + i;
+            scores[i] = i / 100f;
+        }
+        decode(labelTable(many));
+        assertTrue(decode(prediction(1, 0, false, scores)));
+
+        assertEquals(PredictionLabels.MAX_LABELS, labels.size());
+        assertEquals(0.15f, frame.getScore("label_15"), 1e-4f);
+        assertEquals(0f, frame.getScore("label_16"), 0f);
+        assertEquals(0, decoder.getMissingLabelTableCount());
+    }
+
+    @Test
+    public void truncatedLabelTableDropsTheOldOne() {
+        decode(labelTable(LABELS));
+        byte[] table = labelTable("squat", "plank");
+        assertFalse(decode(Arrays.copyOf(table, table.length - 2)));
+
+        assertEquals(1, decoder.getMalformedCount());
+        assertFalse(decode(prediction(1, 0, false, 0.5f, 0.5f, 0f)));
+        assertEquals(1, decoder.getMissingLabelTableCount());
+    }
+
+    @Test
+    public void truncatedBinaryPredictionIsMalformed() {
+        decode(labelTable(LABELS));
+        byte[] full = prediction(1, 0, true, 0.5f, 0.5f, 0f);
+
+        assertFalse(decode(Arrays.copyOf(full, full.length - 1)));
+        assertFalse(decode(Arrays.copyOf(full, 6)));
+        assertEquals(2, decoder.getMalformedCount());
+    }
+
+    @Test
+    public void unknownVersionIsMalformed() {
+        decode(labelTable(LABELS));
+        byte[] data = prediction(1, 0, false, 0.5f, 0.5f, 0f);
+        data[1] = PredictionFrameDecoder.PROTOCOL_VERSION + 1;
+
+        assertFalse(decode(data));
+        assertEquals(1, decoder.getMalformedCount());
+    }
+
+    @Test
+    public void batchedFramesAreSplitByLength() {
+        byte[] first = prediction(1, 0, true, 0.1f, 0.2f, 0.7f);
+        byte[] second = prediction(2, 200, false, 0.9f, 0.1f, 0f);
+        byte[] batch = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, batch, first.length, second.length);
+
+        assertEquals(first.length, PredictionFrameDecoder.frameLength(batch, 0, batch.length));
+        assertEquals(second.length, PredictionFrameDecoder.frameLength(batch, first.length, second.length));
+        // A cut off frame is left whole for decode() to reject
+        assertEquals(5, PredictionFrameDecoder.frameLength(batch, 0, 5));
+    }
+
+    @Test
+    public void jsonFallbackReadsScoresSensorAndTiming() {
+        assertTrue(decode(ascii("{\"sensor\":{\"ax\":0.012,\"ay\":-9.8e-1,\"gz\":1.5},"
+                + "\"predictions\":{\"Squat\":0.91,\"idle\":null,\"lunge\":5E-2},"
+                + "\"meta\":{\"fw\":\"1.2 {beta}\",\"list\":[1,2]},\"seq\":42,\"ts\":8400}")));
+
+        assertEquals(PredictionFrame.FORMAT_JSON, frame.getFormat());
+        assertEquals(0.91f, frame.getScore("squat"), 1e-6f);
+        assertEquals(0.05f, frame.getScore("lunge"), 1e-6f);
+        assertEquals(0f, frame.getScore("idle"), 0f);
+        assertEquals(-0.98f, frame.getImu(PredictionFrame.IMU_AY), 1e-6f);
+        assertEquals(1.5f, frame.getImu(PredictionFrame.IMU_GZ), 1e-6f);
+        assertEquals(42, frame.getSequence());
+        assertEquals(8400, frame.getDeviceTimeMs());
+    }
+
+    @Test
+    public void jsonAndBinaryShareLabelIds() {
+        decode(ascii("{\"predictions\":{\"idle\":1.0}}"));
+        decode(labelTable(LABELS));
+        assertTrue(decode(prediction(1, 0, false, 0f, 0f, 0.5f)));
+
+        assertEquals(0, labels.indexOf("idle"));
+        assertEquals(0.5f, frame.getScore(0), 1e-4f);
+    }
+
+    @Test
+    public void truncatedJsonIsMalformed() {
+        byte[] json = ascii("{\"predictions\":{\"squat\":0.91,\"idle\":0.09}}");
+
+        assertFalse(decode(Arrays.copyOf(json, json.length - 1)));
+        assertFalse(decode(Arrays.copyOf(json, 20)));
+        assertEquals(2, decoder.getMalformedCount());
+    }
+
+    @Test
+    public void jsonWithoutPredictionsIsNotAPrediction() {
+        assertFalse(decode(ascii("{\"status\":\"ready\"}")));
+        assertEquals(0, decoder.getMalformedCount());
+    }
+
+    @Test
+    public void labelsInternedConcurrentlyGetOneId() throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        int[][] ids = new int[2][PredictionLabels.MAX_LABELS];
+        Thread[] threads = new Thread[2];
+        for (int t = 0; t < threads.length; t++) {
+            int[] out = ids[t];
+            threads[t] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < out.length; i++) {
+                    byte[] name = ascii("label_" + i);
+                    out[i] = labels.intern(name, 0, name.length);
+                }
+            });
+            threads[t].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertArrayEquals(ids[0], ids[1]);
+        assertEquals(PredictionLabels.MAX_LABELS, labels.size());
+        for (int i = 0; i < PredictionLabels.MAX_LABELS; i++) {
+            assertEquals("label_" + i, labels.getName(ids[0][i]));
+        }
+    }
+
+    private boolean decode(byte[] data) {
+        return decoder.decode(data, 0, data.length, frame);
+    }
+
+    private static byte[] labelTable(String... names) {
+        ByteBuffer buffer = ByteBuffer.allocate(1024).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put(PredictionFrameDecoder.MAGIC).put((byte) PredictionFrameDecoder.PROTOCOL_VERSION)
+                .put((byte) PredictionFrameDecoder.TYPE_LABELS).put((byte) 0).put((byte) names.length);
+        for (String name : names) {
+            byte[] bytes = ascii(name);
+            buffer.put((byte) bytes.length).put(bytes);
+        }
+        return Arrays.copyOf(buffer.array(), buffer.position());
+    }
+
+    private static byte[] prediction(int sequence, long deviceTimeMs, boolean withImu, float... scores) {
+        ByteBuffer buffer = ByteBuffer.allocate(11 + 2 * scores.length + (withImu ? 12 : 0))
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put(PredictionFrameDecoder.MAGIC).put((byte) PredictionFrameDecoder.PROTOCOL_VERSION)
+                .put((byte) PredictionFrameDecoder.TYPE_PREDICTION)
+                .put((byte) (withImu ? PredictionFrameDecoder.FLAG_IMU : 0))
+                .putShort((short) sequence).putInt((int) deviceTimeMs).put((byte) scores.length);
+        for (float score : scores) {
+            buffer.putShort((short) Math.round(score * 65535));
+        }
+        if (withImu) {
+            buffer.putShort((short) 12).putShort((short) -981).putShort((short) 104)
+                    .putShort((short) 15).putShort((short) -32).putShort((short) 7);
+        }
+        return buffer.array();
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.fitness.ble;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Alignment of several trackers on the phone's timeline: the primary waits for the
+ * others, their scores are interpolated and weighted, and late or silent trackers do
+ * not hold the stream up.
+ */
+public class SensorFusionTest {
+
+    private PredictionLabels labels;
+    private SensorFusion fusion;
+    private int squat;
+    private final List<float[]> emitted = new ArrayList<>(); // sampledAtMs, squat score, source sequence
+
+    @Before
+    public void setUp() {
+        labels = new PredictionLabels();
+        squat = labels.intern("squat");
+        fusion = new SensorFusion(labels);
+        fusion.setListener(frame -> emitted.add(new float[]{
+                frame.getSampledAtMs(), frame.getScore(squat), frame.getSequence()}));
+    }
+
+    @Test
+    public void singleTrackerPassesThroughImmediately() {
+        fusion.accept(0, frame(1, 100, 0.25f));
+        fusion.accept(0, frame(2, 300, 0.75f));
+
+        assertEquals(2, emitted.size());
+        assertEmitted(0, 100, 0.25f, 1);
+        assertEmitted(1, 300, 0.75f, 2);
+    }
+
+    @Test
+    public void primaryWaitsForTheOtherTrackerAndInterpolatesIt() {
+        fusion.accept(1, frame(10, 80, 0f));
+        fusion.accept(0, frame(1, 100, 1f));
+        // The ankle tracker has not reached 100 ms yet
+        assertEquals(1, emitted.size());
+
+        fusion.accept(1, frame(11, 120, 1f));
+
+        assertEquals(2, emitted.size());
+        // Halfway between the ankle's 0 and 1, averaged with the wrist's 1
+        assertEmitted(1, 100, 0.75f, 1);
+    }
+
+    @Test
+    public void weightsScaleEachTrackersShare() {
+        fusion.setWeight(1, 3f);
+        fusion.accept(1, frame(10, 80, 0f));
+        fusion.accept(0, frame(1, 100, 1f));
+        fusion.accept(1, frame(11, 120, 1f));
+
+        assertEmitted(1, 100, (1f + 3f * 0.5f) / 4f, 1);
+    }
+
+    @Test
+    public void primaryFrameIsNotHeldPastTheWait() {
+        fusion.accept(1, frame(10, 0, 0f));
+        fusion.accept(0, frame(1, 10, 1f));
+        fusion.accept(0, frame(2, 10 + SensorFusion.MAX_WAIT_MS, 1f));
+
+        // The first wrist frame went out without the ankle catching up, the second still waits
+        assertEquals(2, emitted.size());
+        assertEmitted(1, 10, 0.5f, 1);
+    }
+
+    @Test
+    public void silentTrackerIsLeftOut() {
+        fusion.accept(1, frame(10, 0, 0f));
+        fusion.accept(0, frame(1, SensorFusion.STALE_MS, 1f));
+
+        assertEquals(2, emitted.size());
+        assertEmitted(1, SensorFusion.STALE_MS, 1f, 1);
+    }
+
+    @Test
+    public void unsyncedFramesArePlacedThroughTheDeviceClock() {
+        for (int i = 0; i < 20; i++) {
+            long device = i * 200L;
+            // Every other frame waits 30 ms longer in the radio
+            long jitter = i % 2 == 0 ? 0 : 30;
+            fusion.accept(0, frame(i, 5000 + device + jitter, device, 0.5f));
+        }
+
+        assertEquals(20, emitted.size());
+        for (int i = 0; i < 20; i++) {
+            assertEquals(5000 + i * 200L, emitted.get(i)[0], 0);
+        }
+    }
+
+    @Test
+    public void syncedFramesKeepTheirSampleTime() {
+        PredictionFrame frame = frame(1, 500, 123_456, 0.5f);
+        frame.timeSynced = true;
+        frame.sampledAtMs = 470;
+        fusion.accept(0, frame);
+
+        assertEmitted(0, 470, 0.5f, 1);
+    }
+
+    private void assertEmitted(int index, long sampledAtMs, float score, long sequence) {
+        float[] output = emitted.get(index);
+        assertEquals(sampledAtMs, output[0], 0);
+        assertEquals(score, output[1], 1e-6f);
+        assertEquals(sequence, output[2], 0);
+    }
+
+    private PredictionFrame frame(long sequence, long receivedAtMs, float squatScore) {
+        return frame(sequence, receivedAtMs, -1, squatScore);
+    }
+
+    private PredictionFrame frame(long sequence, long receivedAtMs, long deviceTimeMs, float squatScore) {
+        PredictionFrame frame = new PredictionFrame(labels);
+        frame.sequence = sequence;
+        frame.receivedAtMs = receivedAtMs;
+        frame.sampledAtMs = receivedAtMs;
+        frame.deviceTimeMs = deviceTimeMs;
+        frame.scores[squat] = squatScore;
+        return frame;
+    }
+}
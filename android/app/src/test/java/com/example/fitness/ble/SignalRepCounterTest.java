@@ -0,0 +1,136 @@
+package com.example.fitness.ble;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongToDoubleFunction;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Reps from the band-passed acceleration magnitude: one per swing at the exercise's
+ * tempo, rebounds inside the refractory period left out, and the filters following the
+ * tracker's sample rate.
+ */
+public class SignalRepCounterTest {
+
+    private static final long TEMPO_MS = 2000;
+
+    private final List<Long> reps = new ArrayList<>();
+    private long nowMs = 10_000;
+
+    @Test
+    public void everySwingAtTheTempoIsOneRep() {
+        SignalRepCounter counter = counter(20);
+
+        stream(counter, 20, 10 * TEMPO_MS, swing(0.5f));
+
+        assertEquals(10, counter.getRepCount());
+        for (int i = 2; i < reps.size(); i++) {
+            assertEquals(TEMPO_MS, reps.get(i) - reps.get(i - 1), 100);
+        }
+    }
+
+    @Test
+    public void stillnessCountsNothing() {
+        SignalRepCounter counter = counter(20);
+
+        stream(counter, 20, 10 * TEMPO_MS, swing(0.01f));
+
+        assertEquals(0, counter.getRepCount());
+    }
+
+    @Test
+    public void reboundsInsideTheRefractoryPeriodAreNotCounted() {
+        SignalRepCounter counter = counter(20);
+
+        // The body settles back half a second after every rep, which looks like a smaller rep
+        stream(counter, 20, 10 * TEMPO_MS, t -> {
+            long inRep = t % TEMPO_MS;
+            return bump(inRep, 300, 0.6) + bump(inRep, 800, 0.4);
+        });
+
+        assertEquals(10, counter.getRepCount());
+        for (int i = 1; i < reps.size(); i++) {
+            assertTrue(reps.get(i) - reps.get(i - 1) >= counter.getRefractoryMs());
+        }
+    }
+
+    @Test
+    public void filtersFollowTheAppliedSampleRate() {
+        SignalRepCounter counter = counter(0);
+        assertEquals(SignalRepCounter.DEFAULT_SAMPLE_RATE_HZ, counter.getSampleRateHz(), 0);
+
+        counter.setSampleRate(50);
+        stream(counter, 50, 5 * TEMPO_MS, swing(0.5f));
+        assertEquals(50, counter.getSampleRateHz(), 0);
+        int reps = counter.getRepCount();
+        assertEquals(5, reps, 1);
+
+        // Reps so far are kept
+        counter.setSampleRate(10);
+        stream(counter, 10, 5 * TEMPO_MS, swing(0.5f));
+        assertEquals(10, counter.getSampleRateHz(), 0);
+        assertEquals(reps + 5, counter.getRepCount(), 1);
+    }
+
+    @Test
+    public void newExerciseStartsFromZeroAtItsOwnTempo() {
+        SignalRepCounter counter = counter(20);
+        stream(counter, 20, 4 * TEMPO_MS, swing(0.5f));
+
+        counter.setActiveExercise("Lunge", 3000, SmoothingConfig.DEFAULT);
+
+        assertEquals(0, counter.getRepCount());
+        assertEquals("lunge", counter.getTargetExercise());
+        assertEquals(1500, counter.getRefractoryMs());
+    }
+
+    private SignalRepCounter counter(float sampleRateHz) {
+        SignalRepCounter counter = new SignalRepCounter("squat", TEMPO_MS, sampleRateHz);
+        counter.setRepCountListener(new RepCounter.RepCountListener() {
+            @Override
+            public void onRepCompleted(int repCount) {
+            }
+
+            @Override
+            public void onRepCompleted(int repCount, long sampledAtMs) {
+                reps.add(sampledAtMs);
+            }
+
+            @Override
+            public void onExerciseStateChanged(boolean isDoingExercise, String exerciseName, double confidence) {
+            }
+        });
+        return counter;
+    }
+
+    /**
+     * Vertical acceleration on top of gravity, as a function of the time since the start
+     */
+    private void stream(SignalRepCounter counter, int sampleRateHz, long durationMs, LongToDoubleFunction extraG) {
+        long intervalMs = 1000 / sampleRateHz;
+        for (long t = 0; t < durationMs; t += intervalMs) {
+            float az = 1f + (float) extraG.applyAsDouble(t);
+            counter.processSample(0.01f, -0.02f, az, 1.5f, -3.2f, 0.7f, nowMs + t);
+        }
+        nowMs += durationMs;
+    }
+
+    /**
+     * Swinging once per {@link #TEMPO_MS}
+     */
+    private static LongToDoubleFunction swing(float amplitudeG) {
+        return t -> amplitudeG * Math.sin(2 * Math.PI * t / TEMPO_MS);
+    }
+
+    /**
+     * A 200 ms wide pulse centred on {@code atMs}
+     */
+    private static double bump(long t, long atMs, double heightG) {
+        double x = (t - atMs) / 100.0;
+        return heightG * Math.exp(-x * x);
+    }
+}
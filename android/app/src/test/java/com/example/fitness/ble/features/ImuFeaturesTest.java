@@ -0,0 +1,104 @@
+package com.example.fitness.ble.features;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks the streaming features against a direct computation over the window. Their
+ * cost per sample is measured by ImuFeatureBenchmark in the benchmarks module.
+ */
+public class ImuFeaturesTest {
+
+    private static final int WINDOW = 128;
+    private static final int SAMPLES = 833 * 60; // One minute of sensor data
+
+    private final float[][] data = syntheticImu(SAMPLES);
+
+    @Test
+    public void streamingFeaturesMatchDirectComputation() {
+        FeatureChannel channel = new FeatureChannel(WINDOW);
+        float[] axis = data[0];
+        for (int i = 0; i < SAMPLES; i++) {
+            channel.add(axis[i]);
+            if (i >= WINDOW && i % 997 == 0) {
+                float[] window = Arrays.copyOfRange(axis, i - WINDOW + 1, i + 1);
+                double mean = 0;
+                float min = Float.MAX_VALUE;
+                float max = -Float.MAX_VALUE;
+                for (float v : window) {
+                    mean += v;
+                    min = Math.min(min, v);
+                    max = Math.max(max, v);
+                }
+                mean /= WINDOW;
+                double variance = 0;
+                int crossings = 0;
+                for (int j = 0; j < WINDOW; j++) {
+                    variance += (window[j] - mean) * (window[j] - mean);
+                    if (j > 0 && (window[j] < 0) != (window[j - 1] < 0)) crossings++;
+                }
+                variance /= WINDOW;
+
+                assertEquals(mean, channel.getMean(), 1e-4);
+                assertEquals(variance, channel.getVariance(), 1e-4);
+                assertEquals(min, channel.getMin(), 0f);
+                assertEquals(max, channel.getMax(), 0f);
+                assertEquals(crossings, channel.getZeroCrossings());
+            }
+        }
+    }
+
+    @Test
+    public void fftMatchesDirectDft() {
+        int n = 64;
+        float[] signal = Arrays.copyOf(data[3], n);
+        float[] power = new float[n / 2 + 1];
+        new RealFft(n).powerSpectrum(signal, n, 0f, power);
+        for (int k = 0; k <= n / 2; k++) {
+            double re = 0;
+            double im = 0;
+            for (int i = 0; i < n; i++) {
+                re += signal[i] * Math.cos(2 * Math.PI * k * i / n);
+                im -= signal[i] * Math.sin(2 * Math.PI * k * i / n);
+            }
+            assertEquals((re * re + im * im) / n, power[k], 1e-2 * Math.max(1, power[k]));
+        }
+    }
+
+    @Test
+    public void windowIsReadyOnceFullThenEveryHalfWindow() {
+        ImuFeatureWindow window = new ImuFeatureWindow(WINDOW);
+        float[] features = new float[ImuFeatureWindow.FEATURE_COUNT];
+        int ready = 0;
+        for (int i = 0; i < SAMPLES; i++) {
+            if (window.add(data[0][i], data[1][i], data[2][i], data[3][i], data[4][i], data[5][i])) {
+                assertEquals(0, (i + 1 - WINDOW) % (WINDOW / 2));
+                window.extract(features);
+                ready++;
+            }
+        }
+        assertEquals(1 + (SAMPLES - WINDOW) / (WINDOW / 2), ready);
+        // Mean of the magnitude channel, gravity plus the rep's swing on az
+        assertEquals(1.0, features[ImuFeatureWindow.MAGNITUDE * ImuFeatureWindow.FEATURES_PER_CHANNEL], 0.2);
+    }
+
+    private static float[][] syntheticImu(int samples) {
+        Random random = new Random(42);
+        float[][] axes = new float[6][samples];
+        for (int i = 0; i < samples; i++) {
+            double t = i / 833.0;
+            double rep = Math.sin(2 * Math.PI * 0.5 * t);
+            axes[0][i] = (float) (0.3 * rep + 0.02 * random.nextGaussian());
+            axes[1][i] = (float) (0.1 * Math.cos(2 * Math.PI * 0.5 * t) + 0.02 * random.nextGaussian());
+            axes[2][i] = (float) (1.0 + 0.4 * rep + 0.02 * random.nextGaussian());
+            axes[3][i] = (float) (90 * rep + 2 * random.nextGaussian());
+            axes[4][i] = (float) (20 * Math.sin(2 * Math.PI * 1.0 * t) + 2 * random.nextGaussian());
+            axes[5][i] = (float) (5 * random.nextGaussian());
+        }
+        return axes;
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.fitness.data.repository;
+
+import com.example.fitness.ble.ConfidenceSmoother;
+import com.example.fitness.ble.SmoothingConfig;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * The smoothing each exercise is counted with, and what it does with the confidence
+ * patterns it was picked for.
+ */
+public class ExercisesRepositoryTest {
+
+    private final ExercisesRepository repository = new ExercisesRepository(null);
+
+    @Test
+    public void everyExerciseHasItsSmoothing() {
+        assertSame(SmoothingConfig.DEFAULT, repository.getExerciseSmoothingByName("Squat"));
+        assertEquals(SmoothingConfig.Mode.HYSTERESIS, repository.getExerciseSmoothingByName("Sit-up").getMode());
+        assertEquals(SmoothingConfig.Mode.VOTE, repository.getExerciseSmoothingByName("Lunge").getMode());
+        assertEquals(5, repository.getExerciseSmoothingByName("Lunge").getWindow());
+        assertSame(SmoothingConfig.DEFAULT, repository.getExerciseSmoothingByName("Plank"));
+    }
+
+    @Test
+    public void namesAreMatchedIgnoringCaseAndUnknownOnesGetTheDefault() {
+        assertSame(repository.getExerciseSmoothingByName("Sit-up"), repository.getExerciseSmoothingByName("SIT-UP"));
+        assertSame(SmoothingConfig.DEFAULT, repository.getExerciseSmoothingByName("Burpee"));
+        assertSame(SmoothingConfig.DEFAULT, repository.getExerciseSmoothingByName(null));
+    }
+
+    @Test
+    public void sitUpStaysOneRepThroughTheSagHalfwayUp() {
+        float[] sitUp = {0.9f, 0.9f, 0.2f, 0.2f, 0.9f, 0.9f};
+
+        assertEquals(1, starts(repository.getExerciseSmoothingByName("Sit-up"), sitUp));
+        assertEquals(2, starts(SmoothingConfig.DEFAULT, sitUp));
+    }
+
+    @Test
+    public void lungeStaysOneRepThroughTheStepBetweenLegs() {
+        float[] lunge = {0.8f, 0.8f, 0.8f, 0.1f, 0.1f, 0.8f, 0.8f};
+
+        assertEquals(1, starts(repository.getExerciseSmoothingByName("Lunge"), lunge));
+        assertEquals(2, starts(SmoothingConfig.DEFAULT, lunge));
+    }
+
+    @Test
+    public void squatRepsStaySeparate() {
+        // Four confident frames and six not, twice
+        float[] squats = {0.85f, 0.85f, 0.85f, 0.85f, 0.05f, 0.05f, 0.05f, 0.05f, 0.05f, 0.05f,
+                0.85f, 0.85f, 0.85f, 0.85f, 0.05f, 0.05f, 0.05f, 0.05f, 0.05f, 0.05f};
+
+        assertEquals(2, starts(repository.getExerciseSmoothingByName("Squat"), squats));
+    }
+
+    /**
+     * How many times the exercise starts over the confidences, each start being one rep
+     */
+    private static int starts(SmoothingConfig config, float[] confidences) {
+        ConfidenceSmoother smoother = new ConfidenceSmoother(config);
+        int starts = 0;
+        boolean active = false;
+        for (float confidence : confidences) {
+            boolean now = smoother.update(confidence);
+            if (now && !active) {
+                starts++;
+            }
+            active = now;
+        }
+        return starts;
+    }
+}
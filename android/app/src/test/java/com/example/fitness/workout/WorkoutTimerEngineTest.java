@@ -0,0 +1,145 @@
+package com.example.fitness.workout;
+
+import com.example.fitness.FakeHandler;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The countdown against its deadline: whole-second reports, late ticks, pause and
+ * resume, and a new countdown replacing the one in progress.
+ */
+public class WorkoutTimerEngineTest {
+
+    private FakeHandler handler;
+    private WorkoutTimerEngine timer;
+    private final List<Integer> reported = new ArrayList<>();
+    private final List<Long> finishedAt = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        handler = new FakeHandler();
+        timer = new WorkoutTimerEngine(new WorkoutTimerEngine.Listener() {
+            @Override
+            public void onSecondsRemainingChanged(int secondsRemaining) {
+                reported.add(secondsRemaining);
+            }
+
+            @Override
+            public void onFinished() {
+                finishedAt.add(handler.now());
+            }
+        }, handler, handler::now);
+    }
+
+    @Test
+    public void eachSecondIsReportedOnceThenItFinishesOnce() {
+        timer.start(3);
+        assertEquals(3, timer.getSecondsRemaining());
+        handler.advanceBy(999);
+        assertEquals(List.of(), reported);
+
+        handler.advanceBy(10_000);
+
+        assertEquals(List.of(2, 1, 0), reported);
+        assertEquals(List.of(3000L), finishedAt);
+        assertFalse(timer.isRunning());
+        assertEquals(-1, timer.getSecondsRemaining());
+        assertEquals(0, handler.getPendingCount());
+    }
+
+    @Test
+    public void lateTickCatchesUpWithTheDeadline() {
+        timer.start(10);
+        handler.advanceBy(1000);
+        // Asleep with the tick pending, elapsedRealtime keeps counting
+        handler.sleep(5500);
+        assertEquals(4, timer.getSecondsRemaining());
+        handler.runPending();
+        assertEquals(List.of(9, 4), reported);
+
+        handler.advanceBy(500);
+        assertEquals(List.of(9, 4, 3), reported);
+        handler.advanceBy(10_000);
+        assertEquals(List.of(10_000L), finishedAt);
+    }
+
+    @Test
+    public void pauseFreezesTheRemainingTime() {
+        timer.start(10);
+        handler.advanceBy(2500);
+        timer.pause();
+        handler.advanceBy(60_000);
+
+        assertTrue(timer.isPaused());
+        assertFalse(timer.isRunning());
+        assertEquals(8, timer.getSecondsRemaining());
+        assertEquals(List.of(9, 8), reported);
+
+        timer.resume();
+        handler.runPending();
+        // Still 7.5 s left, nothing new to show until 7
+        assertEquals(List.of(9, 8), reported);
+        handler.advanceBy(500);
+        assertEquals(List.of(9, 8, 7), reported);
+        handler.advanceBy(10_000);
+        assertEquals(List.of(2500L + 60_000 + 7500), finishedAt);
+    }
+
+    @Test
+    public void resumeAfterItRanOutWhilePausedFinishesRightAway() {
+        timer.start(1);
+        handler.sleep(1500);
+        timer.pause();
+        assertEquals(0, timer.getSecondsRemaining());
+
+        timer.resume();
+        handler.runPending();
+
+        assertEquals(List.of(1500L), finishedAt);
+    }
+
+    @Test
+    public void pauseAndResumeOutOfTurnAreIgnored() {
+        timer.resume();
+        timer.pause();
+        assertFalse(timer.isPaused());
+
+        timer.start(5);
+        timer.resume();
+        handler.advanceBy(5000);
+
+        assertEquals(List.of(5000L), finishedAt);
+    }
+
+    @Test
+    public void newCountdownReplacesTheOneInProgress() {
+        timer.start(10);
+        handler.advanceBy(4000);
+        // Skipped ahead, e.g. to the next rest period
+        timer.start(3);
+        handler.advanceBy(60_000);
+
+        assertEquals(List.of(9, 8, 7, 6, 2, 1, 0), reported);
+        assertEquals(List.of(7000L), finishedAt);
+    }
+
+    @Test
+    public void stopCancelsWithoutFinishing() {
+        timer.start(5);
+        handler.advanceBy(1000);
+        timer.stop();
+        handler.advanceBy(60_000);
+
+        assertEquals(List.of(4), reported);
+        assertEquals(List.of(), finishedAt);
+        assertEquals(-1, timer.getSecondsRemaining());
+    }
+}
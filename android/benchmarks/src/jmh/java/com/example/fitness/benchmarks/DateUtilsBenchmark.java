@@ -0,0 +1,33 @@
+package com.example.fitness.benchmarks;
+
+import com.example.fitness.utils.DateUtils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Date parsing behind the workout day checks, run for every plan day on the workout
+ * screens. ISO timestamps take the first format, plain dates fall back to the second.
+ */
+@State(Scope.Thread)
+public class DateUtilsBenchmark {
+
+    public String isoDate = "2026-09-01T08:30:00.000Z";
+    public String simpleDate = "2026-09-01";
+
+    @Benchmark
+    public int currentWorkoutDayIso() {
+        return DateUtils.getCurrentWorkoutDay(isoDate);
+    }
+
+    @Benchmark
+    public int currentWorkoutDaySimple() {
+        return DateUtils.getCurrentWorkoutDay(simpleDate);
+    }
+
+    @Benchmark
+    public boolean dayAvailableForRecording() {
+        return DateUtils.isDayAvailableForRecording(isoDate, 3);
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.fitness.benchmarks;
+
+import com.example.fitness.ble.CounterEvent;
+import com.example.fitness.ble.FrameClock;
+import com.example.fitness.ble.PredictionFrame;
+import com.example.fitness.ble.PredictionFrameDecoder;
+import com.example.fitness.ble.PredictionLabels;
+import com.example.fitness.ble.RepCounter;
+import com.example.fitness.ble.SmoothingConfig;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Each {@link RepCounter.Engine} as the workout creates it, fed 200 ms of a repeating rep
+ * per invocation: one decoded prediction frame and the raw samples taken meanwhile.
+ * Every engine gets both and uses what it counts on. Runs without a listener and with
+ * one at each {@link CounterEvent.Verbosity}, formatting every event it gets like the
+ * debug console.
+ */
+@State(Scope.Thread)
+public class ExerciseCounterBenchmark {
+
+    private static final int FRAMES = 10;
+    private static final long FRAME_INTERVAL_MS = 200;
+    private static final int SAMPLE_RATE_HZ = 20;
+    private static final int SAMPLES_PER_FRAME = (int) (SAMPLE_RATE_HZ * FRAME_INTERVAL_MS / 1000);
+    private static final long REP_TEMPO_MS = FRAMES * FRAME_INTERVAL_MS;
+
+    @Param({"CLASSIFIER", "SIGNAL", "FUSED"})
+    public String engine;
+
+    @Param({"NONE", "OFF", "EVENTS", "SAMPLES"})
+    public String listener;
+
+    private PredictionFrame[] frames;
+    private final float[] az = new float[FRAMES * SAMPLES_PER_FRAME];
+    private RepCounter counter;
+    private int next;
+    private long nowMs;
+
+    @Setup
+    public void setUp(Blackhole blackhole) {
+        PredictionLabels labels = new PredictionLabels();
+        PredictionFrameDecoder decoder = new PredictionFrameDecoder(labels);
+        frames = new PredictionFrame[FRAMES];
+        for (int i = 0; i < FRAMES; i++) {
+            byte[] data = Frames.json(Frames.repScores(i), i);
+            frames[i] = new PredictionFrame(labels);
+            decoder.decode(data, 0, data.length, frames[i]);
+        }
+        // Vertical acceleration swinging half a g once per rep
+        for (int i = 0; i < az.length; i++) {
+            az[i] = 1f + 0.5f * (float) Math.sin(2 * Math.PI * i / az.length);
+        }
+        counter = RepCounter.Engine.valueOf(engine).create("squat", REP_TEMPO_MS, SmoothingConfig.DEFAULT,
+                SAMPLE_RATE_HZ);
+        if (!"NONE".equals(listener)) {
+            counter.setVerbosity(CounterEvent.Verbosity.valueOf(listener));
+            counter.setRepCountListener(new RepCounter.RepCountListener() {
+                @Override
+                public void onRepCompleted(int repCount) {
+                    blackhole.consume(repCount);
+                }
+
+                @Override
+                public void onExerciseStateChanged(boolean isDoingExercise, String exerciseName, double confidence) {
+                    blackhole.consume(isDoingExercise);
+                }
+
+                @Override
+                public void onCounterEvent(CounterEvent event) {
+                    blackhole.consume(event.format());
+                }
+            });
+        }
+    }
+
+    @Benchmark
+    public int processFrame() {
+        long sampleIntervalMs = FRAME_INTERVAL_MS / SAMPLES_PER_FRAME;
+        int first = next * SAMPLES_PER_FRAME;
+        for (int i = 0; i < SAMPLES_PER_FRAME; i++) {
+            counter.processSample(0.01f, -0.02f, az[first + i], 1.5f, -3.2f, 0.7f, nowMs + i * sampleIntervalMs);
+        }
+        PredictionFrame frame = frames[next];
+        FrameClock.setReceivedAtMs(frame, nowMs += FRAME_INTERVAL_MS);
+        counter.processPrediction(frame);
+        next = (next + 1) % FRAMES;
+        return counter.getRepCount();
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.fitness.benchmarks;
+
+import com.example.fitness.ble.BleFrameAssembler;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Arrays;
+
+/**
+ * Reassembly of JSON predictions split across notifications, as done on the binder
+ * thread for every chunk. One operation feeds all chunks of one frame.
+ */
+@State(Scope.Thread)
+public class FrameAssemblyBenchmark {
+
+    /** Notification payload size: default MTU, a typical negotiated one, the maximum */
+    @Param({"20", "182", "512"})
+    public int chunkSize;
+
+    private byte[][] chunks;
+    private BleFrameAssembler assembler;
+    private Blackhole blackhole;
+    private long nowMs;
+
+    @Setup
+    public void setUp(Blackhole blackhole) {
+        this.blackhole = blackhole;
+        byte[] frame = Frames.json(Frames.repScores(0), 1);
+        int count = (frame.length + chunkSize - 1) / chunkSize;
+        chunks = new byte[count][];
+        for (int i = 0; i < count; i++) {
+            chunks[i] = Arrays.copyOfRange(frame, i * chunkSize, Math.min(frame.length, (i + 1) * chunkSize));
+        }
+        assembler = new BleFrameAssembler();
+        assembler.setFrameListener((buffer, offset, length) -> this.blackhole.consume(length));
+    }
+
+    @Benchmark
+    public long assembleFrame() {
+        for (byte[] chunk : chunks) {
+            assembler.accept(chunk, nowMs);
+        }
+        nowMs += 200;
+        return assembler.getFrameCount();
+    }
+}
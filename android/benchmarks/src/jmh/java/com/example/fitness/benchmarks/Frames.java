@@ -0,0 +1,70 @@
+package com.example.fitness.benchmarks;
+
+import com.example.fitness.ble.PredictionFrameDecoder;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Prediction frames as the ESP32 sends them, in both wire formats.
+ */
+final class Frames {
+
+    static final String[] LABELS = {"squat", "sit_up", "lunge", "plank", "cobra", "idle"};
+
+    private Frames() {
+    }
+
+    static byte[] json(float[] scores, int sequence) {
+        StringBuilder json = new StringBuilder("{\"predictions\":{");
+        for (int i = 0; i < LABELS.length; i++) {
+            if (i > 0) json.append(',');
+            json.append('"').append(LABELS[i]).append("\":").append(String.format(Locale.US, "%.4f", scores[i]));
+        }
+        json.append("},\"sensor\":{\"ax\":0.012,\"ay\":-0.981,\"az\":0.104,\"gx\":1.5,\"gy\":-3.2,\"gz\":0.7}")
+                .append(",\"seq\":").append(sequence).append(",\"ts\":").append(sequence * 200L).append('}');
+        return json.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    static byte[] binaryLabelTable() {
+        ByteBuffer buffer = ByteBuffer.allocate(256).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put(PredictionFrameDecoder.MAGIC).put((byte) PredictionFrameDecoder.PROTOCOL_VERSION)
+                .put((byte) PredictionFrameDecoder.TYPE_LABELS).put((byte) 0).put((byte) LABELS.length);
+        for (String label : LABELS) {
+            byte[] name = label.getBytes(StandardCharsets.US_ASCII);
+            buffer.put((byte) name.length).put(name);
+        }
+        byte[] frame = new byte[buffer.position()];
+        buffer.flip();
+        buffer.get(frame);
+        return frame;
+    }
+
+    static byte[] binary(float[] scores, int sequence) {
+        ByteBuffer buffer = ByteBuffer.allocate(11 + 2 * LABELS.length + 12).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put(PredictionFrameDecoder.MAGIC).put((byte) PredictionFrameDecoder.PROTOCOL_VERSION)
+                .put((byte) PredictionFrameDecoder.TYPE_PREDICTION).put((byte) PredictionFrameDecoder.FLAG_IMU)
+                .putShort((short) sequence).putInt(sequence * 200).put((byte) LABELS.length);
+        for (float score : scores) {
+            buffer.putShort((short) Math.round(score * 65535));
+        }
+        buffer.putShort((short) 12).putShort((short) -981).putShort((short) 104)
+                .putShort((short) 15).putShort((short) -32).putShort((short) 7);
+        return buffer.array();
+    }
+
+    /**
+     * Squat confidence rising and falling over a 10 frame rep, the rest shared out evenly
+     */
+    static float[] repScores(int frame) {
+        float squat = frame % 10 < 4 ? 0.85f : 0.05f;
+        float[] scores = new float[LABELS.length];
+        scores[0] = squat;
+        for (int i = 1; i < scores.length; i++) {
+            scores[i] = (1f - squat) / (scores.length - 1);
+        }
+        return scores;
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.fitness.benchmarks;
+
+import com.example.fitness.ble.features.ImuFeatureWindow;
+import com.example.fitness.ble.features.RealFft;
+import com.example.fitness.ble.features.SlidingExtrema;
+import com.example.fitness.ble.features.SlidingMoments;
+import com.example.fitness.ble.features.ZeroCrossingCounter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+/**
+ * Streaming IMU features, one score per feature and one for the full 7-channel window.
+ * Each invocation feeds one second of 833 Hz data and is reported per sample, so the
+ * full window has to stay far below the 1.2 ms per sample the LSM6DS3 leaves.
+ */
+@State(Scope.Thread)
+@OperationsPerInvocation(ImuFeatureBenchmark.SAMPLES)
+public class ImuFeatureBenchmark {
+
+    static final int SAMPLES = 833;
+    private static final int WINDOW = 128;
+
+    private final float[][] data = syntheticImu(SAMPLES);
+    private final float[] momentsRing = new float[WINDOW];
+    private final float[] fftWindow = new float[WINDOW];
+    private final float[] power = new float[WINDOW / 2 + 1];
+    private final float[] bands = new float[ImuFeatureWindow.SPECTRAL_BANDS];
+    private final float[] features = new float[ImuFeatureWindow.FEATURE_COUNT];
+
+    private SlidingMoments moments;
+    private SlidingExtrema extrema;
+    private ZeroCrossingCounter crossings;
+    private RealFft fft;
+    private ImuFeatureWindow window;
+    private long momentsAdded;
+
+    @Setup
+    public void setUp() {
+        moments = new SlidingMoments();
+        extrema = new SlidingExtrema(WINDOW);
+        crossings = new ZeroCrossingCounter(WINDOW);
+        fft = new RealFft(WINDOW);
+        window = new ImuFeatureWindow(WINDOW);
+    }
+
+    /** Mean, variance and RMS */
+    @Benchmark
+    public float moments() {
+        float[] axis = data[0];
+        for (int i = 0; i < SAMPLES; i++, momentsAdded++) {
+            int slot = (int) (momentsAdded % WINDOW);
+            if (momentsAdded < WINDOW) moments.add(axis[i]);
+            else moments.replace(momentsRing[slot], axis[i]);
+            momentsRing[slot] = axis[i];
+        }
+        return moments.getVariance() + moments.getRms();
+    }
+
+    /** Min, max and peak-to-peak */
+    @Benchmark
+    public float extrema() {
+        float[] axis = data[0];
+        for (int i = 0; i < SAMPLES; i++) {
+            extrema.add(axis[i]);
+        }
+        return extrema.getPeakToPeak();
+    }
+
+    @Benchmark
+    public float zeroCrossings() {
+        float[] axis = data[3];
+        for (int i = 0; i < SAMPLES; i++) {
+            crossings.add(axis[i]);
+        }
+        return crossings.getRate();
+    }
+
+    @Benchmark
+    public float magnitude() {
+        float sum = 0;
+        for (int i = 0; i < SAMPLES; i++) {
+            sum += ImuFeatureWindow.magnitude(data[0][i], data[1][i], data[2][i]);
+        }
+        return sum;
+    }
+
+    /** One transform per channel every hop, amortised over the samples of that hop */
+    @Benchmark
+    public float fftBandEnergies() {
+        float[] axis = data[0];
+        for (int i = WINDOW; i <= SAMPLES; i += WINDOW / 2) {
+            System.arraycopy(axis, i - WINDOW, fftWindow, 0, WINDOW);
+            fft.powerSpectrum(fftWindow, WINDOW, 0f, power);
+            RealFft.bandEnergies(power, power.length, bands, 0, bands.length);
+        }
+        return bands[0];
+    }
+
+    @Benchmark
+    public float fullWindow() {
+        for (int i = 0; i < SAMPLES; i++) {
+            if (window.add(data[0][i], data[1][i], data[2][i], data[3][i], data[4][i], data[5][i])) {
+                window.extract(features);
+            }
+        }
+        return features[0];
+    }
+
+    /**
+     * A rep every 2 seconds on the accelerometer and the pitch rate, with sensor noise
+     */
+    private static float[][] syntheticImu(int samples) {
+        Random random = new Random(42);
+        float[][] axes = new float[6][samples];
+        for (int i = 0; i < samples; i++) {
+            double t = i / 833.0;
+            double rep = Math.sin(2 * Math.PI * 0.5 * t);
+            axes[0][i] = (float) (0.3 * rep + 0.02 * random.nextGaussian());
+            axes[1][i] = (float) (0.1 * Math.cos(2 * Math.PI * 0.5 * t) + 0.02 * random.nextGaussian());
+            axes[2][i] = (float) (1.0 + 0.4 * rep + 0.02 * random.nextGaussian());
+            axes[3][i] = (float) (90 * rep + 2 * random.nextGaussian());
+            axes[4][i] = (float) (20 * Math.sin(2 * Math.PI * 1.0 * t) + 2 * random.nextGaussian());
+            axes[5][i] = (float) (5 * random.nextGaussian());
+        }
+        return axes;
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.fitness.benchmarks;
+
+import com.example.fitness.ble.PredictionFrame;
+import com.example.fitness.ble.PredictionFrameDecoder;
+import com.example.fitness.ble.PredictionLabels;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Legacy JSON predictions against packed binary frames, decoded into one reused frame
+ * the way the processing pipeline does.
+ */
+@State(Scope.Thread)
+public class PredictionDecodeBenchmark {
+
+    public enum Format { JSON, BINARY }
+
+    private static final int FRAMES = 10;
+
+    @Param({"JSON", "BINARY"})
+    public Format format;
+
+    private byte[][] frames;
+    private PredictionFrameDecoder decoder;
+    private PredictionFrame frame;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        PredictionLabels labels = new PredictionLabels();
+        decoder = new PredictionFrameDecoder(labels);
+        frame = new PredictionFrame(labels);
+        frames = new byte[FRAMES][];
+        for (int i = 0; i < FRAMES; i++) {
+            float[] scores = Frames.repScores(i);
+            frames[i] = format == Format.JSON ? Frames.json(scores, i) : Frames.binary(scores, i);
+        }
+        if (format == Format.BINARY) {
+            byte[] table = Frames.binaryLabelTable();
+            decoder.decode(table, 0, table.length, frame);
+        }
+        // Labels are interned on the first frames, measure the steady state
+        for (byte[] data : frames) {
+            decoder.decode(data, 0, data.length, frame);
+        }
+    }
+
+    @Benchmark
+    public float decode() {
+        byte[] data = frames[next];
+        next = (next + 1) % FRAMES;
+        decoder.decode(data, 0, data.length, frame);
+        return frame.getScore(0);
+    }
+}
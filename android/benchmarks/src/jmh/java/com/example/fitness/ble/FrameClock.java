@@ -0,0 +1,17 @@
+package com.example.fitness.ble;
+
+/**
+ * Lets benchmarks stamp pre-decoded frames with an arrival time, which the pipeline
+ * normally sets when it takes a frame off the queue.
+ */
+public final class FrameClock {
+
+    private FrameClock() {
+    }
+
+    public static void setReceivedAtMs(PredictionFrame frame, long receivedAtMs) {
+        frame.receivedAtMs = receivedAtMs;
+        // Counters run on the sample time, which is the arrival time without a clock sync
+        frame.sampledAtMs = receivedAtMs;
+    }
+}
@@ -30,6 +30,17 @@
 #define CONVERT_G_TO_MS2 9.80665f
 
 static unsigned long last_interval_ms = 0;
+static uint16_t frame_sequence = 0;  // Wraps, the app compares modulo 2^16
+
+#define FRAME_MAGIC 0xA5
+#define FRAME_PROTOCOL_VERSION 1
+#define FRAME_TYPE_TIME_SYNC 0x03
+
+// Clock ping from the app, answered from loop()
+#define TIME_SYNC_PING_SIZE 6
+static volatile bool time_sync_pending = false;
+static volatile uint16_t time_sync_ping_id = 0;
+static volatile unsigned long time_sync_received_ms = 0;
 
 // BLE variables
 BLECharacteristic *pCharacteristic;
@@ -55,6 +66,20 @@ class MyServerCallbacks : public BLEServerCallbacks {
   }
 };
 
+class TimeSyncCallbacks : public BLECharacteristicCallbacks {
+  // Runs on the BLE task: only note the ping, loop() sends the echo
+  void onWrite(BLECharacteristic *characteristic) {
+    unsigned long received_ms = millis();
+    uint8_t *data = characteristic->getData();
+    size_t length = characteristic->getLength();
+    if (length >= TIME_SYNC_PING_SIZE && data[0] == FRAME_MAGIC && data[2] == FRAME_TYPE_TIME_SYNC) {
+      time_sync_ping_id = data[4] | (data[5] << 8);
+      time_sync_received_ms = received_ms;
+      time_sync_pending = true;
+    }
+  }
+};
+
 /**
  * @brief      Copy raw feature data in out_ptr
  *             Function called by inference library
@@ -93,6 +118,7 @@ void setup() {
   pCharacteristic = pService->createCharacteristic(CHARACTERISTIC_UUID,
                                                    BLECharacteristic::PROPERTY_READ | BLECharacteristic::PROPERTY_WRITE | BLECharacteristic::PROPERTY_NOTIFY);
 
+  pCharacteristic->setCallbacks(new TimeSyncCallbacks());
   pCharacteristic->addDescriptor(pDescriptor);
   pCharacteristic->setValue("ML Predictions Ready");
   pService->start();
@@ -134,6 +160,13 @@ void setup() {
  * @brief      Arduino main function
  */
 void loop() {
+  if (time_sync_pending) {
+    time_sync_pending = false;
+    if (deviceConnected) {
+      sendTimeSyncEcho();
+    }
+  }
+
   if (millis() > last_interval_ms + INTERVAL_MS) {
     last_interval_ms = millis();
     // Collect sensor data
@@ -198,9 +231,41 @@ void loop() {
   }
 }
 
+static void put_u16(uint8_t *buf, size_t &n, uint16_t value) {
+  buf[n++] = value & 0xFF;
+  buf[n++] = (value >> 8) & 0xFF;
+}
+
+static void put_u32(uint8_t *buf, size_t &n, uint32_t value) {
+  put_u16(buf, n, value & 0xFFFF);
+  put_u16(buf, n, (value >> 16) & 0xFFFF);
+}
+
+/**
+ * @brief      Answer the app's last clock ping with the time it arrived and the time
+ *             of this reply, see BleTimeSync in the Android app
+ */
+void sendTimeSyncEcho() {
+  uint8_t buf[14];
+  size_t n = 0;
+  buf[n++] = FRAME_MAGIC;
+  buf[n++] = FRAME_PROTOCOL_VERSION;
+  buf[n++] = FRAME_TYPE_TIME_SYNC;
+  buf[n++] = 0;
+  put_u16(buf, n, time_sync_ping_id);
+  put_u32(buf, n, time_sync_received_ms);
+  put_u32(buf, n, millis());
+  pCharacteristic->setValue(buf, n);
+  pCharacteristic->notify();
+}
+
 String createPredictionJSON(float ax, float ay, float az, float gx, float gy, float gz, ei_impulse_result_t result) {
   String json = "{";
 
+  // Frame number and sensor time, the app counts gaps in the sequence as lost frames
+  json += "\"seq\":" + String(frame_sequence++) + ",";
+  json += "\"ts\":" + String(last_interval_ms) + ",";
+
   // Add sensor data
   json += "\"sensor\":{";
   json += "\"ax\":" + String(ax, 3) + ",";
@@ -25,13 +25,58 @@
 #define SERVICE_UUID "4fafc201-1fb5-459e-8fcc-c5c9c331914b"
 #define CHARACTERISTIC_UUID "beb5483e-36e1-4688-b7f5-ea07361b26a8"
 
-#define FREQUENCY_HZ 10
-#define INTERVAL_MS (1000 / (FREQUENCY_HZ + 1))
+#define FREQUENCY_HZ 10  // Rate the classifier was trained on
+#define MIN_FREQUENCY_HZ 5
+#define MAX_FREQUENCY_HZ 100
 #define CONVERT_G_TO_MS2 9.80665f
 
 static unsigned long last_interval_ms = 0;
+static unsigned long interval_ms = 1000 / (FREQUENCY_HZ + 1);
+
+// Packed binary prediction frames, decoded by PredictionFrameDecoder in the Android app.
+// Set to 0 to send the legacy JSON payload instead.
+#define USE_BINARY_FRAMES 1
+#define FRAME_MAGIC 0xA5
+#define FRAME_PROTOCOL_VERSION 1
+#define FRAME_TYPE_PREDICTION 0x01
+#define FRAME_TYPE_LABELS 0x02
+#define FRAME_TYPE_TIME_SYNC 0x03
+#define FRAME_TYPE_SENSOR_PROFILE 0x04
+#define FRAME_FLAG_IMU 0x01
+#define LABEL_TABLE_RESEND_INTERVAL 50  // Resend labels every N predictions in case one was missed
+
+static uint16_t frame_sequence = 0;
+static bool label_table_sent = false;
+
+// Clock ping from the app, answered from loop()
+#define TIME_SYNC_PING_SIZE 6
+static volatile bool time_sync_pending = false;
+static volatile uint16_t time_sync_ping_id = 0;
+static volatile unsigned long time_sync_received_ms = 0;
+
+// Sensor profile from the app, see BleCommands in the Android app. Written on the
+// BLE task, applied by loop() between samples.
+#define SENSOR_PROFILE_SIZE 10
+#define MODE_PREDICTIONS 0
+#define MODE_RAW_SAMPLES 1
+#define MAX_BATCH_SIZE 8
+#define WINDOW_SAMPLES (EI_CLASSIFIER_DSP_INPUT_FRAME_SIZE / 6)
+#define DEFAULT_STRIDE_SAMPLES (WINDOW_SAMPLES - WINDOW_SAMPLES / 2)  // Reuse half a window
+static uint8_t sensor_mode = MODE_PREDICTIONS;
+static uint16_t sample_rate_hz = FREQUENCY_HZ;
+static int stride_samples = DEFAULT_STRIDE_SAMPLES;
+static uint8_t batch_size = 1;
+static uint8_t pending_profile[SENSOR_PROFILE_SIZE];
+static volatile bool profile_pending = false;
+static volatile bool profile_reset_pending = false;
+
+// Frames or CSV lines waiting to go out together in one notification
+static uint8_t batch_buf[512];
+static size_t batch_length = 0;
+static uint8_t batch_count = 0;
 
 // BLE variables
+BLEServer *bleServer;
 BLECharacteristic *pCharacteristic;
 bool deviceConnected = false;
 
@@ -46,15 +91,38 @@ static bool data_ready = false;
 class MyServerCallbacks : public BLEServerCallbacks {
   void onConnect(BLEServer *pServer) {
     deviceConnected = true;
+    label_table_sent = false;
   }
 
   void onDisconnect(BLEServer *pServer) {
     deviceConnected = false;
+    // The next app starts from the defaults
+    profile_reset_pending = true;
     // Restart advertising so the client can reconnect
     pServer->getAdvertising()->start();
   }
 };
 
+class CommandCallbacks : public BLECharacteristicCallbacks {
+  // Runs on the BLE task: only note the command, loop() acts on it
+  void onWrite(BLECharacteristic *characteristic) {
+    unsigned long received_ms = millis();
+    uint8_t *data = characteristic->getData();
+    size_t length = characteristic->getLength();
+    if (length < 4 || data[0] != FRAME_MAGIC) {
+      return;
+    }
+    if (length >= TIME_SYNC_PING_SIZE && data[2] == FRAME_TYPE_TIME_SYNC) {
+      time_sync_ping_id = data[4] | (data[5] << 8);
+      time_sync_received_ms = received_ms;
+      time_sync_pending = true;
+    } else if (length >= SENSOR_PROFILE_SIZE && data[2] == FRAME_TYPE_SENSOR_PROFILE) {
+      memcpy(pending_profile, data, SENSOR_PROFILE_SIZE);
+      profile_pending = true;
+    }
+  }
+};
+
 /**
  * @brief      Copy raw feature data in out_ptr
  *             Function called by inference library
@@ -86,13 +154,14 @@ void setup() {
 
   // Initialize BLE
   BLEDevice::init("MyESP32");
-  BLEServer *pServer = BLEDevice::createServer();
-  pServer->setCallbacks(new MyServerCallbacks());
-  BLEService *pService = pServer->createService(SERVICE_UUID);
+  bleServer = BLEDevice::createServer();
+  bleServer->setCallbacks(new MyServerCallbacks());
+  BLEService *pService = bleServer->createService(SERVICE_UUID);
   BLEDescriptor *pDescriptor = new BLEDescriptor((uint16_t)0x2902);
   pCharacteristic = pService->createCharacteristic(CHARACTERISTIC_UUID,
                                                    BLECharacteristic::PROPERTY_READ | BLECharacteristic::PROPERTY_WRITE | BLECharacteristic::PROPERTY_NOTIFY);
 
+  pCharacteristic->setCallbacks(new CommandCallbacks());
   pCharacteristic->addDescriptor(pDescriptor);
   pCharacteristic->setValue("ML Predictions Ready");
   pService->start();
@@ -134,7 +203,27 @@ void setup() {
  * @brief      Arduino main function
  */
 void loop() {
-  if (millis() > last_interval_ms + INTERVAL_MS) {
+  if (time_sync_pending) {
+    time_sync_pending = false;
+    if (deviceConnected) {
+      sendTimeSyncEcho();
+    }
+  }
+
+  if (profile_reset_pending) {
+    profile_reset_pending = false;
+    applySensorProfile(MODE_PREDICTIONS, 0, 0, 1);
+  }
+  if (profile_pending) {
+    profile_pending = false;
+    applySensorProfile(pending_profile[4], pending_profile[6] | (pending_profile[7] << 8),
+                       pending_profile[8] | (pending_profile[9] << 8), pending_profile[5]);
+    if (deviceConnected) {
+      sendSensorProfile();
+    }
+  }
+
+  if (millis() > last_interval_ms + interval_ms) {
     last_interval_ms = millis();
     // Collect sensor data
     float ax = myIMU.readFloatAccelX();
@@ -144,6 +233,14 @@ void loop() {
     float gy = myIMU.readFloatGyroY();
     float gz = myIMU.readFloatGyroZ();
 
+    if (sensor_mode == MODE_RAW_SAMPLES) {
+      // The app classifies and counts on the phone, skip the on-device model
+      if (deviceConnected) {
+        queueRawSample(ax, ay, az, gx, gy, gz);
+      }
+      return;
+    }
+
     // Store sensor readings in features array (assuming 6 values per sample: ax, ay, az, gx, gy, gz)
     if (feature_index < EI_CLASSIFIER_DSP_INPUT_FRAME_SIZE - 5) {
       features[feature_index++] = ax;
@@ -158,8 +255,8 @@ void loop() {
     if (feature_index >= EI_CLASSIFIER_DSP_INPUT_FRAME_SIZE) {
       data_ready = true;
       
-      // Sliding window: reuse features that are divisible by 6 (complete sensor samples)
-      int reuse_samples = (EI_CLASSIFIER_DSP_INPUT_FRAME_SIZE / 6) / 2;  // Half the samples
+      // Sliding window: keep all but the next stride of complete sensor samples
+      int reuse_samples = WINDOW_SAMPLES - stride_samples;
       int reuse_features = reuse_samples * 6;  // Ensure divisible by 6
       
       // Move the last reuse_features to the beginning
@@ -171,7 +268,7 @@ void loop() {
 
     // Perform inference when data is ready
     if (data_ready) {
-      int reuse_samples = (EI_CLASSIFIER_DSP_INPUT_FRAME_SIZE / 6) / 2;
+      int reuse_samples = WINDOW_SAMPLES - stride_samples;
       int reuse_features = reuse_samples * 6;
       ei_printf("Running inference with sliding window (reusing %d features = %d complete samples)...\n", reuse_features, reuse_samples);
 
@@ -188,6 +285,17 @@ void loop() {
       if (res == EI_IMPULSE_OK) {
         ei_printf("Inference completed successfully\n");
 
+#if USE_BINARY_FRAMES
+        // Send a packed frame via BLE if connected, the label table goes first
+        if (deviceConnected) {
+          if (!label_table_sent || frame_sequence % LABEL_TABLE_RESEND_INTERVAL == 0) {
+            flushBatch();
+            sendLabelTable();
+            label_table_sent = true;
+          }
+          queuePredictionFrame(ax, ay, az, gx, gy, gz, result);
+        }
+#else
         // Create JSON with sensor data and predictions
         String jsonData = createPredictionJSON(ax, ay, az, gx, gy, gz, result);
 
@@ -197,6 +305,7 @@ void loop() {
           pCharacteristic->notify();
           Serial.println("Data sent via BLE: " + jsonData);
         }
+#endif
 
         // Print results to serial
         print_inference_result(result);
@@ -209,9 +318,210 @@ void loop() {
   }
 }
 
+static void put_u16(uint8_t *buf, size_t &n, uint16_t value) {
+  buf[n++] = value & 0xFF;
+  buf[n++] = (value >> 8) & 0xFF;
+}
+
+static void put_u32(uint8_t *buf, size_t &n, uint32_t value) {
+  put_u16(buf, n, value & 0xFFFF);
+  put_u16(buf, n, (value >> 16) & 0xFFFF);
+}
+
+static void put_i16_scaled(uint8_t *buf, size_t &n, float value, float scale) {
+  float scaled = constrain(value * scale, -32768.0f, 32767.0f);
+  put_u16(buf, n, (uint16_t)(int16_t)lroundf(scaled));
+}
+
+/**
+ * @brief      Switch to a new sensor profile, clamped to what this sketch supports.
+ *             Zero rate or stride selects the default.
+ */
+void applySensorProfile(uint8_t mode, uint16_t rate_hz, uint16_t stride_ms, uint8_t batch) {
+  // Nothing queued under the old profile is lost
+  flushBatch();
+
+  uint8_t new_mode = mode == MODE_RAW_SAMPLES ? MODE_RAW_SAMPLES : MODE_PREDICTIONS;
+  // The classifier only works at the rate it was trained on
+  if (new_mode == MODE_PREDICTIONS || rate_hz == 0) {
+    rate_hz = FREQUENCY_HZ;
+  }
+  rate_hz = constrain(rate_hz, MIN_FREQUENCY_HZ, MAX_FREQUENCY_HZ);
+  if (new_mode != sensor_mode || rate_hz != sample_rate_hz) {
+    // Samples taken at another rate or not at all must not end up in one window
+    feature_index = 0;
+    data_ready = false;
+  }
+  sensor_mode = new_mode;
+  sample_rate_hz = rate_hz;
+  interval_ms = 1000 / (sample_rate_hz + 1);
+
+  if (stride_ms == 0) {
+    stride_samples = DEFAULT_STRIDE_SAMPLES;
+  } else {
+    stride_samples = constrain((int)((uint32_t)stride_ms * sample_rate_hz / 1000), 1, WINDOW_SAMPLES);
+  }
+  batch_size = constrain(batch, 1, MAX_BATCH_SIZE);
+  ei_printf("Sensor profile: mode %d, %d Hz, stride %d samples, batch %d\n",
+            sensor_mode, sample_rate_hz, stride_samples, batch_size);
+}
+
+/**
+ * @brief      Report the profile in use, the app's answer to its command
+ */
+void sendSensorProfile() {
+  uint8_t buf[SENSOR_PROFILE_SIZE];
+  size_t n = 0;
+  buf[n++] = FRAME_MAGIC;
+  buf[n++] = FRAME_PROTOCOL_VERSION;
+  buf[n++] = FRAME_TYPE_SENSOR_PROFILE;
+  buf[n++] = 0;
+  buf[n++] = sensor_mode;
+  buf[n++] = batch_size;
+  put_u16(buf, n, sample_rate_hz);
+  put_u16(buf, n, sensor_mode == MODE_PREDICTIONS ? stride_samples * 1000 / sample_rate_hz : 0);
+  pCharacteristic->setValue(buf, n);
+  pCharacteristic->notify();
+}
+
+/**
+ * @brief      Largest payload one notification can carry on this link
+ */
+static size_t notifyCapacity() {
+  uint16_t mtu = bleServer->getPeerMTU(bleServer->getConnId());
+  size_t capacity = mtu > 3 ? mtu - 3 : 20;
+  return min(capacity, sizeof(batch_buf));
+}
+
+/**
+ * @brief      Send whatever is batched, if anything
+ */
+void flushBatch() {
+  if (batch_length > 0 && deviceConnected) {
+    pCharacteristic->setValue(batch_buf, batch_length);
+    pCharacteristic->notify();
+  }
+  batch_length = 0;
+  batch_count = 0;
+}
+
+/**
+ * @brief      Add one frame or line to the batch, sent once the profile's batch size
+ *             is reached or the next one would not fit the MTU
+ */
+void queueForNotify(const uint8_t *data, size_t n) {
+  if (batch_length > 0 && batch_length + n > notifyCapacity()) {
+    flushBatch();
+  }
+  if (n > sizeof(batch_buf)) {
+    return;
+  }
+  memcpy(batch_buf + batch_length, data, n);
+  batch_length += n;
+  batch_count++;
+  if (batch_count >= batch_size) {
+    flushBatch();
+  }
+}
+
+/**
+ * @brief      Queue one raw sample as a CSV line, the format of esp32_bt_data_csv
+ */
+void queueRawSample(float ax, float ay, float az, float gx, float gy, float gz) {
+  char line[96];
+  int len = snprintf(line, sizeof(line), "%.2f,%.2f,%.2f,%.2f,%.2f,%.2f\n", ax, ay, az, gx, gy, gz);
+  if (len > 0 && len < (int)sizeof(line)) {
+    queueForNotify((uint8_t *)line, len);
+  }
+}
+
+/**
+ * @brief      Answer the app's last clock ping with the time it arrived and the time
+ *             of this reply, see BleTimeSync in the Android app
+ */
+void sendTimeSyncEcho() {
+  uint8_t buf[14];
+  size_t n = 0;
+  buf[n++] = FRAME_MAGIC;
+  buf[n++] = FRAME_PROTOCOL_VERSION;
+  buf[n++] = FRAME_TYPE_TIME_SYNC;
+  buf[n++] = 0;
+  put_u16(buf, n, time_sync_ping_id);
+  put_u32(buf, n, time_sync_received_ms);
+  put_u32(buf, n, millis());
+  pCharacteristic->setValue(buf, n);
+  pCharacteristic->notify();
+}
+
+/**
+ * @brief      Send the label names in the order used by prediction frames
+ */
+void sendLabelTable() {
+  uint8_t buf[256];
+  size_t n = 0;
+  buf[n++] = FRAME_MAGIC;
+  buf[n++] = FRAME_PROTOCOL_VERSION;
+  buf[n++] = FRAME_TYPE_LABELS;
+  buf[n++] = 0;
+  size_t count_at = n++;
+  uint8_t count = 0;
+  for (uint16_t i = 0; i < EI_CLASSIFIER_LABEL_COUNT; i++) {
+    const char *label = ei_classifier_inferencing_categories[i];
+    size_t len = min(strlen(label), (size_t)32);
+    if (n + 1 + len > sizeof(buf)) {
+      break;
+    }
+    buf[n++] = len;
+    memcpy(buf + n, label, len);
+    n += len;
+    count++;
+  }
+  // Only the labels that fit, the app must not read past the end of the table
+  buf[count_at] = count;
+  pCharacteristic->setValue(buf, n);
+  pCharacteristic->notify();
+}
+
+/**
+ * @brief      Queue one prediction as a packed binary frame, several may share a
+ *             notification depending on the sensor profile
+ *
+ * Layout (little-endian): magic, version, type, flags, u16 sequence, u32 millis()
+ * when the newest IMU sample was read,
+ * u8 label count, u16 score * 65535 per label, then ax/ay/az in milli-g and
+ * gx/gy/gz in 0.1 deg/s as i16.
+ */
+void queuePredictionFrame(float ax, float ay, float az, float gx, float gy, float gz, ei_impulse_result_t &result) {
+  uint8_t buf[11 + EI_CLASSIFIER_LABEL_COUNT * 2 + 12];
+  size_t n = 0;
+  buf[n++] = FRAME_MAGIC;
+  buf[n++] = FRAME_PROTOCOL_VERSION;
+  buf[n++] = FRAME_TYPE_PREDICTION;
+  buf[n++] = FRAME_FLAG_IMU;
+  put_u16(buf, n, frame_sequence++);
+  put_u32(buf, n, last_interval_ms);
+  buf[n++] = EI_CLASSIFIER_LABEL_COUNT;
+  for (uint16_t i = 0; i < EI_CLASSIFIER_LABEL_COUNT; i++) {
+    float value = constrain(result.classification[i].value, 0.0f, 1.0f);
+    put_u16(buf, n, (uint16_t)(value * 65535.0f + 0.5f));
+  }
+  put_i16_scaled(buf, n, ax, 1000.0f);
+  put_i16_scaled(buf, n, ay, 1000.0f);
+  put_i16_scaled(buf, n, az, 1000.0f);
+  put_i16_scaled(buf, n, gx, 10.0f);
+  put_i16_scaled(buf, n, gy, 10.0f);
+  put_i16_scaled(buf, n, gz, 10.0f);
+
+  queueForNotify(buf, n);
+}
+
 String createPredictionJSON(float ax, float ay, float az, float gx, float gy, float gz, ei_impulse_result_t result) {
   String json = "{";
 
+  // Frame number and sensor time, the app counts gaps in the sequence as lost frames
+  json += "\"seq\":" + String(frame_sequence++) + ",";
+  json += "\"ts\":" + String(last_interval_ms) + ",";
+
   // Add sensor data
   json += "\"sensor\":{";
   json += "\"ax\":" + String(ax, 3) + ",";